@@ -35,10 +35,23 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.tomcat.jdbc.pool.DataSourceProxy;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
+import org.kawanfw.sql.api.server.session.DefaultSessionConfigurator;
+import org.kawanfw.sql.api.server.session.SessionConfigurator;
+import org.kawanfw.sql.api.util.firewall.RuleFileWatcher;
+import org.kawanfw.sql.servlet.DatabaseBulkhead;
+import org.kawanfw.sql.servlet.DatabaseBulkheadStore;
+import org.kawanfw.sql.servlet.FirewallTriggerWriter;
 import org.kawanfw.sql.servlet.ServerSqlManager;
+import org.kawanfw.sql.servlet.connection.ConnectionStore;
+import org.kawanfw.sql.servlet.connection.ConnectionStoreReaper;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
+import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
+import org.kawanfw.sql.servlet.sql.UpdateListenerDispatcher;
 import org.kawanfw.sql.servlet.sql.json_return.ExceptionReturner;
 import org.kawanfw.sql.servlet.sql.json_return.JsonErrorReturn;
 import org.kawanfw.sql.servlet.sql.json_return.JsonUtil;
+import org.kawanfw.sql.servlet.util.logging.AsyncLoggerStore;
+import org.kawanfw.sql.servlet.util.logging.MeteredAsyncAppender;
 import org.kawanfw.sql.util.FrameworkDebug;
 
 /**
@@ -237,6 +250,93 @@ public class DefaultPoolsInfo extends HttpServlet {
 	}
 
 	gen.writeEnd();
+
+	gen.writeStartObject("statementCache");
+	gen.write("getSize()", StatementCacheStore.size());
+	gen.write("getHits()", StatementCacheStore.getHits());
+	gen.write("getMisses()", StatementCacheStore.getMisses());
+	gen.write("getEvictions()", StatementCacheStore.getEvictions());
+	gen.writeEnd();
+
+	gen.writeStartObject("firewallRuleFiles");
+	gen.write("getReloadCount()", RuleFileWatcher.getReloadCount());
+	gen.write("getReloadTotalMillis()", RuleFileWatcher.getReloadTotalMillis());
+	gen.write("getLastReloadMillis()", RuleFileWatcher.getLastReloadMillis());
+	gen.writeEnd();
+
+	gen.writeStartObject("connectionStore");
+	gen.write("getSize()", ConnectionStore.getKeys().size());
+	gen.write("getMaxIdleMillis()", ConnectionStore.getMaxIdleMillis());
+	gen.write("getReapedCount()", ConnectionStoreReaper.getReapedCount());
+	gen.writeEnd();
+
+	SessionConfigurator sessionConfigurator = InjectedClassesStore.get().getSessionConfigurator();
+	if (sessionConfigurator instanceof DefaultSessionConfigurator) {
+	    DefaultSessionConfigurator defaultSessionConfigurator = (DefaultSessionConfigurator) sessionConfigurator;
+	    gen.writeStartObject("sessions");
+	    gen.write("getLiveSessionCount()", defaultSessionConfigurator.getLiveSessionCount());
+	    gen.write("getExpiredSessionCount()", defaultSessionConfigurator.getExpiredSessionCount());
+	    gen.write("getEvictedSessionCount()", defaultSessionConfigurator.getEvictedSessionCount());
+	    gen.writeEnd();
+	}
+
+	if (UpdateListenerDispatcher.isAsync()) {
+	    gen.writeStartObject("updateListeners");
+	    gen.write("getQueueSize()", UpdateListenerDispatcher.getQueueSize());
+	    gen.write("getDispatchedCount()", UpdateListenerDispatcher.getDispatchedCount());
+	    gen.write("getDroppedCount()", UpdateListenerDispatcher.getDroppedCount());
+	    gen.write("getSpilledCount()", UpdateListenerDispatcher.getSpilledCount());
+	    gen.write("getFailedCount()", UpdateListenerDispatcher.getFailedCount());
+	    gen.writeEnd();
+	} else {
+	    gen.writeStartObject("updateListeners");
+	    gen.write("getBatchQueueSize()", UpdateListenerDispatcher.getBatchQueueSize());
+	    gen.write("getDroppedCount()", UpdateListenerDispatcher.getDroppedCount());
+	    gen.write("getFailedCount()", UpdateListenerDispatcher.getFailedCount());
+	    gen.writeEnd();
+	}
+
+	gen.writeStartObject("firewallTriggerWriter");
+	gen.write("getQueueSize()", FirewallTriggerWriter.getQueueSize());
+	gen.write("getDurableQueueSize()", FirewallTriggerWriter.getDurableQueueSize());
+	gen.write("getWrittenCount()", FirewallTriggerWriter.getWrittenCount());
+	gen.write("getDroppedCount()", FirewallTriggerWriter.getDroppedCount());
+	gen.write("getFailedCount()", FirewallTriggerWriter.getFailedCount());
+	gen.write("getRetriedCount()", FirewallTriggerWriter.getRetriedCount());
+	gen.write("getBatchCount()", FirewallTriggerWriter.getBatchCount());
+	gen.writeEnd();
+
+	gen.writeStartArray("asyncLoggers");
+	for (Map.Entry<String, MeteredAsyncAppender> entry : AsyncLoggerStore.getAsyncAppenders().entrySet()) {
+	    MeteredAsyncAppender asyncAppender = entry.getValue();
+	    gen.writeStartObject();
+	    gen.write("name", entry.getKey());
+	    gen.write("getNumberOfElementsInQueue()", asyncAppender.getNumberOfElementsInQueue());
+	    gen.write("getRemainingCapacity()", asyncAppender.getRemainingCapacity());
+	    gen.write("getWrittenCount()", asyncAppender.getWrittenCount());
+	    gen.write("getDiscardedCount()", asyncAppender.getDiscardedCount());
+	    gen.write("getLastLagMillis()", asyncAppender.getLastLagMillis());
+	    gen.write("getMaxLagMillis()", asyncAppender.getMaxLagMillis());
+	    gen.writeEnd();
+	}
+	gen.writeEnd();
+
+	if (DatabaseBulkheadStore.isEnabled()) {
+	    gen.writeStartArray("bulkheads");
+	    for (Map.Entry<String, DatabaseBulkhead> entry : DatabaseBulkheadStore.getBulkheads().entrySet()) {
+		DatabaseBulkhead bulkhead = entry.getValue();
+		gen.writeStartObject();
+		gen.write("database", entry.getKey());
+		gen.write("getMaxConcurrentRequests()", bulkhead.getMaxConcurrentRequests());
+		gen.write("getAdmissionLimit()", bulkhead.getAdmissionLimit());
+		gen.write("getRunningCount()", bulkhead.getRunningCount());
+		gen.write("getQueuedCount()", bulkhead.getQueuedCount());
+		gen.write("getRejectedCount()", bulkhead.getRejectedCount());
+		gen.writeEnd();
+	    }
+	    gen.writeEnd();
+	}
+
 	gen.writeEnd();
 	gen.close();
 
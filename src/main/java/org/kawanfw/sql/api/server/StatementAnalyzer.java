@@ -16,14 +16,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.commons.lang3.StringUtils;
-import org.kawanfw.sql.api.util.JsqlParserWrapper;
-import org.kawanfw.sql.api.util.StatementAnalyzerUtil;
+import org.kawanfw.sql.api.util.StatementAnalysis;
+import org.kawanfw.sql.api.util.StatementAnalysisCache;
 import org.kawanfw.sql.util.FrameworkDebug;
 import org.kawanfw.sql.util.Tag;
 
-import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 
 /**
@@ -58,7 +55,8 @@ public class StatementAnalyzer {
     /** Set to true to display/log debug info */
     private static boolean DEBUG = FrameworkDebug.isSet(StatementAnalyzer.class);
 
-    private static final String BLANK = " ";
+    /** The shared analysis of the SQL text */
+    private final StatementAnalysis statementAnalysis;
 
     /** The base parsed Statement name */
     private String statementName;
@@ -76,7 +74,7 @@ public class StatementAnalyzer {
     private boolean isDML = false;
     private boolean isTCL = false;
 
-    /** The underlying parsed/wrapped parsedStatement */
+    /** The underlying parsed/wrapped parsedStatement, parsed on first use */
     private Statement parsedStatement = null;
 
     /** if true, we could not say the parsed Statement type (DCL, DDL, DML, TCL) */
@@ -103,69 +101,32 @@ public class StatementAnalyzer {
 	    throw new IllegalArgumentException(Tag.PRODUCT_PRODUCT_FAIL + "parameterValues can not be null!");
 	}
 
-	
-	this.sql = trimAndremoveTrailingSemicolons(sql);
-
-	this.tables = new ArrayList<>();
-	String theStatementName = StringUtils.substringBefore(this.sql, BLANK);
-
-	// Can not treat GRANT, REVOKE or ROLLBACK here, not supported by
-	// CCJSqlParserUtil
-	if (theStatementName.equalsIgnoreCase("GRANT")) {
-	    this.statementName = "GRANT";
-	    this.isDCL = true;
-	    this.tables = new ArrayList<>();
-	} else if (theStatementName.equalsIgnoreCase("REVOKE")) {
-	    this.statementName = "REVOKE";
-	    this.isDCL = true;
-	    this.tables = new ArrayList<>();
-	} else if (theStatementName.equalsIgnoreCase("ROLLBACK")) {
-	    this.statementName = "ROLLBACK";
-	    this.isTCL = true;
-	    this.tables = new ArrayList<>();
-	} else if (theStatementName.equalsIgnoreCase("DROP")) {
-	    this.statementName = "DROP";
-	    this.isDDL = true;
-	    this.tables = new ArrayList<>();
-	} else {
-	    parsedStatement = null;
-	    try {
-		parsedStatement = CCJSqlParserUtil.parse(this.sql);
-		JsqlParserWrapper jsqlParserWrapper = new JsqlParserWrapper(parsedStatement);
-		this.isDCL = jsqlParserWrapper.isDCL();
-		this.isDDL = jsqlParserWrapper.isDDL();
-		this.isDML = jsqlParserWrapper.isDML();
-		this.isTCL = jsqlParserWrapper.isTCL();
-
-		this.tables = jsqlParserWrapper.getTables();
-		this.statementName = jsqlParserWrapper.getStatementName();
-
-	    } catch (JSQLParserException e) {
-		if (DEBUG) {
-		    e.printStackTrace(System.err);
-		}
-		this.parseException = new SQLException(e);
-	    }
-	}
+	// The text analysis is shared by all requests with the same SQL text
+	this.statementAnalysis = StatementAnalysisCache.get(sql);
+	this.sql = statementAnalysis.getSql();
 
-	// If returned parsedStatement is null, let's assume it was not parsed
-	if (parsedStatement == null) {
-	    this.statementTypeNotParsed = true;
-	}
-
-	if (this.statementName == null) {
-	    this.statementName = StringUtils.substringBefore(this.sql, BLANK);
-	}
+	this.tables = new ArrayList<>(statementAnalysis.getTables());
+	this.statementName = statementAnalysis.getStatementName();
+	this.isDCL = statementAnalysis.isDcl();
+	this.isDDL = statementAnalysis.isDdl();
+	this.isDML = statementAnalysis.isDml();
+	this.isTCL = statementAnalysis.isTcl();
+	this.statementTypeNotParsed = statementAnalysis.isStatementTypeNotParsed();
+	this.parseException = statementAnalysis.getParseException();
 
 	this.parameterValues = parameterValues;
     }
 
     /**
-     * Returns the statement parsed with JSQLParser.
+     * Returns the statement parsed with JSQLParser. The statement belongs to this
+     * instance and is not shared with other requests.
      *
      * @return statement parsed with JSQLParser
      */
     public Statement getParsedStatement() {
+	if (parsedStatement == null) {
+	    parsedStatement = statementAnalysis.getParsedStatement();
+	}
 	return parsedStatement;
     }
 
@@ -176,27 +137,7 @@ public class StatementAnalyzer {
      * @return true if the SQL statement contains semicolons that are not trailing.
      */
     public boolean isWithSemicolons() {
-	String localSql = sql;
-	localSql = trimAndremoveTrailingSemicolons(localSql);
-	return localSql.contains(";");
-    }
-
-    /**
-     * Remove all trailing ";" from SQL command
-     *
-     * @param sql the sql command
-     * @return the sql command without the trailing ";"
-     */
-    private static String trimAndremoveTrailingSemicolons(final String sql) {
-	String sqlNew = sql.trim();
-	// Remove the trailing ";", there may be some blanks, so we always trim
-	while (sqlNew.endsWith(";")) {
-	    sqlNew = StringUtils.removeEnd(sqlNew, ";");
-	    sqlNew = sqlNew.trim();
-	}
-	
-	sqlNew = StatementAnalyzerUtil.fixForJsqlparser(sqlNew);
-	return sqlNew;
+	return statementAnalysis.isWithSemicolons();
     }
 
     /**
@@ -205,8 +146,7 @@ public class StatementAnalyzer {
      * @return true if the SQL parsedStatement contains SQL comments
      */
     public boolean isWithComments() {
-	return ((sql.contains("/*") && sql.contains("*/") || (sql.contains("({") && sql.contains("})"))
-		|| sql.contains(" --")));
+	return statementAnalysis.isWithComments();
     }
 
     /**
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  * Interface that defines the download method that will do the effective
@@ -52,4 +53,31 @@ public interface BlobDownloadConfigurator {
     void download(HttpServletRequest request, File file,
 	    OutputStream outputStream) throws IOException;
 
+    /**
+     * Method that will do the effective download, with access to the http
+     * servlet response in order to set headers (Content-Length, ETag, partial
+     * content for HTTP Range requests...). <br>
+     * This is the method called by the AceQL Servlet. The default implementation
+     * calls {@link #download(HttpServletRequest, File, OutputStream)}.
+     * 
+     * @param request
+     *            the http servlet request. May be use to get supplemental
+     *            parameters passed by client side.
+     * @param response
+     *            the http servlet response
+     * @param file
+     *            the file to download corresponding to the blob id called by
+     *            the client side
+     * @param outputStream
+     *            the servlet output stream on which to download the file. Must
+     *            *not* be closed at end of download
+     * @throws IOException
+     *             if any I/O exception occurs during the download
+     * @since 12.5
+     */
+    default void download(HttpServletRequest request, HttpServletResponse response, File file,
+	    OutputStream outputStream) throws IOException {
+	download(request, file, outputStream);
+    }
+
 }
@@ -15,9 +15,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  *
@@ -27,13 +31,27 @@ import javax.servlet.http.HttpServletRequest;
  * Extend this class and override
  * {@link #download(HttpServletRequest, File, OutputStream)} only if you want to
  * implement your own advanced download mechanism with special features: file
- * chunking, recovery mechanisms, etc.
+ * chunking, recovery mechanisms, etc. <br>
+ * <br>
+ * The default implementation sends the {@code Content-Length} and {@code ETag}
+ * headers and honors single range {@code Range} and {@code If-Range} requests,
+ * so that an interrupted download may be resumed. The file is sent with the
+ * Tomcat sendfile feature when available on a synchronous request, else with
+ * {@code FileChannel.transferTo}.
  *
  * @author Nicolas de Pomereu
  *
  */
 public class DefaultBlobDownloadConfigurator implements BlobDownloadConfigurator {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /** Cached result of {@link #isSimpleDownloadOverridden()} */
+    private volatile Boolean simpleDownloadOverridden = null;
+
     /**
      * Simple copy of file to download on Servlet output stream.
      */
@@ -44,8 +62,187 @@ public class DefaultBlobDownloadConfigurator implements BlobDownloadConfigurator
 	    throw new FileNotFoundException("File does not exist: " + file.getName());
 	}
 
-	Files.copy(file.toPath(), outputStream);
+	transfer(file, 0, file.length(), outputStream);
+
+    }
+
+    /**
+     * Sends the file, or the requested range of the file, with the
+     * {@code Content-Length}, {@code ETag} and {@code Accept-Ranges} headers.
+     */
+    @Override
+    public void download(HttpServletRequest request, HttpServletResponse response, File file,
+	    OutputStream outputStream) throws IOException {
+
+	// Keep the behavior of subclasses that override the simple download
+	if (isSimpleDownloadOverridden()) {
+	    download(request, file, outputStream);
+	    return;
+	}
+
+	if (!file.exists()) {
+	    throw new FileNotFoundException("File does not exist: " + file.getName());
+	}
+
+	long length = file.length();
+	long lastModified = file.lastModified();
+	// Strong validator: If-Range requires a strong comparison (RFC 7233)
+	String eTag = "\"" + length + "-" + lastModified + "\"";
 
+	response.setHeader("Accept-Ranges", "bytes");
+	response.setHeader("ETag", eTag);
+
+	long start = 0;
+	long end = length - 1;
+
+	long[] range = null;
+	if (isRangeApplicable(request, eTag, lastModified)) {
+	    range = parseRange(request.getHeader("Range"), length);
+	}
+	if (range != null) {
+	    if (range.length == 0) {
+		response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+		response.setHeader("Content-Range", "bytes */" + length);
+		return;
+	    }
+
+	    start = range[0];
+	    end = range[1];
+	    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+	    response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+	}
+
+	long count = end - start + 1;
+	response.setContentLengthLong(count);
+
+	// Tomcat handles sendfile only when a synchronous service() returns, never for
+	// an async request such as the AceQL Servlet ones
+	if (count > 0 && !request.isAsyncStarted() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+		&& !response.isCommitted()) {
+	    // Tomcat writes the file directly to the socket when the response completes
+	    request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+	    request.setAttribute(SENDFILE_START, start);
+	    request.setAttribute(SENDFILE_END, end + 1);
+	    return;
+	}
+
+	transfer(file, start, count, outputStream);
+    }
+
+    /**
+     * Says if the {@code Range} header must be applied: there is no
+     * {@code If-Range} header, or it matches the current file version. An entity
+     * tag is compared with the strong comparison: a weak tag never matches.
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+	if (request.getHeader("Range") == null) {
+	    return false;
+	}
+
+	String ifRange = request.getHeader("If-Range");
+	if (ifRange == null) {
+	    return true;
+	}
+
+	if (ifRange.startsWith("W/")) {
+	    return false;
+	}
+
+	if (ifRange.startsWith("\"")) {
+	    return ifRange.equals(eTag);
+	}
+
+	try {
+	    long ifRangeDate = request.getDateHeader("If-Range");
+	    // HTTP dates have a one second precision
+	    return ifRangeDate != -1 && lastModified / 1000 == ifRangeDate / 1000;
+	} catch (IllegalArgumentException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Parses a single range {@code Range} header value.
+     *
+     * @return the first and last byte positions, an empty array if the range is
+     *         not satisfiable, or null if the header is not supported and the
+     *         whole file must be sent
+     */
+    static long[] parseRange(String rangeHeader, long length) {
+	if (!rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') != -1) {
+	    return null; // Multiple ranges are not supported: send all
+	}
+
+	String rangeSpec = rangeHeader.substring("bytes=".length()).trim();
+	int dashIndex = rangeSpec.indexOf('-');
+	if (dashIndex == -1) {
+	    return null;
+	}
+
+	try {
+	    String startStr = rangeSpec.substring(0, dashIndex).trim();
+	    String endStr = rangeSpec.substring(dashIndex + 1).trim();
+
+	    long start;
+	    long end;
+	    if (startStr.isEmpty()) {
+		// Suffix range: the last n bytes
+		long suffixLength = Long.parseLong(endStr);
+		if (suffixLength <= 0) {
+		    return new long[0];
+		}
+		start = Math.max(0, length - suffixLength);
+		end = length - 1;
+	    } else {
+		start = Long.parseLong(startStr);
+		end = endStr.isEmpty() ? length - 1 : Math.min(Long.parseLong(endStr), length - 1);
+	    }
+
+	    if (start < 0 || start >= length || start > end) {
+		return new long[0];
+	    }
+	    return new long[] { start, end };
+	} catch (NumberFormatException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Copies the file section to the output stream with
+     * {@code FileChannel.transferTo}. The output stream is not a channel: the
+     * bytes are copied through the heap buffer of the wrapping channel.
+     */
+    private static void transfer(File file, long start, long count, OutputStream outputStream) throws IOException {
+	try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+	    // Not closed: outputStream must stay open
+	    WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+
+	    long position = start;
+	    long remaining = count;
+	    while (remaining > 0) {
+		long transferred = fileChannel.transferTo(position, remaining, outputChannel);
+		if (transferred <= 0) {
+		    break; // File truncated meanwhile
+		}
+		position += transferred;
+		remaining -= transferred;
+	    }
+	}
+    }
+
+    private boolean isSimpleDownloadOverridden() {
+	Boolean overridden = simpleDownloadOverridden;
+	if (overridden == null) {
+	    try {
+		overridden = getClass()
+			.getMethod("download", HttpServletRequest.class, File.class, OutputStream.class)
+			.getDeclaringClass() != DefaultBlobDownloadConfigurator.class;
+	    } catch (NoSuchMethodException e) {
+		overridden = false; // Can not happen
+	    }
+	    simpleDownloadOverridden = overridden;
+	}
+	return overridden;
     }
 
 }
@@ -14,24 +14,24 @@ package org.kawanfw.sql.api.server.firewall;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.kawanfw.sql.api.server.DatabaseConfigurator;
 import org.kawanfw.sql.api.server.SqlEvent;
 import org.kawanfw.sql.api.server.StatementAnalyzer;
 import org.kawanfw.sql.api.util.firewall.CsvRulesManagerLoader;
-import org.kawanfw.sql.api.util.firewall.DatabaseUserTableTriplet;
+import org.kawanfw.sql.api.util.firewall.CompiledTableRules;
+import org.kawanfw.sql.api.util.firewall.RuleFileWatcher;
 import org.kawanfw.sql.api.util.firewall.TableAllowStatements;
 import org.kawanfw.sql.metadata.AceQLMetaData;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
@@ -102,14 +102,14 @@ public class CsvRulesManager implements SqlFirewallManager {
 
     private static boolean DEBUG = FrameworkDebug.isSet(CsvRulesManager.class);
 
-    private Set<String> databaseSetForReset = new HashSet<>();
-    
     /**
-     * The map that contains for each database/username the table and their rights
+     * The immutable snapshot that contains for each database the compiled
+     * username/table rights. Replaced as a whole on each load or reset.
      */
-    private Map<DatabaseUserTableTriplet, TableAllowStatements> mapTableAllowStatementsSet = null;
+    private volatile Map<String, CompiledTableRules> rulesSnapshot = Collections.emptyMap();
 
-    private FileTime storedFileTime = null;
+    /** The databases whose CSV file is watched by the RuleFileWatcher */
+    private final Set<String> watchedDatabases = ConcurrentHashMap.newKeySet();
 
     /** Default behavior is to allow reload of rules if CSV file is updated */
     protected boolean allowReload = true;
@@ -121,10 +121,9 @@ public class CsvRulesManager implements SqlFirewallManager {
     @Override
     public boolean allowSqlRunAfterAnalysis(SqlEvent sqlEvent, Connection connection) throws IOException, SQLException {
 	// Load all rules if not already done:
-	loadRules(sqlEvent.getDatabase(), connection);
+	CompiledTableRules rules = getRules(sqlEvent.getDatabase(), connection);
 
-	boolean isAllowed = isAllowed(sqlEvent.getUsername(), sqlEvent.getDatabase(), sqlEvent.getSql(),
-		sqlEvent.getParameterValues());
+	boolean isAllowed = isAllowed(rules, sqlEvent.getUsername(), sqlEvent.getSql(), sqlEvent.getParameterValues());
 	return isAllowed;
 
     }
@@ -153,78 +152,31 @@ public class CsvRulesManager implements SqlFirewallManager {
     /**
      * Will say id there is a rule that allows for the usename the SQL statement.
      *
+     * @param rules
      * @param username
-     * @param database
      * @param sql
      * @param parameterValues
      * @return
      * @throws SQLException
      */
-    private boolean isAllowed(String username, String database, String sql, List<Object> parameterValues)
+    private boolean isAllowed(CompiledTableRules rules, String username, String sql, List<Object> parameterValues)
 	    throws SQLException {
 
 	StatementAnalyzer analyzer = new StatementAnalyzer(sql, parameterValues);
 	List<String> tables = analyzer.getTables();
 	String statementName = analyzer.getStatementName();
-	statementName = statementName.toLowerCase();
 
 	debug("");
 	debug("Testing statement: " + statementName + ":");
 
-	boolean isAllowed = false;
+	int statementBit = CompiledTableRules.getStatementBit(statementName);
+	if (statementBit == 0) {
+	    return false;
+	}
 
 	for (String table : tables) {
-	    table = table.toLowerCase();
-
-	    // Test public with all tables
-	    DatabaseUserTableTriplet databaseUserTableTriplet = new DatabaseUserTableTriplet(database, "public", "all");
-	    TableAllowStatements tableAllowStatements = mapTableAllowStatementsSet.get(databaseUserTableTriplet);
-
-	    debug("public and all -  tableAllowStatements: " + tableAllowStatements + ":");
-	    if (tableAllowStatements != null) {
-		isAllowed = isAllowed(tableAllowStatements, statementName);
-		if (isAllowed) {
-		    return true;
-		}
-	    }
-
-	    // Test public with the passed table
-	    databaseUserTableTriplet = new DatabaseUserTableTriplet(database, "public", table);
-	    tableAllowStatements = mapTableAllowStatementsSet.get(databaseUserTableTriplet);
-
-	    debug("public -  tableAllowStatements: " + tableAllowStatements + ":");
-
-	    if (tableAllowStatements != null) {
-		isAllowed = isAllowed(tableAllowStatements, statementName);
-		if (isAllowed) {
-		    return true;
-		}
-	    }
-
-	    // Test username with all tables
-	    databaseUserTableTriplet = new DatabaseUserTableTriplet(database, username, "all");
-	    tableAllowStatements = mapTableAllowStatementsSet.get(databaseUserTableTriplet);
-
-	    debug("all -  tableAllowStatements: " + tableAllowStatements + ":");
-
-	    if (tableAllowStatements != null) {
-		isAllowed = isAllowed(tableAllowStatements, statementName);
-		if (isAllowed) {
-		    return true;
-		}
-	    }
-
-	    // Test direct values
-	    databaseUserTableTriplet = new DatabaseUserTableTriplet(database, username, table);
-	    tableAllowStatements = mapTableAllowStatementsSet.get(databaseUserTableTriplet);
-
-	    debug("tableAllowStatements: " + tableAllowStatements + ":");
-
-	    if (tableAllowStatements != null) {
-		isAllowed = isAllowed(tableAllowStatements, statementName);
-		if (isAllowed) {
-		    return true;
-		}
+	    if (rules.isAllowed(username, table.toLowerCase(), statementBit)) {
+		return true;
 	    }
 	}
 
@@ -232,78 +184,127 @@ public class CsvRulesManager implements SqlFirewallManager {
 	return false;
     }
 
-    private boolean isAllowed(TableAllowStatements tableAllowStatements, String statementName) {
-
-	if (statementName.equals("delete")) {
-	    return tableAllowStatements.isDeleteAllowed();
-	} else if (statementName.equals("insert")) {
-	    return tableAllowStatements.isInsertAllowe();
-	} else if (statementName.equals("select")) {
-	    return tableAllowStatements.isSelectAllowed();
-	} else if (statementName.equals("update")) {
-	    return tableAllowStatements.isUpdateAllowed();
-	} else {
-	    return false;
-	}
-    }
-
     /**
+     * Returns the rules of the database, loaded from the CSV file if not already
+     * done or if the file was modified since last load.
+     * 
      * @param database
      * @param connection
+     * @return the rules of the database
      * @throws FileNotFoundException
      * @throws SQLException
      * @throws IOException
      */
-    private void loadRules(String database, Connection connection)
+    private CompiledTableRules getRules(String database, Connection connection)
 	    throws FileNotFoundException, SQLException, IOException {
 
-	File csvFile = getCsvFile(database);
-	BasicFileAttributes basicFileAttributes = Files.readAttributes(csvFile.toPath(), BasicFileAttributes.class);
-	FileTime currentFileTime = basicFileAttributes.lastModifiedTime();
-
-	debug("");
-	debug("csvFile        : " + csvFile);
-	debug("allowReload    : " + allowReload);
-	debug("storedFileTime : " + storedFileTime);
-	debug("currentFileTime: " + currentFileTime);
-
-	if (storedFileTime != null && !currentFileTime.equals(storedFileTime) && allowReload) {
-	    mapTableAllowStatementsSet = null;
-	    databaseSetForReset = new HashSet<>();
-	    String logInfo = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION
-		    + " Reloading CsvRulesManager configuration file: " + csvFile;
-	    System.err.println(logInfo);
-	    DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
-			.get(database);
-	    Logger logger = databaseConfigurator.getLogger();
-	    LoggerWrapper.log(logger, logInfo);
-	    storedFileTime = currentFileTime;
+	CompiledTableRules rules = rulesSnapshot.get(database);
+	if (rules != null) {
+	    return rules;
 	}
 
-	if (mapTableAllowStatementsSet == null || ! databaseSetForReset.contains(database)) {
+	synchronized (this) {
+	    rules = rulesSnapshot.get(database);
+	    if (rules != null) {
+		return rules;
+	    }
+
+	    File csvFile = getCsvFile(database);
+	    debug("");
+	    debug("csvFile        : " + csvFile);
+	    debug("allowReload    : " + allowReload);
 
-	    AceQLMetaData aceQLMetaData = new AceQLMetaData(connection);
-	    List<String> tables = aceQLMetaData.getTableNames();
-	    Set<String> tableSet = new TreeSet<>();
-	    // Load in lowercase
-	    for (String table : tables) {
-		tableSet.add(table.toLowerCase());
+	    // Watch before load, so that no modification is missed
+	    if (allowReload && watchedDatabases.add(database)) {
+		RuleFileWatcher.watch(csvFile, () -> resetRules(database, csvFile));
 	    }
-	    tableSet.add("all"); // Add "all" values for all tables
-	    CsvRulesManagerLoader csvRulesManagerLoader = new CsvRulesManagerLoader(csvFile, database, tableSet);
-	    csvRulesManagerLoader.load();
 
-	    mapTableAllowStatementsSet = csvRulesManagerLoader.getMapTableAllowStatementsSet();
-	    databaseSetForReset.add(database);
+	    rules = loadRules(database, csvFile, connection);
+	    publishRules(database, rules);
+	    return rules;
+	}
+    }
+
+    /**
+     * Loads and compiles the rules of a database from its CSV file.
+     * 
+     * @param database   the database name
+     * @param csvFile    the CSV file to load
+     * @param connection the connection used to read the table names
+     * @return the compiled rules of the database
+     * @throws SQLException
+     * @throws IOException
+     */
+    private CompiledTableRules loadRules(String database, File csvFile, Connection connection)
+	    throws SQLException, IOException {
+	long begin = System.nanoTime();
+	AceQLMetaData aceQLMetaData = new AceQLMetaData(connection);
+	List<String> tables = aceQLMetaData.getTableNames();
+	Set<String> tableSet = new TreeSet<>();
+	// Load in lowercase
+	for (String table : tables) {
+	    tableSet.add(table.toLowerCase());
+	}
+	tableSet.add("all"); // Add "all" values for all tables
+	CsvRulesManagerLoader csvRulesManagerLoader = new CsvRulesManagerLoader(csvFile, database, tableSet);
+	csvRulesManagerLoader.load();
 
-	    Set<TableAllowStatements> tableAllowStatementsSet = csvRulesManagerLoader.getTableAllowStatementsSet();
+	CompiledTableRules rules = new CompiledTableRules(csvRulesManagerLoader.getMapTableAllowStatementsSet());
+	RuleFileWatcher.recordReload(System.nanoTime() - begin);
 
+	if (DEBUG) {
 	    debug("CsvRulesManager Rules Loaded:");
-	    for (TableAllowStatements tableAllowStatements : tableAllowStatementsSet) {
+	    for (TableAllowStatements tableAllowStatements : csvRulesManagerLoader.getTableAllowStatementsSet()) {
 		debug("" + tableAllowStatements.toString());
 	    }
+	}
+	return rules;
+    }
+
+    /**
+     * Publishes a new snapshot with the rules of a database: readers never see a
+     * partially built Map.
+     * 
+     * @param database the database name
+     * @param rules    the compiled rules of the database
+     */
+    private synchronized void publishRules(String database, CompiledTableRules rules) {
+	Map<String, CompiledTableRules> newSnapshot = new HashMap<>(rulesSnapshot);
+	newSnapshot.put(database, rules);
+	rulesSnapshot = Collections.unmodifiableMap(newSnapshot);
+    }
 
-	    storedFileTime = currentFileTime;
+    /**
+     * Reloads the rules of a database after a modification of its CSV file.
+     * Called by the {@link RuleFileWatcher} thread: the new rules are built on
+     * this thread and swapped in once complete, so requests keep using the
+     * previous rules until then and never load the file themselves. If the new
+     * file can not be loaded, the previous rules are kept.
+     * 
+     * @param database the database name
+     * @param csvFile  the modified CSV file
+     */
+    private void resetRules(String database, File csvFile) {
+	String logInfo = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION
+		+ " Reloading CsvRulesManager configuration file: " + csvFile;
+	System.err.println(logInfo);
+	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
+		.get(database);
+	Logger logger = databaseConfigurator.getLogger();
+	LoggerWrapper.log(logger, logInfo);
+
+	try {
+	    Connection connection = databaseConfigurator.getConnection(database);
+	    try {
+		publishRules(database, loadRules(database, csvFile, connection));
+	    } finally {
+		databaseConfigurator.close(connection);
+	    }
+	} catch (Exception exception) {
+	    String logError = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION
+		    + " Unable to reload " + csvFile + ", previous rules are kept: " + exception;
+	    System.err.println(logError);
+	    LoggerWrapper.log(logger, logError, exception);
 	}
     }
 
@@ -338,4 +339,18 @@ public class CsvRulesManager implements SqlFirewallManager {
 	}
     }
 
+    /**
+     * The rules are matched against the username, the tables and the statement
+     * type of the SQL text, never against the parameter values.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
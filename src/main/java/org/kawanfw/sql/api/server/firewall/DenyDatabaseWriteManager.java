@@ -66,4 +66,19 @@ public class DenyDatabaseWriteManager implements SqlFirewallManager {
 	    throws IOException, SQLException {
 	return true;
     }
+
+    /**
+     * The verdict depends only on whether the SQL text is a write, DDL, DCL or
+     * TCL statement.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
@@ -14,20 +14,22 @@ package org.kawanfw.sql.api.server.firewall;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.kawanfw.sql.api.server.DatabaseConfigurator;
 import org.kawanfw.sql.api.server.SqlEvent;
 import org.kawanfw.sql.api.server.StatementNormalizer;
+import org.kawanfw.sql.api.util.StatementAnalysisCache;
+import org.kawanfw.sql.api.util.firewall.RuleFileWatcher;
 import org.kawanfw.sql.api.util.firewall.TextStatementsListLoader;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileStore;
@@ -64,10 +66,14 @@ public class DenyExceptOnWhitelistManager implements SqlFirewallManager {
 
     private static boolean DEBUG = FrameworkDebug.isSet(DenyExceptOnWhitelistManager.class);
 
-    /** The denied statements Set per database */
-    private Map<String, Set<String>> statementMap = new HashMap<>();
+    /**
+     * The immutable snapshot of the statements Set per database. Replaced as a
+     * whole on each load or reset.
+     */
+    private volatile Map<String, Set<String>> statementSnapshot = Collections.emptyMap();
 
-    private FileTime storedFileTime = null;
+    /** The databases whose text file is watched by the RuleFileWatcher */
+    private final Set<String> watchedDatabases = ConcurrentHashMap.newKeySet();
 
     /**
      * Default behavior is to allow reload of statements list if text file is
@@ -86,14 +92,11 @@ public class DenyExceptOnWhitelistManager implements SqlFirewallManager {
 	String database = sqlEvent.getDatabase();
 	String sql = sqlEvent.getSql();
 
-	// Normalize the statement
-	StatementNormalizer statementNormalizer = new StatementNormalizer(sql);
-	sql = statementNormalizer.getNormalized();
+	// Normalize the statement, once for all requests with the same SQL text
+	sql = StatementAnalysisCache.get(sql).getNormalized();
 
 	// Load all statements for database, if not already done:
-	loadStatements(database, "_deny_except_whitelist.txt");
-
-	Set<String> allowedStatementsForDb = statementMap.get(database);
+	Set<String> allowedStatementsForDb = getStatements(database, "_deny_except_whitelist.txt");
 	if (allowedStatementsForDb == null || allowedStatementsForDb.isEmpty()) {
 	    return false;
 	}
@@ -121,57 +124,103 @@ public class DenyExceptOnWhitelistManager implements SqlFirewallManager {
     }
 
     /**
-     * Load all statements for a database, once per server life. Can be dynamically
-     * reloaded if file is modified.
+     * Returns all statements for a database, loaded once per server life. Can be
+     * dynamically reloaded if file is modified.
      * 
      * @param database   the database name
      * @param fileSuffix the part of the file name after database
+     * @return the normalized statements of the database
      * @throws FileNotFoundException
      * @throws SQLException
      * @throws IOException
      */
-    private void loadStatements(String database, String fileSuffix)
+    private Set<String> getStatements(String database, String fileSuffix)
 	    throws FileNotFoundException, SQLException, IOException {
 
-	File textFile = getTextFile(database, fileSuffix);
-	BasicFileAttributes basicFileAttributes = Files.readAttributes(textFile.toPath(), BasicFileAttributes.class);
-	FileTime currentFileTime = basicFileAttributes.lastModifiedTime();
-
-	debug("");
-	debug("textFile       : " + textFile);
-	debug("allowReload    : " + allowReload);
-	debug("storedFileTime : " + storedFileTime);
-	debug("currentFileTime: " + currentFileTime);
-
-	if (storedFileTime != null && !currentFileTime.equals(storedFileTime) && allowReload) {
+	Set<String> statements = statementSnapshot.get(database);
+	if (statements != null) {
+	    return statements;
+	}
 
-	    // Reset statements Map
-	    statementMap = new HashMap<>();
+	synchronized (this) {
+	    statements = statementSnapshot.get(database);
+	    if (statements != null) {
+		return statements;
+	    }
 
-	    String logInfo = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION + " Reloading "
-		    + this.getClass().getSimpleName() + " configuration file: " + textFile;
-	    System.err.println(logInfo);
+	    File textFile = DenyExceptOnWhitelistManager.getTextFile(database, fileSuffix);
+	    debug("");
+	    debug("textFile       : " + textFile);
+	    debug("allowReload    : " + allowReload);
 
-	    DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
-		    .get(database);
-	    Logger logger = databaseConfigurator.getLogger();
+	    // Watch before load, so that no modification is missed
+	    if (allowReload && watchedDatabases.add(database)) {
+		RuleFileWatcher.watch(textFile, () -> resetStatements(database, textFile));
+	    }
 
-	    LoggerWrapper.log(logger, logInfo);
-	    storedFileTime = currentFileTime;
+	    statements = loadStatements(textFile);
+	    publishStatements(database, statements);
+	    return statements;
 	}
+    }
 
-	if (!statementMap.containsKey(database)) {
-
-	    if (!textFile.exists()) {
-		throw new FileNotFoundException(
-			"The file that contains the statements to blacklist does not exist: " + textFile);
-	    }
+    /**
+     * Loads the normalized statements of a text file.
+     * 
+     * @param textFile the text file to load
+     * @return the unmodifiable Set of the normalized statements
+     * @throws IOException
+     */
+    private static Set<String> loadStatements(File textFile) throws IOException {
+	long begin = System.nanoTime();
+	TextStatementsListLoader textStatementsListLoader = new TextStatementsListLoader(textFile);
+	textStatementsListLoader.load();
+	Set<String> statements = Collections
+		.unmodifiableSet(new HashSet<>(textStatementsListLoader.getNormalizedStatementSet()));
+	RuleFileWatcher.recordReload(System.nanoTime() - begin);
+	return statements;
+    }
 
-	    TextStatementsListLoader textStatementsListLoader = new TextStatementsListLoader(textFile);
-	    textStatementsListLoader.load();
+    /**
+     * Publishes a new snapshot with the statements of a database: readers never
+     * see a partially built Map.
+     * 
+     * @param database   the database name
+     * @param statements the normalized statements of the database
+     */
+    private synchronized void publishStatements(String database, Set<String> statements) {
+	Map<String, Set<String>> newSnapshot = new HashMap<>(statementSnapshot);
+	newSnapshot.put(database, statements);
+	statementSnapshot = Collections.unmodifiableMap(newSnapshot);
+    }
 
-	    statementMap.put(database, textStatementsListLoader.getNormalizedStatementSet());
-	    storedFileTime = currentFileTime;
+    /**
+     * Reloads the statements of a database after a modification of its text
+     * file. Called by the {@link RuleFileWatcher} thread: the new Set is built on
+     * this thread and swapped in once complete, so requests keep using the
+     * previous statements until then. If the new file can not be loaded, the
+     * previous statements are kept.
+     * 
+     * @param database the database name
+     * @param textFile the modified text file
+     */
+    private void resetStatements(String database, File textFile) {
+	String logInfo = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION + " Reloading "
+		+ this.getClass().getSimpleName() + " configuration file: " + textFile;
+	System.err.println(logInfo);
+
+	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
+		.get(database);
+	Logger logger = databaseConfigurator.getLogger();
+	LoggerWrapper.log(logger, logInfo);
+
+	try {
+	    publishStatements(database, loadStatements(textFile));
+	} catch (Exception exception) {
+	    String logError = TimestampUtil.getHumanTimestampNow() + " " + SqlTag.USER_CONFIGURATION
+		    + " Unable to reload " + textFile + ", previous statements are kept: " + exception;
+	    System.err.println(logError);
+	    LoggerWrapper.log(logger, logError, exception);
 	}
     }
 
@@ -206,4 +255,18 @@ public class DenyExceptOnWhitelistManager implements SqlFirewallManager {
 	    System.out.println(new Date() + " " + this.getClass().getSimpleName() + " " + string);
 	}
     }
+
+    /**
+     * The normalized SQL text is looked up in the database whitelist file.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
@@ -55,6 +55,18 @@ public class DenyMetadataQueryManager implements SqlFirewallManager {
 	return true;
     }
 
-
-
+    /**
+     * {@code allowSqlRunAfterAnalysis} always returns {@code true}: this manager
+     * only denies the Metadata Query API.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
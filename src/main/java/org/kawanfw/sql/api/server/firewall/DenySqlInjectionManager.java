@@ -107,4 +107,18 @@ public class DenySqlInjectionManager implements SqlFirewallManager {
 	return true;
     }
 
+    /**
+     * Only the SQL text is sent to the Cloudmersive API, without the parameter
+     * values.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
@@ -114,5 +114,20 @@ public class DenySqlInjectionManagerAsync implements SqlFirewallManager {
     public boolean allowMetadataQuery(String username, String database, Connection connection)
 	    throws IOException, SQLException {
 	return true;
-    }    
+    }
+
+    /**
+     * Only the SQL text is sent to the Cloudmersive API, and
+     * {@code allowSqlRunAfterAnalysis} always returns {@code true}.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
@@ -56,4 +56,19 @@ public class DenyStatementClassManager implements SqlFirewallManager {
 	    throws IOException, SQLException {
 	return true;
     }
+
+    /**
+     * {@code allowSqlRunAfterAnalysis} always returns {@code true}: this manager
+     * only denies the creation of raw {@code Statement}.
+     * A subclass whose {@code allowSqlRunAfterAnalysis} checks the parameter
+     * values must override this method to return {@code true}, otherwise batch
+     * rows after the first one are not checked: see
+     * {@link SqlFirewallManager#dependsOnParameterValues()}.
+     *
+     * @return <code><b>false</b></code>
+     */
+    @Override
+    public boolean dependsOnParameterValues() {
+	return false;
+    }
 }
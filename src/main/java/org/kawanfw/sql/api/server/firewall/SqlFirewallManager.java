@@ -135,4 +135,24 @@ public interface SqlFirewallManager {
      */
     public boolean allowMetadataQuery(String username, String database, Connection connection)
 	    throws IOException, SQLException;
+
+    /**
+     * Says if the {@link #allowSqlRunAfterAnalysis(SqlEvent, Connection)} verdict
+     * may depend on the parameter values of a prepared statement. <br>
+     * <br>
+     * When a batch is executed, a manager whose verdict does not depend on the
+     * parameter values is called only once for all the rows that share the same
+     * SQL statement. A manager whose verdict depends on the parameter values is
+     * called for each row. <br>
+     * <br>
+     * The default implementation returns {@code true}, which is always safe.
+     *
+     * @return <code>true</code> if the verdict may depend on the parameter values,
+     *         <code>false</code> if it depends only on the SQL statement text, the
+     *         client username, the database and the IP address
+     * @since 12.5
+     */
+    default boolean dependsOnParameterValues() {
+	return true;
+    }
 }
@@ -13,12 +13,13 @@ package org.kawanfw.sql.api.server.firewall.trigger;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 
 import org.kawanfw.sql.api.server.SqlEvent;
 import org.kawanfw.sql.api.server.firewall.SqlFirewallManager;
+import org.kawanfw.sql.servlet.BannedUserStore;
+import org.kawanfw.sql.servlet.FirewallTriggerWriter;
 
 /**
  * A trigger that will insert into the following table the info detected by the
@@ -44,7 +45,9 @@ import org.kawanfw.sql.api.server.firewall.SqlFirewallManager;
  * to further access to the SQL database after the ban action.
  * <br>Any new access
  * attempt of a banned user will be blocked by returning the ambiguous error
- * message "Access Forbidden for Username". <br>
+ * message "Access Forbidden for Username". The ban is immediate, the row is
+ * inserted asynchronously with a Connection of the database pool, and retried
+ * until it is committed. <br>
  * <br>
  * Activation of this trigger requires to define the
  * {@code BanUserSqlFirewallTrigger} as a value in the
@@ -70,19 +73,17 @@ public class BanUserSqlFirewallTrigger implements SqlFirewallTrigger {
 
 	// We use SQL int type for SQLEvent boolean values to be compatible with all db vendors
 	
+	String username = sqlEvent.getUsername();
+	String database = sqlEvent.getDatabase();
+
+	// Write-through: the user is banned without waiting for the insert
+	BannedUserStore.add(username, database);
+
 	String sql = "insert into aceql_banned_user values (?, ?, ?, ?, ?, ?, ?)";
-	try (PreparedStatement preparedStatement = connection.prepareStatement(sql);) {
-	    int i = 1;
-	    preparedStatement.setString(i++, sqlEvent.getUsername());
-	    preparedStatement.setString(i++, sqlEvent.getIpAddress());
-	    preparedStatement.setString(i++, sqlEvent.getDatabase());
-	    preparedStatement.setString(i++, sqlFirewallManager.getClass().getName());
-	    preparedStatement.setString(i++, sqlEvent.getSql());
-	    preparedStatement.setInt(i++, sqlEvent.isMetadataQuery() ? 1 : 0); // We don't use other type, not
-									       // compatible with all db vendors
-	    preparedStatement.setTimestamp(i++, new Timestamp(System.currentTimeMillis()));
-	    preparedStatement.executeUpdate();
-	}
+	Object[] values = { username, sqlEvent.getIpAddress(), database, sqlFirewallManager.getClass().getName(),
+		sqlEvent.getSql(), sqlEvent.isMetadataQuery() ? 1 : 0, new Timestamp(System.currentTimeMillis()) };
+	// Durable: a ban row is never dropped and is retried until committed
+	FirewallTriggerWriter.writeDurable(database, sql, values, () -> BannedUserStore.written(username, database));
 
     }
 
@@ -13,12 +13,12 @@ package org.kawanfw.sql.api.server.firewall.trigger;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 
 import org.kawanfw.sql.api.server.SqlEvent;
 import org.kawanfw.sql.api.server.firewall.SqlFirewallManager;
+import org.kawanfw.sql.servlet.FirewallTriggerWriter;
 
 /**
  * A trigger that will {@code INSERT} the {@code SqlEvent} info and the
@@ -43,6 +43,10 @@ create table aceql_denied_request
  * </code>
  * </pre>
  * 
+ * Rows are inserted asynchronously, in batches, with a Connection of the
+ * database pool. See the {@code firewallTrigger*} properties of the
+ * {@code aceql-server.properties} file.
+ * 
  * @author Nicolas de Pomereu
  * @since 11.0
  */
@@ -60,19 +64,11 @@ public class JdbcLoggerSqlFirewallTrigger implements SqlFirewallTrigger {
 	// We use SQL int type for SQLEvent boolean values to be compatible with all db vendors
 	
 	String sql = "insert into aceql_denied_request values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-	try (PreparedStatement preparedStatement = connection.prepareStatement(sql);) {
-	    int i = 1;
-	    preparedStatement.setTimestamp(i++, new Timestamp(System.currentTimeMillis()));
-	    preparedStatement.setString(i++, sqlEvent.getUsername());
-	    preparedStatement.setString(i++, sqlEvent.getIpAddress());
-	    preparedStatement.setString(i++, sqlEvent.getDatabase());
-	    preparedStatement.setString(i++, sqlFirewallManager.getClass().getName());
-	    preparedStatement.setString(i++, sqlEvent.getSql());
-	    preparedStatement.setInt(i++, sqlEvent.isMetadataQuery() ? 1 : 0);
-	    preparedStatement.setInt(i++, sqlEvent.isPreparedStatement() ? 1 : 0);
-	    preparedStatement.setString(i++, sqlEvent.getParameterStringValues().toString());
-	    preparedStatement.executeUpdate();
-	}
+	Object[] values = { new Timestamp(System.currentTimeMillis()), sqlEvent.getUsername(),
+		sqlEvent.getIpAddress(), sqlEvent.getDatabase(), sqlFirewallManager.getClass().getName(),
+		sqlEvent.getSql(), sqlEvent.isMetadataQuery() ? 1 : 0, sqlEvent.isPreparedStatement() ? 1 : 0,
+		sqlEvent.getParameterStringValues().toString() };
+	FirewallTriggerWriter.write(sqlEvent.getDatabase(), sql, values, null);
     }
 
 }
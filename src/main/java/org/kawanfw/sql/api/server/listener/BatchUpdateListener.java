@@ -0,0 +1,50 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.server.listener;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.kawanfw.sql.api.server.SqlEvent;
+
+/**
+ * An {@link UpdateListener} that receives the SQL update events by groups.
+ * <br>
+ * <br>
+ * {@link #updateActionsPerformed(List, Connection)} is called instead of
+ * {@link #updateActionPerformed(SqlEvent, Connection)} with all the events of a
+ * batch, and, if update listeners are called asynchronously (see
+ * {@code updateListenerQueueCapacity} property), with all the events waiting
+ * in the queue. This allows for example to write a group of events with a
+ * single I/O.
+ * 
+ * @author Nicolas de Pomereu
+ * @since 12.5
+ *
+ */
+public interface BatchUpdateListener extends UpdateListener {
+
+    /**
+     * Invoked when SQL update events are successfully executed.
+     * 
+     * @param sqlEvents  the SQL update events that are successfully processed,
+     *                   in execution order
+     * @param connection the Connection in use for the SQL update events
+     * 
+     * @throws IOException  if an IOException occurs
+     * @throws SQLException if a SQLException occurs
+     */
+    public void updateActionsPerformed(List<SqlEvent> sqlEvents, Connection connection)
+	    throws IOException, SQLException;
+}
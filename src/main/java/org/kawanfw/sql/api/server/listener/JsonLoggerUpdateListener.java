@@ -112,7 +112,9 @@ public class JsonLoggerUpdateListener implements UpdateListener {
 		    .maxFileSize(loggerCreatorProperties.getMaxFileSize())
 		    .totalSizeCap(loggerCreatorProperties.getTotalSizeCap())
 		    .displayOnConsole(loggerCreatorProperties.isDisplayOnConsole())
-		    .displayLogStatusMessages(loggerCreatorProperties.isDisplayLogStatusMessages()).build();
+		    .displayLogStatusMessages(loggerCreatorProperties.isDisplayLogStatusMessages())
+		    .asyncQueueSize(loggerCreatorProperties.getAsyncQueueSize())
+		    .asyncDiscardingThreshold(loggerCreatorProperties.getAsyncDiscardingThreshold()).build();
 	} else {
 
 	    debug("loggerCreatorProperties is null!");
@@ -81,7 +81,9 @@ public class DefaultLoggerCreator implements LoggerCreator {
 		    .maxFileSize(loggerCreatorProperties.getMaxFileSize())
 		    .totalSizeCap(loggerCreatorProperties.getTotalSizeCap())
 		    .displayOnConsole(loggerCreatorProperties.isDisplayOnConsole())
-		    .displayLogStatusMessages(loggerCreatorProperties.isDisplayLogStatusMessages()).build();
+		    .displayLogStatusMessages(loggerCreatorProperties.isDisplayLogStatusMessages())
+		    .asyncQueueSize(loggerCreatorProperties.getAsyncQueueSize())
+		    .asyncDiscardingThreshold(loggerCreatorProperties.getAsyncDiscardingThreshold()).build();
 	    
 
 	} else {
@@ -14,12 +14,14 @@ package org.kawanfw.sql.api.server.session;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.sql.servlet.connection.ConnectionStoreReaper;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileStore;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileUtil;
 import org.kawanfw.sql.util.Tag;
@@ -34,6 +36,8 @@ import org.kawanfw.sql.util.Tag;
  * <li>Session id is sent by client side at each API call. AceQL verifies that
  * the {@code HashMap} contains the username and that the session is not expired
  * to grant access to the APIexecution.</li>
+ * <li>Expired sessions are evicted every minute by a background thread, and
+ * their stateful Connections are released into the pool.</li>
  * </ul>
  * <p>
  * It is not required nor recommended to extend this class or to develop another
@@ -53,7 +57,12 @@ public class DefaultSessionConfigurator implements SessionConfigurator {
     private Properties properties = null;
 
     private SessionIdentifierGenerator sessionIdentifierGenerator = new SessionIdentifierGenerator();
-    private Map<String, SessionInfo> sessionInfoStore = new ConcurrentHashMap<>();
+    private SessionInfoStore sessionInfoStore = new SessionInfoStore();
+
+    /** The session time life, read once. -1 if not yet read */
+    private volatile long sessionTimelifeMillis = -1;
+
+    private ScheduledExecutorService evictionExecutor = null;
 
     /*
      * (non-Javadoc)
@@ -69,7 +78,12 @@ public class DefaultSessionConfigurator implements SessionConfigurator {
     public String generateSessionId(String username, String database) {
 	String sessionId = sessionIdentifierGenerator.nextSessionId();
 	SessionInfo sessionInfo = new SessionInfo(sessionId, username, database);
-	sessionInfoStore.put(sessionId, sessionInfo);
+
+	long timelifeMillis = getSessionTimelifeMillisUnchecked();
+	sessionInfoStore.put(sessionInfo, timelifeMillis > 0);
+	if (timelifeMillis > 0) {
+	    startEviction(timelifeMillis);
+	}
 
 	return sessionId;
     }
@@ -144,13 +158,101 @@ public class DefaultSessionConfigurator implements SessionConfigurator {
 	    return false;
 	}
 
-	if (getSessionTimelifeMinutes() == 0) {
+	long timelifeMillis = getSessionTimelifeMillis();
+	if (timelifeMillis == 0) {
 	    return true;
 	}
 
 	// Check if session is expired.
-	return new Date().getTime() - sessionInfo.getCreationTimeMillis() <= getSessionTimelifeMinutes() * 60 * 1000;
+	if (new Date().getTime() - sessionInfo.getCreationTimeMillis() <= timelifeMillis) {
+	    return true;
+	}
+
+	// Removed from the store, so never seen by the eviction thread
+	if (sessionInfoStore.removeExpired(sessionId) != null) {
+	    ConnectionStoreReaper.releaseSession(sessionInfo.getUsername(), sessionId);
+	}
+	return false;
+    }
+
+    /**
+     * Returns the number of stored sessions. Includes expired sessions not yet
+     * evicted.
+     *
+     * @return the number of stored sessions
+     */
+    public int getLiveSessionCount() {
+	return sessionInfoStore.size();
+    }
+
+    /**
+     * Returns the number of sessions removed because found expired when used.
+     *
+     * @return the number of sessions removed because found expired when used
+     */
+    public long getExpiredSessionCount() {
+	return sessionInfoStore.getExpiredCount();
+    }
+
+    /**
+     * Returns the number of expired sessions removed by the eviction thread.
+     *
+     * @return the number of expired sessions removed by the eviction thread
+     */
+    public long getEvictedSessionCount() {
+	return sessionInfoStore.getEvictedCount();
+    }
+
+    /**
+     * Stops the eviction thread. Called when the AceQL Servlet is destroyed.
+     */
+    public synchronized void shutdown() {
+	if (evictionExecutor != null) {
+	    evictionExecutor.shutdownNow();
+	    evictionExecutor = null;
+	}
+    }
+
+    /**
+     * Returns the {@link #getSessionTimelifeMinutes()} value in milliseconds. The
+     * value is read only once.
+     */
+    private long getSessionTimelifeMillis() throws IOException {
+	if (sessionTimelifeMillis < 0) {
+	    sessionTimelifeMillis = TimeUnit.MINUTES.toMillis(getSessionTimelifeMinutes());
+	}
+	return sessionTimelifeMillis;
+    }
+
+    private long getSessionTimelifeMillisUnchecked() {
+	try {
+	    return getSessionTimelifeMillis();
+	} catch (IOException e) {
+	    throw new IllegalStateException(Tag.PRODUCT + " Unable to read session time life: " + e.getMessage(), e);
+	}
+    }
+
+    private synchronized void startEviction(long timelifeMillis) {
+	if (evictionExecutor != null) {
+	    return;
+	}
 
+	evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+	    Thread thread = new Thread(runnable, "aceql-session-evictor");
+	    thread.setDaemon(true);
+	    return thread;
+	});
+	evictionExecutor.scheduleWithFixedDelay(() -> {
+	    try {
+		sessionInfoStore.evictExpired(new Date().getTime(), timelifeMillis,
+			sessionInfo -> ConnectionStoreReaper.releaseSession(sessionInfo.getUsername(),
+				sessionInfo.getSessionId()));
+		ConnectionStoreReaper.releasePendingSessions();
+	    } catch (Exception e) {
+		// Never stop the eviction thread
+		e.printStackTrace();
+	    }
+	}, SessionInfoStore.BUCKET_MILLIS, SessionInfoStore.BUCKET_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     /*
@@ -162,7 +264,8 @@ public class DefaultSessionConfigurator implements SessionConfigurator {
      */
     /**
      * Returns the value of {@code session.timelifeMinutes} property of {@code aceql-server.properties}.
-     * Defaults to 0. If 0, session is infinite.
+     * Defaults to 0. If 0, session is infinite. <br>
+     * The value is read once, on first session creation or verification.
      * @throws IOException if any I/O error occurs
      */
     @Override
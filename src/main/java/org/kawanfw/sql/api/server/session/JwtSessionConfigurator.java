@@ -14,8 +14,11 @@ package org.kawanfw.sql.api.server.session;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileStore;
@@ -49,15 +52,31 @@ import com.auth0.jwt.interfaces.DecodedJWT;
  * {@code aceql-server.properties}.</li>
  * <li>The JWT lifetime value used is
  * {@link DefaultSessionConfigurator#getSessionTimelifeMinutes()} value.
+ * <li>Verified tokens are kept in a bounded memory cache with their username,
+ * database and expiration time, so that a token is verified and decoded only
+ * once.</li>
  * </ul>
  *
  * @author Nicolas de Pomereu
  */
 public class JwtSessionConfigurator implements SessionConfigurator {
 
+    /** The maximum number of verified tokens kept in cache */
+    public static final int MAX_CACHED_TOKENS = 10000;
+
     /** The aceql-server.properties file. Used to get the session time life */
     private Properties properties = null;
 
+    /** The session time life, read once. -1 if not yet read */
+    private volatile long sessionTimelifeMillis = -1;
+
+    /** Built once from the secret */
+    private volatile Algorithm algorithm = null;
+    private volatile JWTVerifier verifier = null;
+
+    /** token ==> verified token claims */
+    private Map<String, VerifiedToken> verifiedTokenMap = new ConcurrentHashMap<>();
+
     /*
      * (non-Javadoc)
      *
@@ -73,22 +92,16 @@ public class JwtSessionConfigurator implements SessionConfigurator {
     public String generateSessionId(String username, String database) throws IOException {
 
 	try {
-	    String secret = ConfPropertiesStore.get().getJwtSessionConfiguratorSecretValue();
-
-	    if (secret == null || secret.isEmpty()) {
-		throw new IllegalArgumentException(
-			"The jwtSessionConfiguratorSecret property value defined in the AceQL properties file cannot be null.");
-	    }
-
-	    Algorithm algorithm = Algorithm.HMAC256(secret);
+	    Algorithm algorithm = getAlgorithm();
 
 	    Builder builder = JWT.create();
 	    builder.withClaim("usr", username);
 	    builder.withClaim("dbn", database);
 	    builder.withIssuedAt(new Date());
 
-	    if (getSessionTimelifeMinutes() != 0) {
-		Date expiresAt = new Date(System.currentTimeMillis() + (getSessionTimelifeMinutes() * 60 * 1000));
+	    long timelifeMillis = getSessionTimelifeMillis();
+	    if (timelifeMillis != 0) {
+		Date expiresAt = new Date(System.currentTimeMillis() + timelifeMillis);
 		builder.withExpiresAt(expiresAt);
 	    }
 
@@ -112,6 +125,11 @@ public class JwtSessionConfigurator implements SessionConfigurator {
      */
     @Override
     public String getUsername(String sessionId) {
+	VerifiedToken verifiedToken = verifiedTokenMap.get(sessionId);
+	if (verifiedToken != null) {
+	    return verifiedToken.username;
+	}
+
 	try {
 	    DecodedJWT jwt = JWT.decode(sessionId);
 	    Map<String, Claim> claims = jwt.getClaims(); // Key is the Claim
@@ -136,6 +154,11 @@ public class JwtSessionConfigurator implements SessionConfigurator {
      */
     @Override
     public String getDatabase(String sessionId) {
+	VerifiedToken verifiedToken = verifiedTokenMap.get(sessionId);
+	if (verifiedToken != null) {
+	    return verifiedToken.database;
+	}
+
 	try {
 	    DecodedJWT jwt = JWT.decode(sessionId);
 	    Map<String, Claim> claims = jwt.getClaims(); // Key is the Claim
@@ -157,7 +180,10 @@ public class JwtSessionConfigurator implements SessionConfigurator {
      */
     @Override
     public void remove(String sessionId) {
-	// Nothing to do.
+	// Nothing to do, except freeing the cache: the token is self-contained.
+	if (sessionId != null) {
+	    verifiedTokenMap.remove(sessionId);
+	}
     }
 
     /*
@@ -177,27 +203,44 @@ public class JwtSessionConfigurator implements SessionConfigurator {
     @Override
     public boolean verifySessionId(String sessionId) throws IOException {
 
-	try {
-	    String secret = ConfPropertiesStore.get().getJwtSessionConfiguratorSecretValue();
-	    Algorithm algorithm = Algorithm.HMAC256(secret);
-	    JWTVerifier verifier = JWT.require(algorithm).build(); // Reusable
-								   // verifier
-								   // instance
-	    DecodedJWT jwt = verifier.verify(sessionId);
+	if (sessionId == null) {
+	    return false;
+	}
+
+	long now = System.currentTimeMillis();
 
-	    if (getSessionTimelifeMinutes() == 0) {
+	VerifiedToken verifiedToken = verifiedTokenMap.get(sessionId);
+	if (verifiedToken != null) {
+	    if (now <= verifiedToken.expiresAtMillis) {
 		return true;
 	    }
+	    verifiedTokenMap.remove(sessionId);
+	    return false;
+	}
 
+	try {
+	    DecodedJWT jwt = getVerifier().verify(sessionId);
+
+	    long expiresAtMillis = Long.MAX_VALUE;
+	    if (jwt.getExpiresAt() != null) {
+		expiresAtMillis = jwt.getExpiresAt().getTime();
+	    }
+
+	    long timelifeMillis = getSessionTimelifeMillis();
 	    Date issuedAt = jwt.getIssuedAt();
+	    if (timelifeMillis != 0 && issuedAt != null) {
+		expiresAtMillis = Math.min(expiresAtMillis, issuedAt.getTime() + timelifeMillis);
+	    }
 
-	    if (issuedAt != null) {
-		// Check if session is expired.
-		Date now = new Date();
-		if (now.getTime()- issuedAt.getTime() > (getSessionTimelifeMinutes() * 60 * 1000)) {
-		    return false;
-		}
+	    // Check if session is expired.
+	    if (now > expiresAtMillis) {
+		return false;
 	    }
+
+	    Claim username = jwt.getClaim("usr");
+	    Claim database = jwt.getClaim("dbn");
+	    putVerifiedToken(sessionId, new VerifiedToken(username.asString(), database.asString(), expiresAtMillis));
+
 	} catch (JWTVerificationException exception) {
 	    System.err.println(exception);
 	    return false;
@@ -206,6 +249,53 @@ public class JwtSessionConfigurator implements SessionConfigurator {
 	return true;
     }
 
+    private void putVerifiedToken(String sessionId, VerifiedToken verifiedToken) {
+	// Evict expired tokens first, then any tokens, when full
+	if (verifiedTokenMap.size() >= MAX_CACHED_TOKENS) {
+	    long now = System.currentTimeMillis();
+	    verifiedTokenMap.values().removeIf(token -> now > token.expiresAtMillis);
+
+	    Iterator<String> iterator = verifiedTokenMap.keySet().iterator();
+	    while (verifiedTokenMap.size() >= MAX_CACHED_TOKENS && iterator.hasNext()) {
+		iterator.next();
+		iterator.remove();
+	    }
+	}
+	verifiedTokenMap.put(sessionId, verifiedToken);
+    }
+
+    private Algorithm getAlgorithm() {
+	if (algorithm == null) {
+	    String secret = ConfPropertiesStore.get().getJwtSessionConfiguratorSecretValue();
+
+	    if (secret == null || secret.isEmpty()) {
+		throw new IllegalArgumentException(
+			"The jwtSessionConfiguratorSecret property value defined in the AceQL properties file cannot be null.");
+	    }
+
+	    algorithm = Algorithm.HMAC256(secret);
+	}
+	return algorithm;
+    }
+
+    private JWTVerifier getVerifier() {
+	if (verifier == null) {
+	    verifier = JWT.require(getAlgorithm()).build(); // Reusable verifier instance
+	}
+	return verifier;
+    }
+
+    /**
+     * Returns the {@link #getSessionTimelifeMinutes()} value in milliseconds. The
+     * value is read only once.
+     */
+    private long getSessionTimelifeMillis() throws IOException {
+	if (sessionTimelifeMillis < 0) {
+	    sessionTimelifeMillis = TimeUnit.MINUTES.toMillis(getSessionTimelifeMinutes());
+	}
+	return sessionTimelifeMillis;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -228,4 +318,19 @@ public class JwtSessionConfigurator implements SessionConfigurator {
 	return DefaultSessionConfigurator.getSessionTimelifeMinutesPropertyValue(properties);
     }
 
+    /**
+     * The claims of a verified token.
+     */
+    private static final class VerifiedToken {
+	private final String username;
+	private final String database;
+	private final long expiresAtMillis;
+
+	VerifiedToken(String username, String database, long expiresAtMillis) {
+	    this.username = username;
+	    this.database = database;
+	    this.expiresAtMillis = expiresAtMillis;
+	}
+    }
+
 }
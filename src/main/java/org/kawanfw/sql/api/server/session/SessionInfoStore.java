@@ -0,0 +1,122 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.server.session;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The session store of {@link DefaultSessionConfigurator}. <br>
+ * <br>
+ * Session ids are also indexed in one minute buckets of creation time, so that
+ * the expired sessions are found without scanning the store: a bucket is
+ * evicted as a whole once all its sessions are expired.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+class SessionInfoStore {
+
+    /** The creation time width of a bucket */
+    static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** session id ==> session info */
+    private final Map<String, SessionInfo> sessionInfoMap = new ConcurrentHashMap<>();
+
+    /** creation bucket ==> session ids created in bucket */
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    /**
+     * Stores a new session.
+     *
+     * @param sessionInfo the session to store
+     * @param expirable   if true, the session is indexed for eviction
+     */
+    void put(SessionInfo sessionInfo, boolean expirable) {
+	sessionInfoMap.put(sessionInfo.getSessionId(), sessionInfo);
+	if (expirable) {
+	    buckets.computeIfAbsent(sessionInfo.getCreationTimeMillis() / BUCKET_MILLIS,
+		    k -> ConcurrentHashMap.newKeySet()).add(sessionInfo.getSessionId());
+	}
+    }
+
+    SessionInfo get(String sessionId) {
+	return sessionInfoMap.get(sessionId);
+    }
+
+    /**
+     * Removes a session. The session id stays in its bucket until eviction.
+     */
+    void remove(String sessionId) {
+	sessionInfoMap.remove(sessionId);
+    }
+
+    /**
+     * Removes a session found expired on use. The eviction will not see the
+     * removed session: the caller must release its resources.
+     *
+     * @return the removed session, or null if already removed
+     */
+    SessionInfo removeExpired(String sessionId) {
+	SessionInfo sessionInfo = sessionInfoMap.remove(sessionId);
+	if (sessionInfo != null) {
+	    expiredCount.incrementAndGet();
+	}
+	return sessionInfo;
+    }
+
+    /**
+     * Evicts all the buckets whose sessions are all expired.
+     *
+     * @param nowMillis      the current time
+     * @param timelifeMillis the session time life
+     * @param onEviction     called for each evicted session that was still
+     *                       stored
+     */
+    void evictExpired(long nowMillis, long timelifeMillis, Consumer<SessionInfo> onEviction) {
+	// Buckets strictly before this one contain only expired sessions
+	long firstLiveBucket = (nowMillis - timelifeMillis) / BUCKET_MILLIS;
+
+	Map.Entry<Long, Set<String>> bucket;
+	while ((bucket = buckets.firstEntry()) != null && bucket.getKey() < firstLiveBucket) {
+	    buckets.remove(bucket.getKey());
+	    for (String sessionId : bucket.getValue()) {
+		SessionInfo sessionInfo = sessionInfoMap.remove(sessionId);
+		if (sessionInfo != null) {
+		    evictedCount.incrementAndGet();
+		    onEviction.accept(sessionInfo);
+		}
+	    }
+	}
+    }
+
+    int size() {
+	return sessionInfoMap.size();
+    }
+
+    long getExpiredCount() {
+	return expiredCount.get();
+    }
+
+    long getEvictedCount() {
+	return evictedCount.get();
+    }
+
+}
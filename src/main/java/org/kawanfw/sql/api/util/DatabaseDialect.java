@@ -0,0 +1,159 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.util;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * The immutable description of a database engine, read once from the JDBC
+ * {@code DatabaseMetaData}: product, version, driver, LOB strategy and
+ * identifier quoting. <br>
+ * <br>
+ * Product checks are done on a lower case product name computed once, contrary
+ * to {@link SqlUtil} that requires a {@code DatabaseMetaData} call per
+ * instance.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class DatabaseDialect {
+
+    /**
+     * The way the server stores binary parameters.
+     */
+    public enum LobStrategy {
+	/** Standard JDBC binary streams */
+	STANDARD,
+	/** PostgreSQL Large Objects, for OID columns */
+	POSTGRESQL_LARGE_OBJECT
+    }
+
+    private final String databaseProductName;
+    private final String databaseProductVersion;
+    private final String driverName;
+    private final String driverVersion;
+    private final String identifierQuoteString;
+    private final LobStrategy lobStrategy;
+
+    /** The product name in lower case, for isProduct checks */
+    private final String databaseProductNameLower;
+
+    /**
+     * Constructor. Reads the values from the {@code DatabaseMetaData} of the
+     * Connection.
+     *
+     * @param connection the JDBC Connection
+     * @throws SQLException if a database access error occurs
+     */
+    public DatabaseDialect(Connection connection) throws SQLException {
+	Objects.requireNonNull(connection, "connection cannot be null!");
+
+	DatabaseMetaData databaseMetaData = connection.getMetaData();
+	this.databaseProductName = databaseMetaData.getDatabaseProductName();
+	this.databaseProductVersion = databaseMetaData.getDatabaseProductVersion();
+	this.driverName = databaseMetaData.getDriverName();
+	this.driverVersion = databaseMetaData.getDriverVersion();
+	this.identifierQuoteString = databaseMetaData.getIdentifierQuoteString();
+
+	this.databaseProductNameLower = databaseProductName == null ? "" : databaseProductName.toLowerCase();
+	this.lobStrategy = isPostgreSQL() ? LobStrategy.POSTGRESQL_LARGE_OBJECT : LobStrategy.STANDARD;
+    }
+
+    public String getDatabaseProductName() {
+	return databaseProductName;
+    }
+
+    public String getDatabaseProductVersion() {
+	return databaseProductVersion;
+    }
+
+    public String getDriverName() {
+	return driverName;
+    }
+
+    public String getDriverVersion() {
+	return driverVersion;
+    }
+
+    /**
+     * Returns the string used to quote SQL identifiers.
+     *
+     * @return the string used to quote SQL identifiers, " " if not supported
+     */
+    public String getIdentifierQuoteString() {
+	return identifierQuoteString;
+    }
+
+    public LobStrategy getLobStrategy() {
+	return lobStrategy;
+    }
+
+    /**
+     * Returns true if the passed product (database engine) is the current
+     * product.
+     * 
+     * @param product the product name to test, one of the {@link SqlUtil}
+     *                constants
+     * @return true if the actual loaded database is the product
+     */
+    public boolean isProduct(String product) {
+	return databaseProductNameLower.contains(product.toLowerCase());
+    }
+
+    public boolean isDB2() {
+	return isProduct(SqlUtil.DB2);
+    }
+
+    public boolean isH2() {
+	return isProduct(SqlUtil.H2);
+    }
+
+    public boolean isHSQLDB() {
+	return isProduct(SqlUtil.HSQLDB);
+    }
+
+    public boolean isMySQL() {
+	return isProduct(SqlUtil.MYSQL);
+    }
+
+    public boolean isOracle() {
+	return isProduct(SqlUtil.ORACLE);
+    }
+
+    public boolean isPostgreSQL() {
+	return isProduct(SqlUtil.POSTGRESQL);
+    }
+
+    public boolean isSQLServer() {
+	return isProduct(SqlUtil.SQL_SERVER);
+    }
+
+    /**
+     * Returns the product and driver description, for error messages.
+     *
+     * @return the product and driver description
+     */
+    public String getDriverInfo() {
+	return databaseProductName + " " + databaseProductVersion + " " + driverName + " " + driverVersion;
+    }
+
+    @Override
+    public String toString() {
+	return "DatabaseDialect [databaseProductName=" + databaseProductName + ", databaseProductVersion="
+		+ databaseProductVersion + ", driverName=" + driverName + ", driverVersion=" + driverVersion
+		+ ", identifierQuoteString=" + identifierQuoteString + ", lobStrategy=" + lobStrategy + "]";
+    }
+
+}
@@ -70,6 +70,9 @@ public class SqlUtil {
     /** used to get the database product name */
     private String databaseProductName = null;
 
+    /** The product name in lower case, computed once for isProduct checks */
+    private String databaseProductNameLower = null;
+
     /**
      * Constructor.
      * 
@@ -84,6 +87,7 @@ public class SqlUtil {
 
 	DatabaseMetaData databaseMetaData = connection.getMetaData();
 	databaseProductName = databaseMetaData.getDatabaseProductName();
+	databaseProductNameLower = databaseProductName == null ? "" : databaseProductName.toLowerCase();
     }
 
     /**
@@ -226,9 +230,7 @@ public class SqlUtil {
      * @return true if the actual loaded database is the product
      */
     private boolean isProduct(String product) {
-	return databaseProductName.toLowerCase().contains(product.toLowerCase())
-		? true
-		: false;
+	return databaseProductNameLower.contains(product.toLowerCase());
     }
 
     /**
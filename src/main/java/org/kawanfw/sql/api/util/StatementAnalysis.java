@@ -0,0 +1,287 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.sql.api.server.StatementNormalizer;
+import org.kawanfw.sql.util.FrameworkDebug;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+
+/**
+ * The analysis of the text of a SQL statement, independent of its parameter
+ * values: statement name, statement class (DCL, DDL, DML, TCL), tables,
+ * comments and semicolons detection, and normalized form. <br>
+ * <br>
+ * Instances are immutable and shared by all requests with the same SQL text
+ * through {@link StatementAnalysisCache}. The normalized form is computed on
+ * first use. The parsed statement must not be modified.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class StatementAnalysis {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(StatementAnalysis.class);
+
+    private static final String BLANK = " ";
+
+    /** The original SQL text */
+    private final String originalSql;
+
+    /** The SQL text trimmed and without trailing semicolons */
+    private final String sql;
+
+    private String statementName;
+    private List<String> tables = Collections.emptyList();
+
+    private boolean isDCL = false;
+    private boolean isDDL = false;
+    private boolean isDML = false;
+    private boolean isTCL = false;
+
+    /** The AST is not kept: it is mutable and this analysis is shared */
+    private boolean statementTypeNotParsed = true;
+    private SQLException parseException = null;
+
+    private final boolean withComments;
+    private final boolean withSemicolons;
+
+    /** The normalizer, set once normalization is done */
+    private volatile StatementNormalizer statementNormalizer = null;
+    private volatile String normalized = null;
+
+    /**
+     * Constructor. Parses the SQL text.
+     *
+     * @param originalSql the SQL text
+     */
+    StatementAnalysis(String originalSql) {
+	this.originalSql = originalSql;
+	this.sql = trimAndremoveTrailingSemicolons(originalSql);
+
+	String theStatementName = StringUtils.substringBefore(this.sql, BLANK);
+
+	// Can not treat GRANT, REVOKE or ROLLBACK here, not supported by
+	// CCJSqlParserUtil
+	if (theStatementName.equalsIgnoreCase("GRANT")) {
+	    this.statementName = "GRANT";
+	    this.isDCL = true;
+	} else if (theStatementName.equalsIgnoreCase("REVOKE")) {
+	    this.statementName = "REVOKE";
+	    this.isDCL = true;
+	} else if (theStatementName.equalsIgnoreCase("ROLLBACK")) {
+	    this.statementName = "ROLLBACK";
+	    this.isTCL = true;
+	} else if (theStatementName.equalsIgnoreCase("DROP")) {
+	    this.statementName = "DROP";
+	    this.isDDL = true;
+	} else {
+	    try {
+		Statement parsedStatement = CCJSqlParserUtil.parse(this.sql);
+		JsqlParserWrapper jsqlParserWrapper = new JsqlParserWrapper(parsedStatement);
+		this.isDCL = jsqlParserWrapper.isDCL();
+		this.isDDL = jsqlParserWrapper.isDDL();
+		this.isDML = jsqlParserWrapper.isDML();
+		this.isTCL = jsqlParserWrapper.isTCL();
+
+		this.tables = Collections.unmodifiableList(new ArrayList<>(jsqlParserWrapper.getTables()));
+		this.statementName = jsqlParserWrapper.getStatementName();
+		this.statementTypeNotParsed = false;
+
+	    } catch (JSQLParserException e) {
+		if (DEBUG) {
+		    e.printStackTrace(System.err);
+		}
+		this.parseException = new SQLException(e);
+	    }
+	}
+
+	if (this.statementName == null) {
+	    this.statementName = StringUtils.substringBefore(this.sql, BLANK);
+	}
+
+	this.withComments = (sql.contains("/*") && sql.contains("*/") || (sql.contains("({") && sql.contains("})"))
+		|| sql.contains(" --"));
+	this.withSemicolons = sql.contains(";");
+    }
+
+    /**
+     * Remove all trailing ";" from SQL command
+     *
+     * @param sql the sql command
+     * @return the sql command without the trailing ";"
+     */
+    private static String trimAndremoveTrailingSemicolons(final String sql) {
+	String sqlNew = sql.trim();
+	// Remove the trailing ";", there may be some blanks, so we always trim
+	while (sqlNew.endsWith(";")) {
+	    sqlNew = StringUtils.removeEnd(sqlNew, ";");
+	    sqlNew = sqlNew.trim();
+	}
+
+	sqlNew = StatementAnalyzerUtil.fixForJsqlparser(sqlNew);
+	return sqlNew;
+    }
+
+    /**
+     * Returns the SQL text trimmed and without trailing semicolons.
+     *
+     * @return the SQL text trimmed and without trailing semicolons
+     */
+    public String getSql() {
+	return sql;
+    }
+
+    /**
+     * Returns the statement name: DELETE, INSERT, SELECT, UPDATE, etc.
+     *
+     * @return the statement name
+     */
+    public String getStatementName() {
+	return statementName;
+    }
+
+    /**
+     * Returns the unmodifiable list of tables in the statement.
+     *
+     * @return the unmodifiable list of tables in the statement
+     */
+    public List<String> getTables() {
+	return tables;
+    }
+
+    public boolean isDcl() {
+	return isDCL;
+    }
+
+    public boolean isDdl() {
+	return isDDL;
+    }
+
+    public boolean isDml() {
+	return isDML;
+    }
+
+    public boolean isTcl() {
+	return isTCL;
+    }
+
+    /**
+     * Returns a new statement parsed with JSQLParser. The analysis is shared by
+     * all requests with the same SQL text, so the statement is parsed again on
+     * each call: the caller may modify it.
+     *
+     * @return a new statement parsed with JSQLParser, null if not parsed
+     */
+    public Statement getParsedStatement() {
+	if (statementTypeNotParsed) {
+	    return null;
+	}
+
+	try {
+	    return CCJSqlParserUtil.parse(this.sql);
+	} catch (JSQLParserException e) {
+	    if (DEBUG) {
+		e.printStackTrace(System.err);
+	    }
+	    return null; // Can not happen: parsed by the constructor
+	}
+    }
+
+    /**
+     * Says if the statement type (DDL, DML, DCL, TCL) could not be parsed
+     *
+     * @return true if the statement type could no be parsed.
+     */
+    public boolean isStatementTypeNotParsed() {
+	return statementTypeNotParsed;
+    }
+
+    /**
+     * Returns the parse Exception if any.
+     *
+     * @return the parse Exception. null if none.
+     */
+    public SQLException getParseException() {
+	return parseException;
+    }
+
+    /**
+     * Says if the statement contains SQL comments.
+     *
+     * @return true if the statement contains SQL comments
+     */
+    public boolean isWithComments() {
+	return withComments;
+    }
+
+    /**
+     * Says if the statement contains semicolons that are not trailing.
+     *
+     * @return true if the statement contains semicolons that are not trailing
+     */
+    public boolean isWithSemicolons() {
+	return withSemicolons;
+    }
+
+    /**
+     * Returns the normalized text of the original SQL, as returned by
+     * {@link StatementNormalizer#getNormalized()}.
+     *
+     * @return the normalized text of the original SQL
+     */
+    public String getNormalized() {
+	normalize();
+	return normalized;
+    }
+
+    /**
+     * Says if the normalization attempt is a success.
+     *
+     * @return true if the normalization attempt is a success
+     */
+    public boolean isNormalizeSuccess() {
+	normalize();
+	return statementNormalizer.isSuccess();
+    }
+
+    /**
+     * Returns the Exception caught if the normalization was a failure.
+     *
+     * @return the Exception caught, null if none
+     */
+    public Exception getNormalizeException() {
+	normalize();
+	return statementNormalizer.getException();
+    }
+
+    /**
+     * Normalizes once. Concurrent first calls may normalize twice, with the same
+     * result.
+     */
+    private void normalize() {
+	if (statementNormalizer == null) {
+	    StatementNormalizer theStatementNormalizer = new StatementNormalizer(originalSql);
+	    normalized = theStatementNormalizer.getNormalized();
+	    statementNormalizer = theStatementNormalizer;
+	}
+    }
+
+}
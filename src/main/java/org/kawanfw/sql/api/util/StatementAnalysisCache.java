@@ -0,0 +1,84 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of {@link StatementAnalysis} keyed on SQL text, shared by the
+ * {@code StatementAnalyzer} instances and all the {@code SqlFirewallManager}
+ * of all databases. A SQL text is thus parsed and normalized only once, even
+ * if several managers are chained.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class StatementAnalysisCache {
+
+    /** The maximum number of SQL texts kept in cache */
+    public static final int MAX_SIZE = 5000;
+
+    private static Map<String, StatementAnalysis> analysisMap = new ConcurrentHashMap<>();
+
+    protected StatementAnalysisCache() {
+
+    }
+
+    /**
+     * Returns the analysis of a SQL text, computed on first call.
+     *
+     * @param sql the SQL text
+     * @return the analysis of the SQL text
+     */
+    public static StatementAnalysis get(String sql) {
+	Objects.requireNonNull(sql, "sql cannot be null!");
+
+	StatementAnalysis statementAnalysis = analysisMap.get(sql);
+	if (statementAnalysis != null) {
+	    return statementAnalysis;
+	}
+
+	statementAnalysis = new StatementAnalysis(sql);
+
+	// Non prepared statements with literal values may flood the cache:
+	// evict any entries when full
+	if (analysisMap.size() >= MAX_SIZE) {
+	    Iterator<String> iterator = analysisMap.keySet().iterator();
+	    while (analysisMap.size() >= MAX_SIZE && iterator.hasNext()) {
+		iterator.next();
+		iterator.remove();
+	    }
+	}
+
+	StatementAnalysis previous = analysisMap.putIfAbsent(sql, statementAnalysis);
+	return previous != null ? previous : statementAnalysis;
+    }
+
+    /**
+     * Returns the number of SQL texts in cache.
+     *
+     * @return the number of SQL texts in cache
+     */
+    public static int size() {
+	return analysisMap.size();
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public static void clear() {
+	analysisMap.clear();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.util.firewall;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The CSV rules of {@code CsvRulesManager} for one database, compiled at load
+ * time into a permission bitmask per username and table. <br>
+ * <br>
+ * The {@code public} username and {@code all} table rules are merged into the
+ * masks of each username and table, so that a check costs one lookup and one
+ * bit test per table. Instances are immutable.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class CompiledTableRules {
+
+    public static final int DELETE = 1;
+    public static final int INSERT = 1 << 1;
+    public static final int SELECT = 1 << 2;
+    public static final int UPDATE = 1 << 3;
+
+    private static final String PUBLIC = "public";
+    private static final String ALL = "all";
+
+    /** The merged rules of the users declared in the CSV file */
+    private final Map<String, UserRules> userRulesMap;
+
+    /** The rules of the users not declared in the CSV file: public only */
+    private final UserRules publicRules;
+
+    /**
+     * Constructor. Compiles the rules loaded by {@link CsvRulesManagerLoader}.
+     *
+     * @param mapTableAllowStatementsSet the rules of one database
+     */
+    public CompiledTableRules(Map<DatabaseUserTableTriplet, TableAllowStatements> mapTableAllowStatementsSet) {
+	Objects.requireNonNull(mapTableAllowStatementsSet, "mapTableAllowStatementsSet cannot be null!");
+
+	// username ==> table ==> mask, as declared
+	Map<String, Map<String, Integer>> declaredMasks = new HashMap<>();
+	for (TableAllowStatements tableAllowStatements : mapTableAllowStatementsSet.values()) {
+	    declaredMasks.computeIfAbsent(tableAllowStatements.getUsername(), k -> new HashMap<>())
+		    .merge(tableAllowStatements.getTable(), toMask(tableAllowStatements), (a, b) -> a | b);
+	}
+
+	Map<String, Integer> publicMasks = declaredMasks.getOrDefault(PUBLIC, Collections.emptyMap());
+	publicRules = new UserRules(publicMasks, Collections.emptyMap());
+
+	Map<String, UserRules> theUserRulesMap = new HashMap<>();
+	for (Map.Entry<String, Map<String, Integer>> entry : declaredMasks.entrySet()) {
+	    if (!entry.getKey().equals(PUBLIC)) {
+		theUserRulesMap.put(entry.getKey(), new UserRules(publicMasks, entry.getValue()));
+	    }
+	}
+	userRulesMap = Collections.unmodifiableMap(theUserRulesMap);
+    }
+
+    /**
+     * Returns the bit of a statement name.
+     *
+     * @param statementName the statement name, case insensitive
+     * @return the bit of the statement name, 0 if the statement is not ruled by
+     *         the CSV file
+     */
+    public static int getStatementBit(String statementName) {
+	if (statementName == null) {
+	    return 0;
+	}
+	switch (statementName.toLowerCase()) {
+	case "delete":
+	    return DELETE;
+	case "insert":
+	    return INSERT;
+	case "select":
+	    return SELECT;
+	case "update":
+	    return UPDATE;
+	default:
+	    return 0;
+	}
+    }
+
+    /**
+     * Says if a statement is allowed for a username on a table.
+     *
+     * @param username     the client username
+     * @param table        the table name, in lowercase
+     * @param statementBit the statement bit returned by
+     *                     {@link #getStatementBit(String)}
+     * @return true if the statement is allowed
+     */
+    public boolean isAllowed(String username, String table, int statementBit) {
+	UserRules userRules = userRulesMap.get(username);
+	if (userRules == null) {
+	    userRules = publicRules;
+	}
+	return (userRules.getMask(table) & statementBit) != 0;
+    }
+
+    private static int toMask(TableAllowStatements tableAllowStatements) {
+	int mask = 0;
+	if (tableAllowStatements.isDeleteAllowed()) {
+	    mask |= DELETE;
+	}
+	if (tableAllowStatements.isInsertAllowe()) {
+	    mask |= INSERT;
+	}
+	if (tableAllowStatements.isSelectAllowed()) {
+	    mask |= SELECT;
+	}
+	if (tableAllowStatements.isUpdateAllowed()) {
+	    mask |= UPDATE;
+	}
+	return mask;
+    }
+
+    /**
+     * The masks of one username, with public and all rules merged in.
+     */
+    private static class UserRules {
+	private final Map<String, Integer> tableMasks;
+	private final int allTablesMask;
+
+	UserRules(Map<String, Integer> publicMasks, Map<String, Integer> userMasks) {
+	    this.allTablesMask = publicMasks.getOrDefault(ALL, 0) | userMasks.getOrDefault(ALL, 0);
+
+	    Map<String, Integer> theTableMasks = new HashMap<>();
+	    for (Map.Entry<String, Integer> entry : publicMasks.entrySet()) {
+		theTableMasks.merge(entry.getKey(), entry.getValue() | allTablesMask, (a, b) -> a | b);
+	    }
+	    for (Map.Entry<String, Integer> entry : userMasks.entrySet()) {
+		theTableMasks.merge(entry.getKey(), entry.getValue() | allTablesMask, (a, b) -> a | b);
+	    }
+	    this.tableMasks = theTableMasks;
+	}
+
+	int getMask(String table) {
+	    Integer mask = tableMasks.get(table);
+	    return mask != null ? mask : allTablesMask;
+	}
+    }
+}
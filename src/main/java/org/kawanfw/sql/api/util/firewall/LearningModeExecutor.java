@@ -17,22 +17,35 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.commons.io.FileUtils;
-import org.kawanfw.sql.api.server.StatementNormalizer;
+import org.kawanfw.sql.api.util.StatementAnalysis;
+import org.kawanfw.sql.api.util.StatementAnalysisCache;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileStore;
 import org.kawanfw.sql.servlet.util.logging.StringFlattener;
 import org.kawanfw.sql.util.FrameworkDebug;
+import org.kawanfw.sql.util.SqlTag;
 import org.kawanfw.sql.util.TimestampUtil;
 
 /**
- * Learn new statements to log in the learn whitelist file
+ * Learn new statements to log in the learn whitelist file. <br>
+ * <br>
+ * The learned statements are kept in memory per database. Only the new ones
+ * are appended to the file, in batches, by a single background writer thread,
+ * so that request threads never wait on disk I/O. Pending statements are
+ * flushed by {@link #shutdown()}.
  * 
  * @author Nicolas de Pomereu
  *
@@ -43,51 +56,57 @@ public class LearningModeExecutor {
     
     public static String CR_LF = System.getProperty("line.separator");
 
+    /** database ==> learned normalized statements */
+    private static Map<String, Set<String>> learnedStatementsMap = new ConcurrentHashMap<>();
+
+    /** The statements not yet written to the learning files */
+    private static BlockingQueue<LearnedStatement> pendingQueue = new LinkedBlockingQueue<>();
+
+    /** The learning files already checked for a trailing line separator */
+    private static Set<File> checkedFiles = ConcurrentHashMap.newKeySet();
+
+    /** Serializes the writes of the writer thread and of shutdown */
+    private static final Object WRITE_LOCK = new Object();
+
+    private static Thread writerThread = null;
+
+    private static volatile boolean shutdown = false;
+
     /**
      * Stores in the learning file in database-whitelist-learning.txt same dir as
-     * properties file the sql statements to allows
+     * properties file the sql statements to allows. The file is written
+     * asynchronously.
      * @param sqlOrder 
      * @param database
-     * @throws SQLException if I/O error occurs, wrapped in SQLException
+     * @throws SQLException if I/O error occurs when loading the learning file, wrapped in SQLException
      */
-    public static synchronized void learn(String sqlOrder, String database) throws SQLException {
+    public static void learn(String sqlOrder, String database) throws SQLException {
 
 	try {
-	    File propertiesFile = PropertiesFileStore.get();
-	    File learningFile = getLearningFile(database, propertiesFile);
-	    File logFile = new File(learningFile.toString() + ".errors.log");
-	    
-	    Set<String> lineSet = new LinkedHashSet<>();
-	    if (learningFile.exists()) {
-		List<String> lines = FileUtils.readLines(learningFile, "UTF-8");
-		lineSet = new LinkedHashSet<>(lines);
-	    }
-	    
+	    Set<String> learnedStatements = getLearnedStatements(database);
+
 	    // Normalize the statement
-	    StatementNormalizer statementNormalizer = new StatementNormalizer(sqlOrder);
-	    String sql = statementNormalizer.getNormalized();
+	    StatementAnalysis statementAnalysis = StatementAnalysisCache.get(sqlOrder);
+	    String sql = statementAnalysis.getNormalized();
 	    
 	    StringFlattener stringFlattener = new StringFlattener(sql);
 	    sql = stringFlattener.flatten();
 	    
 	    debug("sql: " + sql);
-	    debug("statementNormalizer.getException(): " + statementNormalizer.getException());
+	    debug("statementAnalysis.getNormalizeException(): " + statementAnalysis.getNormalizeException());
 	    
-	    if (!statementNormalizer.isSuccess()) {
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true))) {
-		    String message = TimestampUtil.getHumanTimestampNow() 
-			    +  " Reason: " + statementNormalizer.getException().getMessage() + " - SQL:  " + sql;
-		    writer.write(message + CR_LF);
-		}
+	    if (!learnedStatements.add(sql)) {
+		return;
 	    }
-	    
-	    lineSet.add(sql);
 
-	    try (BufferedWriter writer = new BufferedWriter(new FileWriter(learningFile));) {
-		for (String line : lineSet) {
-		    writer.write(line + CR_LF);
-		}
+	    String errorMessage = null;
+	    if (!statementAnalysis.isNormalizeSuccess()) {
+		errorMessage = TimestampUtil.getHumanTimestampNow() + " Reason: "
+			+ statementAnalysis.getNormalizeException().getMessage() + " - SQL:  " + sql;
 	    }
+
+	    startWriterIfNeeded();
+	    pendingQueue.add(new LearnedStatement(database, sql, errorMessage));
 	} catch (IOException ioe) {
 	    ioe.printStackTrace();
 	    throw new SQLException("Error when accessing learning file for database " + database + ": "
@@ -95,6 +114,139 @@ public class LearningModeExecutor {
 	}
     }
 
+    /**
+     * Stops the background writer and writes all the pending statements.
+     */
+    public static synchronized void shutdown() {
+	shutdown = true;
+	if (writerThread != null) {
+	    writerThread.interrupt();
+	    try {
+		writerThread.join(5000);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    writerThread = null;
+	}
+
+	// Flush what the writer did not take
+	List<LearnedStatement> batch = new ArrayList<>();
+	pendingQueue.drainTo(batch);
+	write(batch);
+	learnedStatementsMap.clear();
+	checkedFiles.clear();
+	shutdown = false;
+    }
+
+    /**
+     * Returns the learned statements of a database, loaded from the learning
+     * file on first call.
+     */
+    private static Set<String> getLearnedStatements(String database) throws IOException {
+	Set<String> learnedStatements = learnedStatementsMap.get(database);
+	if (learnedStatements != null) {
+	    return learnedStatements;
+	}
+
+	synchronized (LearningModeExecutor.class) {
+	    learnedStatements = learnedStatementsMap.get(database);
+	    if (learnedStatements == null) {
+		learnedStatements = ConcurrentHashMap.newKeySet();
+		File learningFile = getLearningFile(database, PropertiesFileStore.get());
+		if (learningFile.exists()) {
+		    learnedStatements.addAll(FileUtils.readLines(learningFile, "UTF-8"));
+		}
+		learnedStatementsMap.put(database, learnedStatements);
+	    }
+	    return learnedStatements;
+	}
+    }
+
+    private static synchronized void startWriterIfNeeded() {
+	if (writerThread != null) {
+	    return;
+	}
+
+	writerThread = new Thread(() -> {
+	    List<LearnedStatement> batch = new ArrayList<>();
+	    while (!shutdown) {
+		try {
+		    batch.add(pendingQueue.take());
+		} catch (InterruptedException e) {
+		    break;
+		}
+		pendingQueue.drainTo(batch);
+		write(batch);
+		batch.clear();
+	    }
+	}, "aceql-learning-mode-writer");
+	writerThread.setDaemon(true);
+	writerThread.start();
+    }
+
+    /**
+     * Appends a batch of learned statements to the learning files, grouped per
+     * database. Errors are displayed, the statements stay learned in memory.
+     *
+     * @param batch the learned statements to write
+     */
+    private static void write(List<LearnedStatement> batch) {
+	synchronized (WRITE_LOCK) {
+	    writeBatch(batch);
+	}
+    }
+
+    private static void writeBatch(List<LearnedStatement> batch) {
+	Map<String, List<LearnedStatement>> batchPerDatabase = new LinkedHashMap<>();
+	for (LearnedStatement learnedStatement : batch) {
+	    batchPerDatabase.computeIfAbsent(learnedStatement.database, k -> new ArrayList<>()).add(learnedStatement);
+	}
+
+	for (Map.Entry<String, List<LearnedStatement>> entry : batchPerDatabase.entrySet()) {
+	    String database = entry.getKey();
+	    try {
+		File learningFile = getLearningFile(database, PropertiesFileStore.get());
+		File logFile = new File(learningFile.toString() + ".errors.log");
+		boolean addLineSeparator = checkedFiles.add(learningFile) && !endsWithLineSeparator(learningFile);
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(learningFile, true));) {
+		    if (addLineSeparator) {
+			writer.write(CR_LF);
+		    }
+		    for (LearnedStatement learnedStatement : entry.getValue()) {
+			writer.write(learnedStatement.sql + CR_LF);
+		    }
+		}
+
+		for (LearnedStatement learnedStatement : entry.getValue()) {
+		    if (learnedStatement.errorMessage != null) {
+			try (BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true))) {
+			    writer.write(learnedStatement.errorMessage + CR_LF);
+			}
+		    }
+		}
+	    } catch (IOException ioe) {
+		System.err.println(SqlTag.SQL_PRODUCT_START + " " + new Date()
+			+ " Error when writing learning file for database " + database + ": " + ioe.getMessage());
+	    }
+	}
+    }
+
+    /**
+     * Says if a non empty file ends with a line separator, so that appended
+     * lines are not glued to the last one.
+     */
+    private static boolean endsWithLineSeparator(File file) throws IOException {
+	if (!file.exists() || file.length() == 0) {
+	    return true;
+	}
+	try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+	    randomAccessFile.seek(file.length() - 1);
+	    int lastByte = randomAccessFile.read();
+	    return lastByte == '\n' || lastByte == '\r';
+	}
+    }
+
     /**
      * Returns the &lt;database&gt;_rules_manager.csv for the passed database
      *
@@ -120,4 +272,19 @@ public class LearningModeExecutor {
 	    System.out.println(new Date() + " " + s);
     }
 
+    /**
+     * A learned statement waiting to be written.
+     */
+    private static class LearnedStatement {
+	private final String database;
+	private final String sql;
+	private final String errorMessage;
+
+	LearnedStatement(String database, String sql, String errorMessage) {
+	    this.database = database;
+	    this.sql = sql;
+	    this.errorMessage = errorMessage;
+	}
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.util.firewall;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kawanfw.sql.util.FrameworkDebug;
+
+/**
+ * Watches the rule files of the SQL Firewall Managers (CSV rules, blacklist and
+ * whitelist text files) with a single background poll thread, so that the
+ * managers never read file attributes when checking a statement. <br>
+ * <br>
+ * When the last modified time of a file changes, the listeners registered for
+ * the file are called from the poll thread. Listeners are expected to drop
+ * their rule snapshot, which is rebuilt on next use. <br>
+ * Also holds the reload counters displayed by {@code DefaultPoolsInfo}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class RuleFileWatcher {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(RuleFileWatcher.class);
+
+    /** The period between two checks of the watched files */
+    public static final long POLL_PERIOD_SECONDS = 2;
+
+    /** file ==> last modified time at registration or last change */
+    private static Map<File, FileTime> fileTimeMap = new ConcurrentHashMap<>();
+
+    /** file ==> listeners to call on change */
+    private static Map<File, List<Runnable>> listenersMap = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService pollExecutor = null;
+
+    private static AtomicLong reloadCount = new AtomicLong();
+    private static AtomicLong reloadTotalNanos = new AtomicLong();
+    private static AtomicLong lastReloadNanos = new AtomicLong();
+
+    protected RuleFileWatcher() {
+
+    }
+
+    /**
+     * Registers a listener to call when the file is modified. Must be called
+     * before loading the file, so that no modification is missed.
+     *
+     * @param file     the rule file to watch
+     * @param listener the listener to call from the poll thread on modification
+     * @throws IOException if the file attributes can not be read
+     */
+    public static synchronized void watch(File file, Runnable listener) throws IOException {
+	fileTimeMap.putIfAbsent(file, Files.getLastModifiedTime(file.toPath()));
+	listenersMap.computeIfAbsent(file, k -> new CopyOnWriteArrayList<>()).add(listener);
+
+	if (pollExecutor == null) {
+	    pollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "aceql-rule-file-watcher");
+		thread.setDaemon(true);
+		return thread;
+	    });
+	    pollExecutor.scheduleWithFixedDelay(RuleFileWatcher::poll, POLL_PERIOD_SECONDS, POLL_PERIOD_SECONDS,
+		    TimeUnit.SECONDS);
+	}
+    }
+
+    /**
+     * Stops the poll thread and forgets all the watched files.
+     */
+    public static synchronized void shutdown() {
+	if (pollExecutor != null) {
+	    pollExecutor.shutdownNow();
+	    pollExecutor = null;
+	}
+	fileTimeMap.clear();
+	listenersMap.clear();
+    }
+
+    /**
+     * Records the duration of a rule file load, for monitoring.
+     *
+     * @param nanos the load duration in nanoseconds
+     */
+    public static void recordReload(long nanos) {
+	reloadCount.incrementAndGet();
+	reloadTotalNanos.addAndGet(nanos);
+	lastReloadNanos.set(nanos);
+    }
+
+    /**
+     * Returns the number of rule file loads since startup.
+     *
+     * @return the number of rule file loads since startup
+     */
+    public static long getReloadCount() {
+	return reloadCount.get();
+    }
+
+    /**
+     * Returns the total time spent in rule file loads since startup.
+     *
+     * @return the total time spent in rule file loads, in milliseconds
+     */
+    public static long getReloadTotalMillis() {
+	return TimeUnit.NANOSECONDS.toMillis(reloadTotalNanos.get());
+    }
+
+    /**
+     * Returns the duration of the last rule file load.
+     *
+     * @return the duration of the last rule file load, in milliseconds
+     */
+    public static long getLastReloadMillis() {
+	return TimeUnit.NANOSECONDS.toMillis(lastReloadNanos.get());
+    }
+
+    private static void poll() {
+	for (Map.Entry<File, FileTime> entry : fileTimeMap.entrySet()) {
+	    File file = entry.getKey();
+	    try {
+		FileTime currentFileTime = Files.getLastModifiedTime(file.toPath());
+		if (currentFileTime.equals(entry.getValue())) {
+		    continue;
+		}
+
+		debug("Modified: " + file);
+		fileTimeMap.put(file, currentFileTime);
+		for (Runnable listener : listenersMap.get(file)) {
+		    listener.run();
+		}
+	    } catch (Exception e) {
+		// File may be temporarily missing while being replaced: check next time
+		debug("Can not check " + file + ": " + e);
+	    }
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + s);
+	}
+    }
+
+}
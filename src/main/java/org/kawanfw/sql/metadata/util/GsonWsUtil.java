@@ -25,6 +25,10 @@ import com.google.gson.GsonBuilder;
  */
 public final class GsonWsUtil {
 
+    /** Gson instances are thread safe: built once */
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final Gson GSON_PRETTY_PRINTING = new GsonBuilder().setPrettyPrinting().create();
+
     /**
      * Create json string representing object
      *
@@ -32,9 +36,7 @@ public final class GsonWsUtil {
      * @return
      */
     public static String getJSonString(final Object obj) {
-	final GsonBuilder builder = new GsonBuilder();
-	final Gson gson = builder.setPrettyPrinting().create();
-	return gson.toJson(obj, obj.getClass());
+	return GSON_PRETTY_PRINTING.toJson(obj, obj.getClass());
     }
 
     /**
@@ -45,10 +47,8 @@ public final class GsonWsUtil {
      * @return
      */
     public static <T extends Object> T fromJson(final String jsonString, final Class<T> type) {
-	final GsonBuilder builder = new GsonBuilder();
-	final Gson gson = builder.create();
 	final BufferedReader bufferedReader = new BufferedReader(new StringReader(jsonString));
-	final T dTO = gson.fromJson(bufferedReader, type);
+	final T dTO = GSON.fromJson(bufferedReader, type);
 	return dTO;
     }
 }
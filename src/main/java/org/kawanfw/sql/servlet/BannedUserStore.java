@@ -0,0 +1,263 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.kawanfw.sql.api.server.DatabaseConfigurator;
+import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
+import org.kawanfw.sql.util.FrameworkDebug;
+import org.kawanfw.sql.util.SqlTag;
+
+/**
+ * In memory store of the usernames banned by {@code BanUserSqlFirewallTrigger},
+ * per database. <br>
+ * <br>
+ * The {@code aceql_banned_user} table is loaded at startup, updated
+ * write-through by the trigger and reloaded every
+ * {@link #REFRESH_PERIOD_SECONDS} by a background thread, to get the bans done
+ * by other AceQL servers on the same database. <br>
+ * <br>
+ * The trigger insert is done later by the {@link FirewallTriggerWriter}: a
+ * user is kept in a pending set until the row is committed, so that a reload
+ * never unbans it. <br>
+ * <br>
+ * Usernames are compared exactly, as the database does: the comparison ignores
+ * case only if the driver reports the {@code username} column as not case
+ * sensitive, as with the default collations of MySQL and SQL Server.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class BannedUserStore {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(BannedUserStore.class);
+
+    /** The period between two reloads of the aceql_banned_user table */
+    public static final long REFRESH_PERIOD_SECONDS = 60;
+
+    private static final String SELECT_BANNED_USERS = "SELECT username FROM aceql_banned_user";
+
+    /** database ==> banned usernames */
+    private static Map<String, Set<String>> bannedUsersMap = new ConcurrentHashMap<>();
+
+    /** database ==> true if the username column of aceql_banned_user ignores case */
+    private static Map<String, Boolean> caseInsensitiveMap = new ConcurrentHashMap<>();
+
+    /** database ==> banned usernames not yet committed in aceql_banned_user */
+    private static Map<String, Set<String>> pendingBannedUsersMap = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService refreshExecutor = null;
+
+    protected BannedUserStore() {
+
+    }
+
+    /**
+     * Loads the banned users of all databases with
+     * {@code BanUserSqlFirewallTrigger} activated and starts the background
+     * refresh. A database whose table can not be read at startup will be loaded
+     * on first check.
+     *
+     * @param databases the database names
+     */
+    public static synchronized void init(Set<String> databases) {
+	boolean isActivated = false;
+	for (String database : databases) {
+	    if (BannerOnTester.isBanUserSqlFirewallTriggerActivated(database)) {
+		isActivated = true;
+		refresh(database);
+	    }
+	}
+
+	if (isActivated && refreshExecutor == null) {
+	    refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "aceql-banned-user-refresh");
+		thread.setDaemon(true);
+		return thread;
+	    });
+	    refreshExecutor.scheduleWithFixedDelay(() -> {
+		for (String database : databases) {
+		    if (BannerOnTester.isBanUserSqlFirewallTriggerActivated(database)) {
+			refresh(database);
+		    }
+		}
+	    }, REFRESH_PERIOD_SECONDS, REFRESH_PERIOD_SECONDS, TimeUnit.SECONDS);
+	}
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    public static synchronized void shutdown() {
+	if (refreshExecutor != null) {
+	    refreshExecutor.shutdownNow();
+	    refreshExecutor = null;
+	}
+	bannedUsersMap.clear();
+	pendingBannedUsersMap.clear();
+	caseInsensitiveMap.clear();
+    }
+
+    /**
+     * Says if a user is banned for a database.
+     *
+     * @param username   the client username
+     * @param database   the database name
+     * @param connection the JDBC Connection, used only if the banned users of the
+     *                   database are not loaded yet
+     * @return true if the user is banned
+     * @throws SQLException
+     */
+    public static boolean isBanned(String username, String database, Connection connection) throws SQLException {
+	if (username == null) {
+	    return false;
+	}
+
+	Set<String> bannedUsers = bannedUsersMap.get(database);
+	if (bannedUsers == null) {
+	    bannedUsers = load(connection, database);
+	    bannedUsersMap.putIfAbsent(database, bannedUsers);
+	}
+
+	String key = toKey(username, database);
+	Set<String> pendingBannedUsers = pendingBannedUsersMap.get(database);
+	if (pendingBannedUsers != null) {
+	    // Very few users: no need of a key set
+	    for (String pendingBannedUser : pendingBannedUsers) {
+		if (toKey(pendingBannedUser, database).equals(key)) {
+		    return true;
+		}
+	    }
+	}
+
+	return bannedUsers.contains(key);
+    }
+
+    /**
+     * Adds a banned user, before the insert into the {@code aceql_banned_user}
+     * table. The user is banned immediately.
+     *
+     * @param username the banned username
+     * @param database the database name
+     */
+    public static void add(String username, String database) {
+	pendingBannedUsersMap.computeIfAbsent(database, k -> ConcurrentHashMap.newKeySet()).add(username);
+    }
+
+    /**
+     * Says that the insert of a banned user into the {@code aceql_banned_user}
+     * table is committed.
+     *
+     * @param username the banned username
+     * @param database the database name
+     */
+    public static void written(String username, String database) {
+	Set<String> bannedUsers = bannedUsersMap.get(database);
+	// If not loaded, the insert will be read on first check
+	if (bannedUsers != null) {
+	    bannedUsers.add(toKey(username, database));
+	}
+
+	Set<String> pendingBannedUsers = pendingBannedUsersMap.get(database);
+	if (pendingBannedUsers != null) {
+	    pendingBannedUsers.remove(username);
+	}
+    }
+
+    /**
+     * Reloads the banned users of a database with a pooled Connection. Errors are
+     * displayed and the current set is kept.
+     *
+     * @param database the database name
+     */
+    private static void refresh(String database) {
+	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
+		.get(database);
+	Connection connection = null;
+	try {
+	    // Users committed after this copy are read by the load
+	    Set<String> pendingBannedUsers = new HashSet<>(
+		    pendingBannedUsersMap.getOrDefault(database, Collections.emptySet()));
+	    connection = databaseConfigurator.getConnection(database);
+	    // Replaced, not merged, so that rows deleted from the table are unbanned
+	    Set<String> bannedUsers = load(connection, database);
+	    for (String pendingBannedUser : pendingBannedUsers) {
+		bannedUsers.add(toKey(pendingBannedUser, database));
+	    }
+	    bannedUsersMap.put(database, bannedUsers);
+	    debug(database + " banned users: " + bannedUsers);
+	} catch (Exception e) {
+	    System.err.println(SqlTag.SQL_PRODUCT_START + " " + new Date()
+		    + " Impossible to load aceql_banned_user table for database " + database + ": " + e);
+	} finally {
+	    if (connection != null) {
+		try {
+		    databaseConfigurator.close(connection);
+		} catch (SQLException e) {
+		    e.printStackTrace();
+		}
+	    }
+	}
+    }
+
+    /**
+     * Loads the banned users of a database, and the case sensitivity of the
+     * username column as reported by the driver.
+     */
+    private static Set<String> load(Connection connection, String database) throws SQLException {
+	Set<String> bannedUsers = ConcurrentHashMap.newKeySet();
+	try (PreparedStatement prepStatement = connection.prepareStatement(SELECT_BANNED_USERS);
+		ResultSet rs = prepStatement.executeQuery();) {
+	    caseInsensitiveMap.put(database, !rs.getMetaData().isCaseSensitive(1));
+	    while (rs.next()) {
+		String username = rs.getString(1);
+		if (username != null) {
+		    bannedUsers.add(toKey(username, database));
+		}
+	    }
+	}
+	return bannedUsers;
+    }
+
+    /**
+     * Returns the key of a username in the banned users set: the username itself,
+     * or the username in lower case if the database ignores case.
+     *
+     * @param username the username
+     * @param database the database name
+     * @return the key of the username
+     */
+    private static String toKey(String username, String database) {
+	return caseInsensitiveMap.getOrDefault(database, false) ? username.toLowerCase(Locale.ROOT) : username;
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + s);
+	}
+    }
+
+}
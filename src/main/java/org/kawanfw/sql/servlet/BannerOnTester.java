@@ -11,9 +11,9 @@
  */
 package org.kawanfw.sql.servlet;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.kawanfw.sql.api.server.firewall.trigger.BanUserSqlFirewallTrigger;
 import org.kawanfw.sql.api.server.firewall.trigger.SqlFirewallTrigger;
@@ -25,7 +25,7 @@ import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
  */
 public class BannerOnTester {
     
-    private static Map<String, Boolean> databasesWithBanUserSqlFirewallTrigger = new HashMap<>();
+    private static Map<String, Boolean> databasesWithBanUserSqlFirewallTrigger = new ConcurrentHashMap<>();
 	
     /**
      * Says if the {@code BanUserSqlFirewallTrigger} is activated for a designed database
@@ -149,12 +149,18 @@ public class BaseActionTreater {
 
 		try {
 		    // Stateful: We create the Connection and store it before returning id
-		    connection = databaseConfigurator.getConnection(database);
+		    ConnectionStore.reserve(username);
+		    try {
+			connection = databaseConfigurator.getConnection(database);
+		    } catch (SQLException | RuntimeException e) {
+			ConnectionStore.cancelReservation(username);
+			throw e;
+		    }
 		    // Each Connection is identified by hashcode of connection
 		    String connectionIdNew = ConnectionIdUtil.getConnectionId(connection);
 		    // We store the Connection in Memory
 		    ConnectionStore connectionStore = new ConnectionStore(username, sessionId, connectionIdNew);
-		    connectionStore.put(connection);
+		    connectionStore.put(connection, database);
 
 		    ServerSqlManager.writeLine(out, JsonOkReturn.build("connection_id", connectionIdNew));
 		    return true;
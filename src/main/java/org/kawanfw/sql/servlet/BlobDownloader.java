@@ -78,7 +78,7 @@ public class BlobDownloader {
 
 	try {
 	    BlobDownloadConfigurator BlobDownloader = InjectedClassesStore.get().getBlobDownloadConfigurator();
-	    BlobDownloader.download(request, file, out);
+	    BlobDownloader.download(request, response, file, out);
 	} catch (Exception e) {
 	    JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 		    JsonErrorReturn.ERROR_ACEQL_ERROR, JsonErrorReturn.ERROR_DOWNLOADING_BLOB + e.getMessage(),
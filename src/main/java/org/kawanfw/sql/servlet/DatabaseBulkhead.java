@@ -0,0 +1,227 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.kawanfw.sql.tomcat.TomcatSqlModeStore;
+
+/**
+ * Bulkhead of the requests of one database. <br>
+ * <br>
+ * At most {@link #getMaxConcurrentRequests()} requests of the database are
+ * executed at the same time by the request executor, and at most
+ * {@code maxQueuedRequests} wait in the database own queue. Further requests
+ * are rejected immediately. A slow database thus never fills the shared
+ * executor queue nor holds threads waiting for a pool Connection. <br>
+ * <br>
+ * With a Tomcat JDBC pool, requests are also admitted against the free
+ * capacity of the pool, read live: the Connections held outside the running
+ * requests, such as the stateful Connections parked in the Connection store,
+ * are not available, and no request is admitted beyond the running ones while
+ * threads wait for a Connection. One request is always admitted if none is
+ * running. <br>
+ * <br>
+ * Queued requests are run by the executor thread of the request that
+ * completes, without going back through the executor.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class DatabaseBulkhead {
+
+    /**
+     * A request task. {@link #reject(RejectedExecutionException)} is called
+     * instead of {@link #run()} if a queued task can not be run anymore.
+     */
+    public interface Task extends Runnable {
+	void reject(RejectedExecutionException exception);
+    }
+
+    private final String database;
+    private final int maxConcurrentRequests;
+    private final int maxQueuedRequests;
+
+    private final Deque<Task> queue = new ArrayDeque<>();
+    private int running = 0;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param database              the database name
+     * @param maxConcurrentRequests the maximum number of requests executed at
+     *                              the same time, 0 for the maxActive value of
+     *                              the database pool
+     * @param maxQueuedRequests     the maximum number of waiting requests
+     */
+    public DatabaseBulkhead(String database, int maxConcurrentRequests, int maxQueuedRequests) {
+	this.database = Objects.requireNonNull(database, "database cannot be null!");
+	this.maxConcurrentRequests = maxConcurrentRequests;
+	this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    /**
+     * Executes the task with the executor, or queues it if the maximum number of
+     * concurrent requests is reached.
+     *
+     * @param task     the request task
+     * @param executor the request executor
+     * @throws RejectedExecutionException if the queue is full, or if the
+     *                                    executor rejects the task
+     */
+    public void execute(Task task, Executor executor) throws RejectedExecutionException {
+	Objects.requireNonNull(task, "task cannot be null!");
+	synchronized (this) {
+	    if (running >= getAdmissionLimit()) {
+		if (queue.size() >= maxQueuedRequests) {
+		    rejectedCount.incrementAndGet();
+		    throw new RejectedExecutionException("Too many pending requests for database " + database + ".");
+		}
+		queue.addLast(task);
+		return;
+	    }
+	    running++;
+	}
+
+	try {
+	    executor.execute(new Runnable() {
+		@Override
+		public void run() {
+		    runAndDrain(task);
+		}
+	    });
+	} catch (RejectedExecutionException e) {
+	    rejectedCount.incrementAndGet();
+	    // Nobody else would run the tasks queued meanwhile
+	    for (Task orphanTask : release()) {
+		orphanTask.reject(e);
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Returns the maximum number of requests executed at the same time.
+     *
+     * @return the maximum number of requests executed at the same time
+     */
+    public int getMaxConcurrentRequests() {
+	if (maxConcurrentRequests > 0) {
+	    return maxConcurrentRequests;
+	}
+
+	// Read each time, as maxActive may be modified with DefaultPoolsInfo
+	DataSource dataSource = TomcatSqlModeStore.getDataSource(database);
+	if (dataSource instanceof DataSourceProxy) {
+	    return Math.max(1, ((DataSourceProxy) dataSource).getMaxActive());
+	}
+	return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of requests that may be executed at the same time now:
+     * {@link #getMaxConcurrentRequests()} bounded by the free capacity of the
+     * pool.
+     *
+     * @return the number of requests that may be executed at the same time now
+     */
+    public synchronized int getAdmissionLimit() {
+	int limit = getMaxConcurrentRequests();
+
+	DataSource dataSource = TomcatSqlModeStore.getDataSource(database);
+	if (dataSource instanceof DataSourceProxy) {
+	    DataSourceProxy dataSourceProxy = (DataSourceProxy) dataSource;
+	    // Active Connections not used by the running requests: stateful, listeners...
+	    int heldElsewhere = Math.max(0, dataSourceProxy.getActive() - running);
+	    int freeCapacity = dataSourceProxy.getMaxActive() - heldElsewhere;
+	    if (dataSourceProxy.getWaitCount() > 0) {
+		// The pool is exhausted: admitted requests would wait for a Connection
+		freeCapacity = Math.min(freeCapacity, running);
+	    }
+	    limit = Math.min(limit, freeCapacity);
+	}
+
+	// Queued requests are run when a running one completes: never admit none
+	return Math.max(1, limit);
+    }
+
+    /**
+     * @return the number of requests being executed
+     */
+    public synchronized int getRunningCount() {
+	return running;
+    }
+
+    /**
+     * @return the number of waiting requests
+     */
+    public synchronized int getQueuedCount() {
+	return queue.size();
+    }
+
+    /**
+     * @return the number of rejected requests since startup
+     */
+    public long getRejectedCount() {
+	return rejectedCount.get();
+    }
+
+    private void runAndDrain(Task task) {
+	Task next = task;
+	while (next != null) {
+	    try {
+		next.run();
+	    } finally {
+		next = pollOrRelease();
+	    }
+	}
+    }
+
+    /**
+     * Returns the next queued task, or releases the running slot if there is
+     * none.
+     */
+    private synchronized Task pollOrRelease() {
+	Task task = queue.pollFirst();
+	if (task == null) {
+	    running--;
+	}
+	return task;
+    }
+
+    /**
+     * Releases the running slot, and returns the queued tasks if no other
+     * running task will run them.
+     */
+    private synchronized List<Task> release() {
+	running--;
+	List<Task> orphanTasks = new ArrayList<>();
+	if (running == 0) {
+	    orphanTasks.addAll(queue);
+	    queue.clear();
+	}
+	return orphanTasks;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.kawanfw.sql.servlet.injection.properties.ConfProperties;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+
+/**
+ * Store of the {@link DatabaseBulkhead} of each database. Bulkheads are
+ * enabled if the {@code maxQueuedRequestsPerDatabase} property is set.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class DatabaseBulkheadStore {
+
+    /** database ==> bulkhead */
+    private static Map<String, DatabaseBulkhead> bulkheadMap = new ConcurrentHashMap<>();
+
+    protected DatabaseBulkheadStore() {
+
+    }
+
+    /**
+     * Says if the requests are executed through the per database bulkheads.
+     *
+     * @return true if the requests are executed through the per database
+     *         bulkheads
+     */
+    public static boolean isEnabled() {
+	return ConfPropertiesStore.get().getMaxQueuedRequestsPerDatabase() > 0;
+    }
+
+    /**
+     * Returns the bulkhead of a database.
+     *
+     * @param database the database name
+     * @return the bulkhead of the database, or null if bulkheads are disabled or
+     *         the database is unknown
+     */
+    public static DatabaseBulkhead get(String database) {
+	if (database == null) {
+	    return null;
+	}
+
+	ConfProperties confProperties = ConfPropertiesStore.get();
+	if (!isEnabled() || !confProperties.getDatabaseNames().contains(database)) {
+	    return null;
+	}
+
+	return bulkheadMap.computeIfAbsent(database, k -> new DatabaseBulkhead(k,
+		confProperties.getMaxConcurrentRequestsPerDatabase(), confProperties.getMaxQueuedRequestsPerDatabase()));
+    }
+
+    /**
+     * @return the bulkheads in use, per database
+     */
+    public static Map<String, DatabaseBulkhead> getBulkheads() {
+	return Collections.unmodifiableMap(bulkheadMap);
+    }
+
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kawanfw.sql.api.server.DatabaseConfigurator;
+import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
+import org.kawanfw.sql.servlet.injection.properties.ConfProperties;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+import org.kawanfw.sql.util.FrameworkDebug;
+import org.kawanfw.sql.util.SqlTag;
+
+/**
+ * Background writer of the rows inserted by {@code JdbcLoggerSqlFirewallTrigger}
+ * and {@code BanUserSqlFirewallTrigger}. <br>
+ * <br>
+ * Triggers put their rows in a queue and do not wait for the database. A
+ * single {@code aceql-firewall-trigger-writer} thread inserts them with a
+ * Connection of the database pool and JDBC batching: rows are written when
+ * {@code firewallTriggerBatchSize} rows are waiting, or
+ * {@code firewallTriggerFlushIntervalMillis} after the first waiting row. Each
+ * batch is committed in its own transaction, so the inserts never join the
+ * client transaction. A failed batch is retried row by row, so that one bad row
+ * does not fail the others. <br>
+ * <br>
+ * Audit rows ({@link #write(String, String, Object[], Runnable)}) go in a
+ * bounded queue: when it is full (attack burst faster than the database), new
+ * rows are dropped and counted, and a denied request never waits for the audit
+ * trail. <br>
+ * Durable rows ({@link #writeDurable(String, String, Object[], Runnable)}) go in
+ * an unbounded queue, are written first, and are never dropped: a failed insert
+ * is retried every {@link #RETRY_DELAY_MILLIS} until it is committed.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class FirewallTriggerWriter {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(FirewallTriggerWriter.class);
+
+    /** The default capacity of the queue of rows waiting to be inserted */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    /** The default maximum number of rows inserted in one batch */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** The default delay before the insert of the first waiting row */
+    public static final int DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    /** The delay before a new attempt to insert durable rows that failed */
+    public static final long RETRY_DELAY_MILLIS = 5000;
+
+    private static final long POLL_TIMEOUT_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private static volatile BlockingQueue<FirewallTriggerRow> queue = null;
+    private static BlockingQueue<FirewallTriggerRow> durableQueue = new LinkedBlockingQueue<>();
+    private static Thread writerThread = null;
+    private static volatile boolean running = false;
+
+    private static AtomicLong writtenCount = new AtomicLong();
+    private static AtomicLong droppedCount = new AtomicLong();
+    private static AtomicLong failedCount = new AtomicLong();
+    private static AtomicLong retriedCount = new AtomicLong();
+    private static AtomicLong batchCount = new AtomicLong();
+
+    protected FirewallTriggerWriter() {
+
+    }
+
+    /**
+     * Puts an audit row in the queue. The row is dropped if the queue is full,
+     * and lost if its insert fails.
+     *
+     * @param database  the database where to insert the row
+     * @param sql       the INSERT statement with one "?" per value
+     * @param values    the values of the row, in parameter order
+     * @param onWritten the action to run after the row is committed, may be null
+     */
+    public static void write(String database, String sql, Object[] values, Runnable onWritten) {
+	FirewallTriggerRow row = new FirewallTriggerRow(database, sql, values, onWritten, false);
+	if (!start().offer(row)) {
+	    droppedCount.incrementAndGet();
+	    debug("Queue full. Row dropped for database " + database);
+	}
+    }
+
+    /**
+     * Puts a row that must never be lost in the durable queue. The row is
+     * inserted before the audit rows and its insert is retried until it is
+     * committed.
+     *
+     * @param database  the database where to insert the row
+     * @param sql       the INSERT statement with one "?" per value
+     * @param values    the values of the row, in parameter order
+     * @param onWritten the action to run after the row is committed, may be null
+     */
+    public static void writeDurable(String database, String sql, Object[] values, Runnable onWritten) {
+	start();
+	durableQueue.add(new FirewallTriggerRow(database, sql, values, onWritten, true));
+    }
+
+    /**
+     * Stops the writer thread after it has inserted the queued rows, or after
+     * {@link #SHUTDOWN_TIMEOUT_MILLIS}. Rows not inserted are lost.
+     */
+    public static void shutdown() {
+	Thread thread = null;
+	BlockingQueue<FirewallTriggerRow> rowQueue = null;
+	synchronized (FirewallTriggerWriter.class) {
+	    if (queue == null) {
+		return;
+	    }
+	    running = false;
+	    thread = writerThread;
+	    rowQueue = queue;
+	    writerThread = null;
+	    queue = null;
+	}
+
+	try {
+	    thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	if (thread.isAlive()) {
+	    thread.interrupt();
+	}
+
+	droppedCount.addAndGet(rowQueue.size());
+	rowQueue.clear();
+
+	int durableRows = durableQueue.size();
+	if (durableRows > 0) {
+	    droppedCount.addAndGet(durableRows);
+	    durableQueue.clear();
+	    System.err.println(SqlTag.SQL_PRODUCT_START + " " + new Date() + " " + durableRows
+		    + " SQL Firewall trigger rows could not be inserted before shutdown.");
+	}
+    }
+
+    /**
+     * @return the number of rows waiting to be inserted, durable rows included
+     */
+    public static int getQueueSize() {
+	BlockingQueue<FirewallTriggerRow> rowQueue = queue;
+	return (rowQueue == null ? 0 : rowQueue.size()) + durableQueue.size();
+    }
+
+    /**
+     * @return the number of durable rows waiting to be inserted
+     */
+    public static int getDurableQueueSize() {
+	return durableQueue.size();
+    }
+
+    /**
+     * @return the number of rows inserted since startup
+     */
+    public static long getWrittenCount() {
+	return writtenCount.get();
+    }
+
+    /**
+     * @return the number of rows lost because of a full queue or a shutdown since
+     *         startup
+     */
+    public static long getDroppedCount() {
+	return droppedCount.get();
+    }
+
+    /**
+     * @return the number of audit rows whose insert failed since startup
+     */
+    public static long getFailedCount() {
+	return failedCount.get();
+    }
+
+    /**
+     * @return the number of durable row inserts that failed and were retried
+     *         since startup
+     */
+    public static long getRetriedCount() {
+	return retriedCount.get();
+    }
+
+    /**
+     * @return the number of committed batches since startup
+     */
+    public static long getBatchCount() {
+	return batchCount.get();
+    }
+
+    private static BlockingQueue<FirewallTriggerRow> start() {
+	BlockingQueue<FirewallTriggerRow> rowQueue = queue;
+	if (rowQueue != null) {
+	    return rowQueue;
+	}
+
+	synchronized (FirewallTriggerWriter.class) {
+	    if (queue != null) {
+		return queue;
+	    }
+
+	    ConfProperties confProperties = ConfPropertiesStore.get();
+	    int queueCapacity = defaultIfZero(confProperties.getFirewallTriggerQueueCapacity(),
+		    DEFAULT_QUEUE_CAPACITY);
+	    int batchSize = defaultIfZero(confProperties.getFirewallTriggerBatchSize(), DEFAULT_BATCH_SIZE);
+	    long flushIntervalMillis = defaultIfZero(confProperties.getFirewallTriggerFlushIntervalMillis(),
+		    DEFAULT_FLUSH_INTERVAL_MILLIS);
+
+	    BlockingQueue<FirewallTriggerRow> newQueue = new ArrayBlockingQueue<>(queueCapacity);
+	    running = true;
+	    writerThread = new Thread(() -> work(newQueue, batchSize, flushIntervalMillis),
+		    "aceql-firewall-trigger-writer");
+	    writerThread.setDaemon(true);
+	    writerThread.start();
+
+	    queue = newQueue;
+	    return newQueue;
+	}
+    }
+
+    private static void work(BlockingQueue<FirewallTriggerRow> rowQueue, int batchSize, long flushIntervalMillis) {
+	List<FirewallTriggerRow> rows = new ArrayList<>();
+	long flushTime = 0;
+	long durableRetryTime = 0;
+	try {
+	    while (running || !rowQueue.isEmpty() || !durableQueue.isEmpty()) {
+		// Durable rows first, so that audit rows never delay them
+		if (System.currentTimeMillis() >= durableRetryTime && rows.size() < batchSize) {
+		    boolean wasEmpty = rows.isEmpty();
+		    durableQueue.drainTo(rows, batchSize - rows.size());
+		    if (wasEmpty && !rows.isEmpty()) {
+			flushTime = System.currentTimeMillis() + flushIntervalMillis;
+		    }
+		}
+
+		long timeout = rows.isEmpty() ? POLL_TIMEOUT_MILLIS
+			: Math.max(0, flushTime - System.currentTimeMillis());
+		FirewallTriggerRow row = rows.size() < batchSize ? rowQueue.poll(timeout, TimeUnit.MILLISECONDS)
+			: null;
+		if (row != null) {
+		    if (rows.isEmpty()) {
+			flushTime = System.currentTimeMillis() + flushIntervalMillis;
+		    }
+		    rows.add(row);
+		    rowQueue.drainTo(rows, batchSize - rows.size());
+		}
+
+		if (!rows.isEmpty() && (rows.size() >= batchSize || System.currentTimeMillis() >= flushTime
+			|| !running)) {
+		    List<FirewallTriggerRow> failedDurableRows = flush(rows);
+		    rows.clear();
+		    if (!failedDurableRows.isEmpty()) {
+			retriedCount.addAndGet(failedDurableRows.size());
+			durableQueue.addAll(failedDurableRows);
+			durableRetryTime = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+			if (!running) {
+			    Thread.sleep(RETRY_DELAY_MILLIS);
+			}
+		    }
+		}
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+
+	// Interrupted during shutdown: durable rows are kept for the count of shutdown()
+	for (FirewallTriggerRow row : rows) {
+	    if (row.durable) {
+		durableQueue.add(row);
+	    } else {
+		droppedCount.incrementAndGet();
+	    }
+	}
+    }
+
+    /**
+     * Inserts the rows, per database, in one transaction. If the transaction
+     * fails, the rows are inserted one by one.
+     *
+     * @return the durable rows that could not be inserted
+     */
+    private static List<FirewallTriggerRow> flush(List<FirewallTriggerRow> rows) {
+	Map<String, Map<String, List<FirewallTriggerRow>>> rowsPerDatabase = new LinkedHashMap<>();
+	for (FirewallTriggerRow row : rows) {
+	    rowsPerDatabase.computeIfAbsent(row.database, k -> new LinkedHashMap<>())
+		    .computeIfAbsent(row.sql, k -> new ArrayList<>()).add(row);
+	}
+
+	List<FirewallTriggerRow> failedDurableRows = new ArrayList<>();
+	for (Map.Entry<String, Map<String, List<FirewallTriggerRow>>> entry : rowsPerDatabase.entrySet()) {
+	    String database = entry.getKey();
+	    Map<String, List<FirewallTriggerRow>> rowsPerSql = entry.getValue();
+	    List<FirewallTriggerRow> databaseRows = new ArrayList<>();
+	    for (List<FirewallTriggerRow> sqlRows : rowsPerSql.values()) {
+		databaseRows.addAll(sqlRows);
+	    }
+
+	    try {
+		insertBatch(database, rowsPerSql);
+		batchCount.incrementAndGet();
+		debug(databaseRows.size() + " rows inserted in database " + database);
+		for (FirewallTriggerRow row : databaseRows) {
+		    written(row);
+		}
+	    } catch (Exception e) {
+		debug("Batch failed in database " + database + ", inserting rows one by one: " + e);
+		insertOneByOne(database, databaseRows, failedDurableRows);
+	    }
+	}
+	return failedDurableRows;
+    }
+
+    private static void insertBatch(String database, Map<String, List<FirewallTriggerRow>> rowsPerSql)
+	    throws SQLException {
+	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
+		.get(database);
+	Connection connection = databaseConfigurator.getConnection(database);
+	boolean autoCommit = connection.getAutoCommit();
+	try {
+	    connection.setAutoCommit(false);
+	    for (Map.Entry<String, List<FirewallTriggerRow>> entry : rowsPerSql.entrySet()) {
+		try (PreparedStatement preparedStatement = connection.prepareStatement(entry.getKey());) {
+		    for (FirewallTriggerRow row : entry.getValue()) {
+			setParameters(preparedStatement, row);
+			preparedStatement.addBatch();
+		    }
+		    preparedStatement.executeBatch();
+		}
+	    }
+	    connection.commit();
+	} catch (SQLException e) {
+	    connection.rollback();
+	    throw e;
+	} finally {
+	    // Never thrown after the commit, the rows would be inserted twice
+	    try {
+		connection.setAutoCommit(autoCommit);
+	    } catch (SQLException e) {
+		e.printStackTrace();
+	    }
+	    try {
+		databaseConfigurator.close(connection);
+	    } catch (SQLException e) {
+		e.printStackTrace();
+	    }
+	}
+    }
+
+    /**
+     * Inserts each row in its own transaction. Failed durable rows are added to
+     * the passed list, failed audit rows are counted and lost.
+     */
+    private static void insertOneByOne(String database, List<FirewallTriggerRow> rows,
+	    List<FirewallTriggerRow> failedDurableRows) {
+	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators()
+		.get(database);
+	Connection connection = null;
+	try {
+	    connection = databaseConfigurator.getConnection(database);
+	    boolean autoCommit = connection.getAutoCommit();
+	    connection.setAutoCommit(true);
+	    try {
+		for (FirewallTriggerRow row : rows) {
+		    try (PreparedStatement preparedStatement = connection.prepareStatement(row.sql);) {
+			setParameters(preparedStatement, row);
+			preparedStatement.executeUpdate();
+			written(row);
+		    } catch (SQLException e) {
+			failed(database, row, e, failedDurableRows);
+		    }
+		}
+	    } finally {
+		connection.setAutoCommit(autoCommit);
+	    }
+	} catch (Exception e) {
+	    // No Connection: the rows not written are failed
+	    for (FirewallTriggerRow row : rows) {
+		if (!row.written) {
+		    failed(database, row, e, failedDurableRows);
+		}
+	    }
+	} finally {
+	    if (connection != null) {
+		try {
+		    databaseConfigurator.close(connection);
+		} catch (SQLException e) {
+		    e.printStackTrace();
+		}
+	    }
+	}
+    }
+
+    private static void setParameters(PreparedStatement preparedStatement, FirewallTriggerRow row)
+	    throws SQLException {
+	for (int i = 0; i < row.values.length; i++) {
+	    if (row.values[i] == null) {
+		preparedStatement.setNull(i + 1, Types.VARCHAR);
+	    } else {
+		preparedStatement.setObject(i + 1, row.values[i]);
+	    }
+	}
+    }
+
+    private static void written(FirewallTriggerRow row) {
+	row.written = true;
+	writtenCount.incrementAndGet();
+	if (row.onWritten != null) {
+	    row.onWritten.run();
+	}
+    }
+
+    private static void failed(String database, FirewallTriggerRow row, Exception e,
+	    List<FirewallTriggerRow> failedDurableRows) {
+	if (row.durable) {
+	    // Displayed once, the row is retried until committed
+	    if (row.attempts++ == 0) {
+		System.err.println(SqlTag.SQL_PRODUCT_START + " " + new Date()
+			+ " Impossible to insert SQL Firewall trigger row in database " + database
+			+ ". Will retry: " + e);
+	    }
+	    failedDurableRows.add(row);
+	} else {
+	    failedCount.incrementAndGet();
+	    System.err.println(SqlTag.SQL_PRODUCT_START + " " + new Date()
+		    + " Impossible to insert SQL Firewall trigger row in database " + database + ": " + e);
+	}
+    }
+
+    private static int defaultIfZero(int value, int defaultValue) {
+	return value <= 0 ? defaultValue : value;
+    }
+
+    /**
+     * A row to insert, with the action to run once it is committed.
+     */
+    private static final class FirewallTriggerRow {
+	private final String database;
+	private final String sql;
+	private final Object[] values;
+	private final Runnable onWritten;
+	private final boolean durable;
+
+	/* Accessed only by the writer thread */
+	private boolean written = false;
+	private int attempts = 0;
+
+	FirewallTriggerRow(String database, String sql, Object[] values, Runnable onWritten, boolean durable) {
+	    this.database = database;
+	    this.sql = sql;
+	    this.values = values;
+	    this.onWritten = onWritten;
+	    this.durable = durable;
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + FirewallTriggerWriter.class.getSimpleName() + " " + s);
+	}
+    }
+
+}
@@ -124,6 +124,9 @@ public class HttpParameter {
     public static final String BLOB_DOWNLOAD = "blob_download";
     public static final String GET_BLOB_LENGTH = "get_blob_length";
     public static final String BLOB_ID = "blob_id";
+    public static final String LOB_INLINE_MAX_LENGTH = "lob_inline_max_length";
+    public static final String LOB_STREAM = "lob_stream";
+    public static final String BATCH_COMMIT_PER_CHUNK = "batch_commit_per_chunk";
 
     public static final String HTML_ENCODING = "html_encoding";
     public static final String FILENAME = "filename";
@@ -135,6 +138,7 @@ public class HttpParameter {
     public static final String TABLE_TYPE = "table_type";
 
     public static final String FILL_RESULT_SET_META_DATA = "fill_result_set_meta_data";
+    public static final String RESULT_SET_FORMAT = "result_set_format";
     public static final String MAX_ROWS = "max_rows";
     
     public static final String STATEMENT_EXECUTE_BATCH = "statement_execute_batch";
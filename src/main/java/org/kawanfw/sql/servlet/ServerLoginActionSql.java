@@ -14,6 +14,7 @@ package org.kawanfw.sql.servlet;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -132,13 +133,20 @@ public class ServerLoginActionSql extends HttpServlet {
 	    }
 	    else {
 		// Stateful: We create the Connection and store it: 
-		Connection connection = databaseConfigurator.getConnection(database);
+		ConnectionStore.reserve(username);
+		Connection connection = null;
+		try {
+		    connection = databaseConfigurator.getConnection(database);
+		} catch (SQLException | RuntimeException e) {
+		    ConnectionStore.cancelReservation(username);
+		    throw e;
+		}
 		// Each Connection is identified by hashcode of connection 
 		connectionId = ConnectionIdUtil.getConnectionId(connection);
 		// We store the Connection in Memory
 		ConnectionStore connectionStore = new ConnectionStore(username, sessionId, connectionId);
 		
-		connectionStore.put(connection);
+		connectionStore.put(connection, database);
 	    }
 	    
 	    Trace.sessionId("sessionId: " + sessionId);
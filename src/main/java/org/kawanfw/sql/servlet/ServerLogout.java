@@ -27,6 +27,7 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.kawanfw.sql.api.server.DatabaseConfigurator;
 import org.kawanfw.sql.api.server.session.SessionConfigurator;
 import org.kawanfw.sql.servlet.connection.ConnectionStore;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesUtil;
 import org.kawanfw.sql.servlet.sql.json_return.JsonErrorReturn;
@@ -64,6 +65,7 @@ public class ServerLogout {
 		Set<Connection> connections = ConnectionStore.getAllConnections(username, sessionId);
 
 		for (Connection connection : connections) {
+		    StatementCacheStore.releaseConnection(connection);
 		    databaseConfigurator.close(connection);
 		}
 	    }
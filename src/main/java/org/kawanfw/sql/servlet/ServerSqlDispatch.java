@@ -24,6 +24,7 @@ import org.kawanfw.sql.servlet.connection.ConnectionStore;
 import org.kawanfw.sql.servlet.connection.ConnectionStoreGetter;
 import org.kawanfw.sql.servlet.connection.RollbackUtil;
 import org.kawanfw.sql.servlet.connection.SavepointUtil;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.connection.TransactionUtil;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesUtil;
@@ -110,6 +111,8 @@ public class ServerSqlDispatch {
 
 	Connection connection = null;
 
+	// The reaper must not release the stored Connections used by this request
+	ConnectionStore.beginRequest();
 	try {
 	    if (ConfPropertiesUtil.isStatelessMode()) {
 		// Create the Connection because passed client Id is stateless
@@ -175,8 +178,11 @@ public class ServerSqlDispatch {
 	    RollbackUtil.rollback(connection);
 	    throw e;
 	} finally {
+	    ConnectionStore.endRequest();
+
 	    // Immediate close of a Connection for stateless sessions
 	    if (ConfPropertiesUtil.isStatelessMode()) {
+		StatementCacheStore.releaseConnection(connection);
 		databaseConfigurator.close(connection);
 	    }
 	}
@@ -485,6 +491,7 @@ public class ServerSqlDispatch {
 		return;
 	    }
 
+	    StatementCacheStore.releaseConnection(connection);
 	    databaseConfigurator.close(connection);
 
 	    String connectionIdNew = connectionId;
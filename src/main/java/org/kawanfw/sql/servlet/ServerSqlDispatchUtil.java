@@ -13,8 +13,6 @@ package org.kawanfw.sql.servlet;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -144,6 +142,7 @@ public class ServerSqlDispatchUtil {
 
     /**
      * Says if a username is banned, aka it exists in aceql_banned_user table/
+     * The check is done in memory with the {@link BannedUserStore}.
      * This is checked only if the {@code SqlFirewallTrigger} {@code BanUserSqlFirewallTrigger} 
      * has been added in the {@code aceql-properties file}
      * 
@@ -161,15 +160,7 @@ public class ServerSqlDispatchUtil {
 	    return false;
 	}
 	
-	String sql = "SELECT username FROM aceql_banned_user WHERE username = ?";
-
-	try (PreparedStatement prepStatement = connection.prepareStatement(sql);) {
-	    prepStatement.setString(1, username);
-
-	    try (ResultSet rs = prepStatement.executeQuery();) {
-		return rs.next();
-	    }
-	}
+	return BannedUserStore.isBanned(username, database, connection);
     }
 
 }
@@ -21,6 +21,8 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import javax.servlet.AsyncContext;
@@ -33,14 +35,21 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
 import org.kawanfw.sql.api.server.auth.headers.RequestHeadersAuthenticator;
+import org.kawanfw.sql.api.server.session.DefaultSessionConfigurator;
 import org.kawanfw.sql.api.server.session.SessionConfigurator;
+import org.kawanfw.sql.api.util.firewall.LearningModeExecutor;
+import org.kawanfw.sql.api.util.firewall.RuleFileWatcher;
+import org.kawanfw.sql.servlet.connection.ConnectionStoreReaper;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesManagerNew;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.PropertiesFileStore;
+import org.kawanfw.sql.servlet.sql.UpdateListenerDispatcher;
 import org.kawanfw.sql.servlet.sql.json_return.ExceptionReturner;
 import org.kawanfw.sql.servlet.sql.json_return.JsonErrorReturn;
 import org.kawanfw.sql.servlet.sql.json_return.JsonOkReturn;
+import org.kawanfw.sql.servlet.util.Utf8Writer;
+import org.kawanfw.sql.servlet.util.logging.AsyncLoggerStore;
 import org.kawanfw.sql.tomcat.TomcatSqlModeStore;
 import org.kawanfw.sql.util.FrameworkDebug;
 import org.kawanfw.sql.util.IpUtil;
@@ -78,6 +87,29 @@ public class ServerSqlManager extends HttpServlet {
 
     public static final String UPDATE_LISTENER_MANAGER_CLASS_NAMES = "updateListenerClassNames";
 
+    public static final String STATEMENT_CACHE_SIZE = "statementCacheSize";
+    public static final String BATCH_CHUNK_SIZE = "batchChunkSize";
+
+    public static final String STATEFUL_CONNECTION_IDLE_TIMEOUT_MINUTES = "statefulConnectionIdleTimeoutMinutes";
+    public static final String MAX_STATEFUL_CONNECTIONS = "maxStatefulConnections";
+    public static final String MAX_STATEFUL_CONNECTIONS_PER_USER = "maxStatefulConnectionsPerUser";
+
+    public static final String MAX_LOB_INLINE_LENGTH = "maxLobInlineLength";
+
+    public static final String MAX_CONCURRENT_REQUESTS_PER_DATABASE = "maxConcurrentRequestsPerDatabase";
+    public static final String MAX_QUEUED_REQUESTS_PER_DATABASE = "maxQueuedRequestsPerDatabase";
+
+    public static final String UPDATE_LISTENER_QUEUE_CAPACITY = "updateListenerQueueCapacity";
+    public static final String UPDATE_LISTENER_THREADS = "updateListenerThreads";
+    public static final String UPDATE_LISTENER_OVERFLOW_POLICY = "updateListenerOverflowPolicy";
+
+    public static final String FIREWALL_TRIGGER_QUEUE_CAPACITY = "firewallTriggerQueueCapacity";
+    public static final String FIREWALL_TRIGGER_BATCH_SIZE = "firewallTriggerBatchSize";
+    public static final String FIREWALL_TRIGGER_FLUSH_INTERVAL_MILLIS = "firewallTriggerFlushIntervalMillis";
+
+    /** The Retry-After value sent with the requests rejected by a DatabaseBulkhead */
+    private static final int RETRY_AFTER_SECONDS = 1;
+
     private static boolean INIT_DONE = false;
 
     private String propertiesFileStr;
@@ -119,6 +151,22 @@ public class ServerSqlManager extends HttpServlet {
 	    }
 	}
 
+	if (InjectedClassesStore.get() != null && InjectedClassesStore.get().getVirtualThreadRequestExecutor() != null) {
+	    InjectedClassesStore.get().getVirtualThreadRequestExecutor().shutdown();
+	}
+
+	if (InjectedClassesStore.get() != null
+		&& InjectedClassesStore.get().getSessionConfigurator() instanceof DefaultSessionConfigurator) {
+	    ((DefaultSessionConfigurator) InjectedClassesStore.get().getSessionConfigurator()).shutdown();
+	}
+
+	BannedUserStore.shutdown();
+	LearningModeExecutor.shutdown();
+	RuleFileWatcher.shutdown();
+	ConnectionStoreReaper.shutdown();
+	UpdateListenerDispatcher.shutdown();
+	FirewallTriggerWriter.shutdown();
+	AsyncLoggerStore.stop();
     }
 
     /**
@@ -135,12 +183,16 @@ public class ServerSqlManager extends HttpServlet {
 	asyncContext.setTimeout(0);
 	asyncContext.addListener(new ServerAsyncListener());
 
-	ThreadPoolExecutor threadPoolExecutor = InjectedClassesStore.get().getThreadPoolExecutor();
+	// The VirtualThreadRequestExecutor replaces the ThreadPoolExecutor in virtualThreads mode
+	Executor executor = InjectedClassesStore.get().getVirtualThreadRequestExecutor();
+	if (executor == null) {
+	    executor = InjectedClassesStore.get().getThreadPoolExecutor();
+	}
 
 	// Just in case
-	Objects.requireNonNull(threadPoolExecutor, "threadPoolExecutor cannot be null!");
+	Objects.requireNonNull(executor, "threadPoolExecutor cannot be null!");
 
-	threadPoolExecutor.execute(new Runnable() {
+	final Runnable requestTask = new Runnable() {
 	    @Override
 	    public void run() {
 
@@ -153,7 +205,78 @@ public class ServerSqlManager extends HttpServlet {
 		    asyncContext.complete();
 		}
 	    }
-	});
+	};
+
+	DatabaseBulkhead bulkhead = DatabaseBulkheadStore.isEnabled()
+		? DatabaseBulkheadStore.get(getRequestDatabase(request))
+		: null;
+	if (bulkhead == null) {
+	    executor.execute(requestTask);
+	    return;
+	}
+
+	try {
+	    bulkhead.execute(new DatabaseBulkhead.Task() {
+		@Override
+		public void run() {
+		    requestTask.run();
+		}
+
+		@Override
+		public void reject(RejectedExecutionException exception) {
+		    writeRejected(asyncContext, exception);
+		}
+	    }, executor);
+	} catch (RejectedExecutionException exception) {
+	    writeRejected(asyncContext, exception);
+	}
+    }
+
+    /**
+     * Returns the database of the request without any check, for the bulkhead
+     * selection. Checks are done later by handleRequest.
+     *
+     * @param request the http request
+     * @return the database of the request, or null if not found
+     */
+    private static String getRequestDatabase(HttpServletRequest request) {
+	try {
+	    ServletPathAnalyzer servletPathAnalyzer = new ServletPathAnalyzer(request.getRequestURI(),
+		    ConfPropertiesStore.get().getServletCallName());
+	    if (servletPathAnalyzer.getDatabase() != null) {
+		return servletPathAnalyzer.getDatabase();
+	    }
+
+	    String sessionId = servletPathAnalyzer.getSession();
+	    if (sessionId == null) {
+		return null;
+	    }
+	    return InjectedClassesStore.get().getSessionConfigurator().getDatabase(sessionId);
+	} catch (Exception e) {
+	    // Bad request, will be answered by handleRequest
+	    return null;
+	}
+    }
+
+    /**
+     * Answers immediately a request rejected by a DatabaseBulkhead with a 503
+     * status and a Retry-After header.
+     *
+     * @param asyncContext the async context of the request
+     * @param exception    the rejection cause
+     */
+    private static void writeRejected(AsyncContext asyncContext, RejectedExecutionException exception) {
+	HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+	try {
+	    response.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+	    JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+		    JsonErrorReturn.ERROR_ACEQL_ERROR, exception.getMessage() + " Please try later.");
+	    writeLine(response.getOutputStream(), errorReturn.build());
+	} catch (IOException ioe) {
+	    ioe.printStackTrace(System.out);
+	} finally {
+	    asyncContext.complete();
+	}
     }
 
     /**
@@ -498,7 +621,7 @@ public class ServerSqlManager extends HttpServlet {
      * @throws IOException
      */
     public static void write(OutputStream out, String s) throws IOException {
-	out.write((s + CR_LF).getBytes("UTF-8"));
+	Utf8Writer.write(out, s, CR_LF);
     }
 
     /**
@@ -509,7 +632,7 @@ public class ServerSqlManager extends HttpServlet {
      * @throws IOException
      */
     public static void writeLine(OutputStream out) throws IOException {
-	out.write((CR_LF).getBytes("UTF-8"));
+	Utf8Writer.write(out, CR_LF);
     }
 
     /**
@@ -521,7 +644,7 @@ public class ServerSqlManager extends HttpServlet {
      * @throws IOException
      */
     public static void writeLine(OutputStream out, String s) throws IOException {
-	out.write((s + CR_LF).getBytes("UTF-8"));
+	Utf8Writer.write(out, s, CR_LF);
     }
 
     /**
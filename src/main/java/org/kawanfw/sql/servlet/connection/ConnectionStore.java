@@ -16,23 +16,31 @@ import java.sql.Connection;
 import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.Savepoint;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.kawanfw.sql.api.server.connectionstore.ConnectionKey;
+import org.kawanfw.sql.servlet.injection.properties.ConfProperties;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.util.FrameworkDebug;
 
 /**
  *
  * Stores the Connection in static for subsequent new calls by remote device/PC
- * clients.
+ * clients. <br>
+ * <br>
+ * Connections are indexed per (username, sessionId), then per connectionId, so
+ * that the Connections of a session are found without scanning the store.
  *
  * @author Nicolas de Pomereu
  */
@@ -46,17 +54,17 @@ public class ConnectionStore {
      */
     private ConnectionKey connectionKey = null;
 
-    /** Map of (username + sessionId + connectionId), connection= */
-    private static Map<ConnectionKey, Connection> connectionMap = new ConcurrentHashMap<>();
+    /** Map of (username + sessionId), (connectionId, stored Connection) */
+    private static Map<SessionKey, Map<String, ConnectionStoreEntry>> sessionMap = new ConcurrentHashMap<>();
 
-    /** The map of Savepoints */
-    private static Map<ConnectionKey, Set<Savepoint>> savepointMap = new ConcurrentHashMap<>();
+    /** The number of stored and reserved Connections */
+    private static AtomicInteger storedCount = new AtomicInteger();
 
-    /** The map of Arrays */
-    private static Map<ConnectionKey, Set<Array>> arrayMap = new ConcurrentHashMap<>();
+    /** The number of stored and reserved Connections per username */
+    private static Map<String, AtomicInteger> userCountMap = new ConcurrentHashMap<>();
 
-    /** The map of RowIds */
-    private static Map<ConnectionKey, Set<RowId>> rowIdMap = new ConcurrentHashMap<>();
+    /** The entries used by the request of the current thread */
+    private static ThreadLocal<Set<ConnectionStoreEntry>> requestEntries = new ThreadLocal<>();
 
     /**
      * Constructor
@@ -82,18 +90,103 @@ public class ConnectionStore {
     }
 
     /**
-     * Stores the Connection in static for username + connectionId
+     * Stores the Connection in static for username + connectionId. A slot must
+     * have been reserved with {@link #reserve(String)}.
      *
      * @param connection the Connection to store
+     * @param database   the database of the Connection
      */
-    public void put(Connection connection) {
+    public void put(Connection connection, String database) {
 
 	debug("Creating a Connection for user: " + connectionKey);
 	if (connection == null) {
 	    throw new IllegalArgumentException("connection is null!");
 	}
 
-	connectionMap.put(connectionKey, connection);
+	if (database == null) {
+	    throw new IllegalArgumentException("database is null!");
+	}
+
+	if (connectionKey.getConnectionId() == null) {
+	    throw new IllegalArgumentException("connectionId is null!");
+	}
+
+	ConnectionStoreEntry entry = new ConnectionStoreEntry(connectionKey, connection, database);
+	sessionMap.compute(new SessionKey(connectionKey), (sessionKey, connections) -> {
+	    if (connections == null) {
+		connections = new ConcurrentHashMap<>();
+	    }
+	    if (connections.put(connectionKey.getConnectionId(), entry) != null) {
+		// The replaced entry slot is reused
+		release(connectionKey.getUsername());
+	    }
+	    return connections;
+	});
+
+	ConnectionStoreReaper.start(ConfPropertiesStore.get().getStatefulConnectionIdleTimeoutMinutes());
+    }
+
+    /**
+     * Reserves a slot for a new Connection of the username, according to the
+     * {@code maxStatefulConnections} and {@code maxStatefulConnectionsPerUser}
+     * properties. To be called before extracting the Connection from the pool,
+     * and followed by {@link #put(Connection, String)} or
+     * {@link #cancelReservation(String)}.
+     *
+     * @param username the client username
+     * @throws SQLException if the maximum number of stored Connections is reached
+     */
+    public static void reserve(String username) throws SQLException {
+	ConfProperties confProperties = ConfPropertiesStore.get();
+
+	int maxStatefulConnections = confProperties.getMaxStatefulConnections();
+	if (storedCount.incrementAndGet() > maxStatefulConnections && maxStatefulConnections > 0) {
+	    storedCount.decrementAndGet();
+	    throw new SQLException(
+		    "Maximum number of stored Connections reached (" + maxStatefulConnections + "). Please retry later.");
+	}
+
+	int maxStatefulConnectionsPerUser = confProperties.getMaxStatefulConnectionsPerUser();
+	AtomicInteger userCount = userCountMap.computeIfAbsent(username, k -> new AtomicInteger());
+	if (userCount.incrementAndGet() > maxStatefulConnectionsPerUser && maxStatefulConnectionsPerUser > 0) {
+	    release(username);
+	    throw new SQLException("Maximum number of stored Connections reached for user " + username + " ("
+		    + maxStatefulConnectionsPerUser + "). Please close unused Connections.");
+	}
+    }
+
+    /**
+     * Releases a slot reserved with {@link #reserve(String)} when the Connection
+     * could not be stored.
+     *
+     * @param username the client username
+     */
+    public static void cancelReservation(String username) {
+	release(username);
+    }
+
+    /**
+     * Starts tracking the Connections used by the request of the current thread,
+     * so that the reaper does not release them while the request is running.
+     */
+    public static void beginRequest() {
+	requestEntries.set(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Says that the request of the current thread does not use its Connections
+     * anymore. To be called in a finally block after {@link #beginRequest()}.
+     */
+    public static void endRequest() {
+	Set<ConnectionStoreEntry> entries = requestEntries.get();
+	if (entries == null) {
+	    return;
+	}
+
+	requestEntries.remove();
+	for (ConnectionStoreEntry entry : entries) {
+	    entry.release();
+	}
     }
 
     /**
@@ -108,13 +201,7 @@ public class ConnectionStore {
 	    throw new IllegalArgumentException("savepoint is null!");
 	}
 
-	Set<Savepoint> savepointSet = savepointMap.get(connectionKey);
-	if (savepointSet == null) {
-	    savepointSet = new LinkedHashSet<Savepoint>();
-	}
-
-	savepointSet.add(savepoint);
-	savepointMap.put(connectionKey, savepointSet);
+	getEntryNotNull().getSavepoints().add(savepoint);
     }
 
     /**
@@ -125,11 +212,12 @@ public class ConnectionStore {
      * @return the Savepoint associated to username + connectionId and Savepoint ID
      */
     public Savepoint getSavepoint(int savepointId) {
-	Set<Savepoint> savepointSet = savepointMap.get(connectionKey);
-
-	for (Iterator<Savepoint> iterator = savepointSet.iterator(); iterator.hasNext();) {
-	    Savepoint savepoint = iterator.next();
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    return null;
+	}
 
+	for (Savepoint savepoint : entry.getSavepoints()) {
 	    try {
 		if (savepoint.getSavepointId() == savepointId) {
 		    return savepoint;
@@ -150,11 +238,12 @@ public class ConnectionStore {
      * @return the Savepoint associated to username + connectionId and Savepoint Name
      */
     public Savepoint getSavepoint(String savepointName) {
-	Set<Savepoint> savepointSet = savepointMap.get(connectionKey);
-
-	for (Iterator<Savepoint> iterator = savepointSet.iterator(); iterator.hasNext();) {
-	    Savepoint savepoint = iterator.next();
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    return null;
+	}
 
+	for (Savepoint savepoint : entry.getSavepoints()) {
 	    try {
 		if (savepoint.getSavepointName().equals(savepointName)) {
 		    return savepoint;
@@ -175,10 +264,13 @@ public class ConnectionStore {
      *
      */
     public void remove(Savepoint savepointInfo) {
-	Set<Savepoint> savepointSet = savepointMap.get(connectionKey);
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    return;
+	}
 
-	for (Iterator<Savepoint> iterator = savepointSet.iterator(); iterator.hasNext();) {
-	    Savepoint savepoint = iterator.next();
+	Set<Savepoint> savepointSet = entry.getSavepoints();
+	for (Savepoint savepoint : savepointSet) {
 
 	    try {
 		if (savepoint.getSavepointId() == savepointInfo.getSavepointId()) {
@@ -211,14 +303,7 @@ public class ConnectionStore {
 	    throw new IllegalArgumentException("array is null!");
 	}
 
-	Set<Array> arraySet = arrayMap.get(connectionKey);
-	if (arraySet == null) {
-	    arraySet = new LinkedHashSet<Array>();
-	}
-
-	arraySet.add(array);
-	arrayMap.put(connectionKey, arraySet);
-
+	getEntryNotNull().getArrays().add(array);
     }
 
     /**
@@ -229,11 +314,12 @@ public class ConnectionStore {
      * @return the Array associated to username + connectionId and arrayId
      */
     public Array getArray(int arrayId) {
-	Set<Array> arraySet = arrayMap.get(connectionKey);
-
-	for (Iterator<Array> iterator = arraySet.iterator(); iterator.hasNext();) {
-	    Array array = iterator.next();
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    return null;
+	}
 
+	for (Array array : entry.getArrays()) {
 	    if (array.hashCode() == arrayId) {
 		return array;
 	    }
@@ -255,13 +341,7 @@ public class ConnectionStore {
 	    throw new IllegalArgumentException("rowId is null!");
 	}
 
-	Set<RowId> rowIdSet = rowIdMap.get(connectionKey);
-	if (rowIdSet == null) {
-	    rowIdSet = new LinkedHashSet<RowId>();
-	}
-
-	rowIdSet.add(rowId);
-	rowIdMap.put(connectionKey, rowIdSet);
+	getEntryNotNull().getRowIds().add(rowId);
     }
 
     /**
@@ -272,11 +352,12 @@ public class ConnectionStore {
      * @return the Array associated to username + connectionId and arrayId
      */
     public RowId getRowId(int rowIdHashCode) {
-	Set<RowId> rowIdSet = rowIdMap.get(connectionKey);
-
-	for (Iterator<RowId> iterator = rowIdSet.iterator(); iterator.hasNext();) {
-	    RowId rowId = iterator.next();
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    return null;
+	}
 
+	for (RowId rowId : entry.getRowIds()) {
 	    if (rowId.hashCode() == rowIdHashCode) {
 		return rowId;
 	    }
@@ -292,14 +373,25 @@ public class ConnectionStore {
      * @return the Connection associated to username + connectionId
      */
     public Connection get() {
-	return connectionMap.get(connectionKey);
+	ConnectionStoreEntry entry = getEntry(connectionKey);
+	// Use before returning, so that the reaper can not release the returned Connection
+	if (entry == null || !use(entry)) {
+	    return null;
+	}
+	return entry.getConnection();
     }
     
     /**
-     * Returns the full Map of Connections associated to username + connectionId
-     * @return the connectionMap
+     * Returns a snapshot Map of all stored Connections per key
+     * @return a snapshot Map of all stored Connections per key
      */
     public static Map<ConnectionKey, Connection> getConnectionMap() {
+	Map<ConnectionKey, Connection> connectionMap = new HashMap<>();
+	for (Map<String, ConnectionStoreEntry> connections : sessionMap.values()) {
+	    for (ConnectionStoreEntry entry : connections.values()) {
+		connectionMap.put(entry.getConnectionKey(), entry.getConnection());
+	    }
+	}
         return connectionMap;
     }
 
@@ -310,10 +402,7 @@ public class ConnectionStore {
      */
     public void remove() {
 	debug("Removing a Connection for user: " + connectionKey);
-	connectionMap.remove(connectionKey);
-	savepointMap.remove(connectionKey);
-	arrayMap.remove(connectionKey);
-	rowIdMap.remove(connectionKey);
+	remove(connectionKey);
     }
 
     /**
@@ -321,10 +410,66 @@ public class ConnectionStore {
      * @param connectionKey
      */
     public static void remove(ConnectionKey connectionKey) {
-	connectionMap.remove(connectionKey);
-	savepointMap.remove(connectionKey);
-	arrayMap.remove(connectionKey);
-	rowIdMap.remove(connectionKey);
+	if (connectionKey.getConnectionId() == null) {
+	    return;
+	}
+
+	ConnectionStoreEntry[] removed = new ConnectionStoreEntry[1];
+	sessionMap.computeIfPresent(new SessionKey(connectionKey), (sessionKey, connections) -> {
+	    removed[0] = connections.remove(connectionKey.getConnectionId());
+	    return connections.isEmpty() ? null : connections;
+	});
+
+	if (removed[0] != null) {
+	    release(connectionKey.getUsername());
+	    StatementCacheStore.releaseConnection(removed[0].getConnection());
+	}
+    }
+
+    /**
+     * Removes the Connection from the store if no request uses it and it has not
+     * been accessed during the passed timeout. The removal is atomic with the
+     * access time check: a Connection accessed concurrently is never removed.
+     *
+     * @param connectionKey the key of the Connection
+     * @param timeoutNanos  the idle timeout in nanoseconds
+     * @return the removed Connection, or null if the Connection is not idle
+     */
+    static Connection removeIfIdle(ConnectionKey connectionKey, long timeoutNanos) {
+	ConnectionStoreEntry entry = getEntry(connectionKey);
+	if (entry == null || !entry.claimIfIdle(timeoutNanos)) {
+	    return null;
+	}
+
+	remove(connectionKey);
+	return entry.getConnection();
+    }
+
+    /**
+     * Returns the database of the stored Connection.
+     *
+     * @param connectionKey the key of the Connection
+     * @return the database of the stored Connection, or null if none
+     */
+    static String getDatabase(ConnectionKey connectionKey) {
+	ConnectionStoreEntry entry = getEntry(connectionKey);
+	return entry == null ? null : entry.getDatabase();
+    }
+
+    /**
+     * Returns the idle time of the least recently accessed stored Connection.
+     *
+     * @return the maximum idle time of the stored Connections, in milliseconds
+     */
+    public static long getMaxIdleMillis() {
+	long now = System.nanoTime();
+	long maxIdleNanos = 0;
+	for (Map<String, ConnectionStoreEntry> connections : sessionMap.values()) {
+	    for (ConnectionStoreEntry entry : connections.values()) {
+		maxIdleNanos = Math.max(maxIdleNanos, entry.getIdleNanos(now));
+	    }
+	}
+	return TimeUnit.NANOSECONDS.toMillis(maxIdleNanos);
     }
     
     /**
@@ -333,26 +478,50 @@ public class ConnectionStore {
      * @return the size of the Connection Store
      */
     public int size() {
-	return connectionMap.size();
+	return storedCount.get();
     }
 
     /**
-     * Returns the keys of the store
+     * Returns a snapshot of the keys of the store
      *
-     * @return the keys of the store
+     * @return a snapshot of the keys of the store
      */
     public static Set<ConnectionKey> getKeys() {
-	return connectionMap.keySet();
+	Set<ConnectionKey> keys = new HashSet<>();
+	for (Map<String, ConnectionStoreEntry> connections : sessionMap.values()) {
+	    for (ConnectionStoreEntry entry : connections.values()) {
+		keys.add(entry.getConnectionKey());
+	    }
+	}
+	return keys;
+    }
+
+    /**
+     * Returns a snapshot of the keys of the Connections of a session.
+     *
+     * @param username  the client username
+     * @param sessionId the session id
+     * @return a snapshot of the keys of the Connections of the session
+     */
+    static Set<ConnectionKey> getKeys(String username, String sessionId) {
+	Set<ConnectionKey> keys = new HashSet<>();
+	Map<String, ConnectionStoreEntry> sessionConnections = sessionMap.get(new SessionKey(username, sessionId));
+	if (sessionConnections != null) {
+	    for (ConnectionStoreEntry entry : sessionConnections.values()) {
+		keys.add(entry.getConnectionKey());
+	    }
+	}
+	return keys;
     }
 
     public static Set<Connection> getAllConnections(String username, String sessionId) {
 
 	Set<Connection> connections = new HashSet<>();
 
-	for (ConnectionKey connectionKey : connectionMap.keySet()) {
-	    if (connectionKey.getUsername().equals(username) && connectionKey.getSessionId().equals(sessionId)) {
-		Connection connection = connectionMap.get(connectionKey);
-		connections.add(connection);
+	Map<String, ConnectionStoreEntry> sessionConnections = sessionMap.get(new SessionKey(username, sessionId));
+	if (sessionConnections != null) {
+	    for (ConnectionStoreEntry entry : sessionConnections.values()) {
+		connections.add(entry.getConnection());
 	    }
 	}
 
@@ -368,38 +537,113 @@ public class ConnectionStore {
      *         couple(username, sessionId)
      */
     public Connection getFirst() throws SQLException {
-	Set<Connection> connections = getAllConnections(this.connectionKey.getUsername(),
-		this.connectionKey.getSessionId());
-	if (connections.isEmpty()) {
+	ConnectionStoreEntry entry = getFirstEntry();
+	if (entry == null) {
 	    throw new SQLException("No Connection stored for (" + this.connectionKey.getUsername() + ", "
 		    + this.connectionKey.getSessionId() + ")");
 	}
-	List<Connection> connectionsList = new ArrayList<>();
-	connectionsList.addAll(connections);
-	return connectionsList.get(0);
+	return entry.getConnection();
     }
 
     public static void removeAll(String username, String sessionId) {
+	removeSession(username, sessionId);
+    }
 
-	// No!! Will trigger a ConcurrentModificationException!
-	/**
-	<pre><code>
-	for (ConnectionKey connectionKey : connectionMap.keySet()) {
-	    if (connectionKey.getUsername().equals(username) && connectionKey.getSessionId().equals(sessionId)) {
-		connectionMap.remove(connectionKey);
-	    }
+    /**
+     * Removes all the Connections of a session from the store.
+     *
+     * @param username  the client username
+     * @param sessionId the session id
+     * @return the removed entries
+     */
+    static Collection<ConnectionStoreEntry> removeSession(String username, String sessionId) {
+	Map<String, ConnectionStoreEntry> removed = sessionMap.remove(new SessionKey(username, sessionId));
+	if (removed == null) {
+	    return Collections.emptyList();
+	}
+
+	for (ConnectionStoreEntry entry : removed.values()) {
+	    release(username);
+	    StatementCacheStore.releaseConnection(entry.getConnection());
+	}
+	return removed.values();
+    }
+
+    /**
+     * Returns the entry of this store key. A key without connectionId (legacy
+     * clients) designates the first Connection of the session, as in
+     * {@link #getFirst()}.
+     */
+    private ConnectionStoreEntry getEntry() {
+	if (connectionKey.getConnectionId() == null || connectionKey.getConnectionId().isEmpty()) {
+	    return getFirstEntry();
 	}
-	</code></pre>
-	*/
-	// Intermediate Collection to avoid ConcurrentModificationException on Map
+	return getEntry(connectionKey);
+    }
 
-	Set<ConnectionKey> connectionsKeys = new HashSet<>(connectionMap.keySet());
+    private ConnectionStoreEntry getEntryNotNull() {
+	ConnectionStoreEntry entry = getEntry();
+	if (entry == null) {
+	    throw new IllegalArgumentException("No Connection stored for: " + connectionKey);
+	}
+	return entry;
+    }
 
-	for (ConnectionKey connectionKey : connectionsKeys) {
-	    if (connectionKey.getUsername().equals(username) && connectionKey.getSessionId().equals(sessionId)) {
-		connectionMap.remove(connectionKey);
+    /**
+     * Returns the first entry of the session that is not claimed by the reaper,
+     * after having marked it as used.
+     */
+    private ConnectionStoreEntry getFirstEntry() {
+	Map<String, ConnectionStoreEntry> connections = sessionMap.get(new SessionKey(connectionKey));
+	if (connections == null) {
+	    return null;
+	}
+
+	for (ConnectionStoreEntry entry : connections.values()) {
+	    if (use(entry)) {
+		return entry;
 	    }
 	}
+	return null;
+    }
+
+    /**
+     * Marks the entry as used by the request of the current thread, or only
+     * updates its last access time if the thread is not running a request.
+     *
+     * @return false if the entry has been claimed by the reaper
+     */
+    private static boolean use(ConnectionStoreEntry entry) {
+	Set<ConnectionStoreEntry> entries = requestEntries.get();
+	if (entries == null || entries.contains(entry)) {
+	    return entry.touch();
+	}
+
+	if (!entry.acquire()) {
+	    return false;
+	}
+	entries.add(entry);
+	return true;
+    }
+
+    /**
+     * Releases the slot of a stored or reserved Connection.
+     */
+    private static void release(String username) {
+	storedCount.decrementAndGet();
+	AtomicInteger userCount = userCountMap.get(username);
+	if (userCount != null) {
+	    userCount.decrementAndGet();
+	}
+    }
+
+    private static ConnectionStoreEntry getEntry(ConnectionKey connectionKey) {
+	if (connectionKey.getConnectionId() == null) {
+	    return null;
+	}
+
+	Map<String, ConnectionStoreEntry> connections = sessionMap.get(new SessionKey(connectionKey));
+	return connections == null ? null : connections.get(connectionKey.getConnectionId());
     }
 
     /**
@@ -412,6 +656,38 @@ public class ConnectionStore {
 	}
     }
 
+    /**
+     * The index key of the Connections of a session.
+     */
+    private static final class SessionKey {
+	private final String username;
+	private final String sessionId;
+
+	SessionKey(String username, String sessionId) {
+	    this.username = username;
+	    this.sessionId = sessionId;
+	}
+
+	SessionKey(ConnectionKey connectionKey) {
+	    this(connectionKey.getUsername(), connectionKey.getSessionId());
+	}
+
+	@Override
+	public int hashCode() {
+	    return Objects.hash(username, sessionId);
+	}
 
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    }
+	    if (!(obj instanceof SessionKey)) {
+		return false;
+	    }
+	    SessionKey other = (SessionKey) obj;
+	    return Objects.equals(username, other.username) && Objects.equals(sessionId, other.sessionId);
+	}
+    }
 
 }
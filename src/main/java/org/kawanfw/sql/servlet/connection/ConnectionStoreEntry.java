@@ -0,0 +1,151 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.RowId;
+import java.sql.Savepoint;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kawanfw.sql.api.server.connectionstore.ConnectionKey;
+
+/**
+ * A Connection stored in the {@link ConnectionStore}, with the Savepoints,
+ * Arrays and RowIds created on it, its last access time and the number of
+ * requests that are using it.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+class ConnectionStoreEntry {
+
+    /** The last access value of an entry released by the reaper */
+    private static final long REAPED = Long.MIN_VALUE;
+
+    private final ConnectionKey connectionKey;
+    private final Connection connection;
+    private final String database;
+
+    private final Set<Savepoint> savepoints = new CopyOnWriteArraySet<>();
+    private final Set<Array> arrays = new CopyOnWriteArraySet<>();
+    private final Set<RowId> rowIds = new CopyOnWriteArraySet<>();
+
+    /** The last access time, in System.nanoTime() units */
+    private final AtomicLong lastAccess = new AtomicLong(System.nanoTime());
+
+    /** The number of running requests that use the Connection */
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    ConnectionStoreEntry(ConnectionKey connectionKey, Connection connection, String database) {
+	this.connectionKey = connectionKey;
+	this.connection = connection;
+	this.database = database;
+    }
+
+    ConnectionKey getConnectionKey() {
+	return connectionKey;
+    }
+
+    Connection getConnection() {
+	return connection;
+    }
+
+    String getDatabase() {
+	return database;
+    }
+
+    Set<Savepoint> getSavepoints() {
+	return savepoints;
+    }
+
+    Set<Array> getArrays() {
+	return arrays;
+    }
+
+    Set<RowId> getRowIds() {
+	return rowIds;
+    }
+
+    /**
+     * Updates the last access time.
+     *
+     * @return false if the entry has been claimed by the reaper and must not be
+     *         used anymore
+     */
+    boolean touch() {
+	long now = System.nanoTime();
+	while (true) {
+	    long current = lastAccess.get();
+	    if (current == REAPED) {
+		return false;
+	    }
+	    if (lastAccess.compareAndSet(current, now)) {
+		return true;
+	    }
+	}
+    }
+
+    /**
+     * Marks the entry as used by a request and updates the last access time. The
+     * reaper never claims an entry in use.
+     *
+     * @return false if the entry has been claimed by the reaper and must not be
+     *         used anymore
+     */
+    boolean acquire() {
+	// Incremented before the touch: the reaper either sees the use or fails its CAS
+	inUse.incrementAndGet();
+	if (touch()) {
+	    return true;
+	}
+	inUse.decrementAndGet();
+	return false;
+    }
+
+    /**
+     * Says that a request does not use the entry anymore. The idle time starts
+     * from now.
+     */
+    void release() {
+	touch();
+	inUse.decrementAndGet();
+    }
+
+    /**
+     * Claims the entry for the reaper if no request uses it and it has not been
+     * accessed during the timeout. A claimed entry can not be touched anymore.
+     *
+     * @param timeoutNanos the idle timeout in nanoseconds
+     * @return true if the entry has been claimed
+     */
+    boolean claimIfIdle(long timeoutNanos) {
+	long current = lastAccess.get();
+	return current != REAPED && inUse.get() == 0 && System.nanoTime() - current >= timeoutNanos
+		&& lastAccess.compareAndSet(current, REAPED);
+    }
+
+    /**
+     * Returns the idle time.
+     *
+     * @param now the current System.nanoTime() value
+     * @return the time since last access in nanoseconds, 0 if reaped
+     */
+    long getIdleNanos(long now) {
+	long current = lastAccess.get();
+	return current == REAPED ? 0 : now - current;
+    }
+
+}
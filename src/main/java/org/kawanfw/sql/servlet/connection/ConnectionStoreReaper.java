@@ -0,0 +1,202 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import java.sql.Connection;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kawanfw.sql.api.server.DatabaseConfigurator;
+import org.kawanfw.sql.api.server.connectionstore.ConnectionKey;
+import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
+import org.kawanfw.sql.util.FrameworkDebug;
+
+/**
+ * Releases into the pool the stateful Connections of the {@link ConnectionStore}
+ * that are not used by a running request and have not been accessed during the
+ * {@code statefulConnectionIdleTimeoutMinutes} property timeout. This protects
+ * the pool against clients that never close their Connections (crash, lost
+ * network...). <br>
+ * <br>
+ * A single background thread is started on first stored Connection if the
+ * timeout is set. Idle Connections are rolled back before being released.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ConnectionStoreReaper {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(ConnectionStoreReaper.class);
+
+    /** The maximum period between two scans of the store */
+    public static final long MAX_SCAN_PERIOD_SECONDS = 60;
+
+    private static volatile ScheduledExecutorService reaperExecutor = null;
+
+    private static AtomicLong reapedCount = new AtomicLong();
+
+    /** The expired sessions with Connections in use at expiration */
+    private static Set<ConnectionKey> pendingSessions = ConcurrentHashMap.newKeySet();
+
+    protected ConnectionStoreReaper() {
+
+    }
+
+    /**
+     * Starts the reaper thread if not already started.
+     *
+     * @param idleTimeoutMinutes the idle timeout in minutes. Nothing is done if
+     *                           0.
+     */
+    public static void start(int idleTimeoutMinutes) {
+	if (idleTimeoutMinutes <= 0 || reaperExecutor != null) {
+	    return;
+	}
+
+	synchronized (ConnectionStoreReaper.class) {
+	    if (reaperExecutor != null) {
+		return;
+	    }
+
+	    long timeoutNanos = TimeUnit.MINUTES.toNanos(idleTimeoutMinutes);
+	    // Scan at least 4 times per timeout, so that an idle Connection is kept at most 125% of timeout
+	    long scanPeriodSeconds = Math.min(MAX_SCAN_PERIOD_SECONDS,
+		    TimeUnit.MINUTES.toSeconds(idleTimeoutMinutes) / 4);
+
+	    reaperExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "aceql-connection-store-reaper");
+		thread.setDaemon(true);
+		return thread;
+	    });
+	    reaperExecutor.scheduleWithFixedDelay(() -> reap(timeoutNanos), scanPeriodSeconds, scanPeriodSeconds,
+		    TimeUnit.SECONDS);
+	}
+    }
+
+    /**
+     * Stops the reaper thread. Stored Connections are left untouched.
+     */
+    public static synchronized void shutdown() {
+	if (reaperExecutor != null) {
+	    reaperExecutor.shutdownNow();
+	    reaperExecutor = null;
+	}
+    }
+
+    /**
+     * Returns the number of idle Connections released since startup.
+     *
+     * @return the number of idle Connections released since startup
+     */
+    public static long getReapedCount() {
+	return reapedCount.get();
+    }
+
+    /**
+     * Rolls back and releases into the pool all the Connections stored for a
+     * session. To be used when the session expires. A Connection still used by a
+     * running request is not released: the session is kept pending and retried
+     * by {@link #releasePendingSessions()}.
+     *
+     * @param username  the client username
+     * @param sessionId the expired session id
+     */
+    public static void releaseSession(String username, String sessionId) {
+	ConnectionKey sessionKey = new ConnectionKey(username, sessionId, null);
+	if (releaseSessionConnections(username, sessionId)) {
+	    pendingSessions.remove(sessionKey);
+	} else {
+	    pendingSessions.add(sessionKey);
+	}
+    }
+
+    /**
+     * Retries the release of the expired sessions whose Connections were in use.
+     */
+    public static void releasePendingSessions() {
+	for (ConnectionKey sessionKey : pendingSessions) {
+	    releaseSession(sessionKey.getUsername(), sessionKey.getSessionId());
+	}
+    }
+
+    /**
+     * Releases the Connections of the session that are not used by a running
+     * request.
+     *
+     * @return true if no Connection of the session is stored anymore
+     */
+    private static boolean releaseSessionConnections(String username, String sessionId) {
+	boolean allReleased = true;
+	for (ConnectionKey connectionKey : ConnectionStore.getKeys(username, sessionId)) {
+	    try {
+		String database = ConnectionStore.getDatabase(connectionKey);
+		// Claimed with the same in-use check as the idle reaping
+		Connection connection = ConnectionStore.removeIfIdle(connectionKey, 0);
+		if (connection == null) {
+		    allReleased = false;
+		    continue;
+		}
+
+		debug("Releasing Connection of expired session: " + connectionKey);
+		release(connection, database);
+	    } catch (Exception e) {
+		System.err.println(new Date() + " ConnectionStoreReaper: unable to release Connection "
+			+ connectionKey + ": " + e);
+	    }
+	}
+	return allReleased;
+    }
+
+    private static void reap(long timeoutNanos) {
+	for (ConnectionKey connectionKey : ConnectionStore.getKeys()) {
+	    try {
+		String database = ConnectionStore.getDatabase(connectionKey);
+		Connection connection = ConnectionStore.removeIfIdle(connectionKey, timeoutNanos);
+		if (connection == null) {
+		    continue;
+		}
+
+		debug("Releasing idle Connection: " + connectionKey);
+		reapedCount.incrementAndGet();
+		release(connection, database);
+	    } catch (Exception e) {
+		// Never stop the reaper thread
+		System.err.println(new Date() + " ConnectionStoreReaper: unable to release idle Connection "
+			+ connectionKey + ": " + e);
+	    }
+	}
+    }
+
+    private static void release(Connection connection, String database) throws Exception {
+	RollbackUtil.rollback(connection);
+
+	DatabaseConfigurator databaseConfigurator = database == null ? null
+		: InjectedClassesStore.get().getDatabaseConfigurators().get(database);
+	if (databaseConfigurator != null) {
+	    databaseConfigurator.close(connection);
+	} else {
+	    connection.close();
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + s);
+	}
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded LRU cache of {@code PreparedStatement} and
+ * {@code CallableStatement} for one physical JDBC {@code Connection}. <br>
+ * <br>
+ * Statements are prepared on the Connection passed by the borrower, the pool
+ * proxy of the physical Connection, so that the pool interceptors apply. A
+ * statement closed by the pool when its proxy is released is prepared again.
+ * <br>
+ * <br>
+ * A statement is removed from the cache when borrowed and put back when
+ * released, with the settings it had when prepared, so two concurrent requests
+ * on the same Connection never share a statement instance nor its settings.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class StatementCache {
+
+    /** The maximum number of idle statements kept for this Connection */
+    private final int maxSize;
+
+    /** The idle statements, in access order */
+    private final LinkedHashMap<StatementKey, CachedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f,
+	    true);
+
+    /** The statements currently borrowed by a request */
+    private final Map<PreparedStatement, CachedStatement> borrowedStatements = new IdentityHashMap<>();
+
+    private boolean closed = false;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize the maximum number of idle statements kept
+     */
+    public StatementCache(int maxSize) {
+	this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a {@code PreparedStatement} for the SQL order, either from the
+     * cache or newly prepared.
+     *
+     * @param connection the Connection of the borrower, used to prepare a new
+     *                   statement
+     * @param sql        the SQL order
+     * @return a {@code PreparedStatement} for the SQL order
+     * @throws SQLException if any SQLException occurs
+     */
+    public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+	StatementKey key = new StatementKey(sql, false, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+	PreparedStatement preparedStatement = borrow(key);
+	if (preparedStatement == null) {
+	    StatementCacheStore.incrementMisses();
+	    preparedStatement = connection.prepareStatement(sql);
+	    putBorrowed(newCachedStatement(preparedStatement, key));
+	} else {
+	    StatementCacheStore.incrementHits();
+	}
+	return preparedStatement;
+    }
+
+    /**
+     * Returns a {@code CallableStatement} for the SQL order, either from the
+     * cache or newly prepared.
+     *
+     * @param connection the Connection of the borrower, used to prepare a new
+     *                   statement
+     * @param sql        the SQL order
+     * @return a {@code CallableStatement} for the SQL order
+     * @throws SQLException if any SQLException occurs
+     */
+    public CallableStatement prepareCall(Connection connection, String sql) throws SQLException {
+	StatementKey key = new StatementKey(sql, true, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+	PreparedStatement callableStatement = borrow(key);
+	if (callableStatement == null) {
+	    StatementCacheStore.incrementMisses();
+	    callableStatement = connection.prepareCall(sql);
+	    putBorrowed(newCachedStatement(callableStatement, key));
+	} else {
+	    StatementCacheStore.incrementHits();
+	}
+	return (CallableStatement) callableStatement;
+    }
+
+    /**
+     * Puts back a borrowed statement in the cache after having reset its state
+     * and restored the settings it had when prepared. The statement is closed if
+     * it can not be reset, if the cache is closed or if an identical statement is
+     * already idle in the cache.
+     *
+     * @param preparedStatement the statement to put back
+     */
+    public void release(PreparedStatement preparedStatement) {
+	CachedStatement cachedStatement = null;
+	synchronized (this) {
+	    cachedStatement = borrowedStatements.remove(preparedStatement);
+	}
+
+	if (cachedStatement == null) {
+	    closeQuietly(preparedStatement);
+	    return;
+	}
+
+	try {
+	    preparedStatement.clearParameters();
+	    preparedStatement.clearBatch();
+	    preparedStatement.clearWarnings();
+	    cachedStatement.restoreSettings();
+	} catch (SQLException e) {
+	    closeQuietly(preparedStatement);
+	    return;
+	}
+
+	List<PreparedStatement> evicted = new ArrayList<>();
+	synchronized (this) {
+	    if (closed || idleStatements.containsKey(cachedStatement.key)) {
+		evicted.add(preparedStatement);
+	    } else {
+		idleStatements.put(cachedStatement.key, cachedStatement);
+		Iterator<CachedStatement> iterator = idleStatements.values().iterator();
+		while (idleStatements.size() > maxSize && iterator.hasNext()) {
+		    evicted.add(iterator.next().statement);
+		    iterator.remove();
+		    StatementCacheStore.incrementEvictions();
+		}
+	    }
+	}
+
+	for (PreparedStatement statement : evicted) {
+	    closeQuietly(statement);
+	}
+    }
+
+    /**
+     * Removes a borrowed statement from the cache and closes it. To be used when
+     * the statement execution failed.
+     *
+     * @param preparedStatement the statement to discard
+     */
+    public void discard(PreparedStatement preparedStatement) {
+	synchronized (this) {
+	    borrowedStatements.remove(preparedStatement);
+	}
+	closeQuietly(preparedStatement);
+    }
+
+    /**
+     * Closes all idle statements. Borrowed statements will be closed when
+     * released.
+     */
+    public void close() {
+	List<CachedStatement> evicted = null;
+	synchronized (this) {
+	    closed = true;
+	    evicted = new ArrayList<>(idleStatements.values());
+	    idleStatements.clear();
+	}
+
+	for (CachedStatement cachedStatement : evicted) {
+	    StatementCacheStore.incrementEvictions();
+	    closeQuietly(cachedStatement.statement);
+	}
+    }
+
+    /**
+     * Returns the number of idle statements in the cache.
+     *
+     * @return the number of idle statements in the cache
+     */
+    public synchronized int size() {
+	return idleStatements.size();
+    }
+
+    private PreparedStatement borrow(StatementKey key) throws SQLException {
+	CachedStatement cachedStatement = null;
+	synchronized (this) {
+	    if (closed) {
+		throw new SQLException("Statement cache is closed: the Connection has been released.");
+	    }
+	    cachedStatement = idleStatements.remove(key);
+	}
+
+	if (cachedStatement == null) {
+	    return null;
+	}
+
+	// The driver or the pool may have closed the statement while idle
+	if (cachedStatement.statement.isClosed()) {
+	    closeQuietly(cachedStatement.statement);
+	    return null;
+	}
+
+	putBorrowed(cachedStatement);
+	return cachedStatement.statement;
+    }
+
+    private static CachedStatement newCachedStatement(PreparedStatement preparedStatement, StatementKey key)
+	    throws SQLException {
+	try {
+	    return new CachedStatement(preparedStatement, key);
+	} catch (SQLException e) {
+	    closeQuietly(preparedStatement);
+	    throw e;
+	}
+    }
+
+    private synchronized void putBorrowed(CachedStatement cachedStatement) {
+	borrowedStatements.put(cachedStatement.statement, cachedStatement);
+    }
+
+    private static void closeQuietly(PreparedStatement preparedStatement) {
+	if (preparedStatement == null) {
+	    return;
+	}
+	try {
+	    preparedStatement.close();
+	} catch (SQLException e) {
+	    // Nothing to do, statement is unusable anyway
+	}
+    }
+
+    /**
+     * A cached statement with its key and the settings it had when prepared, so
+     * that the settings changed by a borrower are not seen by the next ones.
+     */
+    private static final class CachedStatement {
+	private final PreparedStatement statement;
+	private final StatementKey key;
+
+	private final int queryTimeout;
+	private final int fetchSize;
+	private final int fetchDirection;
+	private final int maxFieldSize;
+	private final int maxRows;
+
+	CachedStatement(PreparedStatement statement, StatementKey key) throws SQLException {
+	    this.statement = statement;
+	    this.key = key;
+	    // Read after preparation: includes the settings of the pool interceptors
+	    this.queryTimeout = statement.getQueryTimeout();
+	    this.fetchSize = statement.getFetchSize();
+	    this.fetchDirection = statement.getFetchDirection();
+	    this.maxFieldSize = statement.getMaxFieldSize();
+	    this.maxRows = statement.getMaxRows();
+	}
+
+	void restoreSettings() throws SQLException {
+	    if (statement.getQueryTimeout() != queryTimeout) {
+		statement.setQueryTimeout(queryTimeout);
+	    }
+	    if (statement.getFetchSize() != fetchSize) {
+		statement.setFetchSize(fetchSize);
+	    }
+	    if (statement.getFetchDirection() != fetchDirection) {
+		statement.setFetchDirection(fetchDirection);
+	    }
+	    if (statement.getMaxFieldSize() != maxFieldSize) {
+		statement.setMaxFieldSize(maxFieldSize);
+	    }
+	    if (statement.getMaxRows() != maxRows) {
+		statement.setMaxRows(maxRows);
+	    }
+	}
+    }
+
+    /**
+     * The cache key: SQL text, statement kind and result set options.
+     */
+    private static final class StatementKey {
+	private final String sql;
+	private final boolean callable;
+	private final int resultSetType;
+	private final int resultSetConcurrency;
+
+	StatementKey(String sql, boolean callable, int resultSetType, int resultSetConcurrency) {
+	    this.sql = sql;
+	    this.callable = callable;
+	    this.resultSetType = resultSetType;
+	    this.resultSetConcurrency = resultSetConcurrency;
+	}
+
+	@Override
+	public int hashCode() {
+	    return Objects.hash(sql, callable, resultSetType, resultSetConcurrency);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (this == obj) {
+		return true;
+	    }
+	    if (!(obj instanceof StatementKey)) {
+		return false;
+	    }
+	    StatementKey other = (StatementKey) obj;
+	    return callable == other.callable && resultSetType == other.resultSetType
+		    && resultSetConcurrency == other.resultSetConcurrency && sql.equals(other.sql);
+	}
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+import org.kawanfw.sql.util.FrameworkDebug;
+
+/**
+ * Stores in static the {@link StatementCache} of each physical JDBC
+ * {@code Connection}. <br>
+ * <br>
+ * Statements are cached only if the {@code statementCacheSize} property is
+ * greater than 0. Pooled Connections that can be unwrapped with
+ * {@code javax.sql.PooledConnection} (Tomcat JDBC Pool) are cached per
+ * physical Connection, so the cache survives the release of the Connection
+ * into the pool and is used by the next requests that borrow it. The physical
+ * Connection is only the cache key: statements are prepared on the pool proxy,
+ * so that the pool interceptors apply to them. The cache is dropped by
+ * {@link #invalidate(Connection)} when the pool closes the physical Connection.
+ * Other Connections are cached until {@link #releaseConnection(Connection)}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class StatementCacheStore {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(StatementCacheStore.class);
+
+    /** Map of (physical Connection, StatementCache) */
+    private static Map<Connection, StatementCache> statementCacheMap = new ConcurrentHashMap<>();
+
+    private static AtomicLong hits = new AtomicLong();
+    private static AtomicLong misses = new AtomicLong();
+    private static AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Protected constructor
+     */
+    protected StatementCacheStore() {
+
+    }
+
+    /**
+     * Returns a {@code PreparedStatement} for the SQL order. The statement must
+     * be given back with {@link #release(Connection, PreparedStatement)} instead
+     * of being closed.
+     *
+     * @param connection the Connection to use
+     * @param sql        the SQL order
+     * @return a cached or new {@code PreparedStatement}
+     * @throws SQLException if any SQLException occurs
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+	StatementCache statementCache = getStatementCache(connection);
+	if (statementCache == null) {
+	    return connection.prepareStatement(sql);
+	}
+	return statementCache.prepareStatement(connection, sql);
+    }
+
+    /**
+     * Returns a {@code CallableStatement} for the SQL order. The statement must
+     * be given back with {@link #release(Connection, PreparedStatement)} instead
+     * of being closed.
+     *
+     * @param connection the Connection to use
+     * @param sql        the SQL order
+     * @return a cached or new {@code CallableStatement}
+     * @throws SQLException if any SQLException occurs
+     */
+    public static CallableStatement prepareCall(Connection connection, String sql) throws SQLException {
+	StatementCache statementCache = getStatementCache(connection);
+	if (statementCache == null) {
+	    return connection.prepareCall(sql);
+	}
+	return statementCache.prepareCall(connection, sql);
+    }
+
+    /**
+     * Gives back a statement to the cache of its Connection, or closes it if
+     * there is no cache.
+     *
+     * @param connection        the Connection that created the statement
+     * @param preparedStatement the statement to give back, may be null
+     * @throws SQLException if any SQLException occurs
+     */
+    public static void release(Connection connection, PreparedStatement preparedStatement) throws SQLException {
+	if (preparedStatement == null) {
+	    return;
+	}
+
+	StatementCache statementCache = connection == null ? null
+		: statementCacheMap.get(getPhysicalConnection(connection));
+	if (statementCache == null) {
+	    preparedStatement.close();
+	} else {
+	    statementCache.release(preparedStatement);
+	}
+    }
+
+    /**
+     * Closes a statement that must not be reused, because its execution failed.
+     *
+     * @param connection        the Connection that created the statement
+     * @param preparedStatement the statement to discard, may be null
+     */
+    public static void discard(Connection connection, PreparedStatement preparedStatement) {
+	if (preparedStatement == null) {
+	    return;
+	}
+
+	StatementCache statementCache = null;
+	try {
+	    statementCache = connection == null ? null : statementCacheMap.get(getPhysicalConnection(connection));
+	} catch (SQLException e) {
+	    // The Connection is unusable, the statement is closed below
+	}
+
+	if (statementCache == null) {
+	    try {
+		preparedStatement.close();
+	    } catch (SQLException e) {
+		// Nothing to do, the failure is already reported by caller
+	    }
+	} else {
+	    statementCache.discard(preparedStatement);
+	}
+    }
+
+    /**
+     * To be called before a Connection is released into the pool. The cache of a
+     * physical pooled Connection is kept for the next borrowers, other caches
+     * are closed and removed.
+     *
+     * @param connection the Connection, may be null
+     */
+    public static void releaseConnection(Connection connection) {
+	if (connection == null || connection instanceof javax.sql.PooledConnection) {
+	    return;
+	}
+	invalidate(connection);
+    }
+
+    /**
+     * Closes all cached statements of a physical Connection and removes its
+     * cache. To be called when the pool closes the physical Connection.
+     *
+     * @param physicalConnection the physical Connection, may be null
+     */
+    public static void invalidate(Connection physicalConnection) {
+	if (physicalConnection == null) {
+	    return;
+	}
+
+	StatementCache statementCache = statementCacheMap.remove(physicalConnection);
+	if (statementCache != null) {
+	    debug("Removing statement cache of size " + statementCache.size() + " for: " + physicalConnection);
+	    statementCache.close();
+	}
+    }
+
+    /**
+     * Returns the number of statements found in cache.
+     *
+     * @return the number of statements found in cache
+     */
+    public static long getHits() {
+	return hits.get();
+    }
+
+    /**
+     * Returns the number of statements not found in cache that had to be
+     * prepared.
+     *
+     * @return the number of statements not found in cache
+     */
+    public static long getMisses() {
+	return misses.get();
+    }
+
+    /**
+     * Returns the number of statements closed because the cache was full or the
+     * Connection was released.
+     *
+     * @return the number of evicted statements
+     */
+    public static long getEvictions() {
+	return evictions.get();
+    }
+
+    /**
+     * Returns the number of physical Connections that have a statement cache.
+     *
+     * @return the number of physical Connections that have a statement cache
+     */
+    public static int size() {
+	return statementCacheMap.size();
+    }
+
+    static void incrementHits() {
+	hits.incrementAndGet();
+    }
+
+    static void incrementMisses() {
+	misses.incrementAndGet();
+    }
+
+    static void incrementEvictions() {
+	evictions.incrementAndGet();
+    }
+
+    private static StatementCache getStatementCache(Connection connection) throws SQLException {
+	int statementCacheSize = ConfPropertiesStore.get().getStatementCacheSize();
+	if (statementCacheSize <= 0) {
+	    return null;
+	}
+	// The physical Connection outlives the pool proxies: it's only the key
+	return statementCacheMap.computeIfAbsent(getPhysicalConnection(connection),
+		c -> new StatementCache(statementCacheSize));
+    }
+
+    /**
+     * Unwraps the Connection if it's a PooledConnection. The physical Connection
+     * is used only as cache key, never to prepare statements.
+     *
+     * @param connection the Connection borrowed from the pool
+     * @return the physical Connection
+     * @throws SQLException if the Connection is closed
+     */
+    private static Connection getPhysicalConnection(Connection connection) throws SQLException {
+	if (connection instanceof javax.sql.PooledConnection) {
+	    return ((javax.sql.PooledConnection) connection).getConnection();
+	}
+	return connection;
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + s);
+	}
+    }
+
+}
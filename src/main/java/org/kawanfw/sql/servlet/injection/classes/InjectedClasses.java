@@ -28,6 +28,7 @@ import org.kawanfw.sql.api.server.firewall.trigger.SqlFirewallTrigger;
 import org.kawanfw.sql.api.server.listener.UpdateListener;
 import org.kawanfw.sql.api.server.logging.LoggerCreator;
 import org.kawanfw.sql.api.server.session.SessionConfigurator;
+import org.kawanfw.sql.tomcat.properties.threadpool.VirtualThreadRequestExecutor;
 
 /**
  * All decoded Properties into injected classes instances ready to use.
@@ -64,6 +65,9 @@ public class InjectedClasses {
     /** The executor to use */
     private ThreadPoolExecutor threadPoolExecutor = null;
 
+    /** The executor to use instead of threadPoolExecutor in virtualThreads mode */
+    private VirtualThreadRequestExecutor virtualThreadRequestExecutor = null;
+
     /** The map of (database, List<UpdateListener>) */
     private Map<String, Set<UpdateListener>> updateListenerMap = new ConcurrentHashMap<>();
 
@@ -82,6 +86,7 @@ public class InjectedClasses {
 	this.blobDownloadConfigurator = injectedClassesBuilder.blobDownloadConfigurator;
 	this.sessionConfigurator = injectedClassesBuilder.sessionConfigurator;
 	this.threadPoolExecutor = injectedClassesBuilder.threadPoolExecutor;
+	this.virtualThreadRequestExecutor = injectedClassesBuilder.virtualThreadRequestExecutor;
 
 	this.updateListenerMap = injectedClassesBuilder.updateListenerMap;
 	this.loggerCreatorSet = injectedClassesBuilder.loggerCreatorSet;
@@ -158,6 +163,14 @@ public class InjectedClasses {
 	return threadPoolExecutor;
     }
 
+    /**
+     * @return the virtualThreadRequestExecutor, null if not in virtualThreads
+     *         mode
+     */
+    public VirtualThreadRequestExecutor getVirtualThreadRequestExecutor() {
+	return virtualThreadRequestExecutor;
+    }
+
     /**
      * @return the updateListenerMap
      */
@@ -193,6 +206,9 @@ public class InjectedClasses {
 	/** The executor to use */
 	private ThreadPoolExecutor threadPoolExecutor = null;
 
+	/** The executor to use instead of threadPoolExecutor in virtualThreads mode */
+	private VirtualThreadRequestExecutor virtualThreadRequestExecutor = null;
+
 	/** The map of (database, List<UpdateListener>) */
 	private Map<String, Set<UpdateListener>> updateListenerMap = new ConcurrentHashMap<>();
 
@@ -265,6 +281,12 @@ public class InjectedClasses {
 	    return this;
 	}
 
+	public InjectedClassesBuilder virtualThreadRequestExecutor(
+		VirtualThreadRequestExecutor virtualThreadRequestExecutor) {
+	    this.virtualThreadRequestExecutor = virtualThreadRequestExecutor;
+	    return this;
+	}
+
 	public InjectedClassesBuilder updateListenerMap(Map<String, Set<UpdateListener>> updateListenerMap) {
 	    this.updateListenerMap = updateListenerMap;
 	    return this;
@@ -34,6 +34,7 @@ import org.kawanfw.sql.api.server.firewall.trigger.SqlFirewallTrigger;
 import org.kawanfw.sql.api.server.listener.UpdateListener;
 import org.kawanfw.sql.api.server.logging.LoggerCreator;
 import org.kawanfw.sql.api.server.session.JwtSessionConfigurator;
+import org.kawanfw.sql.servlet.BannedUserStore;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClasses.InjectedClassesBuilder;
 import org.kawanfw.sql.servlet.injection.classes.creator.BlobDownloadConfiguratorCreator;
 import org.kawanfw.sql.servlet.injection.classes.creator.BlobUploadConfiguratorCreator;
@@ -52,6 +53,9 @@ import org.kawanfw.sql.servlet.injection.properties.PropertiesFileUtil;
 import org.kawanfw.sql.tomcat.TomcatSqlModeStore;
 import org.kawanfw.sql.tomcat.TomcatStarterMessages;
 import org.kawanfw.sql.tomcat.TomcatStarterUtil;
+import org.kawanfw.sql.tomcat.properties.threadpool.ExecutorMode;
+import org.kawanfw.sql.tomcat.properties.threadpool.ThreadPoolProperties;
+import org.kawanfw.sql.tomcat.properties.threadpool.VirtualThreadRequestExecutor;
 import org.kawanfw.sql.util.FrameworkDebug;
 import org.kawanfw.sql.util.SqlTag;
 import org.kawanfw.sql.util.Tag;
@@ -118,13 +122,7 @@ public class InjectedClassesManagerNew {
 	    //ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorBuilder.build();
 	    //injectedClassesBuilder.threadPoolExecutor(threadPoolExecutor);
 	    
-	    AdvancedThreadPoolExecutorBuilder threadPoolExecutorBuilder = new AdvancedThreadPoolExecutorBuilder();
-	    ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorBuilder.build();
-	    injectedClassesBuilder.threadPoolExecutor(threadPoolExecutor);
-	    
-	    // Check ThreadPoolExecutor parameters
-	    ThreadPoolCapacityWarner threadPoolCapacityWarner = new ThreadPoolCapacityWarner(propertiesFileStr);
-	    threadPoolCapacityWarner.warnOnThreadPoolExecutorParams();
+	    loadRequestExecutor(propertiesFileStr, injectedClassesBuilder);
 	    
 	    // All elements that depend on database
 	    loadPerDatabase(databases, injectedClassesBuilder);
@@ -138,6 +136,9 @@ public class InjectedClassesManagerNew {
 
 	    // Store the InjectedClasses instance statically
 	    InjectedClassesStore.set(injectedClasses);
+
+	    // Load the users banned by BanUserSqlFirewallTrigger
+	    BannedUserStore.init(databases);
 	    	    
 	    //printWarningMessageNotProtecting(databases);
 	    displayLoggerCreators();
@@ -351,6 +352,44 @@ public class InjectedClassesManagerNew {
 	}
     }
 
+    /**
+     * Loads the executor of the servlet requests: the ThreadPoolExecutor, or the
+     * VirtualThreadRequestExecutor in virtualThreads mode if the JVM supports
+     * virtual threads.
+     * 
+     * @param propertiesFileStr
+     * @param injectedClassesBuilder
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void loadRequestExecutor(String propertiesFileStr, InjectedClassesBuilder injectedClassesBuilder)
+	    throws IOException, SQLException {
+	File propertiesFile = PropertiesFileStore.get();
+	ThreadPoolProperties threadPoolProperties = new ThreadPoolProperties(
+		PropertiesFileUtil.getProperties(propertiesFile));
+
+	if (threadPoolProperties.getExecutorMode() == ExecutorMode.virtualThreads) {
+	    VirtualThreadRequestExecutor virtualThreadRequestExecutor = VirtualThreadRequestExecutor
+		    .build(threadPoolProperties.getMaxConcurrentRequests());
+	    if (virtualThreadRequestExecutor != null) {
+		injectedClassesBuilder.virtualThreadRequestExecutor(virtualThreadRequestExecutor);
+		return;
+	    }
+
+	    System.err.println(SqlTag.SQL_PRODUCT_START + " " + Tag.WARNING + " executorMode "
+		    + ExecutorMode.virtualThreads + " requires Java 21+ (running Java "
+		    + System.getProperty("java.version") + "). Using " + ExecutorMode.threadPool + " mode.");
+	}
+
+	AdvancedThreadPoolExecutorBuilder threadPoolExecutorBuilder = new AdvancedThreadPoolExecutorBuilder();
+	ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorBuilder.build();
+	injectedClassesBuilder.threadPoolExecutor(threadPoolExecutor);
+
+	// Check ThreadPoolExecutor parameters
+	ThreadPoolCapacityWarner threadPoolCapacityWarner = new ThreadPoolCapacityWarner(propertiesFileStr);
+	threadPoolCapacityWarner.warnOnThreadPoolExecutorParams();
+    }
+
     /**
      * Loads Blob upload configurator.
      * 
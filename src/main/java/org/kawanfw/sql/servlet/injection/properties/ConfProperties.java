@@ -51,6 +51,27 @@ public class ConfProperties {
 
     private Map<String, OperationalMode> operationalModeMap =  new ConcurrentHashMap<>(); 
 
+    private int statementCacheSize;
+
+    private int batchChunkSize;
+
+    private int statefulConnectionIdleTimeoutMinutes;
+    private int maxStatefulConnections;
+    private int maxStatefulConnectionsPerUser;
+
+    private int maxLobInlineLength;
+
+    private int maxConcurrentRequestsPerDatabase;
+    private int maxQueuedRequestsPerDatabase;
+
+    private int updateListenerQueueCapacity;
+    private int updateListenerThreads;
+    private UpdateListenerOverflowPolicy updateListenerOverflowPolicy;
+
+    private int firewallTriggerQueueCapacity;
+    private int firewallTriggerBatchSize;
+    private int firewallTriggerFlushIntervalMillis;
+
     private ConfProperties(ConfPropertiesBuilder confPropertiesBuilder) {
 	this.databaseSet = confPropertiesBuilder.databaseSet;
 	this.databaseConfiguratorClassNameMap = confPropertiesBuilder.databaseConfiguratorClassNameMap;
@@ -74,6 +95,20 @@ public class ConfProperties {
 	this.updateListenerClassNamesMap = confPropertiesBuilder.updateListenerClassNamesMap;
 	
 	this.operationalModeMap = confPropertiesBuilder.operationalModeMap;
+	this.statementCacheSize = confPropertiesBuilder.statementCacheSize;
+	this.batchChunkSize = confPropertiesBuilder.batchChunkSize;
+	this.statefulConnectionIdleTimeoutMinutes = confPropertiesBuilder.statefulConnectionIdleTimeoutMinutes;
+	this.maxStatefulConnections = confPropertiesBuilder.maxStatefulConnections;
+	this.maxStatefulConnectionsPerUser = confPropertiesBuilder.maxStatefulConnectionsPerUser;
+	this.maxLobInlineLength = confPropertiesBuilder.maxLobInlineLength;
+	this.maxConcurrentRequestsPerDatabase = confPropertiesBuilder.maxConcurrentRequestsPerDatabase;
+	this.maxQueuedRequestsPerDatabase = confPropertiesBuilder.maxQueuedRequestsPerDatabase;
+	this.updateListenerQueueCapacity = confPropertiesBuilder.updateListenerQueueCapacity;
+	this.updateListenerThreads = confPropertiesBuilder.updateListenerThreads;
+	this.updateListenerOverflowPolicy = confPropertiesBuilder.updateListenerOverflowPolicy;
+	this.firewallTriggerQueueCapacity = confPropertiesBuilder.firewallTriggerQueueCapacity;
+	this.firewallTriggerBatchSize = confPropertiesBuilder.firewallTriggerBatchSize;
+	this.firewallTriggerFlushIntervalMillis = confPropertiesBuilder.firewallTriggerFlushIntervalMillis;
     }
 
     /**
@@ -211,6 +246,115 @@ public class ConfProperties {
 	return updateListenerClassNamesMap.get(database);
     }
 
+    /**
+     * @return the maximum number of cached statements per Connection, 0 if
+     *         statements are not cached
+     */
+    public int getStatementCacheSize() {
+	return statementCacheSize;
+    }
+
+    /**
+     * @return the number of rows sent per executeBatch() call of a prepared
+     *         statement batch, 0 if all rows are sent in one call
+     */
+    public int getBatchChunkSize() {
+	return batchChunkSize;
+    }
+
+    /**
+     * @return the time after which a stored Connection that has not been accessed
+     *         is released into the pool, 0 if never released
+     */
+    public int getStatefulConnectionIdleTimeoutMinutes() {
+	return statefulConnectionIdleTimeoutMinutes;
+    }
+
+    /**
+     * @return the maximum number of Connections stored for all users, 0 if no
+     *         maximum
+     */
+    public int getMaxStatefulConnections() {
+	return maxStatefulConnections;
+    }
+
+    /**
+     * @return the maximum number of Connections stored per user, 0 if no maximum
+     */
+    public int getMaxStatefulConnectionsPerUser() {
+	return maxStatefulConnectionsPerUser;
+    }
+
+    /**
+     * @return the maximum length of a BLOB or CLOB sent inline in the result set
+     *         rows, 0 if LOBs are never sent inline
+     */
+    public int getMaxLobInlineLength() {
+	return maxLobInlineLength;
+    }
+
+    /**
+     * @return the maximum number of requests executed at the same time per
+     *         database, 0 for the maxActive value of the database pool
+     */
+    public int getMaxConcurrentRequestsPerDatabase() {
+	return maxConcurrentRequestsPerDatabase;
+    }
+
+    /**
+     * @return the maximum number of waiting requests per database, 0 if the per
+     *         database bulkheads are disabled
+     */
+    public int getMaxQueuedRequestsPerDatabase() {
+	return maxQueuedRequestsPerDatabase;
+    }
+
+    /**
+     * @return the capacity of the update listeners queue, 0 if update listeners
+     *         are called synchronously
+     */
+    public int getUpdateListenerQueueCapacity() {
+	return updateListenerQueueCapacity;
+    }
+
+    /**
+     * @return the number of threads calling the update listeners, 0 for one
+     */
+    public int getUpdateListenerThreads() {
+	return updateListenerThreads;
+    }
+
+    /**
+     * @return what to do when the update listeners queue is full
+     */
+    public UpdateListenerOverflowPolicy getUpdateListenerOverflowPolicy() {
+	return updateListenerOverflowPolicy;
+    }
+
+    /**
+     * @return the capacity of the queue of SQL Firewall trigger rows waiting to
+     *         be inserted, 0 for the default
+     */
+    public int getFirewallTriggerQueueCapacity() {
+	return firewallTriggerQueueCapacity;
+    }
+
+    /**
+     * @return the maximum number of SQL Firewall trigger rows inserted in one
+     *         batch, 0 for the default
+     */
+    public int getFirewallTriggerBatchSize() {
+	return firewallTriggerBatchSize;
+    }
+
+    /**
+     * @return the maximum delay in milliseconds before a SQL Firewall trigger row
+     *         is inserted, 0 for the default
+     */
+    public int getFirewallTriggerFlushIntervalMillis() {
+	return firewallTriggerFlushIntervalMillis;
+    }
+
     public static class ConfPropertiesBuilder {
 	/** The database names */
 	private Set<String> databaseSet = null;
@@ -238,6 +382,26 @@ public class ConfProperties {
 
 	private Map<String, OperationalMode> operationalModeMap = new ConcurrentHashMap<>();
 
+	private int statementCacheSize;
+
+	private int batchChunkSize;
+
+	private int statefulConnectionIdleTimeoutMinutes;
+	private int maxStatefulConnections;
+	private int maxStatefulConnectionsPerUser;
+
+	private int maxLobInlineLength;
+
+	private int maxConcurrentRequestsPerDatabase;
+	private int maxQueuedRequestsPerDatabase;
+
+	private int updateListenerQueueCapacity;
+	private int updateListenerThreads;
+	private UpdateListenerOverflowPolicy updateListenerOverflowPolicy = UpdateListenerOverflowPolicy.block;
+	private int firewallTriggerQueueCapacity;
+	private int firewallTriggerBatchSize;
+	private int firewallTriggerFlushIntervalMillis;
+
 	public ConfPropertiesBuilder databaseSet(Set<String> databaseSet) {
 	    this.databaseSet = databaseSet;
 	    return this;
@@ -314,6 +478,77 @@ public class ConfProperties {
 	    this.operationalModeMap = operationalModeMap;
 	    return this;
 	}
+
+	public ConfPropertiesBuilder statementCacheSize(int statementCacheSize) {
+	    this.statementCacheSize = statementCacheSize;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder batchChunkSize(int batchChunkSize) {
+	    this.batchChunkSize = batchChunkSize;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder statefulConnectionIdleTimeoutMinutes(int statefulConnectionIdleTimeoutMinutes) {
+	    this.statefulConnectionIdleTimeoutMinutes = statefulConnectionIdleTimeoutMinutes;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder maxStatefulConnections(int maxStatefulConnections) {
+	    this.maxStatefulConnections = maxStatefulConnections;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder maxStatefulConnectionsPerUser(int maxStatefulConnectionsPerUser) {
+	    this.maxStatefulConnectionsPerUser = maxStatefulConnectionsPerUser;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder maxLobInlineLength(int maxLobInlineLength) {
+	    this.maxLobInlineLength = maxLobInlineLength;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder maxConcurrentRequestsPerDatabase(int maxConcurrentRequestsPerDatabase) {
+	    this.maxConcurrentRequestsPerDatabase = maxConcurrentRequestsPerDatabase;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder maxQueuedRequestsPerDatabase(int maxQueuedRequestsPerDatabase) {
+	    this.maxQueuedRequestsPerDatabase = maxQueuedRequestsPerDatabase;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder updateListenerQueueCapacity(int updateListenerQueueCapacity) {
+	    this.updateListenerQueueCapacity = updateListenerQueueCapacity;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder updateListenerThreads(int updateListenerThreads) {
+	    this.updateListenerThreads = updateListenerThreads;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder updateListenerOverflowPolicy(
+		UpdateListenerOverflowPolicy updateListenerOverflowPolicy) {
+	    this.updateListenerOverflowPolicy = updateListenerOverflowPolicy;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder firewallTriggerQueueCapacity(int firewallTriggerQueueCapacity) {
+	    this.firewallTriggerQueueCapacity = firewallTriggerQueueCapacity;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder firewallTriggerBatchSize(int firewallTriggerBatchSize) {
+	    this.firewallTriggerBatchSize = firewallTriggerBatchSize;
+	    return this;
+	}
+
+	public ConfPropertiesBuilder firewallTriggerFlushIntervalMillis(int firewallTriggerFlushIntervalMillis) {
+	    this.firewallTriggerFlushIntervalMillis = firewallTriggerFlushIntervalMillis;
+	    return this;
+	}
 	
 	// Return the finally constructed User object
 	public ConfProperties build() {
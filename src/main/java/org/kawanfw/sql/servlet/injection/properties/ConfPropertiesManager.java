@@ -24,6 +24,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.StringUtils;
 import org.kawanfw.sql.servlet.ServerSqlManager;
 import org.kawanfw.sql.servlet.injection.properties.ConfProperties.ConfPropertiesBuilder;
 import org.kawanfw.sql.tomcat.TomcatStarterUtil;
@@ -76,6 +77,33 @@ public class ConfPropertiesManager {
 	boolean statelessMode = Boolean.parseBoolean(properties.getProperty(ServerSqlManager.STATELESS_MODE, "false"));
 	confPropertiesBuilder.statelessMode(statelessMode);
 
+	confPropertiesBuilder.statementCacheSize(getNumericProperty(ServerSqlManager.STATEMENT_CACHE_SIZE));
+	confPropertiesBuilder.batchChunkSize(getNumericProperty(ServerSqlManager.BATCH_CHUNK_SIZE));
+
+	confPropertiesBuilder.statefulConnectionIdleTimeoutMinutes(
+		getNumericProperty(ServerSqlManager.STATEFUL_CONNECTION_IDLE_TIMEOUT_MINUTES));
+	confPropertiesBuilder.maxStatefulConnections(getNumericProperty(ServerSqlManager.MAX_STATEFUL_CONNECTIONS));
+	confPropertiesBuilder.maxStatefulConnectionsPerUser(
+		getNumericProperty(ServerSqlManager.MAX_STATEFUL_CONNECTIONS_PER_USER));
+
+	confPropertiesBuilder.maxLobInlineLength(getNumericProperty(ServerSqlManager.MAX_LOB_INLINE_LENGTH));
+
+	confPropertiesBuilder.maxConcurrentRequestsPerDatabase(
+		getNumericProperty(ServerSqlManager.MAX_CONCURRENT_REQUESTS_PER_DATABASE));
+	confPropertiesBuilder.maxQueuedRequestsPerDatabase(
+		getNumericProperty(ServerSqlManager.MAX_QUEUED_REQUESTS_PER_DATABASE));
+
+	confPropertiesBuilder.updateListenerQueueCapacity(
+		getNumericProperty(ServerSqlManager.UPDATE_LISTENER_QUEUE_CAPACITY));
+	confPropertiesBuilder.updateListenerThreads(getNumericProperty(ServerSqlManager.UPDATE_LISTENER_THREADS));
+	confPropertiesBuilder.updateListenerOverflowPolicy(getUpdateListenerOverflowPolicy());
+
+	confPropertiesBuilder.firewallTriggerQueueCapacity(
+		getNumericProperty(ServerSqlManager.FIREWALL_TRIGGER_QUEUE_CAPACITY));
+	confPropertiesBuilder.firewallTriggerBatchSize(getNumericProperty(ServerSqlManager.FIREWALL_TRIGGER_BATCH_SIZE));
+	confPropertiesBuilder.firewallTriggerFlushIntervalMillis(
+		getNumericProperty(ServerSqlManager.FIREWALL_TRIGGER_FLUSH_INTERVAL_MILLIS));
+
 	Set<String> databases = TomcatStarterUtil.getDatabaseNames(properties);
 	confPropertiesBuilder.databaseSet(databases);
 
@@ -132,6 +160,43 @@ public class ConfPropertiesManager {
 
     }
 
+    /**
+     * Returns the value of a numeric property that defaults to 0.
+     * 
+     * @param propertyName the property name
+     * @return the property value, or 0 if not set
+     */
+    private int getNumericProperty(String propertyName) {
+	String valueStr = TomcatStarterUtil.trimSafe(properties.getProperty(propertyName, "0"));
+	if (!StringUtils.isNumeric(valueStr)) {
+	    throw new IllegalArgumentException(
+		    SqlTag.USER_CONFIGURATION + " the " + propertyName + " property is not numeric: " + valueStr);
+	}
+	return Integer.parseInt(valueStr);
+    }
+
+    /**
+     * Returns the updateListenerOverflowPolicy property value that defaults to
+     * block.
+     * 
+     * @return the updateListenerOverflowPolicy property value
+     */
+    private UpdateListenerOverflowPolicy getUpdateListenerOverflowPolicy() {
+	String overflowPolicy = TomcatStarterUtil
+		.trimSafe(properties.getProperty(ServerSqlManager.UPDATE_LISTENER_OVERFLOW_POLICY));
+	if (overflowPolicy == null || overflowPolicy.isEmpty()) {
+	    return UpdateListenerOverflowPolicy.block;
+	}
+
+	try {
+	    return UpdateListenerOverflowPolicy.valueOf(overflowPolicy);
+	} catch (IllegalArgumentException e) {
+	    throw new IllegalArgumentException(SqlTag.USER_CONFIGURATION + " the "
+		    + ServerSqlManager.UPDATE_LISTENER_OVERFLOW_POLICY + " property value is invalid: " + overflowPolicy
+		    + ".  Please correct. ");
+	}
+    }
+
     private void debug(String s) {
 	if (DEBUG)
 	    System.out.println(this.getClass().getSimpleName() + " " + new Date() + " " + s);
@@ -26,10 +26,14 @@ import javax.json.stream.JsonGenerator;
 import javax.json.stream.JsonGeneratorFactory;
 import javax.servlet.http.HttpServletRequest;
 
+import org.kawanfw.sql.api.util.DatabaseDialect;
 import org.kawanfw.sql.jdbc.metadata.BooleanResponseDTO;
 import org.kawanfw.sql.jdbc.metadata.DatabaseMetaDataMethodCallDTO;
 import org.kawanfw.sql.metadata.util.GsonWsUtil;
+import org.kawanfw.sql.servlet.HttpParameter;
 import org.kawanfw.sql.servlet.ServerSqlManager;
+import org.kawanfw.sql.servlet.sql.DatabaseDialectStore;
+import org.kawanfw.sql.servlet.sql.ResultSetFormat;
 import org.kawanfw.sql.servlet.sql.ResultSetWriter;
 import org.kawanfw.sql.servlet.sql.json_return.JsonUtil;
 import org.kawanfw.sql.util.FrameworkDebug;
@@ -124,7 +128,7 @@ public class JdbcDatabaseMetaDataExecutor {
     }
 
     private void dumpResultSetOnServletOutStream(ResultSet rs) throws SQLException, IOException {
-	boolean doPrettyPrinting = true;
+	boolean doPrettyPrinting = ResultSetFormat.getFormat(request).isPrettyPrinting();
 	JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	JsonGenerator gen = jf.createGenerator(out);
@@ -168,18 +172,10 @@ public class JdbcDatabaseMetaDataExecutor {
 	Method main = null;
 	Object resultObj = null;
 
-	// Get the Driver Info
-	String database = "";
-	String productVersion = "";
-	String DriverName = "";
-	String DriverVersion = "";
-	String driverInfo = Tag.PRODUCT;
-
-	database = databaseMetaData.getDatabaseProductName();
-	productVersion = databaseMetaData.getDatabaseProductVersion();
-	DriverName = databaseMetaData.getDriverName();
-	DriverVersion = databaseMetaData.getDriverVersion();
-	driverInfo +=  " " + database + " " + productVersion + " " + DriverName + " " + DriverVersion;
+	// Get the Driver Info, read once per database
+	DatabaseDialect databaseDialect = DatabaseDialectStore.get(request.getParameter(HttpParameter.DATABASE),
+		connection);
+	String driverInfo = Tag.PRODUCT + " " + databaseDialect.getDriverInfo();
 
 	String methodParams = getMethodParams(methodParameterValues);
 
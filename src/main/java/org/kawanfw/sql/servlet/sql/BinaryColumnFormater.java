@@ -12,16 +12,17 @@
 package org.kawanfw.sql.servlet.sql;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -45,11 +46,16 @@ public class BinaryColumnFormater {
     private int columnType;
     private int columnIndex;
     private String columnName;
-    private Set<String> typeBigIntColumnNames;
 
     private String database;
     private String username;
 
+    /** The maximum length of a value sent inline, 0 if never inline */
+    private int inlineMaxLength;
+
+    /** The streamer of the values in the response, null if they are dumped */
+    private LobStreamer lobStreamer;
+
     /**
      * Constructor.
      * @param request
@@ -63,6 +69,7 @@ public class BinaryColumnFormater {
 	    String columnName) {
 	username = request.getParameter(HttpParameter.USERNAME);
 	database = request.getParameter(HttpParameter.DATABASE);
+	inlineMaxLength = LobInline.getMaxLength(request);
 
 	this.resultSet = resultSet;
 	this.productName = productName;
@@ -71,6 +78,15 @@ public class BinaryColumnFormater {
 	this.columnName = columnName;
     }
 
+    /**
+     * Sets the streamer to use instead of the dump files.
+     *
+     * @param lobStreamer the LOB streamer of the response, or null
+     */
+    public void setLobStreamer(LobStreamer lobStreamer) {
+	this.lobStreamer = lobStreamer;
+    }
+
     /**
      * return true if the column is a binary type
      * @return true if it's a binary type
@@ -86,14 +102,9 @@ public class BinaryColumnFormater {
 
 	    // Special treatment for PostgreSQL OID which Java long/BIGINT type
 	    if (isPostgreSQL() && columnType == Types.BIGINT) {
-		if (typeBigIntColumnNames == null) {
-		    Connection connection = resultSet.getStatement().getConnection();
-		    typeBigIntColumnNames = PostgreSqlUtil.getTypeBigIntColumnNames(connection);
-		}
-
-		if (typeBigIntColumnNames.contains(columnName.trim().toLowerCase())) {
-		    return true;
-		}
+		Connection connection = resultSet.getStatement().getConnection();
+		return PostgreSqlOidColumnCache.isOidColumn(database, connection, resultSet.getMetaData(),
+			columnIndex, columnName);
 	    }
 
 	    return false;
@@ -123,6 +134,26 @@ public class BinaryColumnFormater {
 	    in = resultSet.getBinaryStream(columnIndex);
 	}
 
+	if (inlineMaxLength > 0) {
+	    if (in == null) {
+		return ResultSetWriter.NULL;
+	    }
+
+	    // One more byte to know if the value is longer than the max
+	    byte[] head = LobInline.readHead(in, inlineMaxLength);
+	    if (head.length <= inlineMaxLength) {
+		closeQuietly(in);
+		return LobInline.formatBlob(head, head.length);
+	    }
+
+	    // Too long: dump the already read head, then the remaining bytes
+	    in = new SequenceInputStream(new ByteArrayInputStream(head), in);
+	}
+
+	if (lobStreamer != null) {
+	    return in == null ? ResultSetWriter.NULL : lobStreamer.writeBlob(in);
+	}
+
 	String hostFileName = null;
 
 	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators().get(database);
@@ -142,13 +173,7 @@ public class BinaryColumnFormater {
 	} catch (IOException e) {
 	    throw new SQLException(e);
 	} finally {
-	    if (in != null) {
-		try {
-		    in.close();
-		} catch (Exception e) {
-		    // e.printStackTrace();
-		}
-	    }
+	    closeQuietly(in);
 	}
 
 	// The column value is a file name with a tag for identification
@@ -157,6 +182,16 @@ public class BinaryColumnFormater {
 	return columnValueStr;
     }
 
+    private static void closeQuietly(InputStream in) {
+	if (in != null) {
+	    try {
+		in.close();
+	    } catch (Exception e) {
+		// e.printStackTrace();
+	    }
+	}
+    }
+
     private boolean isTerradata() {
 	return productName.equals(SqlUtil.TERADATA) ? true : false;
     }
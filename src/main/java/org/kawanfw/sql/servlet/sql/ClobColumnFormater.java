@@ -16,6 +16,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.Writer;
 import java.sql.ResultSet;
@@ -47,13 +48,29 @@ public class ClobColumnFormater {
     private String username;
     private String database;
 
+    /** The maximum length of a value sent inline, 0 if never inline */
+    private int inlineMaxLength;
+
+    /** The streamer of the values in the response, null if they are dumped */
+    private LobStreamer lobStreamer;
+
     public ClobColumnFormater(HttpServletRequest request, ResultSet resultSet, int columnIndex) {
 	username = request.getParameter(HttpParameter.USERNAME);
 	database = request.getParameter(HttpParameter.DATABASE);
+	inlineMaxLength = LobInline.getMaxLength(request);
 	this.resultSet = resultSet;
 	this.columnIndex = columnIndex;
     }
 
+    /**
+     * Sets the streamer to use instead of the dump files.
+     *
+     * @param lobStreamer the LOB streamer of the response, or null
+     */
+    public void setLobStreamer(LobStreamer lobStreamer) {
+	this.lobStreamer = lobStreamer;
+    }
+
     /**
      * the CLOB content is dumped in a server file that will be available for the
      * client the name of the file will be stored in the output stream ;
@@ -70,6 +87,30 @@ public class ClobColumnFormater {
 	// Maybe null, we want to keep the info
 	Reader reader = resultSet.getCharacterStream(columnIndex);
 
+	if (inlineMaxLength > 0) {
+	    if (reader == null) {
+		return ResultSetWriter.NULL;
+	    }
+
+	    // One more char to know if the value is longer than the max
+	    char[] head = LobInline.readHead(reader, inlineMaxLength);
+	    int headLength = head.length;
+	    if (headLength <= inlineMaxLength) {
+		reader.close();
+		String text = new String(head);
+		return LobInline.formatClob(HTML_ENCONDING_ON ? HtmlConverter.fromHtml(text) : text);
+	    }
+
+	    // Too long: dump the already read head, then the remaining chars
+	    PushbackReader pushbackReader = new PushbackReader(reader, headLength);
+	    pushbackReader.unread(head, 0, headLength);
+	    reader = pushbackReader;
+	}
+
+	if (lobStreamer != null) {
+	    return reader == null ? ResultSetWriter.NULL : lobStreamer.writeClob(reader, HTML_ENCONDING_ON);
+	}
+
 	DatabaseConfigurator databaseConfigurator = InjectedClassesStore.get().getDatabaseConfigurators().get(database);
 	String hostFileName = databaseConfigurator.getBlobsDirectory(username) + File.separator + fileName;
 
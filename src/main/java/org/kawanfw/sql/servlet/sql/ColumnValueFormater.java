@@ -0,0 +1,176 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Formats the value of a ResultSet column for transport to client side,
+ * whatever the result set format in use. <br>
+ * Binary and Clob columns are dumped on server and replaced by their id.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ColumnValueFormater {
+
+    private HttpServletRequest request;
+    private ResultSet resultSet;
+    private String productName;
+    private String sqlOrder;
+
+    /** The raw value of the last formatted column, if read with getObject() */
+    private Object columnValue = null;
+
+    /** Says for each column if it's a binary column, computed on first use */
+    private Boolean[] binaryColumns;
+
+    /** The BinaryColumnFormater of each column, created on first use */
+    private BinaryColumnFormater[] binaryColumnFormaters;
+
+    /** The streamer of the LOB values in the response, null if they are dumped */
+    private LobStreamer lobStreamer;
+
+    /**
+     * Constructor.
+     *
+     * @param request     the http request
+     * @param resultSet   the ResultSet to read
+     * @param productName the database product name
+     * @param sqlOrder    the sql order
+     */
+    public ColumnValueFormater(HttpServletRequest request, ResultSet resultSet, String productName,
+	    String sqlOrder) {
+	this.request = request;
+	this.resultSet = resultSet;
+	this.productName = productName;
+	this.sqlOrder = sqlOrder;
+    }
+
+    /**
+     * Sets the streamer of the LOB values in the response. If not set, the LOB
+     * values are dumped on server and replaced by their id.
+     *
+     * @param lobStreamer the LOB streamer of the response, or null
+     */
+    public void setLobStreamer(LobStreamer lobStreamer) {
+	this.lobStreamer = lobStreamer;
+    }
+
+    /**
+     * Formats the column value of the current row.
+     *
+     * @param columnIndex    the column index
+     * @param columnType     the column SQL type
+     * @param columnTypeName the column type name
+     * @param columnName     the column name
+     * @return the column value formatted for transport
+     * @throws SQLException
+     * @throws IOException
+     */
+    public String format(int columnIndex, int columnType, String columnTypeName, String columnName)
+	    throws SQLException, IOException {
+
+	columnValue = null;
+	String columnValueStr = null;
+
+	if (isBinaryColumn(columnIndex, columnType, columnName)) {
+	    columnValueStr = binaryColumnFormaters[columnIndex - 1].formatAndReturnId();
+	} else if (ResultSetWriterUtil.isNStringColumn(columnType)) {
+	    columnValue = resultSet.getNString(columnIndex);
+	    columnValueStr = ResultSetWriterUtil.treatNullValue(resultSet, columnValue);
+	} else if (isClobColumn(columnType)) {
+	    ClobColumnFormater clobColumnFormater = new ClobColumnFormater(request, resultSet, columnIndex);
+	    clobColumnFormater.setLobStreamer(lobStreamer);
+	    columnValueStr = clobColumnFormater.formatAndReturnId();
+	} else if (columnType == Types.ARRAY) {
+	    columnValueStr = ResultSetWriterUtil.formatArrayColumn(resultSet, columnIndex);
+	} else if (ResultSetWriterUtil.isDateTime(columnType)) {
+	    columnValueStr = ResultSetWriterUtil.formatDateTimeColumn(resultSet, columnType, columnIndex);
+	} else if (columnType == Types.ROWID) {
+	    columnValueStr = ResultSetWriterUtil.formatRowIdColumn(request, resultSet, columnIndex);
+	} else {
+	    try {
+		columnValue = resultSet.getObject(columnIndex);
+	    } catch (Exception e) {
+		throw new SQLException(columnType + "Type/TypeName/ColName " + columnTypeName + " " + columnName, e);
+	    }
+	    columnValueStr = ResultSetWriterUtil.treatNullValue(resultSet, columnValue);
+	}
+
+	return columnValueStr;
+    }
+
+    /**
+     * Says if a column is a binary column whose content must be dumped on server.
+     * The answer is computed once per column, so that the ResultSet rows loop
+     * does not create a BinaryColumnFormater per cell.
+     *
+     * @param columnIndex the column index
+     * @param columnType  the column SQL type
+     * @param columnName  the column name
+     * @return true if the column is a binary column
+     * @throws SQLException
+     * @throws IOException
+     */
+    public boolean isBinaryColumn(int columnIndex, int columnType, String columnName)
+	    throws SQLException, IOException {
+	if (binaryColumns == null) {
+	    int columnCount = resultSet.getMetaData().getColumnCount();
+	    binaryColumns = new Boolean[columnCount];
+	    binaryColumnFormaters = new BinaryColumnFormater[columnCount];
+	}
+
+	int i = columnIndex - 1;
+	if (binaryColumns[i] == null) {
+	    BinaryColumnFormater binaryColumnFormater = new BinaryColumnFormater(request, resultSet, productName,
+		    columnType, columnIndex, columnName);
+	    binaryColumnFormater.setLobStreamer(lobStreamer);
+	    binaryColumns[i] = binaryColumnFormater.isBinaryColumn();
+	    binaryColumnFormaters[i] = binaryColumnFormater;
+	}
+	return binaryColumns[i];
+    }
+
+    /**
+     * Returns the raw value of the last formatted column. Is null if the column
+     * was not read with getObject() or getNString().
+     *
+     * @return the raw value of the last formatted column
+     */
+    public Object getColumnValue() {
+	return columnValue;
+    }
+
+    /**
+     * return true if the column is a Types.CLOB || Types.NCLOB
+     *
+     * @param columnType the sql column type
+     * @return true if it's (N)CLOB
+     */
+    private boolean isClobColumn(int columnType) {
+
+	// 18/11/11 23:20 NDP : ResultSetWriter: no file dump for
+	// ResultSetMetaData queries
+	if (sqlOrder.equals("ResultSetMetaData")) {
+	    return false;
+	}
+
+	return columnType == Types.CLOB || columnType == Types.LONGVARCHAR || columnType == Types.NCLOB;
+    }
+
+}
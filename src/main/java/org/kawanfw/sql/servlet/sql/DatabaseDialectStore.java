@@ -0,0 +1,76 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.kawanfw.sql.api.util.DatabaseDialect;
+
+/**
+ * Stores the {@link DatabaseDialect} of each database. <br>
+ * <br>
+ * The dialect is set when the Tomcat JDBC pool is created and tested, or
+ * resolved on first request for databases whose connections are provided by
+ * a user {@code DatabaseConfigurator}. Hot path callers thus never do a
+ * {@code DatabaseMetaData} round trip.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class DatabaseDialectStore {
+
+    /** database ==> dialect */
+    private static Map<String, DatabaseDialect> dialectMap = new ConcurrentHashMap<>();
+
+    protected DatabaseDialectStore() {
+
+    }
+
+    /**
+     * Stores the dialect of a database.
+     *
+     * @param database        the database name
+     * @param databaseDialect the dialect of the database
+     */
+    public static void set(String database, DatabaseDialect databaseDialect) {
+	Objects.requireNonNull(database, "database cannot be null!");
+	Objects.requireNonNull(databaseDialect, "databaseDialect cannot be null!");
+	dialectMap.put(database, databaseDialect);
+    }
+
+    /**
+     * Returns the dialect of a database, resolved with the passed Connection if
+     * not already stored.
+     *
+     * @param database   the database name, may be null if unknown
+     * @param connection the JDBC Connection of the database
+     * @return the dialect of the database
+     * @throws SQLException if a database access error occurs
+     */
+    public static DatabaseDialect get(String database, Connection connection) throws SQLException {
+	if (database == null) {
+	    return new DatabaseDialect(connection);
+	}
+
+	DatabaseDialect databaseDialect = dialectMap.get(database);
+	if (databaseDialect == null) {
+	    databaseDialect = new DatabaseDialect(connection);
+	    dialectMap.putIfAbsent(database, databaseDialect);
+	}
+	return databaseDialect;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.sql.servlet.HttpParameter;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+
+/**
+ * Inline transport of small BLOB/CLOB values in the result set rows. <br>
+ * <br>
+ * Clients opt in by passing the {@code lob_inline_max_length} parameter. A LOB
+ * whose length is less or equal to this value, capped by the
+ * {@code maxLobInlineLength} property, is sent in the row with a prefix instead
+ * of a blob id: the client does not need a {@code blob_download} call. Larger
+ * LOBs are streamed in the response if the client asked for it with
+ * {@code lob_stream} (see {@link LobStreamer}), otherwise they are dumped on
+ * server and replaced by their blob id as before.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class LobInline {
+
+    /** Prefix of an inline BLOB value, followed by the Base64 content */
+    public static final String BLOB_PREFIX = "inline_blob_base64:";
+
+    /** Prefix of an inline CLOB value, followed by the text content */
+    public static final String CLOB_PREFIX = "inline_clob:";
+
+    /** The read buffer size, so that a small LOB does not allocate the max */
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    protected LobInline() {
+
+    }
+
+    /**
+     * Returns the maximum length of a LOB sent inline for this request.
+     *
+     * @param request the http request
+     * @return the maximum length in bytes for BLOB and in chars for CLOB, 0 if
+     *         LOBs must not be sent inline
+     */
+    public static int getMaxLength(HttpServletRequest request) {
+	String maxLengthStr = request.getParameter(HttpParameter.LOB_INLINE_MAX_LENGTH);
+	if (maxLengthStr == null || !StringUtils.isNumeric(maxLengthStr)) {
+	    return 0;
+	}
+
+	try {
+	    return Math.min(Integer.parseInt(maxLengthStr), ConfPropertiesStore.get().getMaxLobInlineLength());
+	} catch (NumberFormatException e) {
+	    return 0; // Greater than Integer.MAX_VALUE
+	}
+    }
+
+    /**
+     * Reads the head of a BLOB stream, up to one byte more than the maximum
+     * length so that the caller knows if the value is longer. The buffer grows
+     * with the bytes read: a small value does not allocate the maximum length.
+     *
+     * @param in        the BLOB stream
+     * @param maxLength the maximum length of an inline value
+     * @return the bytes read, at most {@code maxLength + 1}
+     * @throws IOException
+     */
+    public static byte[] readHead(InputStream in, int maxLength) throws IOException {
+	long limit = (long) maxLength + 1;
+	ByteArrayOutputStream head = new ByteArrayOutputStream((int) Math.min(limit, READ_BUFFER_SIZE));
+	byte[] buffer = new byte[(int) Math.min(limit, READ_BUFFER_SIZE)];
+
+	long remaining = limit;
+	int n;
+	while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(remaining, buffer.length))) != -1) {
+	    head.write(buffer, 0, n);
+	    remaining -= n;
+	}
+	return head.toByteArray();
+    }
+
+    /**
+     * Reads the head of a CLOB reader, up to one char more than the maximum
+     * length so that the caller knows if the value is longer. The buffer grows
+     * with the chars read: a small value does not allocate the maximum length.
+     *
+     * @param reader    the CLOB reader
+     * @param maxLength the maximum length of an inline value
+     * @return the chars read, at most {@code maxLength + 1}
+     * @throws IOException
+     */
+    public static char[] readHead(Reader reader, int maxLength) throws IOException {
+	long limit = (long) maxLength + 1;
+	CharArrayWriter head = new CharArrayWriter((int) Math.min(limit, READ_BUFFER_SIZE));
+	char[] buffer = new char[(int) Math.min(limit, READ_BUFFER_SIZE)];
+
+	long remaining = limit;
+	int n;
+	while (remaining > 0 && (n = reader.read(buffer, 0, (int) Math.min(remaining, buffer.length))) != -1) {
+	    head.write(buffer, 0, n);
+	    remaining -= n;
+	}
+	return head.toCharArray();
+    }
+
+    /**
+     * Formats a BLOB value for inline transport.
+     *
+     * @param bytes  the buffer containing the value
+     * @param length the value length in the buffer
+     * @return the inline value
+     */
+    public static String formatBlob(byte[] bytes, int length) {
+	byte[] value = length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+	return BLOB_PREFIX + Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * Formats a CLOB value for inline transport.
+     *
+     * @param text the value
+     * @return the inline value
+     */
+    public static String formatClob(String text) {
+	return CLOB_PREFIX + text;
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import javax.json.stream.JsonGenerator;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.io.IOUtils;
+import org.kawanfw.sql.servlet.HttpParameter;
+import org.kawanfw.sql.util.HtmlConverter;
+
+/**
+ * Streams the large BLOB/CLOB values of a result set in the same response as
+ * the rows, without server side dump files. <br>
+ * <br>
+ * Clients opt in by passing the {@code lob_stream=true} parameter. The
+ * response is then a {@code multipart/mixed} body:
+ * <ul>
+ * <li>The Json result set is split in {@code application/json} parts. Their
+ * concatenation is the usual Json response.</li>
+ * <li>Each LOB is sent in its own part, with a {@code Content-ID} header that
+ * is its number in the response, starting at 1. BLOB parts are
+ * {@code application/octet-stream}, CLOB parts are UTF-8
+ * {@code text/plain}.</li>
+ * <li>The column value of a streamed LOB is {@code stream_part:<Content-ID>}.
+ * The LOB part is always sent before the row that references it.</li>
+ * <li>If the request fails after the response start, a last
+ * {@code application/json} part with a {@code Content-Description: error}
+ * header contains the error.</li>
+ * </ul>
+ * The bytes are copied from the JDBC stream to the response: a LOB is never
+ * held in memory nor dumped on disk. Small LOBs may still be sent inline with
+ * {@code lob_inline_max_length}. The LOBs of the result sets that are not
+ * written by {@link ServerStatement}, or written in the binary format, are
+ * still dumped and downloaded with {@code blob_download}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class LobStreamer {
+
+    /** Prefix of a streamed LOB value, followed by the Content-ID of its part */
+    public static final String PART_PREFIX = "stream_part:";
+
+    private static final String CRLF = "\r\n";
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    /** The line separator of the CLOB content, as in the dumped CLOB files */
+    private static final String CLOB_LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final OutputStream out;
+    private final JsonGenerator gen;
+    private final String boundary;
+
+    /** The Content-ID of the last LOB part */
+    private int partCount = 0;
+
+    private boolean started = false;
+    private boolean ended = false;
+
+    /**
+     * Constructor.
+     *
+     * @param out the response output stream, also used by the Json generator
+     * @param gen the Json generator of the result set
+     */
+    public LobStreamer(OutputStream out, JsonGenerator gen) {
+	this.out = out;
+	this.gen = gen;
+	this.boundary = "aceql-" + UUID.randomUUID().toString();
+    }
+
+    /**
+     * Says if the client asked for the streaming of the LOB values.
+     *
+     * @param request the http request
+     * @return true if the LOB values must be streamed in the response
+     */
+    public static boolean isRequested(HttpServletRequest request) {
+	return Boolean.parseBoolean(request.getParameter(HttpParameter.LOB_STREAM))
+		&& ResultSetFormat.getFormat(request) != ResultSetFormat.binary;
+    }
+
+    /**
+     * Returns the content type of the response.
+     *
+     * @return the {@code multipart/mixed} content type, with the boundary
+     */
+    public String getContentType() {
+	return "multipart/mixed; boundary=" + boundary;
+    }
+
+    /**
+     * Starts the response with the first Json part. Must be called before any
+     * write of the Json generator.
+     *
+     * @throws IOException
+     */
+    public void writeStart() throws IOException {
+	writeAscii("--" + boundary + CRLF);
+	writePartHeaders(JSON_CONTENT_TYPE, null, null);
+	started = true;
+    }
+
+    /**
+     * Streams a BLOB value in its own part and returns its column value.
+     *
+     * @param in the BLOB stream, closed by this method
+     * @return the column value that references the part
+     * @throws IOException
+     */
+    public String writeBlob(InputStream in) throws IOException {
+	try {
+	    String partId = startLobPart("application/octet-stream");
+	    IOUtils.copy(in, out);
+	    startJsonPart();
+	    return PART_PREFIX + partId;
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Streams a CLOB value in its own part and returns its column value. The
+     * lines are html decoded if required, as in the dumped CLOB files.
+     *
+     * @param reader       the CLOB reader, closed by this method
+     * @param htmlDecoding if true, each line is html decoded
+     * @return the column value that references the part
+     * @throws IOException
+     */
+    public String writeClob(Reader reader, boolean htmlDecoding) throws IOException {
+	try (BufferedReader br = new BufferedReader(reader)) {
+	    String partId = startLobPart("text/plain; charset=UTF-8");
+
+	    // Not closed: the response stream stays open for the next parts
+	    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	    String line = null;
+	    while ((line = br.readLine()) != null) {
+		writer.write(htmlDecoding ? HtmlConverter.fromHtml(line) : line);
+		writer.write(CLOB_LINE_SEPARATOR);
+	    }
+	    writer.flush();
+
+	    startJsonPart();
+	    return PART_PREFIX + partId;
+	}
+    }
+
+    /**
+     * Ends the response with the closing boundary. Must be called after the last
+     * write of the Json generator.
+     *
+     * @throws IOException
+     */
+    public void writeEnd() throws IOException {
+	gen.flush();
+	writeAscii(CRLF + "--" + boundary + "--" + CRLF);
+	ended = true;
+    }
+
+    /**
+     * Ends the response with an error part, if the response was started and not
+     * ended.
+     *
+     * @param jsonError the Json error to send
+     * @return true if the error was written in an error part, false if the
+     *         response is not multipart yet or already ended
+     * @throws IOException
+     */
+    public boolean writeError(String jsonError) throws IOException {
+	if (!started || ended) {
+	    return false;
+	}
+
+	try {
+	    gen.flush();
+	} catch (Exception e) {
+	    // The generator may be in error: the part is closed anyway
+	}
+
+	writeAscii(CRLF + "--" + boundary + CRLF);
+	writePartHeaders(JSON_CONTENT_TYPE, null, "error");
+	out.write(jsonError.getBytes(StandardCharsets.UTF_8));
+	writeAscii(CRLF + "--" + boundary + "--" + CRLF);
+	ended = true;
+	return true;
+    }
+
+    private String startLobPart(String contentType) throws IOException {
+	// The Json written so far must be in the current part
+	gen.flush();
+
+	String partId = Integer.toString(++partCount);
+	writeAscii(CRLF + "--" + boundary + CRLF);
+	writePartHeaders(contentType, partId, null);
+	return partId;
+    }
+
+    private void startJsonPart() throws IOException {
+	writeAscii(CRLF + "--" + boundary + CRLF);
+	writePartHeaders(JSON_CONTENT_TYPE, null, null);
+    }
+
+    private void writePartHeaders(String contentType, String contentId, String contentDescription)
+	    throws IOException {
+	StringBuilder headers = new StringBuilder();
+	headers.append("Content-Type: ").append(contentType).append(CRLF);
+	if (contentId != null) {
+	    headers.append("Content-ID: ").append(contentId).append(CRLF);
+	}
+	if (contentDescription != null) {
+	    headers.append("Content-Description: ").append(contentDescription).append(CRLF);
+	}
+	headers.append(CRLF);
+	writeAscii(headers.toString());
+    }
+
+    private void writeAscii(String s) throws IOException {
+	out.write(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+}
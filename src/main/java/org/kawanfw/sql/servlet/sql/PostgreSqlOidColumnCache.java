@@ -0,0 +1,188 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.kawanfw.sql.util.FrameworkDebug;
+import org.postgresql.PGResultSetMetaData;
+
+/**
+ * Cache of the PostgreSQL BIGINT columns that may store Large Objects OID,
+ * shared by all requests of a database. <br>
+ * <br>
+ * A result set column is resolved against its actual base table, and the
+ * catalogue of a table is scanned once with DatabaseMetaData.getColumns(): only
+ * its columns of the {@code oid} type are Large Objects.
+ * Table entries expire after {@link #TTL_MILLIS} and all entries of a database
+ * are invalidated when a DDL statement is executed on it.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class PostgreSqlOidColumnCache {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(PostgreSqlOidColumnCache.class);
+
+    /** The time to live of a table entry, in milliseconds */
+    public static final long TTL_MILLIS = 5 * 60 * 1000;
+
+    /** Key used when base table is unknown: legacy scan of "public" schema */
+    private static final String ALL_PUBLIC_COLUMNS = "*";
+
+    /** The TYPE_NAME of the columns that store Large Objects */
+    private static final String OID_TYPE_NAME = "oid";
+
+    private static final Pattern DDL_PATTERN = Pattern.compile("^\\s*(create|alter|drop|rename)\\b",
+	    Pattern.CASE_INSENSITIVE);
+
+    /** database + "/" + schema.table ==> oid column names */
+    private static Map<String, TableColumns> tableColumnsMap = new ConcurrentHashMap<>();
+
+    protected PostgreSqlOidColumnCache() {
+
+    }
+
+    /**
+     * Says if a BIGINT column of a PostgreSQL result set may contain a Large
+     * Object OID.
+     *
+     * @param database    the database name
+     * @param connection  the JDBC Connection
+     * @param meta        the ResultSetMetaData of the result set
+     * @param columnIndex the column index
+     * @param columnName  the column name, as seen by the client
+     * @return true if the column is an oid column of its base table, or a
+     *         BIGINT column of the "public" schema if the base table is unknown
+     * @throws SQLException
+     */
+    public static boolean isOidColumn(String database, Connection connection, ResultSetMetaData meta,
+	    int columnIndex, String columnName) throws SQLException {
+
+	String schema = null;
+	String table = null;
+	String baseColumnName = null;
+
+	if (meta instanceof PGResultSetMetaData) {
+	    PGResultSetMetaData pgResultSetMetaData = (PGResultSetMetaData) meta;
+	    schema = pgResultSetMetaData.getBaseSchemaName(columnIndex);
+	    table = pgResultSetMetaData.getBaseTableName(columnIndex);
+	    baseColumnName = pgResultSetMetaData.getBaseColumnName(columnIndex);
+	}
+
+	String key = null;
+	if (table == null || table.isEmpty() || baseColumnName == null || baseColumnName.isEmpty()) {
+	    // Expression or unknown table: check the names as before
+	    key = database + "/" + ALL_PUBLIC_COLUMNS;
+	    baseColumnName = columnName;
+	} else {
+	    key = database + "/" + schema + "." + table;
+	}
+
+	TableColumns tableColumns = tableColumnsMap.get(key);
+	if (tableColumns == null || tableColumns.isExpired()) {
+	    tableColumns = new TableColumns(loadOidColumnNames(connection, schema, table));
+	    tableColumnsMap.put(key, tableColumns);
+	    debug("loaded " + key + ": " + tableColumns.columnNames);
+	}
+
+	return tableColumns.columnNames.contains(baseColumnName.trim().toLowerCase());
+    }
+
+    /**
+     * Invalidates all the cached tables of a database if the SQL order is a DDL
+     * statement.
+     *
+     * @param database the database name
+     * @param sql      the executed SQL order
+     */
+    public static void invalidateIfDdl(String database, String sql) {
+	if (isDdl(sql)) {
+	    invalidate(database);
+	}
+    }
+
+    /**
+     * Says if a SQL order is a DDL statement that may change the catalogue.
+     *
+     * @param sql the SQL order
+     * @return true if the SQL order starts with CREATE, ALTER, DROP or RENAME
+     */
+    public static boolean isDdl(String sql) {
+	return sql != null && DDL_PATTERN.matcher(sql).find();
+    }
+
+    /**
+     * Invalidates all the cached tables of a database.
+     *
+     * @param database the database name
+     */
+    public static void invalidate(String database) {
+	String prefix = database + "/";
+	tableColumnsMap.keySet().removeIf(key -> key.startsWith(prefix));
+	debug("invalidated " + database);
+    }
+
+    private static Set<String> loadOidColumnNames(Connection connection, String schema, String table)
+	    throws SQLException {
+	if (table == null || table.isEmpty()) {
+	    return PostgreSqlUtil.getTypeBigIntColumnNames(connection);
+	}
+
+	DatabaseMetaData databaseMetaData = connection.getMetaData();
+	Set<String> columnNames = new TreeSet<String>();
+
+	try (ResultSet rs = databaseMetaData.getColumns(null, schema, table, null);) {
+	    while (rs.next()) {
+		// The driver reports oid as BIGINT, as plain int8 columns: use the type name
+		if (OID_TYPE_NAME.equalsIgnoreCase(rs.getString(6))) {
+		    columnNames.add(rs.getString(4).toLowerCase());
+		}
+	    }
+	}
+
+	return columnNames;
+    }
+
+    /**
+     * The Large Object column names of a table, with their load time.
+     */
+    private static class TableColumns {
+	private final Set<String> columnNames;
+	private final long loadTime = System.currentTimeMillis();
+
+	TableColumns(Set<String> columnNames) {
+	    this.columnNames = columnNames;
+	}
+
+	boolean isExpired() {
+	    return System.currentTimeMillis() - loadTime > TTL_MILLIS;
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + s);
+	}
+    }
+
+}
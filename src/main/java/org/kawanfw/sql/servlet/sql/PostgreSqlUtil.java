@@ -29,7 +29,7 @@ import java.util.Vector;
 
 import org.apache.commons.io.IOUtils;
 import org.kawanfw.sql.api.server.StatementAnalyzer;
-import org.kawanfw.sql.api.util.SqlUtil;
+import org.kawanfw.sql.api.util.DatabaseDialect.LobStrategy;
 import org.kawanfw.sql.util.FrameworkDebug;
 import org.postgresql.PGResultSetMetaData;
 import org.postgresql.largeobject.LargeObject;
@@ -69,6 +69,8 @@ public class PostgreSqlUtil {
      * Says if the database is PostgreSQL AND there is an OID column for large
      * file storage
      *
+     * @param database
+     *            the database name, may be null
      * @param connection
      *            the JDBC Connection
      * @param sql
@@ -76,11 +78,11 @@ public class PostgreSqlUtil {
      * @return true if the database is PostgreSQL AND there is a OID column for
      *         large file storage
      */
-    public static boolean isPostgreSqlStatementWithOID(Connection connection,
+    public static boolean isPostgreSqlStatementWithOID(String database, Connection connection,
 	    String sql) throws SQLException, IOException {
 
-	debug("before new SqlUtil(connection).isPostgreSQL()");
-	if (!new SqlUtil(connection).isPostgreSQL()) {
+	if (DatabaseDialectStore.get(database, connection)
+		.getLobStrategy() != LobStrategy.POSTGRESQL_LARGE_OBJECT) {
 	    return false;
 	}
 
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.sql.jdbc.metadata.ResultSetMetaDataHolder;
+import org.kawanfw.sql.metadata.util.GsonWsUtil;
+import org.kawanfw.sql.servlet.HttpParameter;
+import org.kawanfw.sql.servlet.jdbc.metadata.resultset.ResultSetMetaDataBuilder;
+import org.kawanfw.sql.util.FrameworkDebug;
+
+/**
+ * Writes a ResultSet in the binary columnar format, when the client asked
+ * {@code result_set_format=binary}. <br>
+ * <br>
+ * The stream starts with the 4 bytes {@code AQLB} and a version byte, followed
+ * by length prefixed frames: a frame type byte, the payload length as an int
+ * and the payload. All numbers are big endian. Strings are written as an int
+ * byte length followed by the UTF-8 bytes. <br>
+ * <br>
+ * Frames in order: <br>
+ * - {@code META_DATA} (optional): the ResultSetMetaData as a JSON string. <br>
+ * - {@code HEADER}: the column count, then for each column its name, its SQL
+ * type (int) and its vector type (byte). <br>
+ * - {@code BATCH} (0 to n): the row count of the batch, then for each column a
+ * validity bitmap (one bit per row, set if value is not null) followed by the
+ * values: ints, longs, doubles, or a string dictionary and one int dictionary
+ * index per row. Date/Time/Timestamp values are longs in milliseconds. <br>
+ * - {@code PARAMETERS} (optional): the callable statement OUT parameters as a
+ * JSON string. <br>
+ * - {@code END}: the total row count as a long.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResultSetBinaryWriter {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(ResultSetBinaryWriter.class);
+
+    /** The content type of the binary format responses */
+    public static final String CONTENT_TYPE = "application/octet-stream";
+
+    private static final byte[] MAGIC = { 'A', 'Q', 'L', 'B' };
+    private static final byte VERSION = 1;
+
+    public static final byte FRAME_HEADER = 1;
+    public static final byte FRAME_BATCH = 2;
+    public static final byte FRAME_PARAMETERS = 3;
+    public static final byte FRAME_END = 4;
+    public static final byte FRAME_META_DATA = 5;
+
+    public static final byte VECTOR_INT = 1;
+    public static final byte VECTOR_LONG = 2;
+    public static final byte VECTOR_DOUBLE = 3;
+    public static final byte VECTOR_STRING = 4;
+
+    /** The number of rows per BATCH frame */
+    public static final int BATCH_SIZE = 1024;
+
+    private HttpServletRequest request;
+    private String sqlOrder;
+    private DataOutputStream dataOut;
+    private boolean fillResultSetMetaData;
+
+    private long rowCount = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param request               the http request
+     * @param sqlOrder              the sql order
+     * @param out                   the output stream to write on
+     * @param fillResultSetMetaData if true, ResultSetMetaData are written in a
+     *                              META_DATA frame
+     */
+    public ResultSetBinaryWriter(HttpServletRequest request, String sqlOrder, OutputStream out,
+	    boolean fillResultSetMetaData) {
+	this.request = Objects.requireNonNull(request, "request cannot be null!");
+	this.sqlOrder = Objects.requireNonNull(sqlOrder, "sqlOrder cannot be null!");
+	this.dataOut = new DataOutputStream(Objects.requireNonNull(out, "out cannot be null!"));
+	this.fillResultSetMetaData = fillResultSetMetaData;
+    }
+
+    /**
+     * Writes the stream start, the header and all the rows of the ResultSet as
+     * BATCH frames. Each frame is flushed so that client may process rows as they
+     * arrive. The ResultSet is closed.
+     *
+     * @param resultSet the ResultSet to write
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void write(ResultSet resultSet) throws SQLException, IOException {
+	try {
+	    if (resultSet == null) {
+		throw new SQLException("resultSet is null!");
+	    }
+
+	    dataOut.write(MAGIC);
+	    dataOut.writeByte(VERSION);
+
+	    if (fillResultSetMetaData) {
+		ResultSetMetaDataBuilder resultSetMetaDataBuilder = new ResultSetMetaDataBuilder(resultSet);
+		ResultSetMetaDataHolder resultSetMetaDataHolder = resultSetMetaDataBuilder
+			.getResultSetMetaDataHolder();
+		writeStringFrame(FRAME_META_DATA, GsonWsUtil.getJSonString(resultSetMetaDataHolder));
+	    }
+
+	    String productName = ResultSetWriterUtil
+		    .getDatabaseProductName(request.getParameter(HttpParameter.DATABASE), resultSet);
+	    ColumnInfoCreator columnInfoCreator = new ColumnInfoCreator(resultSet, productName);
+	    List<Integer> columnTypeList = columnInfoCreator.getColumnTypeList();
+	    List<String> columnTypeNameList = columnInfoCreator.getColumnTypeNameList();
+	    List<String> columnNameList = columnInfoCreator.getColumnNameList();
+
+	    ColumnValueFormater columnValueFormater = new ColumnValueFormater(request, resultSet, productName,
+		    sqlOrder);
+
+	    int columnCount = columnTypeList.size();
+	    ColumnVector[] vectors = new ColumnVector[columnCount];
+	    for (int i = 0; i < columnCount; i++) {
+		int columnIndex = i + 1;
+		byte vectorType = getVectorType(columnValueFormater, columnTypeList.get(i), columnIndex,
+			columnTypeNameList.get(i), columnNameList.get(i));
+		vectors[i] = new ColumnVector(vectorType);
+	    }
+
+	    writeHeader(columnNameList, columnTypeList, vectors);
+
+	    int batchRowCount = 0;
+	    while (resultSet.next()) {
+		for (int i = 0; i < columnCount; i++) {
+		    readColumn(resultSet, columnValueFormater, vectors[i], batchRowCount, i + 1, columnTypeList.get(i),
+			    columnTypeNameList.get(i), columnNameList.get(i));
+		}
+
+		batchRowCount++;
+		rowCount++;
+
+		if (batchRowCount == BATCH_SIZE) {
+		    writeBatch(vectors, batchRowCount);
+		    batchRowCount = 0;
+		}
+	    }
+
+	    if (batchRowCount > 0) {
+		writeBatch(vectors, batchRowCount);
+	    }
+
+	    debug("rowCount: " + rowCount);
+
+	} finally {
+	    try {
+		if (resultSet != null) {
+		    resultSet.close();
+		}
+	    } catch (Exception e) {
+		e.printStackTrace();
+	    }
+	}
+    }
+
+    /**
+     * Writes the callable statement OUT parameters as a PARAMETERS frame.
+     *
+     * @param jsonString the OUT parameters formated in JSON
+     * @throws IOException
+     */
+    public void writeParameters(String jsonString) throws IOException {
+	writeStringFrame(FRAME_PARAMETERS, jsonString);
+    }
+
+    /**
+     * Writes the END frame with the total row count and flushes the stream.
+     *
+     * @throws IOException
+     */
+    public void writeEnd() throws IOException {
+	ByteArrayOutputStream payload = new ByteArrayOutputStream(8);
+	new DataOutputStream(payload).writeLong(rowCount);
+	writeFrame(FRAME_END, payload);
+    }
+
+    /**
+     * Returns the vector type to use for a column. Binary columns, including
+     * PostgreSQL OID columns, are always string vectors because their value is
+     * the id of the dumped file. Unsigned INTEGER columns are widened to long
+     * vectors and unsigned BIGINT columns are string vectors, as their values may
+     * not fit in the Java signed types.
+     */
+    private byte getVectorType(ColumnValueFormater columnValueFormater, int columnType, int columnIndex,
+	    String columnTypeName, String columnName) throws SQLException, IOException {
+	if (columnValueFormater.isBinaryColumn(columnIndex, columnType, columnName)) {
+	    return VECTOR_STRING;
+	}
+
+	boolean isUnsigned = columnTypeName != null && columnTypeName.toUpperCase().contains("UNSIGNED");
+
+	switch (columnType) {
+	case Types.TINYINT:
+	case Types.SMALLINT:
+	    return VECTOR_INT;
+	case Types.INTEGER:
+	    return isUnsigned ? VECTOR_LONG : VECTOR_INT;
+	case Types.BIGINT:
+	    return isUnsigned ? VECTOR_STRING : VECTOR_LONG;
+	case Types.DATE:
+	case Types.TIME:
+	case Types.TIMESTAMP:
+	    return VECTOR_LONG;
+	case Types.REAL:
+	case Types.FLOAT:
+	case Types.DOUBLE:
+	    return VECTOR_DOUBLE;
+	default:
+	    return VECTOR_STRING;
+	}
+    }
+
+    /**
+     * Reads the column value of the current row and stores it in the vector.
+     */
+    private void readColumn(ResultSet resultSet, ColumnValueFormater columnValueFormater, ColumnVector vector,
+	    int row, int columnIndex, int columnType, String columnTypeName, String columnName)
+	    throws SQLException, IOException {
+	switch (vector.vectorType) {
+	case VECTOR_INT:
+	    vector.ints[row] = resultSet.getInt(columnIndex);
+	    vector.valids[row] = !resultSet.wasNull();
+	    break;
+	case VECTOR_LONG:
+	    vector.longs[row] = getLong(resultSet, columnIndex, columnType);
+	    vector.valids[row] = !resultSet.wasNull();
+	    break;
+	case VECTOR_DOUBLE:
+	    vector.doubles[row] = resultSet.getDouble(columnIndex);
+	    vector.valids[row] = !resultSet.wasNull();
+	    break;
+	default:
+	    String value = columnValueFormater.format(columnIndex, columnType, columnTypeName, columnName);
+	    // "NULL" is the null value transport convention, as in JSON format
+	    boolean valid = value != null && !value.equals(ResultSetWriter.NULL);
+	    vector.strings[row] = valid ? value : null;
+	    vector.valids[row] = valid;
+	}
+    }
+
+    private static long getLong(ResultSet resultSet, int columnIndex, int columnType) throws SQLException {
+	if (columnType == Types.DATE) {
+	    Date date = resultSet.getDate(columnIndex);
+	    return date == null ? 0 : date.getTime();
+	} else if (columnType == Types.TIME) {
+	    Time time = resultSet.getTime(columnIndex);
+	    return time == null ? 0 : time.getTime();
+	} else if (columnType == Types.TIMESTAMP) {
+	    Timestamp timestamp = resultSet.getTimestamp(columnIndex);
+	    return timestamp == null ? 0 : timestamp.getTime();
+	} else {
+	    return resultSet.getLong(columnIndex);
+	}
+    }
+
+    private void writeHeader(List<String> columnNameList, List<Integer> columnTypeList, ColumnVector[] vectors)
+	    throws IOException {
+	ByteArrayOutputStream payload = new ByteArrayOutputStream();
+	DataOutputStream frameOut = new DataOutputStream(payload);
+	frameOut.writeInt(vectors.length);
+	for (int i = 0; i < vectors.length; i++) {
+	    writeString(frameOut, columnNameList.get(i));
+	    frameOut.writeInt(columnTypeList.get(i));
+	    frameOut.writeByte(vectors[i].vectorType);
+	}
+	writeFrame(FRAME_HEADER, payload);
+    }
+
+    private void writeBatch(ColumnVector[] vectors, int batchRowCount) throws IOException {
+	ByteArrayOutputStream payload = new ByteArrayOutputStream();
+	DataOutputStream frameOut = new DataOutputStream(payload);
+	frameOut.writeInt(batchRowCount);
+	for (ColumnVector vector : vectors) {
+	    vector.writeTo(frameOut, batchRowCount);
+	}
+	writeFrame(FRAME_BATCH, payload);
+    }
+
+    private void writeStringFrame(byte frameType, String value) throws IOException {
+	ByteArrayOutputStream payload = new ByteArrayOutputStream();
+	writeString(new DataOutputStream(payload), value);
+	writeFrame(frameType, payload);
+    }
+
+    private void writeFrame(byte frameType, ByteArrayOutputStream payload) throws IOException {
+	dataOut.writeByte(frameType);
+	dataOut.writeInt(payload.size());
+	payload.writeTo(dataOut);
+	dataOut.flush();
+    }
+
+    private static void writeString(DataOutputStream frameOut, String value) throws IOException {
+	byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+	frameOut.writeInt(bytes.length);
+	frameOut.write(bytes);
+    }
+
+    /**
+     * The values of one column for the current batch.
+     */
+    private static final class ColumnVector {
+	private final byte vectorType;
+	private final boolean[] valids = new boolean[BATCH_SIZE];
+	private int[] ints;
+	private long[] longs;
+	private double[] doubles;
+	private String[] strings;
+
+	ColumnVector(byte vectorType) {
+	    this.vectorType = vectorType;
+	    if (vectorType == VECTOR_INT) {
+		ints = new int[BATCH_SIZE];
+	    } else if (vectorType == VECTOR_LONG) {
+		longs = new long[BATCH_SIZE];
+	    } else if (vectorType == VECTOR_DOUBLE) {
+		doubles = new double[BATCH_SIZE];
+	    } else {
+		strings = new String[BATCH_SIZE];
+	    }
+	}
+
+	void writeTo(DataOutputStream frameOut, int batchRowCount) throws IOException {
+	    byte[] bitmap = new byte[(batchRowCount + 7) / 8];
+	    for (int row = 0; row < batchRowCount; row++) {
+		if (valids[row]) {
+		    bitmap[row >> 3] |= (byte) (1 << (row & 7));
+		}
+	    }
+	    frameOut.write(bitmap);
+
+	    if (vectorType == VECTOR_INT) {
+		for (int row = 0; row < batchRowCount; row++) {
+		    frameOut.writeInt(ints[row]);
+		}
+	    } else if (vectorType == VECTOR_LONG) {
+		for (int row = 0; row < batchRowCount; row++) {
+		    frameOut.writeLong(longs[row]);
+		}
+	    } else if (vectorType == VECTOR_DOUBLE) {
+		for (int row = 0; row < batchRowCount; row++) {
+		    frameOut.writeDouble(doubles[row]);
+		}
+	    } else {
+		writeDictionaryEncoded(frameOut, batchRowCount);
+	    }
+	}
+
+	private void writeDictionaryEncoded(DataOutputStream frameOut, int batchRowCount) throws IOException {
+	    Map<String, Integer> dictionary = new LinkedHashMap<>();
+	    int[] indexes = new int[batchRowCount];
+	    for (int row = 0; row < batchRowCount; row++) {
+		String value = strings[row];
+		if (value == null) {
+		    continue;
+		}
+		Integer index = dictionary.get(value);
+		if (index == null) {
+		    index = dictionary.size();
+		    dictionary.put(value, index);
+		}
+		indexes[row] = index;
+	    }
+
+	    frameOut.writeInt(dictionary.size());
+	    for (String value : dictionary.keySet()) {
+		writeString(frameOut, value);
+	    }
+	    for (int row = 0; row < batchRowCount; row++) {
+		frameOut.writeInt(indexes[row]);
+	    }
+	}
+    }
+
+    private void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new java.util.Date() + " " + s);
+	}
+    }
+
+}
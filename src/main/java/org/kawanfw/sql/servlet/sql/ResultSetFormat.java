@@ -0,0 +1,69 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.kawanfw.sql.servlet.HttpParameter;
+
+/**
+ * Enum of the result set formats that may be asked by the client with the
+ * {@code result_set_format} request parameter. <br>
+ * <br>
+ * - {@code standard}: pretty printed JSON, each row is a {@code "row_N"}
+ * array of one key objects (column name, column value). This is the default
+ * and the format expected by all existing SDKs. <br>
+ * - {@code compact}: non pretty printed JSON, column names are sent once in
+ * the {@code "column_names"} array and each row is a positional array of
+ * column values. <br>
+ * - {@code binary}: binary columnar format written by
+ * {@link ResultSetBinaryWriter}, with typed column batches in length prefixed
+ * frames.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public enum ResultSetFormat {
+    standard,
+    compact,
+    binary;
+
+    /**
+     * Returns the result set format asked by the client. Defaults to
+     * {@code standard} if the parameter is not set or unknown, so that older
+     * SDKs are never sent a format they can not parse.
+     *
+     * @param request the http request
+     * @return the result set format asked by the client
+     */
+    public static ResultSetFormat getFormat(HttpServletRequest request) {
+	String format = request.getParameter(HttpParameter.RESULT_SET_FORMAT);
+	if (format == null) {
+	    return standard;
+	}
+
+	try {
+	    return ResultSetFormat.valueOf(format.trim().toLowerCase());
+	} catch (IllegalArgumentException e) {
+	    return standard;
+	}
+    }
+
+    /**
+     * Says if the JSON response must be pretty printed for this format.
+     *
+     * @return true if the JSON response must be pretty printed
+     */
+    public boolean isPrettyPrinting() {
+	return this == standard;
+    }
+}
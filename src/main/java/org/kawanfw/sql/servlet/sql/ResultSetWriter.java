@@ -54,6 +54,15 @@ public class ResultSetWriter {
     private Boolean doColumnTypes = false;
     private JsonGenerator gen = null;
 
+    /** The result set format asked by the client */
+    private ResultSetFormat resultSetFormat = ResultSetFormat.standard;
+
+    /** If true, column values are written without column names */
+    private boolean compact = false;
+
+    /** The streamer of the LOB values in the response, null if they are dumped */
+    private LobStreamer lobStreamer = null;
+
 
     /**
      * @param request  the http request
@@ -71,11 +80,25 @@ public class ResultSetWriter {
 	String columnTypes = request.getParameter(HttpParameter.COLUMN_TYPES);
 	doColumnTypes = Boolean.parseBoolean(columnTypes);
 
+	resultSetFormat = ResultSetFormat.getFormat(request);
+	compact = resultSetFormat == ResultSetFormat.compact;
+	debug("resultSetFormat: " + resultSetFormat);
+
 	this.fillResultSetMetaData = fillResultSetMetaData;
 	debug("fillResultSetMetaData: " + fillResultSetMetaData);
 
     }
 
+    /**
+     * Sets the streamer of the LOB values in the response. If not set, the LOB
+     * values are dumped on server and replaced by their id.
+     *
+     * @param lobStreamer the LOB streamer of the response
+     */
+    public void setLobStreamer(LobStreamer lobStreamer) {
+	this.lobStreamer = lobStreamer;
+    }
+
     /**
      * Constructor for tests
      *
@@ -92,6 +115,10 @@ public class ResultSetWriter {
      *
      * Process the ResultSet and print it on the outPutStream <br>
      * - Each row is a line of a List of column values <br>
+     * - In compact format, column names are written once and each row is a
+     * positional array of column values <br>
+     * - A ColumnWriter is chosen once per column before the rows loop, so that
+     * primitive and String columns are written without per cell allocation <br>
      *
      * @param resultSet the Result Set to process and print on the output stream
      * @param br        the writer where to redirect the result set content, one
@@ -104,7 +131,8 @@ public class ResultSetWriter {
 		throw new SQLException("resultSet is null!");
 	    }
 
-	    String productName = ResultSetWriterUtil.getDatabaseProductName(resultSet);
+	    String productName = ResultSetWriterUtil
+		    .getDatabaseProductName(request.getParameter(HttpParameter.DATABASE), resultSet);
 
 	    ColumnInfoCreator columnInfoCreator = new ColumnInfoCreator(resultSet, productName);
 	    List<Integer> columnTypeList = columnInfoCreator.getColumnTypeList();
@@ -112,63 +140,45 @@ public class ResultSetWriter {
 	    List<String> columnNameList = columnInfoCreator.getColumnNameList();
 	    List<String> columnTableList = columnInfoCreator.getColumnTableList();
 
+	    ColumnValueFormater columnValueFormater = new ColumnValueFormater(request, resultSet, productName,
+		    sqlOrder);
+	    columnValueFormater.setLobStreamer(lobStreamer);
+
+	    ColumnWriter[] columnWriters = new ColumnWriter[columnTypeList.size()];
+	    for (int i = 0; i < columnWriters.length; i++) {
+		int columnIndex = i + 1;
+		if (DEBUG) {
+		    debugColumnInfo(columnIndex, columnTypeList.get(i), columnTypeNameList.get(i),
+			    columnNameList.get(i), columnTableList.get(i));
+		}
+		columnWriters[i] = createColumnWriter(columnValueFormater, columnIndex, columnTypeList.get(i),
+			columnTypeNameList.get(i), columnNameList.get(i));
+	    }
+
 	    writeResultSetMetaData(resultSet);
 	    writeColumnTypes(columnTypeList);
 
-	    gen.writeStartArray("query_rows").writeStartObject();
+	    if (compact) {
+		gen.write("result_set_format", resultSetFormat.toString());
+		writeColumnNames(columnNameList);
+		gen.writeStartArray("query_rows");
+	    } else {
+		gen.writeStartArray("query_rows").writeStartObject();
+	    }
 
 	    int row_count = 0;
 	    // Loop result Set
 	    while (resultSet.next()) {
 
 		row_count++;
-		gen.writeStartArray("row_" + row_count);
-
-		for (int i = 0; i < columnTypeList.size(); i++) {
-		    int columnIndex = i + 1;
-		    int columnType = columnTypeList.get(i);
-		    String columnTypeName = columnTypeNameList.get(i);
-		    String columnName = columnNameList.get(i);
-		    String columnTable = columnTableList.get(i);
-
-		    debugColumnInfo(columnIndex, columnType, columnTypeName, columnName, columnTable);
-
-		    Object columnValue = null;
-		    String columnValueStr = null;
-
-		    BinaryColumnFormater binaryColumnFormater = new BinaryColumnFormater(request, resultSet, productName, columnType, columnIndex, columnName);
-		    if (binaryColumnFormater.isBinaryColumn()) {
-			debug("isBinaryColumn: true");
-			columnValueStr = binaryColumnFormater.formatAndReturnId();
-			debug("isBinaryColumn:columnValueStr: " + columnValueStr);
-		    } else if (ResultSetWriterUtil.isNStringColumn(columnType)) {
-			columnValue = resultSet.getNString(columnIndex);
-			columnValueStr = ResultSetWriterUtil.treatNullValue(resultSet, columnValue);
-		    } else if (isClobColumn(columnType)) {
-			ClobColumnFormater clobColumnFormater = new ClobColumnFormater(request, resultSet, columnIndex);
-			columnValueStr = clobColumnFormater.formatAndReturnId();
-		    } else if (columnType == Types.ARRAY) {
-			columnValueStr = ResultSetWriterUtil.formatArrayColumn(resultSet, columnIndex);
-		    } else if (ResultSetWriterUtil.isDateTime(columnType)) {
-			columnValueStr = ResultSetWriterUtil.formatDateTimeColumn(resultSet, columnType, columnIndex);
-		    } else if (columnType == Types.ROWID) {
-			columnValueStr = ResultSetWriterUtil.formatRowIdColumn(request, resultSet, columnIndex);
-		    } else {
-			try {
-			    columnValue = resultSet.getObject(columnIndex);
-			    debug("columnValue: " + columnValue);
-
-			} catch (Exception e) {
-			    throw new SQLException(columnType + "Type/TypeName/ColName " + columnTypeNameList.get(i)
-				    + " " + columnName, e);
-			}
-			columnValueStr = ResultSetWriterUtil.treatNullValue(resultSet, columnValue);
-		    }
-
-		    debug("columnValueStr : " + columnValueStr);
-		    gen.writeStartObject();
-		    writeColumn(columnName, columnValue, columnValueStr);
-		    gen.writeEnd();
+		if (compact) {
+		    gen.writeStartArray();
+		} else {
+		    gen.writeStartArray("row_" + row_count);
+		}
+
+		for (ColumnWriter columnWriter : columnWriters) {
+		    columnWriter.write(resultSet);
 		}
 
 		gen.writeEnd(); // line_i
@@ -179,7 +189,9 @@ public class ResultSetWriter {
 		}
 	    }
 
-	    gen.writeEnd(); // .writeStartObject();
+	    if (!compact) {
+		gen.writeEnd(); // .writeStartObject();
+	    }
 	    gen.writeEnd(); // .writeStartArray("query_rows")
 
 	    gen.write("row_count", row_count);
@@ -214,31 +226,41 @@ public class ResultSetWriter {
     }
 
     /**
-     * @param columnName
-     * @param columnValue
-     * @param columnValueStr
-     * @throws NumberFormatException
+     * Creates the ColumnWriter to use for a column. <br>
+     * Typed writers produce exactly the same JSON as the generic writer: only
+     * non negative integers and BigDecimal are written as JSON numbers, all other
+     * values as JSON strings, and SQL NULL as "NULL".
+     *
+     * @param columnValueFormater the formater used by the generic writer
+     * @param columnIndex         the column index
+     * @param columnType          the column SQL type
+     * @param columnTypeName      the column type name
+     * @param columnName          the column name
+     * @return the ColumnWriter to use for the column
+     * @throws SQLException
+     * @throws IOException
      */
-    private void writeColumn(String columnName, Object columnValue, String columnValueStr)
-	    throws NumberFormatException {
-	if (StringUtils.isNumeric(columnValueStr)) {
-
-	if (columnValue instanceof Integer) {
-	    gen.write(columnName, Integer.parseInt(columnValueStr));
-	} else if (columnValue instanceof Double) {
-	    gen.write(columnName, Double.parseDouble(columnValueStr));
-	} else if (columnValue instanceof Float) {
-	    gen.write(columnName, Float.parseFloat(columnValueStr));
-	} else if (columnValue instanceof Long) {
-	    gen.write(columnName, Long.parseLong(columnValueStr));
-	} else if (columnValue instanceof BigDecimal) {
-	    gen.write(columnName, new BigDecimal(columnValueStr));
-	} else {
-	    gen.write(columnName, columnValueStr);
+    private ColumnWriter createColumnWriter(ColumnValueFormater columnValueFormater, int columnIndex,
+	    int columnType, String columnTypeName, String columnName) throws SQLException, IOException {
+
+	// PostgreSQL OID columns are BIGINT but must be dumped as Blobs
+	if (columnValueFormater.isBinaryColumn(columnIndex, columnType, columnName)) {
+	    return new GenericColumnWriter(columnIndex, columnType, columnTypeName, columnName, columnValueFormater);
 	}
 
+	// Unsigned types may not fit in the Java signed types
+	boolean isUnsigned = columnTypeName != null && columnTypeName.toUpperCase().contains("UNSIGNED");
+
+	if ((columnType == Types.INTEGER || columnType == Types.BIGINT) && !isUnsigned) {
+	    return new LongColumnWriter(columnIndex, columnName);
+	} else if (columnType == Types.DOUBLE && !isUnsigned) {
+	    return new DoubleColumnWriter(columnIndex, columnName);
+	} else if (columnType == Types.DECIMAL || columnType == Types.NUMERIC) {
+	    return new BigDecimalColumnWriter(columnIndex, columnName);
+	} else if (columnType == Types.CHAR || columnType == Types.VARCHAR) {
+	    return new StringColumnWriter(columnIndex, columnName);
 	} else {
-	gen.write(columnName, columnValueStr);
+	    return new GenericColumnWriter(columnIndex, columnType, columnTypeName, columnName, columnValueFormater);
 	}
     }
 
@@ -277,20 +299,193 @@ public class ResultSetWriter {
     }
 
     /**
-     * return true if the column is a Types.CLOB || Types.NCLOB
+     * Write once the column names. Used by compact format.
      *
-     * @param columnType the sql column type
-     * @return true if it's (N)CLOB
+     * @param columnNameList
+     */
+    private void writeColumnNames(List<String> columnNameList) {
+	gen.writeStartArray("column_names");
+	for (String columnName : columnNameList) {
+	    gen.write(columnName);
+	}
+	gen.writeEnd();
+    }
+
+    /**
+     * Writes the value of one column of the current row, with its column name
+     * in standard format and without in compact format.
+     */
+    private abstract class ColumnWriter {
+
+	protected final int columnIndex;
+	private final String columnName;
+
+	ColumnWriter(int columnIndex, String columnName) {
+	    this.columnIndex = columnIndex;
+	    this.columnName = columnName;
+	}
+
+	/**
+	 * Writes the column value of the current row.
+	 */
+	abstract void write(ResultSet resultSet) throws SQLException, IOException;
+
+	protected void writeValue(String value) {
+	    if (compact) {
+		gen.write(value);
+	    } else {
+		gen.writeStartObject();
+		gen.write(columnName, value);
+		gen.writeEnd();
+	    }
+	}
+
+	protected void writeValue(long value) {
+	    if (compact) {
+		gen.write(value);
+	    } else {
+		gen.writeStartObject();
+		gen.write(columnName, value);
+		gen.writeEnd();
+	    }
+	}
+
+	protected void writeValue(BigDecimal value) {
+	    if (compact) {
+		gen.write(value);
+	    } else {
+		gen.writeStartObject();
+		gen.write(columnName, value);
+		gen.writeEnd();
+	    }
+	}
+    }
+
+    /**
+     * INTEGER and BIGINT columns, read with getLong().
      */
-    private boolean isClobColumn(int columnType) {
+    private final class LongColumnWriter extends ColumnWriter {
 
-	// 18/11/11 23:20 NDP : ResultSetWriter: no file dump for
-	// ResultSetMetaData queries
-	if (sqlOrder.equals("ResultSetMetaData")) {
-	    return false;
+	LongColumnWriter(int columnIndex, String columnName) {
+	    super(columnIndex, columnName);
 	}
 
-	return columnType == Types.CLOB || columnType == Types.LONGVARCHAR || columnType == Types.NCLOB;
+	@Override
+	void write(ResultSet resultSet) throws SQLException {
+	    long value = resultSet.getLong(columnIndex);
+	    if (resultSet.wasNull()) {
+		writeValue(NULL);
+	    } else if (value >= 0) {
+		writeValue(value);
+	    } else {
+		// A negative value has never been written as a JSON number
+		writeValue(Long.toString(value));
+	    }
+	}
+    }
+
+    /**
+     * DOUBLE columns, read with getDouble(). Values are JSON strings.
+     */
+    private final class DoubleColumnWriter extends ColumnWriter {
+
+	DoubleColumnWriter(int columnIndex, String columnName) {
+	    super(columnIndex, columnName);
+	}
+
+	@Override
+	void write(ResultSet resultSet) throws SQLException {
+	    double value = resultSet.getDouble(columnIndex);
+	    if (resultSet.wasNull()) {
+		writeValue(NULL);
+	    } else {
+		writeValue(Double.toString(value));
+	    }
+	}
+    }
+
+    /**
+     * DECIMAL and NUMERIC columns, read with getBigDecimal().
+     */
+    private final class BigDecimalColumnWriter extends ColumnWriter {
+
+	BigDecimalColumnWriter(int columnIndex, String columnName) {
+	    super(columnIndex, columnName);
+	}
+
+	@Override
+	void write(ResultSet resultSet) throws SQLException {
+	    BigDecimal value = resultSet.getBigDecimal(columnIndex);
+	    if (value == null) {
+		writeValue(NULL);
+		return;
+	    }
+
+	    String valueStr = value.toString();
+	    if (StringUtils.isNumeric(valueStr)) {
+		writeValue(value);
+	    } else {
+		writeValue(valueStr);
+	    }
+	}
+    }
+
+    /**
+     * CHAR and VARCHAR columns, read with getString().
+     */
+    private final class StringColumnWriter extends ColumnWriter {
+
+	StringColumnWriter(int columnIndex, String columnName) {
+	    super(columnIndex, columnName);
+	}
+
+	@Override
+	void write(ResultSet resultSet) throws SQLException {
+	    String value = resultSet.getString(columnIndex);
+	    writeValue(value == null ? NULL : value);
+	}
+    }
+
+    /**
+     * All other columns: value is formated by the ColumnValueFormater.
+     */
+    private final class GenericColumnWriter extends ColumnWriter {
+
+	private final int columnType;
+	private final String columnTypeName;
+	private final String columnName;
+	private final ColumnValueFormater columnValueFormater;
+
+	GenericColumnWriter(int columnIndex, int columnType, String columnTypeName, String columnName,
+		ColumnValueFormater columnValueFormater) {
+	    super(columnIndex, columnName);
+	    this.columnType = columnType;
+	    this.columnTypeName = columnTypeName;
+	    this.columnName = columnName;
+	    this.columnValueFormater = columnValueFormater;
+	}
+
+	@Override
+	void write(ResultSet resultSet) throws SQLException, IOException {
+	    String columnValueStr = columnValueFormater.format(columnIndex, columnType, columnTypeName, columnName);
+	    Object columnValue = columnValueFormater.getColumnValue();
+
+	    if (DEBUG) {
+		debug("columnValueStr : " + columnValueStr);
+	    }
+
+	    if (StringUtils.isNumeric(columnValueStr)) {
+		if (columnValue instanceof Integer || columnValue instanceof Long) {
+		    writeValue(Long.parseLong(columnValueStr));
+		} else if (columnValue instanceof BigDecimal) {
+		    writeValue(new BigDecimal(columnValueStr));
+		} else {
+		    writeValue(columnValueStr);
+		}
+	    } else {
+		writeValue(columnValueStr);
+	    }
+	}
     }
 
     /**
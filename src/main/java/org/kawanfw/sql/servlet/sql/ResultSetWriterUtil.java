@@ -26,7 +26,6 @@ import java.sql.Types;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.kawanfw.sql.api.util.SqlUtil;
 import org.kawanfw.sql.jdbc.metadata.AceQLArray;
 import org.kawanfw.sql.metadata.util.GsonWsUtil;
 import org.kawanfw.sql.servlet.HttpParameter;
@@ -155,13 +154,14 @@ public class ResultSetWriterUtil {
     }
 
     /**
-     * Returns true if engine is terradata
+     * Returns the database product name, from the stored database dialect
      *
+     * @param database  the database name, may be null
      * @param resultSet the result set in use
-     * @returns true if engine is terradata
+     * @returns the database product name
      * @throws SQLException
      */
-    public static String getDatabaseProductName(ResultSet resultSet) throws SQLException {
+    public static String getDatabaseProductName(String database, ResultSet resultSet) throws SQLException {
 
 	Statement statement = resultSet.getStatement();
 
@@ -170,7 +170,7 @@ public class ResultSetWriterUtil {
 	    return "unknown";
 	} else {
 	    Connection connection = statement.getConnection();
-	    return new SqlUtil(connection).getDatabaseProductName();
+	    return DatabaseDialectStore.get(database, connection).getDatabaseProductName();
 	}
     }
 
@@ -44,6 +44,7 @@ import org.kawanfw.sql.api.util.firewall.SqlFirewallTriggerWrapper;
 import org.kawanfw.sql.servlet.HttpParameter;
 import org.kawanfw.sql.servlet.ServerSqlManager;
 import org.kawanfw.sql.servlet.connection.RollbackUtil;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.OperationalMode;
@@ -78,6 +79,9 @@ public class ServerStatement {
     private Set<SqlFirewallManager> sqlFirewallManagers;
     private Set<UpdateListener> updateListeners;
 
+    /** The streamer of the LOB values, if asked by the client */
+    private LobStreamer lobStreamer = null;
+
     /**
      * Default Constructor
      *
@@ -94,7 +98,8 @@ public class ServerStatement {
 	this.response = response;
 	this.sqlFirewallManagers = sqlFirewallManagers;
 	this.connection = connection;
-	doPrettyPrinting = true; // Always pretty printing
+	// Pretty printing, except if compact result set format is asked
+	doPrettyPrinting = ResultSetFormat.getFormat(request).isPrettyPrinting();
 
 	String database = request.getParameter(HttpParameter.DATABASE);
 	updateListeners = InjectedClassesStore.get().getUpdateListenerMap().get(database);
@@ -133,19 +138,19 @@ public class ServerStatement {
 
 	    JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_FORBIDDEN,
 		    JsonErrorReturn.ERROR_ACEQL_UNAUTHORIZED, e.getMessage());
-	    ServerSqlManager.writeLine(outFinal, errorReturn.build());
+	    writeErrorReturn(outFinal, errorReturn.build());
 	} catch (SQLException e) {
 	    RollbackUtil.rollback(connection);
 
 	    JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_BAD_REQUEST,
 		    JsonErrorReturn.ERROR_JDBC_ERROR, e.getMessage());
-	    ServerSqlManager.writeLine(outFinal, errorReturn.build());
+	    writeErrorReturn(outFinal, errorReturn.build());
 	} catch (Exception e) {
 	    RollbackUtil.rollback(connection);
 
 	    JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 		    JsonErrorReturn.ERROR_ACEQL_FAILURE, e.getMessage(), ExceptionUtils.getStackTrace(e));
-	    ServerSqlManager.writeLine(outFinal, errorReturn.build());
+	    writeErrorReturn(outFinal, errorReturn.build());
 	} finally {
 
 	    // IOUtils.closeQuietly(outFinal);
@@ -161,6 +166,38 @@ public class ServerStatement {
 	}
     }
 
+    /**
+     * Writes the error, in a last error part if the LOB values are streamed in a
+     * multipart response.
+     *
+     * @param out       the output stream
+     * @param jsonError the Json error
+     * @throws IOException
+     */
+    private void writeErrorReturn(OutputStream out, String jsonError) throws IOException {
+	if (lobStreamer != null && lobStreamer.writeError(jsonError)) {
+	    return;
+	}
+	ServerSqlManager.writeLine(out, jsonError);
+    }
+
+    /**
+     * Starts the multipart response if the client asked for the streaming of the
+     * LOB values. Must be called before any write of the Json generator.
+     *
+     * @param out the output stream
+     * @param gen the Json generator of the result set
+     * @throws IOException
+     */
+    private void startLobStreaming(OutputStream out, JsonGenerator gen) throws IOException {
+	if (!LobStreamer.isRequested(request)) {
+	    return;
+	}
+	lobStreamer = new LobStreamer(out, gen);
+	response.setContentType(lobStreamer.getContentType());
+	lobStreamer.writeStart();
+    }
+
     /**
      * Get the OutputStream to use. A regular one or a GZIP_RESULT one
      * 
@@ -215,7 +252,7 @@ public class ServerStatement {
 	    if (sqlOrder == null || sqlOrder.isEmpty()) {
 		throw new SQLException("A 'sql' statement is required.");
 	    }
-	    preparedStatement = connection.prepareStatement(sqlOrder);
+	    preparedStatement = StatementCacheStore.prepareStatement(connection, sqlOrder);
 
 	    debug("before ServerPreparedStatementParameters");
 
@@ -251,6 +288,10 @@ public class ServerStatement {
 	} catch (SQLException e) {
 	    RollbackUtil.rollback(connection);
 
+	    // Never put back in cache a statement whose execution failed
+	    StatementCacheStore.discard(connection, preparedStatement);
+	    preparedStatement = null;
+
 	    String message = StatementFailure.prepStatementFailureBuild(sqlOrder, e.toString(),
 		    serverPreparedStatementParameters.getParameterTypes(),
 		    serverPreparedStatementParameters.getParameterValues(), doPrettyPrinting);
@@ -263,9 +304,7 @@ public class ServerStatement {
 		serverPreparedStatementParameters.close();
 	    }
 
-	    if (preparedStatement != null) {
-		preparedStatement.close();
-	    }
+	    StatementCacheStore.release(connection, preparedStatement);
 
 	    // Clean all
 	    serverPreparedStatementParameters = null;
@@ -300,6 +339,7 @@ public class ServerStatement {
 	}
 
 	int rc = preparedStatement.executeUpdate();
+	PostgreSqlOidColumnCache.invalidateIfDdl(database, sqlOrder);
 
 	StringWriter sw = new StringWriter();
 	JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(JsonUtil.DEFAULT_PRETTY_PRINTING);
@@ -448,21 +488,31 @@ public class ServerStatement {
 
 	    rs = statement.executeQuery(sqlOrder);
 
+	    if (ResultSetFormat.getFormat(request) == ResultSetFormat.binary) {
+		dumpResultSetBinary(out, sqlOrder, rs);
+		return;
+	    }
+
 	    JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	    JsonGenerator gen = jf.createGenerator(out);
+	    startLobStreaming(out, gen);
 	    gen.writeStartObject().write("status", "OK");
 
 	    String fillResultSetMetaDataStr = request.getParameter(HttpParameter.FILL_RESULT_SET_META_DATA);
 	    boolean fillResultSetMetaData = Boolean.parseBoolean(fillResultSetMetaDataStr);
 
 	    ResultSetWriter resultSetWriter = new ResultSetWriter(request, sqlOrder, gen, fillResultSetMetaData);
+	    resultSetWriter.setLobStreamer(lobStreamer);
 	    resultSetWriter.write(rs);
 
 	    ServerSqlManager.writeLine(out);
 
 	    gen.writeEnd(); // .write("status", "OK")
 	    gen.flush();
+	    if (lobStreamer != null) {
+		lobStreamer.writeEnd();
+	    }
 	    gen.close();
 
 	} finally {
@@ -472,6 +522,28 @@ public class ServerStatement {
 	}
     }
 
+    /**
+     * Dumps the Result Set on the servlet stream in binary columnar format.
+     *
+     * @param out
+     * @param sqlOrder
+     * @param rs
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void dumpResultSetBinary(OutputStream out, String sqlOrder, ResultSet rs)
+	    throws SQLException, IOException {
+	response.setContentType(ResultSetBinaryWriter.CONTENT_TYPE);
+
+	String fillResultSetMetaDataStr = request.getParameter(HttpParameter.FILL_RESULT_SET_META_DATA);
+	boolean fillResultSetMetaData = Boolean.parseBoolean(fillResultSetMetaDataStr);
+
+	ResultSetBinaryWriter resultSetBinaryWriter = new ResultSetBinaryWriter(request, sqlOrder, out,
+		fillResultSetMetaData);
+	resultSetBinaryWriter.write(rs);
+	resultSetBinaryWriter.writeEnd();
+    }
+
     /**
      * @param out
      * @param username
@@ -494,21 +566,31 @@ public class ServerStatement {
 
 	    rs = preparedStatement.executeQuery();
 
+	    if (ResultSetFormat.getFormat(request) == ResultSetFormat.binary) {
+		dumpResultSetBinary(out, sqlOrder, rs);
+		return;
+	    }
+
 	    JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	    JsonGenerator gen = jf.createGenerator(out);
+	    startLobStreaming(out, gen);
 	    gen.writeStartObject().write("status", "OK");
 
 	    String fillResultSetMetaDataStr = request.getParameter(HttpParameter.FILL_RESULT_SET_META_DATA);
 	    boolean fillResultSetMetaData = Boolean.parseBoolean(fillResultSetMetaDataStr);
 
 	    ResultSetWriter resultSetWriter = new ResultSetWriter(request, sqlOrder, gen, fillResultSetMetaData);
+	    resultSetWriter.setLobStreamer(lobStreamer);
 	    resultSetWriter.write(rs);
 
 	    ServerSqlManager.writeLine(out);
 
 	    gen.writeEnd(); // .write("status", "OK")
 	    gen.flush();
+	    if (lobStreamer != null) {
+		lobStreamer.writeEnd();
+	    }
 	    gen.close();
 
 	} finally {
@@ -536,6 +618,7 @@ public class ServerStatement {
 	int rc = -1;
 
 	rc = statement.executeUpdate(sqlOrder);
+	PostgreSqlOidColumnCache.invalidateIfDdl(database, sqlOrder);
 
 	StringWriter sw = new StringWriter();
 
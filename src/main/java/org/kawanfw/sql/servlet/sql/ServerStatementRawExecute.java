@@ -96,7 +96,8 @@ public class ServerStatementRawExecute {
 	this.response = response;
 	this.sqlFirewallManagers = sqlFirewallManagers;
 	this.connection = connection;
-	doPrettyPrinting = true; // Always pretty printing
+	// Pretty printing, except if compact result set format is asked
+	doPrettyPrinting = ResultSetFormat.getFormat(request).isPrettyPrinting();
 
 	String database = request.getParameter(HttpParameter.DATABASE);
 	updateListeners = InjectedClassesStore.get().getUpdateListenerMap().get(database);
@@ -311,6 +312,7 @@ public class ServerStatementRawExecute {
 	ServerSqlUtil.setMaxRowsToReturn(request, username, database, statement, databaseConfigurator);
 
 	boolean executeResult = statement.execute(sqlOrder);
+	PostgreSqlOidColumnCache.invalidateIfDdl(database, sqlOrder);
 
 	if (!executeResult) {
 	    // if (statement.getUpdateCount() != -1) {
@@ -366,6 +368,7 @@ public class ServerStatementRawExecute {
 
 	@SuppressWarnings("unused")
 	boolean executeResult = preparedStatement.execute();
+	PostgreSqlOidColumnCache.invalidateIfDdl(database, sqlOrder);
 
 	if (preparedStatement.getUpdateCount() != -1) {
 	    // It is an update statement or prepared statement
@@ -456,6 +459,15 @@ public class ServerStatementRawExecute {
 
 	    debug("sqlorder: " + sqlOrder);
 
+	    if (ResultSetFormat.getFormat(request) == ResultSetFormat.binary) {
+		response.setContentType(ResultSetBinaryWriter.CONTENT_TYPE);
+		// Always force to Get ResultSetMetaData, as for JSON
+		ResultSetBinaryWriter resultSetBinaryWriter = new ResultSetBinaryWriter(request, sqlOrder, out, true);
+		resultSetBinaryWriter.write(rs);
+		resultSetBinaryWriter.writeEnd();
+		return;
+	    }
+
 	    JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	    JsonGenerator gen = jf.createGenerator(out);
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonReader;
+import javax.json.JsonWriter;
+
+import org.kawanfw.sql.api.server.DatabaseConfigurator;
+import org.kawanfw.sql.api.server.SqlEvent;
+import org.kawanfw.sql.api.server.listener.BatchUpdateListener;
+import org.kawanfw.sql.api.server.listener.UpdateListener;
+import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
+import org.kawanfw.sql.servlet.injection.properties.ConfProperties;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+import org.kawanfw.sql.servlet.injection.properties.UpdateListenerOverflowPolicy;
+import org.kawanfw.sql.util.FrameworkDebug;
+import org.kawanfw.sql.util.FrameworkFileUtil;
+
+/**
+ * Asynchronous dispatch of the SQL update events to the {@link UpdateListener}
+ * instances. <br>
+ * <br>
+ * Enabled by the {@code updateListenerQueueCapacity} property: requests put
+ * their events in a bounded queue and do not wait for the listeners. The
+ * {@code updateListenerThreads} worker threads take the events from the queue
+ * and group up to {@link #MAX_TASKS_PER_CALL} queued executions in each call of
+ * a {@link BatchUpdateListener}. Events are notified in order if there is one
+ * worker thread. <br>
+ * <br>
+ * When the queue is full, the {@code updateListenerOverflowPolicy} property
+ * says if the request waits ({@code block}), if the events are lost
+ * ({@code drop}), or if they are written on disk as JSON ({@code spill}) and
+ * notified when the queue is empty. <br>
+ * <br>
+ * Listeners receive a Connection of the database pool, borrowed on first use,
+ * not the Connection of the request. <br>
+ * <br>
+ * If update listeners are called synchronously (the default), the events of a
+ * batch are still notified off the request thread, by a single
+ * {@code aceql-batch-update-listener} thread, so that the batch response does
+ * not wait for the listeners and is never failed by them. At most
+ * {@link #BATCH_QUEUE_CAPACITY} batch executions wait for this thread: when
+ * they are all waiting, the request blocks until one is notified.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class UpdateListenerDispatcher {
+
+    private static boolean DEBUG = FrameworkDebug.isSet(UpdateListenerDispatcher.class);
+
+    /** The maximum number of queued executions notified in one listener call */
+    public static final int MAX_TASKS_PER_CALL = 100;
+
+    /** The maximum number of batch executions waiting for the synchronous mode thread */
+    public static final int BATCH_QUEUE_CAPACITY = 100;
+
+    private static final long POLL_TIMEOUT_MILLIS = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private static final String SPILL_DIR_NAME = "update_listener_spill";
+    private static final String SPILL_SUFFIX = ".json";
+    private static final Object SPILL_LOCK = new Object();
+
+    private static volatile BlockingQueue<UpdateListenerTask> queue = null;
+    private static ExecutorService workerExecutor = null;
+    private static ThreadPoolExecutor batchExecutor = null;
+    private static volatile boolean running = false;
+
+    private static File spillDir = null;
+    private static AtomicLong spillSequence = new AtomicLong();
+    private static AtomicInteger spillPending = new AtomicInteger();
+
+    private static AtomicLong dispatchedCount = new AtomicLong();
+    private static AtomicLong droppedCount = new AtomicLong();
+    private static AtomicLong spilledCount = new AtomicLong();
+    private static AtomicLong failedCount = new AtomicLong();
+
+    protected UpdateListenerDispatcher() {
+
+    }
+
+    /**
+     * Says if the update listeners are called asynchronously.
+     *
+     * @return true if the update listeners are called asynchronously
+     */
+    public static boolean isAsync() {
+	return ConfPropertiesStore.get().getUpdateListenerQueueCapacity() > 0;
+    }
+
+    /**
+     * Puts a task in the queue, applying the overflow policy if the queue is
+     * full.
+     *
+     * @param task the task to notify to the update listeners
+     */
+    static void dispatch(UpdateListenerTask task) {
+	BlockingQueue<UpdateListenerTask> taskQueue = start();
+	UpdateListenerOverflowPolicy overflowPolicy = ConfPropertiesStore.get().getUpdateListenerOverflowPolicy();
+
+	if (overflowPolicy == UpdateListenerOverflowPolicy.block) {
+	    try {
+		taskQueue.put(task);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		droppedCount.addAndGet(task.getEventCount());
+	    }
+	    return;
+	}
+
+	if (taskQueue.offer(task)) {
+	    return;
+	}
+
+	if (overflowPolicy == UpdateListenerOverflowPolicy.spill) {
+	    spill(task);
+	} else {
+	    droppedCount.addAndGet(task.getEventCount());
+	}
+    }
+
+    /**
+     * Notifies the events of a batch without waiting for the listeners: through
+     * the queue if update listeners are called asynchronously, else in order by
+     * a single background thread. Listener failures are displayed and counted.
+     *
+     * @param task the task to notify to the update listeners
+     */
+    static void dispatchBatch(UpdateListenerTask task) {
+	if (isAsync()) {
+	    dispatch(task);
+	    return;
+	}
+
+	try {
+	    getBatchExecutor().execute(() -> notifyListeners(Collections.singletonList(task)));
+	} catch (RejectedExecutionException e) {
+	    droppedCount.addAndGet(task.getEventCount());
+	    System.err.println(new Date() + " UpdateListenerDispatcher: batch events not notified: " + e.getMessage());
+	}
+    }
+
+    /**
+     * Stops the worker threads after they have notified the queued events, or
+     * after {@link #SHUTDOWN_TIMEOUT_SECONDS}. Events not notified are spilled
+     * on disk with the {@code spill} policy, and lost otherwise.
+     */
+    public static void shutdown() {
+	ExecutorService batchExecutorToStop = null;
+	synchronized (UpdateListenerDispatcher.class) {
+	    batchExecutorToStop = batchExecutor;
+	    batchExecutor = null;
+	}
+	if (batchExecutorToStop != null) {
+	    awaitTermination(batchExecutorToStop);
+	}
+
+	ExecutorService executor = null;
+	BlockingQueue<UpdateListenerTask> taskQueue = null;
+	synchronized (UpdateListenerDispatcher.class) {
+	    if (queue == null) {
+		return;
+	    }
+	    running = false;
+	    executor = workerExecutor;
+	    taskQueue = queue;
+	    workerExecutor = null;
+	    queue = null;
+	}
+
+	awaitTermination(executor);
+
+	List<UpdateListenerTask> remainingTasks = new ArrayList<>();
+	taskQueue.drainTo(remainingTasks);
+	for (UpdateListenerTask task : remainingTasks) {
+	    if (ConfPropertiesStore.get().getUpdateListenerOverflowPolicy() == UpdateListenerOverflowPolicy.spill) {
+		spill(task);
+	    } else {
+		droppedCount.addAndGet(task.getEventCount());
+	    }
+	}
+    }
+
+    /**
+     * @return the number of executions waiting in the queue
+     */
+    public static int getQueueSize() {
+	BlockingQueue<UpdateListenerTask> taskQueue = queue;
+	return taskQueue == null ? 0 : taskQueue.size();
+    }
+
+    /**
+     * @return the number of batch executions waiting for the synchronous mode
+     *         thread
+     */
+    public static int getBatchQueueSize() {
+	ThreadPoolExecutor executor = batchExecutor;
+	return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of events notified since startup
+     */
+    public static long getDispatchedCount() {
+	return dispatchedCount.get();
+    }
+
+    /**
+     * @return the number of events lost because of a full queue since startup
+     */
+    public static long getDroppedCount() {
+	return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events written on disk because of a full queue since
+     *         startup
+     */
+    public static long getSpilledCount() {
+	return spilledCount.get();
+    }
+
+    /**
+     * @return the number of events whose notification failed since startup
+     */
+    public static long getFailedCount() {
+	return failedCount.get();
+    }
+
+    /**
+     * Calls an update listener for a list of events.
+     *
+     * @param updateListener the update listener
+     * @param sqlEvents      the SQL update events
+     * @param connection     the Connection to pass to the listener
+     * @throws IOException
+     * @throws SQLException
+     */
+    static void callUpdateListener(UpdateListener updateListener, List<SqlEvent> sqlEvents, Connection connection)
+	    throws IOException, SQLException {
+	if (updateListener instanceof BatchUpdateListener) {
+	    ((BatchUpdateListener) updateListener).updateActionsPerformed(sqlEvents, connection);
+	} else {
+	    for (SqlEvent sqlEvent : sqlEvents) {
+		updateListener.updateActionPerformed(sqlEvent, connection);
+	    }
+	}
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+	executor.shutdown();
+	try {
+	    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+		executor.shutdownNow();
+	    }
+	} catch (InterruptedException e) {
+	    executor.shutdownNow();
+	    Thread.currentThread().interrupt();
+	}
+    }
+
+    private static synchronized ExecutorService getBatchExecutor() {
+	if (batchExecutor == null) {
+	    batchExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+		    new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY), runnable -> {
+			Thread thread = new Thread(runnable, "aceql-batch-update-listener");
+			thread.setDaemon(true);
+			return thread;
+		    }, UpdateListenerDispatcher::waitForBatchQueue);
+	}
+	return batchExecutor;
+    }
+
+    /**
+     * Blocks the request until the batch queue has room: the events are never
+     * lost in synchronous mode, and the memory of the waiting events is bounded.
+     */
+    private static void waitForBatchQueue(Runnable runnable, ThreadPoolExecutor executor) {
+	try {
+	    while (!executor.isShutdown()) {
+		if (executor.getQueue().offer(runnable, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+		    return;
+		}
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+	throw new RejectedExecutionException("Batch update listener queue is stopped or the request interrupted.");
+    }
+
+    private static BlockingQueue<UpdateListenerTask> start() {
+	BlockingQueue<UpdateListenerTask> taskQueue = queue;
+	if (taskQueue != null) {
+	    return taskQueue;
+	}
+
+	synchronized (UpdateListenerDispatcher.class) {
+	    if (queue != null) {
+		return queue;
+	    }
+
+	    ConfProperties confProperties = ConfPropertiesStore.get();
+	    int threads = Math.max(1, confProperties.getUpdateListenerThreads());
+	    BlockingQueue<UpdateListenerTask> newQueue = new ArrayBlockingQueue<>(
+		    confProperties.getUpdateListenerQueueCapacity());
+
+	    // Events spilled before a restart will be notified
+	    spillDir = new File(FrameworkFileUtil.getKawansoftTempDir(), SPILL_DIR_NAME);
+	    File[] spilledFiles = listSpilledFiles();
+	    spillPending.set(spilledFiles == null ? 0 : spilledFiles.length);
+
+	    running = true;
+	    AtomicInteger threadNumber = new AtomicInteger();
+	    workerExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+		Thread thread = new Thread(runnable, "aceql-update-listener-" + threadNumber.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	    });
+	    for (int i = 0; i < threads; i++) {
+		workerExecutor.execute(() -> work(newQueue));
+	    }
+
+	    queue = newQueue;
+	    return newQueue;
+	}
+    }
+
+    private static void work(BlockingQueue<UpdateListenerTask> taskQueue) {
+	List<UpdateListenerTask> tasks = new ArrayList<>();
+	while (running || !taskQueue.isEmpty()) {
+	    try {
+		UpdateListenerTask task = taskQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		if (task == null) {
+		    task = unspill();
+		}
+		if (task == null) {
+		    continue;
+		}
+
+		tasks.add(task);
+		taskQueue.drainTo(tasks, MAX_TASKS_PER_CALL - 1);
+		notifyListeners(tasks);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    } finally {
+		tasks.clear();
+	    }
+	}
+    }
+
+    private static void notifyListeners(List<UpdateListenerTask> tasks) {
+	Map<String, List<SqlEvent>> sqlEventsPerDatabase = new LinkedHashMap<>();
+	for (UpdateListenerTask task : tasks) {
+	    try {
+		task.addSqlEvents(sqlEventsPerDatabase.computeIfAbsent(task.getDatabase(), k -> new ArrayList<>()));
+	    } catch (SQLException e) {
+		failedCount.addAndGet(task.getEventCount());
+	    }
+	}
+
+	for (Map.Entry<String, List<SqlEvent>> entry : sqlEventsPerDatabase.entrySet()) {
+	    String database = entry.getKey();
+	    List<SqlEvent> sqlEvents = entry.getValue();
+	    Set<UpdateListener> updateListeners = InjectedClassesStore.get().getUpdateListenerMap().get(database);
+	    if (updateListeners == null || updateListeners.isEmpty()) {
+		continue;
+	    }
+
+	    debug("Notifying " + sqlEvents.size() + " events of database " + database);
+
+	    LazyConnectionHandler lazyConnectionHandler = new LazyConnectionHandler(database);
+	    Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+		    new Class<?>[] { Connection.class }, lazyConnectionHandler);
+	    try {
+		for (UpdateListener updateListener : updateListeners) {
+		    try {
+			callUpdateListener(updateListener, sqlEvents, connection);
+		    } catch (Exception e) {
+			failedCount.addAndGet(sqlEvents.size());
+			System.err.println(new Date() + " UpdateListenerDispatcher: "
+				+ updateListener.getClass().getName() + " failure on database " + database + ": " + e);
+		    }
+		}
+		dispatchedCount.addAndGet(sqlEvents.size());
+	    } finally {
+		lazyConnectionHandler.release();
+	    }
+	}
+    }
+
+    private static File[] listSpilledFiles() {
+	return spillDir.listFiles((dir, name) -> name.endsWith(SPILL_SUFFIX));
+    }
+
+    private static void spill(UpdateListenerTask task) {
+	synchronized (SPILL_LOCK) {
+	    spillDir.mkdirs();
+	    // Names sort in spill order
+	    String name = String.format("%013d_%010d", System.currentTimeMillis(), spillSequence.incrementAndGet());
+	    File tmpFile = new File(spillDir, name + ".tmp");
+	    try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8);
+		    JsonWriter jsonWriter = Json.createWriter(writer)) {
+		jsonWriter.writeObject(task.toJsonObject());
+	    } catch (IOException | JsonException e) {
+		tmpFile.delete();
+		droppedCount.addAndGet(task.getEventCount());
+		System.err.println(new Date() + " UpdateListenerDispatcher: unable to spill events: " + e);
+		return;
+	    }
+
+	    if (!tmpFile.renameTo(new File(spillDir, name + SPILL_SUFFIX))) {
+		tmpFile.delete();
+		droppedCount.addAndGet(task.getEventCount());
+		return;
+	    }
+	    spilledCount.addAndGet(task.getEventCount());
+	    spillPending.incrementAndGet();
+	}
+    }
+
+    private static UpdateListenerTask unspill() {
+	if (spillPending.get() <= 0) {
+	    return null;
+	}
+
+	synchronized (SPILL_LOCK) {
+	    File[] spilledFiles = listSpilledFiles();
+	    if (spilledFiles == null || spilledFiles.length == 0) {
+		spillPending.set(0);
+		return null;
+	    }
+
+	    Arrays.sort(spilledFiles);
+	    File file = spilledFiles[0];
+	    // Plain JSON, never Java deserialization: the directory content is not trusted
+	    try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+		    JsonReader jsonReader = Json.createReader(reader)) {
+		return UpdateListenerTask.fromJsonObject(jsonReader.readObject());
+	    } catch (IOException | RuntimeException e) {
+		System.err.println(new Date() + " UpdateListenerDispatcher: unable to read spilled events " + file
+			+ ": " + e);
+		return null;
+	    } finally {
+		file.delete();
+		spillPending.decrementAndGet();
+	    }
+	}
+    }
+
+    private static DatabaseConfigurator getDatabaseConfigurator(String database) {
+	return InjectedClassesStore.get().getDatabaseConfigurators().get(database);
+    }
+
+    /**
+     * Borrows a Connection from the database pool only if a listener uses it.
+     */
+    private static class LazyConnectionHandler implements InvocationHandler {
+
+	private final String database;
+	private Connection connection = null;
+
+	LazyConnectionHandler(String database) {
+	    this.database = database;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+	    if (method.getDeclaringClass() == Object.class) {
+		switch (method.getName()) {
+		case "equals":
+		    return proxy == args[0];
+		case "hashCode":
+		    return System.identityHashCode(proxy);
+		default:
+		    return "LazyConnection[" + database + "]";
+		}
+	    }
+
+	    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+		release();
+		return null;
+	    }
+
+	    if (connection == null) {
+		connection = getDatabaseConfigurator(database).getConnection(database);
+	    }
+
+	    try {
+		return method.invoke(connection, args);
+	    } catch (InvocationTargetException e) {
+		throw e.getCause();
+	    }
+	}
+
+	void release() {
+	    if (connection == null) {
+		return;
+	    }
+
+	    Connection borrowedConnection = connection;
+	    connection = null;
+	    try {
+		getDatabaseConfigurator(database).close(borrowedConnection);
+	    } catch (Exception e) {
+		System.err.println(new Date() + " UpdateListenerDispatcher: unable to release Connection: " + e);
+	    }
+	}
+    }
+
+    private static void debug(String s) {
+	if (DEBUG) {
+	    System.out.println(new Date() + " " + UpdateListenerDispatcher.class.getSimpleName() + " " + s);
+	}
+    }
+
+}
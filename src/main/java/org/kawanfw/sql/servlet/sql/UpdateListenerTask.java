@@ -0,0 +1,198 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import org.kawanfw.sql.api.server.SqlEvent;
+import org.kawanfw.sql.api.server.SqlEventWrapper;
+
+/**
+ * The executions of one SQL order to notify to the update listeners of the
+ * database: one execution for a statement, one per parameters row for a batch.
+ * Converted to plain JSON to be spilled on disk: parameter values are stored
+ * with their type name, and values of other types than the ones set by the
+ * AceQL parameters are stored as their {@code toString()} value.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+class UpdateListenerTask {
+
+    /** The parameter value types restored from JSON */
+    private static final Set<String> VALUE_TYPES = new HashSet<>(Arrays.asList("String", "Integer", "Long",
+	    "Short", "Byte", "Double", "Float", "Boolean", "BigDecimal", "BigInteger", "Timestamp", "Time", "Date",
+	    "bytes"));
+
+    private final String username;
+    private final String database;
+    private final String ipAddress;
+    private final String sqlOrder;
+    private final boolean isPreparedStatement;
+    private final ArrayList<List<Object>> parametersList;
+
+    UpdateListenerTask(String username, String database, String ipAddress, String sqlOrder,
+	    boolean isPreparedStatement, List<List<Object>> parametersList) {
+	this.username = username;
+	this.database = database;
+	this.ipAddress = ipAddress;
+	this.sqlOrder = sqlOrder;
+	this.isPreparedStatement = isPreparedStatement;
+	this.parametersList = new ArrayList<>(parametersList);
+    }
+
+    /**
+     * Returns the task as a JSON object.
+     */
+    JsonObject toJsonObject() {
+	JsonArrayBuilder parametersListBuilder = Json.createArrayBuilder();
+	for (List<Object> parameterValues : parametersList) {
+	    JsonArrayBuilder parameterValuesBuilder = Json.createArrayBuilder();
+	    for (Object value : parameterValues) {
+		parameterValuesBuilder.add(toJsonValue(value));
+	    }
+	    parametersListBuilder.add(parameterValuesBuilder);
+	}
+
+	JsonObjectBuilder builder = Json.createObjectBuilder();
+	builder.add("username", username);
+	builder.add("database", database);
+	builder.add("ipAddress", ipAddress == null ? "" : ipAddress);
+	builder.add("sqlOrder", sqlOrder);
+	builder.add("isPreparedStatement", isPreparedStatement);
+	builder.add("parametersList", parametersListBuilder);
+	return builder.build();
+    }
+
+    /**
+     * Builds a task from a JSON object created by {@link #toJsonObject()}.
+     *
+     * @throws IllegalArgumentException if the JSON object is not a task
+     */
+    static UpdateListenerTask fromJsonObject(JsonObject jsonObject) {
+	try {
+	    List<List<Object>> parametersList = new ArrayList<>();
+	    for (JsonValue parameterValuesJson : jsonObject.getJsonArray("parametersList")) {
+		List<Object> parameterValues = new ArrayList<>();
+		for (JsonValue valueJson : (JsonArray) parameterValuesJson) {
+		    parameterValues.add(fromJsonValue((JsonObject) valueJson));
+		}
+		parametersList.add(parameterValues);
+	    }
+
+	    return new UpdateListenerTask(jsonObject.getString("username"), jsonObject.getString("database"),
+		    jsonObject.getString("ipAddress"), jsonObject.getString("sqlOrder"),
+		    jsonObject.getBoolean("isPreparedStatement"), parametersList);
+	} catch (RuntimeException e) {
+	    throw new IllegalArgumentException("Invalid update listener task: " + e, e);
+	}
+    }
+
+    private static JsonObject toJsonValue(Object value) {
+	JsonObjectBuilder builder = Json.createObjectBuilder();
+	if (value == null) {
+	    return builder.add("type", "null").build();
+	}
+
+	String type = value.getClass().getSimpleName();
+	String valueStr = null;
+	if (value instanceof byte[]) {
+	    type = "bytes";
+	    valueStr = Base64.getEncoder().encodeToString((byte[]) value);
+	} else if (value instanceof java.util.Date) {
+	    // Timestamp nanos are not restored: SqlEvent values are informative
+	    valueStr = Long.toString(((java.util.Date) value).getTime());
+	} else {
+	    valueStr = value.toString();
+	}
+
+	if (!VALUE_TYPES.contains(type)) {
+	    type = "String";
+	}
+	return builder.add("type", type).add("value", valueStr).build();
+    }
+
+    private static Object fromJsonValue(JsonObject jsonValue) {
+	String type = jsonValue.getString("type");
+	if (type.equals("null")) {
+	    return null;
+	}
+
+	String value = jsonValue.getString("value");
+	switch (type) {
+	case "String":
+	    return value;
+	case "Integer":
+	    return Integer.valueOf(value);
+	case "Long":
+	    return Long.valueOf(value);
+	case "Short":
+	    return Short.valueOf(value);
+	case "Byte":
+	    return Byte.valueOf(value);
+	case "Double":
+	    return Double.valueOf(value);
+	case "Float":
+	    return Float.valueOf(value);
+	case "Boolean":
+	    return Boolean.valueOf(value);
+	case "BigDecimal":
+	    return new BigDecimal(value);
+	case "BigInteger":
+	    return new BigInteger(value);
+	case "Timestamp":
+	    return new java.sql.Timestamp(Long.parseLong(value));
+	case "Time":
+	    return new java.sql.Time(Long.parseLong(value));
+	case "Date":
+	    return new java.sql.Date(Long.parseLong(value));
+	case "bytes":
+	    return Base64.getDecoder().decode(value);
+	default:
+	    throw new IllegalArgumentException("Unknown parameter type: " + type);
+	}
+    }
+
+    String getDatabase() {
+	return database;
+    }
+
+    int getEventCount() {
+	return parametersList.size();
+    }
+
+    /**
+     * Builds the SqlEvent of each execution.
+     */
+    void addSqlEvents(List<SqlEvent> sqlEvents) throws SQLException {
+	for (List<Object> parameterValues : parametersList) {
+	    sqlEvents.add(SqlEventWrapper.sqlEventBuild(username, database, ipAddress, sqlOrder, isPreparedStatement,
+		    parameterValues, false));
+	}
+    }
+
+}
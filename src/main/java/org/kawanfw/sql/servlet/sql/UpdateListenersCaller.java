@@ -14,15 +14,18 @@ package org.kawanfw.sql.servlet.sql;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 import org.kawanfw.sql.api.server.SqlEvent;
-import org.kawanfw.sql.api.server.SqlEventWrapper;
 import org.kawanfw.sql.api.server.listener.UpdateListener;
 
 /**
- * Calls all UpdateListener instances.
+ * Calls all UpdateListener instances, directly or through the
+ * {@link UpdateListenerDispatcher} if update listeners are called
+ * asynchronously.
  * 
  * @author Nicolas de Pomereu
  *
@@ -57,12 +60,44 @@ public class UpdateListenersCaller {
      */
     public void callUpdateListeners(String username, String database, String sqlOrder, List<Object> parameterValues,
 	    String ipAddress, boolean isPreparedStatement) throws SQLException, IOException {
-	SqlEvent sqlEvent = SqlEventWrapper.sqlEventBuild(username, database, ipAddress, sqlOrder, isPreparedStatement,
-		parameterValues, false);
+	if (updateListeners == null || updateListeners.isEmpty()) {
+	    return;
+	}
+
+	UpdateListenerTask task = new UpdateListenerTask(username, database, ipAddress, sqlOrder, isPreparedStatement,
+		Collections.singletonList(parameterValues));
+	if (UpdateListenerDispatcher.isAsync()) {
+	    UpdateListenerDispatcher.dispatch(task);
+	    return;
+	}
+
+	List<SqlEvent> sqlEvents = new ArrayList<>();
+	task.addSqlEvents(sqlEvents);
 	for (UpdateListener updateListener : updateListeners) {
-	    updateListener.updateActionPerformed(sqlEvent, connection);
+	    UpdateListenerDispatcher.callUpdateListener(updateListener, sqlEvents, connection);
+	}
+    }
+
+    /**
+     * Call the UpdateListener methods for all the executions of a batch. The
+     * batch never waits for the listeners, and listener failures do not fail
+     * the batch: see {@link UpdateListenerDispatcher}.
+     * 
+     * @param username
+     * @param database
+     * @param sqlOrder
+     * @param parametersList      the parameter values of each execution
+     * @param ipAddress
+     * @param isPreparedStatement
+     */
+    public void callUpdateListenersBatch(String username, String database, String sqlOrder,
+	    List<List<Object>> parametersList, String ipAddress, boolean isPreparedStatement) {
+	if (updateListeners == null || updateListeners.isEmpty() || parametersList.isEmpty()) {
+	    return;
 	}
 
+	UpdateListenerDispatcher.dispatchBatch(new UpdateListenerTask(username, database, ipAddress, sqlOrder,
+		isPreparedStatement, parametersList));
     }
 
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql.batch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Executes the rows added to a {@code PreparedStatement} batch in chunks of a
+ * fixed number of rows, with an optional commit after each chunk. <br>
+ * <br>
+ * Only the update counts are kept, so that the memory used by a large batch
+ * does not grow with the row parameters.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class BatchChunkExecutor {
+
+    private final PreparedStatement preparedStatement;
+
+    /** The number of rows per chunk, 0 for one chunk with all rows */
+    private final int chunkSize;
+
+    private final boolean commitPerChunk;
+
+    /** The update counts of the executed chunks, in row order */
+    private int[] updateCounts = new int[0];
+    private int updateCountsLength = 0;
+
+    private int rowsInChunk = 0;
+    private int chunkCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param preparedStatement the prepared statement whose batch is executed
+     * @param chunkSize         the number of rows per chunk, 0 for one chunk
+     * @param commitPerChunk    if true, the Connection is committed after each
+     *                          chunk
+     */
+    public BatchChunkExecutor(PreparedStatement preparedStatement, int chunkSize, boolean commitPerChunk) {
+	this.preparedStatement = Objects.requireNonNull(preparedStatement, "preparedStatement cannot be null!");
+	this.chunkSize = chunkSize;
+	this.commitPerChunk = commitPerChunk;
+    }
+
+    /**
+     * To be called after each {@code addBatch()}. Executes the chunk if it is
+     * full.
+     *
+     * @return true if the chunk has been executed
+     * @throws SQLException if the chunk execution fails
+     */
+    public boolean addRow() throws SQLException {
+	rowsInChunk++;
+	if (chunkSize > 0 && rowsInChunk >= chunkSize) {
+	    executeChunk();
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Executes the rows added since the last executed chunk.
+     *
+     * @throws SQLException if the chunk execution fails. For a chunked batch, the
+     *                      message says which rows were already executed
+     */
+    public void executeChunk() throws SQLException {
+	if (rowsInChunk == 0 && (chunkSize > 0 || chunkCount > 0)) {
+	    return;
+	}
+
+	try {
+	    int[] rc = preparedStatement.executeBatch();
+	    if (commitPerChunk) {
+		Connection connection = preparedStatement.getConnection();
+		connection.commit();
+	    }
+	    append(rc);
+	} catch (SQLException e) {
+	    if (chunkSize == 0) {
+		throw e;
+	    }
+	    throw new SQLException("Batch chunk " + (chunkCount + 1) + " failed for rows " + (updateCountsLength + 1)
+		    + " to " + (updateCountsLength + rowsInChunk) + ". " + getExecutedRowsState() + ". Reason: "
+		    + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+	}
+
+	chunkCount++;
+	rowsInChunk = 0;
+    }
+
+    /**
+     * Says if each executed chunk is committed: with {@code commitPerChunk}, or
+     * in auto-commit mode.
+     *
+     * @return true if each executed chunk is committed
+     * @throws SQLException
+     */
+    public boolean isChunkCommitted() throws SQLException {
+	return commitPerChunk || preparedStatement.getConnection().getAutoCommit();
+    }
+
+    /**
+     * Returns the number of rows executed by the previous chunks and their
+     * commit state, for the error messages of a failed batch.
+     *
+     * @return the executed rows and their commit state
+     */
+    public String getExecutedRowsState() {
+	return "Rows executed by previous chunks: " + updateCountsLength + getCommitState();
+    }
+
+    /**
+     * @return the update counts of all executed chunks, in row order
+     */
+    public int[] getUpdateCounts() {
+	return Arrays.copyOf(updateCounts, updateCountsLength);
+    }
+
+    /**
+     * @return the number of executed chunks
+     */
+    public int getChunkCount() {
+	return chunkCount;
+    }
+
+    /**
+     * Says if the rows of the previous chunks are committed: with
+     * {@code commitPerChunk}, or in auto-commit mode where each executed chunk
+     * is committed by the driver.
+     */
+    private String getCommitState() {
+	if (commitPerChunk) {
+	    return " (committed)";
+	}
+
+	try {
+	    if (preparedStatement.getConnection().getAutoCommit()) {
+		// Drivers may also have committed a part of the failed chunk
+		return " (committed in auto-commit mode, rows of the failed chunk may be committed too)";
+	    }
+	    return " (not committed)";
+	} catch (SQLException e) {
+	    return " (commit state unknown)";
+	}
+    }
+
+    private void append(int[] rc) {
+	if (updateCountsLength + rc.length > updateCounts.length) {
+	    updateCounts = Arrays.copyOf(updateCounts,
+		    Math.max(updateCountsLength + rc.length, updateCounts.length * 2));
+	}
+	System.arraycopy(rc, 0, updateCounts, updateCountsLength, rc.length);
+	updateCountsLength += rc.length;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.kawanfw.sql.servlet.sql.dto.PrepStatementParamsHolder;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming reader of the batch prepared statement parameters file: one
+ * {@code {"statementParameters":{...}}} JSON object per row. <br>
+ * <br>
+ * The whole file is decoded by a single Gson {@code JsonReader}, without
+ * reading each row as a line String nor using reflection.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class PrepStatementParamsReader implements Closeable {
+
+    private static final String STATEMENT_PARAMETERS = "statementParameters";
+
+    private final JsonReader jsonReader;
+
+    /**
+     * Constructor
+     *
+     * @param reader the reader on the parameters file
+     */
+    public PrepStatementParamsReader(Reader reader) {
+	jsonReader = new JsonReader(reader);
+	// Allows the multiple top level values of the file
+	jsonReader.setLenient(true);
+    }
+
+    /**
+     * Reads the parameters of the next row.
+     *
+     * @return the parameters of the next row, or null if there are no more rows
+     * @throws IOException if the file can not be read or is not well formed
+     */
+    public PrepStatementParamsHolder next() throws IOException {
+	if (jsonReader.peek() == JsonToken.END_DOCUMENT) {
+	    return null;
+	}
+
+	Map<String, String> statementParameters = new LinkedHashMap<>();
+	jsonReader.beginObject();
+	while (jsonReader.hasNext()) {
+	    if (STATEMENT_PARAMETERS.equals(jsonReader.nextName())) {
+		readParameters(statementParameters);
+	    } else {
+		jsonReader.skipValue();
+	    }
+	}
+	jsonReader.endObject();
+	return new PrepStatementParamsHolder(statementParameters);
+    }
+
+    private void readParameters(Map<String, String> statementParameters) throws IOException {
+	if (jsonReader.peek() == JsonToken.NULL) {
+	    jsonReader.nextNull();
+	    return;
+	}
+
+	jsonReader.beginObject();
+	while (jsonReader.hasNext()) {
+	    String name = jsonReader.nextName();
+	    JsonToken token = jsonReader.peek();
+	    if (token == JsonToken.NULL) {
+		jsonReader.nextNull();
+		statementParameters.put(name, null);
+	    } else if (token == JsonToken.BOOLEAN) {
+		statementParameters.put(name, Boolean.toString(jsonReader.nextBoolean()));
+	    } else {
+		statementParameters.put(name, jsonReader.nextString());
+	    }
+	}
+	jsonReader.endObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+	jsonReader.close();
+    }
+
+}
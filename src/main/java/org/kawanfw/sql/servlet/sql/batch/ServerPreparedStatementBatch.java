@@ -41,6 +41,7 @@ import org.kawanfw.sql.metadata.util.GsonWsUtil;
 import org.kawanfw.sql.servlet.HttpParameter;
 import org.kawanfw.sql.servlet.ServerSqlManager;
 import org.kawanfw.sql.servlet.connection.RollbackUtil;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.OperationalMode;
@@ -85,6 +86,12 @@ public class ServerPreparedStatementBatch {
 
     private Set<UpdateListener> updateListeners;
 
+    /**
+     * True when the batch SQL order has been allowed by all the firewall managers
+     * whose verdict does not depend on parameter values
+     */
+    private boolean allowedByValueIndependentManagers = false;
+
     /**
      * Default Constructor
      *
@@ -195,24 +202,35 @@ public class ServerPreparedStatementBatch {
 			"Cannot find file of batch SQL prepared statement parameters for Id: " + blobId);
 	    }
 
-	    preparedStatement = connection.prepareStatement(sqlOrder);
+	    preparedStatement = StatementCacheStore.prepareStatement(connection, sqlOrder);
 	    debug("before PreparedStatement.addBatch() loop & executeBatch() ");
 
-	    // Store in List the SqlOrder & parameterValues
+	    int chunkSize = ConfPropertiesStore.get().getBatchChunkSize();
+	    boolean commitPerChunk = chunkSize > 0
+		    && Boolean.parseBoolean(request.getParameter(HttpParameter.BATCH_COMMIT_PER_CHUNK))
+		    && !connection.getAutoCommit();
+	    boolean withUpdateListeners = updateListeners != null && !updateListeners.isEmpty();
+
+	    String ipAddress = IpUtil.getRemoteAddr(request);
+	    BatchChunkExecutor batchChunkExecutor = new BatchChunkExecutor(preparedStatement, chunkSize, commitPerChunk);
+
+	    // Listeners are notified of committed chunks only: without commit per chunk
+	    // nor auto-commit, the rows are kept and notified once all chunks succeeded
+	    boolean chunkCommitted = batchChunkExecutor.isChunkCommitted();
+
+	    // Store in List the parameterValues of the rows not yet notified, for the update listeners
 	    List<List<Object>> parametersList = new ArrayList<>();
 
-	    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(blobFile));) {
-		String line = null;
+	    try (PrepStatementParamsReader paramsReader = new PrepStatementParamsReader(
+		    new BufferedReader(new FileReader(blobFile)));) {
+		PrepStatementParamsHolder paramsHolder = null;
 
-		while ((line = bufferedReader.readLine()) != null) {
+		while ((paramsHolder = paramsReader.next()) != null) {
 
 		    if (DEBUG) {
-			ServerPreparedStatementParametersUtil.dump("line: " + line);
+			ServerPreparedStatementParametersUtil.dump("row: " + paramsHolder);
 		    }
 
-		    PrepStatementParamsHolder paramsHolder = GsonWsUtil.fromJson(line.trim(),
-			    PrepStatementParamsHolder.class);
-
 		    Map<Integer, AceQLParameter> inOutStatementParameters = ServerPreparedStatementParametersUtil
 			    .buildParametersFromHolder(paramsHolder);
 
@@ -222,8 +240,13 @@ public class ServerPreparedStatementBatch {
 		    try {
 			serverPreparedStatementParameters.setParameters();
 		    } catch (IllegalArgumentException e) {
+			// Previous chunks may have been executed
+			RollbackUtil.rollback(connection);
+			String message = batchChunkExecutor.getChunkCount() > 0
+				? e.getMessage() + ". " + batchChunkExecutor.getExecutedRowsState()
+				: e.getMessage();
 			JsonErrorReturn errorReturn = new JsonErrorReturn(response, HttpServletResponse.SC_BAD_REQUEST,
-				JsonErrorReturn.ERROR_ACEQL_ERROR, e.getMessage());
+				JsonErrorReturn.ERROR_ACEQL_ERROR, message);
 			ServerSqlManager.writeLine(out, errorReturn.build());
 			return;
 		    }
@@ -232,21 +255,34 @@ public class ServerPreparedStatementBatch {
 		    checkFirewallGeneral(username, database, sqlOrder, serverPreparedStatementParameters);
 		    preparedStatement.addBatch();
 
-		    parametersList.add(serverPreparedStatementParameters.getParameterValues());
+		    if (withUpdateListeners) {
+			parametersList.add(serverPreparedStatementParameters.getParameterValues());
+		    }
+
+		    if (batchChunkExecutor.addRow() && chunkCommitted) {
+			callUpdateListeners(sqlOrder, parametersList, username, database, ipAddress);
+			parametersList = new ArrayList<>();
+		    }
 		}
 	    }
 
-	    int[] rc = preparedStatement.executeBatch();
-
-	    String ipAddress = IpUtil.getRemoteAddr(request);
-	    callUpdateListenersInThread(sqlOrder, parametersList, username, database, ipAddress);
+	    batchChunkExecutor.executeChunk();
+	    callUpdateListeners(sqlOrder, parametersList, username, database, ipAddress);
 
-	    UpdateCountsArrayDto updateCountsArrayDto = new UpdateCountsArrayDto(rc);
+	    UpdateCountsArrayDto updateCountsArrayDto = chunkSize > 0
+		    ? new UpdateCountsArrayDto(batchChunkExecutor.getUpdateCounts(), chunkSize,
+			    batchChunkExecutor.getChunkCount())
+		    : new UpdateCountsArrayDto(batchChunkExecutor.getUpdateCounts());
 	    String jsonString = GsonWsUtil.getJSonString(updateCountsArrayDto);
 	    ServerSqlManager.writeLine(out, jsonString);
 
 	} catch (SQLException e) {
 	    RollbackUtil.rollback(connection);
+
+	    // Never put back in cache a statement whose execution failed
+	    StatementCacheStore.discard(connection, preparedStatement);
+	    preparedStatement = null;
+
 	    String message = StatementFailure.statementFailureBuild(sqlOrder, e.toString(), doPrettyPrinting);
 
 	    LoggerUtil.log(request, e, message);
@@ -255,9 +291,7 @@ public class ServerPreparedStatementBatch {
 	} finally {
 	    // NO! IOUtils.closeQuietly(out);
 
-	    if (preparedStatement != null) {
-		preparedStatement.close();
-	    }
+	    StatementCacheStore.release(connection, preparedStatement);
 	}
     }
 
@@ -289,11 +323,19 @@ public class ServerPreparedStatementBatch {
 	}
 
 	boolean isAllowedAfterAnalysis = true;
+	SqlEvent sqlEvent = null;
 	for (SqlFirewallManager sqlFirewallManager : sqlFirewallManagers) {
 
-	    SqlEvent sqlEvent = SqlEventWrapper.sqlEventBuild(username, database, ipAddress, sqlOrder,
-		    ServerStatementUtil.isPreparedStatement(request),
-		    serverPreparedStatementParameters.getParameterValues(), false);
+	    // The SQL order is the same for all rows: no need to ask again
+	    if (allowedByValueIndependentManagers && !sqlFirewallManager.dependsOnParameterValues()) {
+		continue;
+	    }
+
+	    if (sqlEvent == null) {
+		sqlEvent = SqlEventWrapper.sqlEventBuild(username, database, ipAddress, sqlOrder,
+			ServerStatementUtil.isPreparedStatement(request),
+			serverPreparedStatementParameters.getParameterValues(), false);
+	    }
 
 	    isAllowedAfterAnalysis = sqlFirewallManager.allowSqlRunAfterAnalysis(sqlEvent, connection);
 	    if (!isAllowedAfterAnalysis) {
@@ -302,6 +344,10 @@ public class ServerPreparedStatementBatch {
 	    }
 	}
 
+	if (isAllowedAfterAnalysis) {
+	    allowedByValueIndependentManagers = true;
+	}
+
 	if (!isAllowedAfterAnalysis && !operationalMode.equals(OperationalMode.detecting)) {
 	    String message = JsonSecurityMessage.prepStatementNotAllowedBuild(sqlOrder,
 		    "Prepared Statement not allowed", serverPreparedStatementParameters.getParameterTypes(),
@@ -310,29 +356,10 @@ public class ServerPreparedStatementBatch {
 	}
     }
 
-    private void callUpdateListenersInThread(String sqlOrder, List<List<Object>> parametersList, String username,
+    private void callUpdateListeners(String sqlOrder, List<List<Object>> parametersList, String username,
 	    String database, String ipAddress) {
-
-	Thread t = new Thread() {
-	    @Override
-	    public void run() {
-		try {
-
-		    for (List<Object> parameterValues : parametersList) {
-
-			UpdateListenersCaller updateListenersCaller = new UpdateListenersCaller(updateListeners,
-				connection);
-
-			updateListenersCaller.callUpdateListeners(username, database, sqlOrder, parameterValues,
-				ipAddress, true);
-
-		    }
-		} catch (Exception e) {
-		    e.printStackTrace();
-		}
-	    }
-	};
-	t.start();
+	UpdateListenersCaller updateListenersCaller = new UpdateListenersCaller(updateListeners, connection);
+	updateListenersCaller.callUpdateListenersBatch(username, database, sqlOrder, parametersList, ipAddress, true);
     }
 
     /**
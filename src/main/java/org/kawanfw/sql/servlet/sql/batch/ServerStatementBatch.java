@@ -21,7 +21,9 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Vector;
@@ -45,6 +47,7 @@ import org.kawanfw.sql.servlet.injection.classes.InjectedClassesStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.OperationalMode;
 import org.kawanfw.sql.servlet.sql.LoggerUtil;
+import org.kawanfw.sql.servlet.sql.PostgreSqlOidColumnCache;
 import org.kawanfw.sql.servlet.sql.ServerStatementUtil;
 import org.kawanfw.sql.servlet.sql.StatementFailure;
 import org.kawanfw.sql.servlet.sql.UpdateListenersCaller;
@@ -82,6 +85,15 @@ public class ServerStatementBatch {
 
     private Set<UpdateListener> updateListeners;
 
+    /** The maximum number of distinct allowed SQL orders remembered per batch */
+    private static final int MAX_ALLOWED_SQL_ORDERS = 1000;
+
+    /**
+     * The SQL orders of the batch already allowed by all the firewall managers
+     * whose verdict does not depend on parameter values
+     */
+    private Set<String> allowedSqlOrders = new HashSet<>();
+
     /**
      * Default Constructor
      *
@@ -190,6 +202,12 @@ public class ServerStatementBatch {
 
 	    statement = connection.createStatement();
 	    debug("before statement.addBatch() loop");
+
+	    boolean isDdlInBatch = false;
+
+	    // The executed SQL orders, for the update listeners
+	    List<String> sqlOrders = new ArrayList<>();
+	    boolean withUpdateListeners = updateListeners != null && !updateListeners.isEmpty();
 	    
 	    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(blobFile));) {
 		String line = null;
@@ -202,13 +220,21 @@ public class ServerStatementBatch {
 		    checkFirewallGeneral(username, database, sql, ipAddress);
 		    //checkFirewallForAllowExecute(username, database, sql, ipAddress);
 		    statement.addBatch(sql);
+		    if (withUpdateListeners) {
+			sqlOrders.add(sql);
+		    }
+		    isDdlInBatch = isDdlInBatch || PostgreSqlOidColumnCache.isDdl(sql);
 		}
 	    }
 
 	    debug("before statement.executeBatch()");
 	    int[] rc = statement.executeBatch();
 
-	    callUpdateListenersInThread(blobFile, username, database, ipAddress);
+	    if (isDdlInBatch) {
+		PostgreSqlOidColumnCache.invalidate(database);
+	    }
+
+	    callUpdateListeners(sqlOrders, username, database, ipAddress);
 
 	    UpdateCountsArrayDto updateCountsArrayDto = new UpdateCountsArrayDto(rc);
 	    String jsonString = GsonWsUtil.getJSonString(updateCountsArrayDto);
@@ -235,32 +261,13 @@ public class ServerStatementBatch {
 	}
     }
 
-    private void callUpdateListenersInThread(File blobFile, String username, String database, String ipAddress) {
-
-	Thread t = new Thread() {
-	    @Override
-	    public void run() {
-		try {
-
-		    List<Object> parameterValues = new ArrayList<>();
-
-		    try (BufferedReader bufferedReader = new BufferedReader(new FileReader(blobFile));) {
-			String line = null;
-			while ((line = bufferedReader.readLine()) != null) {
-			    String sqlOrder = line.trim();
-
-			    UpdateListenersCaller updateListenersCaller = new UpdateListenersCaller(updateListeners,
-				    connection);
-			    updateListenersCaller.callUpdateListeners(username, database, sqlOrder, parameterValues,
-				    ipAddress, false);
-			}
-		    }
-		} catch (Exception e) {
-		    e.printStackTrace();
-		}
-	    }
-	};
-	t.start();
+    private void callUpdateListeners(List<String> sqlOrders, String username, String database, String ipAddress) {
+	UpdateListenersCaller updateListenersCaller = new UpdateListenersCaller(updateListeners, connection);
+	List<List<Object>> parametersList = Collections.singletonList(new ArrayList<>());
+	for (String sqlOrder : sqlOrders) {
+	    updateListenersCaller.callUpdateListenersBatch(username, database, sqlOrder, parametersList, ipAddress,
+		    false);
+	}
     }
 
 //    /**
@@ -323,7 +330,14 @@ public class ServerStatementBatch {
 	
 	SqlFirewallManager sqlFirewallOnDeny = null;
 	boolean isAllowed = true;
+	boolean alreadyAllowed = allowedSqlOrders.contains(sqlOrder);
 	for (SqlFirewallManager sqlFirewallManager : sqlFirewallManagers) {
+
+	    // Same SQL order already met in the batch: no need to ask again
+	    if (alreadyAllowed && !sqlFirewallManager.dependsOnParameterValues()) {
+		continue;
+	    }
+
 	    sqlFirewallOnDeny = sqlFirewallManager;
 	    isAllowed = sqlFirewallManager.allowStatementClass(username, database, connection);
 	    if (!isAllowed) {
@@ -340,6 +354,10 @@ public class ServerStatementBatch {
 	    }
 	}
 
+	if (isAllowed && !alreadyAllowed && allowedSqlOrders.size() < MAX_ALLOWED_SQL_ORDERS) {
+	    allowedSqlOrders.add(sqlOrder);
+	}
+
 	if (!isAllowed) {
 	    List<Object> parameterValues = new ArrayList<>();
 
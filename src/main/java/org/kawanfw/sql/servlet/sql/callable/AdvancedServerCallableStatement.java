@@ -33,16 +33,19 @@ import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.kawanfw.sql.api.server.SqlEvent;
 import org.kawanfw.sql.api.server.SqlEventWrapper;
 import org.kawanfw.sql.api.server.firewall.SqlFirewallManager;
-import org.kawanfw.sql.api.util.SqlUtil;
 import org.kawanfw.sql.api.util.firewall.LearningModeExecutor;
 import org.kawanfw.sql.api.util.firewall.SqlFirewallTriggerWrapper;
 import org.kawanfw.sql.servlet.HttpParameter;
 import org.kawanfw.sql.servlet.ServerSqlManager;
 import org.kawanfw.sql.servlet.connection.RollbackUtil;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
 import org.kawanfw.sql.servlet.injection.properties.OperationalMode;
 import org.kawanfw.sql.servlet.sql.AceQLParameter;
+import org.kawanfw.sql.servlet.sql.DatabaseDialectStore;
 import org.kawanfw.sql.servlet.sql.LoggerUtil;
+import org.kawanfw.sql.servlet.sql.ResultSetBinaryWriter;
+import org.kawanfw.sql.servlet.sql.ResultSetFormat;
 import org.kawanfw.sql.servlet.sql.ResultSetWriter;
 import org.kawanfw.sql.servlet.sql.ServerStatementUtil;
 import org.kawanfw.sql.servlet.sql.StatementFailure;
@@ -94,7 +97,8 @@ public class AdvancedServerCallableStatement {
 	this.sqlFirewallManagers = sqlFirewallManagers;
 	this.connection = connection;
 
-	doPrettyPrinting = true; // Always pretty printing
+	// Pretty printing, except if compact result set format is asked
+	doPrettyPrinting = ResultSetFormat.getFormat(request).isPrettyPrinting();
     }
 
     /**
@@ -203,7 +207,7 @@ public class AdvancedServerCallableStatement {
 	    if (sqlOrder == null || sqlOrder.isEmpty()) {
 		throw new SQLException("A 'sql' statement is required.");
 	    }
-	    callableStatement = connection.prepareCall(sqlOrder);
+	    callableStatement = StatementCacheStore.prepareCall(connection, sqlOrder);
 
 	    // Set the IN Parameters
 	    debug("before ServerPreparedStatementParameters");
@@ -234,6 +238,10 @@ public class AdvancedServerCallableStatement {
 	} catch (SQLException e) {
 	    RollbackUtil.rollback(connection);
 
+	    // Never put back in cache a statement whose execution failed
+	    StatementCacheStore.discard(connection, callableStatement);
+	    callableStatement = null;
+
 	    String message = StatementFailure.prepStatementFailureBuild(sqlOrder, e.toString(),
 		    serverPreparedStatementParameters.getParameterTypes(),
 		    serverPreparedStatementParameters.getParameterValues(), doPrettyPrinting);
@@ -246,9 +254,7 @@ public class AdvancedServerCallableStatement {
 		serverPreparedStatementParameters.close();
 	    }
 
-	    if (callableStatement != null) {
-		callableStatement.close();
-	    }
+	    StatementCacheStore.release(connection, callableStatement);
 
 	    // Clean all
 	    serverPreparedStatementParameters = null;
@@ -275,8 +281,8 @@ public class AdvancedServerCallableStatement {
 	    // Where size is the number of IN parameters + 1
 	    // And Oracle requires to retrieve the ResultSet with a cast:
 	    // rs= (ResultSet) callableStatement.getObject(size + 1);
-	    SqlUtil sqlUtil = new SqlUtil(connection);
-	    if (sqlUtil.isOracle()) {
+	    String database = request.getParameter(HttpParameter.DATABASE);
+	    if (DatabaseDialectStore.get(database, connection).isOracle()) {
 		
 		debug("DB is Oracle!");
 		int size = serverPreparedStatementParameters.getParametersNumber();
@@ -291,6 +297,11 @@ public class AdvancedServerCallableStatement {
 		rs = callableStatement.executeQuery();
 	    }
 
+	    if (ResultSetFormat.getFormat(request) == ResultSetFormat.binary) {
+		dumpResultSetBinary(out, sqlOrder, rs, callableStatement, serverPreparedStatementParameters);
+		return;
+	    }
+
 	    JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	    JsonGenerator gen = jf.createGenerator(out);
@@ -329,6 +340,41 @@ public class AdvancedServerCallableStatement {
 	}
     }
 
+    /**
+     * Dumps the Result Set on the servlet stream in binary columnar format,
+     * followed by the OUT parameters in a JSON frame.
+     *
+     * @param out
+     * @param sqlOrder
+     * @param rs
+     * @param callableStatement
+     * @param serverPreparedStatementParameters
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void dumpResultSetBinary(OutputStream out, String sqlOrder, ResultSet rs,
+	    CallableStatement callableStatement, ServerPreparedStatementParameters serverPreparedStatementParameters)
+	    throws SQLException, IOException {
+	response.setContentType(ResultSetBinaryWriter.CONTENT_TYPE);
+
+	String fillResultSetMetaDataStr = request.getParameter(HttpParameter.FILL_RESULT_SET_META_DATA);
+	boolean fillResultSetMetaData = Boolean.parseBoolean(fillResultSetMetaDataStr);
+
+	ResultSetBinaryWriter resultSetBinaryWriter = new ResultSetBinaryWriter(request, sqlOrder, out,
+		fillResultSetMetaData);
+	resultSetBinaryWriter.write(rs);
+
+	StringWriter sw = new StringWriter();
+	JsonGenerator gen = JsonUtil.getJsonGeneratorFactory(false).createGenerator(sw);
+	gen.writeStartObject();
+	addToJsonOutParameters(callableStatement, serverPreparedStatementParameters, gen);
+	gen.writeEnd();
+	gen.close();
+
+	resultSetBinaryWriter.writeParameters(sw.toString());
+	resultSetBinaryWriter.writeEnd();
+    }
+
     /**
      * @param out
      * @param callableStatement
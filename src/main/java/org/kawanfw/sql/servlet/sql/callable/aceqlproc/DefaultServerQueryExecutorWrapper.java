@@ -36,6 +36,7 @@ import org.kawanfw.sql.metadata.util.GsonWsUtil;
 import org.kawanfw.sql.servlet.HttpParameter;
 import org.kawanfw.sql.servlet.JavaValueBuilder;
 import org.kawanfw.sql.servlet.ServerSqlManager;
+import org.kawanfw.sql.servlet.sql.ResultSetFormat;
 import org.kawanfw.sql.servlet.sql.ResultSetWriter;
 import org.kawanfw.sql.servlet.sql.json_return.JsonUtil;
 import org.kawanfw.sql.util.FrameworkDebug;
@@ -148,7 +149,7 @@ public class DefaultServerQueryExecutorWrapper implements ServerQueryExecutorWra
 	boolean doGzip = Boolean.parseBoolean(request.getParameter(HttpParameter.GZIP_RESULT));
 	OutputStream outFinal = getFinalOutputStream(out, doGzip);
 
-	boolean doPrettyPrinting = true;
+	boolean doPrettyPrinting = ResultSetFormat.getFormat(request).isPrettyPrinting();
 	JsonGeneratorFactory jf = JsonUtil.getJsonGeneratorFactory(doPrettyPrinting);
 
 	JsonGenerator gen = jf.createGenerator(outFinal);
@@ -23,10 +23,26 @@ public class UpdateCountsArrayDto {
     private String status = "OK";
     private int [] updateCountsArray;
 
+    /** Set only for a batch executed in chunks: null values are not serialized */
+    private Integer chunkSize;
+    private Integer chunkCount;
+
     public UpdateCountsArrayDto(int[] updateCountsArray) {
 	this.updateCountsArray = updateCountsArray;
     }
 
+    /**
+     * Constructor for a batch executed in chunks.
+     * @param updateCountsArray the update counts of all chunks, in row order
+     * @param chunkSize the number of rows per chunk
+     * @param chunkCount the number of executed chunks
+     */
+    public UpdateCountsArrayDto(int[] updateCountsArray, int chunkSize, int chunkCount) {
+	this.updateCountsArray = updateCountsArray;
+	this.chunkSize = chunkSize;
+	this.chunkCount = chunkCount;
+    }
+
     /**
      * @return the status
      */
@@ -41,9 +57,24 @@ public class UpdateCountsArrayDto {
         return updateCountsArray;
     }
 
+    /**
+     * @return the number of rows per chunk, null if the batch was not chunked
+     */
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the number of executed chunks, null if the batch was not chunked
+     */
+    public Integer getChunkCount() {
+        return chunkCount;
+    }
+
     @Override
     public String toString() {
-	return "UpdateCountsArrayDto [updateCountsArray=" + Arrays.toString(updateCountsArray) + "]";
+	return "UpdateCountsArrayDto [updateCountsArray=" + Arrays.toString(updateCountsArray) + ", chunkSize="
+		+ chunkSize + ", chunkCount=" + chunkCount + "]";
     }
 
    
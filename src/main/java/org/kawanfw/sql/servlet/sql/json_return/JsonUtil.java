@@ -27,6 +27,13 @@ public class JsonUtil {
     /** Always force pretty printing */
     public static final boolean DEFAULT_PRETTY_PRINTING = true;
 
+    /**
+     * The factories are immutable and thread safe: created once, as the provider
+     * lookup is costly
+     */
+    private static final JsonGeneratorFactory PRETTY_PRINTING_FACTORY = createJsonGeneratorFactory(true);
+    private static final JsonGeneratorFactory COMPACT_FACTORY = createJsonGeneratorFactory(false);
+
     /**
      * protected
      */
@@ -39,10 +46,14 @@ public class JsonUtil {
      *
      * @param prettyPrintingif
      *            true, JSON will be pretty printed
-     * @return
+     * @return the shared JsonGeneratorFactory
      */
     public static JsonGeneratorFactory getJsonGeneratorFactory(
 	    boolean prettyPrinting) {
+	return prettyPrinting ? PRETTY_PRINTING_FACTORY : COMPACT_FACTORY;
+    }
+
+    private static JsonGeneratorFactory createJsonGeneratorFactory(boolean prettyPrinting) {
 	Map<String, Object> properties = new HashMap<>(1);
 	if (prettyPrinting) {
 	    // Putting any value sets the pretty printing to true... So test
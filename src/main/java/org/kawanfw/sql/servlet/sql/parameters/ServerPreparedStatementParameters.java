@@ -626,7 +626,7 @@ public class ServerPreparedStatementParameters {
 	Connection connection = preparedStatement.getConnection();
 
 	// Test if we are in PostgreSQL with OID column for large file
-	if (PostgreSqlUtil.isPostgreSqlStatementWithOID(connection, sql)) {
+	if (PostgreSqlUtil.isPostgreSqlStatementWithOID(database, connection, sql)) {
 
 	    debug("column is OID! " + parameterIndex);
 	    PostgreSqlUtil.setPostgreSqlParameterWithLargeObject(preparedStatement, parameterIndex, in, connection);
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes strings in UTF-8 on an {@code OutputStream} through a reusable encoder
+ * and byte buffer. <br>
+ * <br>
+ * Avoids the allocation of a full byte array copy of each response, as done by
+ * {@code String.getBytes("UTF-8")}. <br>
+ * The encoders and buffers are borrowed from a small bounded pool rather than
+ * kept per thread, so that memory does not grow with the number of threads
+ * when the servlet container runs requests on virtual threads. A writer is
+ * allocated for the call if the pool is empty.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class Utf8Writer {
+
+    /** The size of the byte buffer of a writer */
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    /** The maximum number of idle writers kept for reuse */
+    public static final int POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final BlockingQueue<Utf8Writer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+	    .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private Utf8Writer() {
+
+    }
+
+    /**
+     * Writes the strings in UTF-8 on the output stream, in sequence.
+     *
+     * @param out     the output stream
+     * @param strings the strings to write
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(OutputStream out, String... strings) throws IOException {
+	Utf8Writer utf8Writer = POOL.poll();
+	if (utf8Writer == null) {
+	    utf8Writer = new Utf8Writer();
+	}
+
+	try {
+	    utf8Writer.writeAll(out, strings);
+	} finally {
+	    // Dropped if the pool is full
+	    POOL.offer(utf8Writer);
+	}
+    }
+
+    private void writeAll(OutputStream out, String... strings) throws IOException {
+	encoder.reset();
+	byteBuffer.clear();
+	for (String s : strings) {
+	    encode(out, CharBuffer.wrap(s), false);
+	}
+	encode(out, CharBuffer.allocate(0), true);
+
+	CoderResult coderResult;
+	while ((coderResult = encoder.flush(byteBuffer)).isOverflow()) {
+	    drain(out);
+	}
+	if (coderResult.isError()) {
+	    coderResult.throwException();
+	}
+	drain(out);
+    }
+
+    private void encode(OutputStream out, CharBuffer charBuffer, boolean endOfInput) throws IOException {
+	while (true) {
+	    CoderResult coderResult = encoder.encode(charBuffer, byteBuffer, endOfInput);
+	    if (coderResult.isOverflow()) {
+		drain(out);
+	    } else if (coderResult.isUnderflow()) {
+		return;
+	    } else {
+		coderResult.throwException();
+	    }
+	}
+    }
+
+    private void drain(OutputStream out) throws IOException {
+	if (byteBuffer.position() > 0) {
+	    out.write(byteBuffer.array(), 0, byteBuffer.position());
+	    byteBuffer.clear();
+	}
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.util.logging;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store of the {@link MeteredAsyncAppender} created by
+ * {@link GenericLoggerCreator}, per Logger name.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class AsyncLoggerStore {
+
+    /** Logger name ==> async appender */
+    private static Map<String, MeteredAsyncAppender> asyncAppenderMap = new ConcurrentHashMap<>();
+
+    protected AsyncLoggerStore() {
+
+    }
+
+    static void put(String name, MeteredAsyncAppender asyncAppender) {
+	MeteredAsyncAppender previous = asyncAppenderMap.put(name, asyncAppender);
+	if (previous != null && previous != asyncAppender) {
+	    previous.stop();
+	}
+    }
+
+    /**
+     * @return the async appenders in use, per Logger name
+     */
+    public static Map<String, MeteredAsyncAppender> getAsyncAppenders() {
+	return Collections.unmodifiableMap(asyncAppenderMap);
+    }
+
+    /**
+     * Stops all async appenders after they have written the queued events.
+     */
+    public static void stop() {
+	for (MeteredAsyncAppender asyncAppender : asyncAppenderMap.values()) {
+	    asyncAppender.stop();
+	}
+	asyncAppenderMap.clear();
+    }
+
+}
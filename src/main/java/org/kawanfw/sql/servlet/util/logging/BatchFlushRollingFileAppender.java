@@ -0,0 +1,143 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.util.logging;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+
+/**
+ * A {@code RollingFileAppender} fed by a {@link MeteredAsyncAppender} that
+ * does not flush the file after each event. The file is flushed after
+ * {@link #MAX_EVENTS_PER_FLUSH} events, every {@link #FLUSH_INTERVAL_MILLIS}
+ * by a shared {@code aceql-log-flush} thread if events are waiting in the
+ * buffer, and on stop. A burst of events is thus written with few flushes,
+ * and an event is visible in the file at most {@link #FLUSH_INTERVAL_MILLIS}
+ * after being written.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class BatchFlushRollingFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+    /** The maximum number of events written between two flushes */
+    public static final int MAX_EVENTS_PER_FLUSH = 512;
+
+    /** The maximum delay between the write of an event and the flush */
+    public static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    /** The started appenders, flushed by the flush thread */
+    private static Set<BatchFlushRollingFileAppender> appenders = new CopyOnWriteArraySet<>();
+    private static ScheduledExecutorService flushExecutor = null;
+
+    private final MeteredAsyncAppender asyncAppender;
+
+    /** Guards the writes, rollovers and flushes of the async and flush threads */
+    private final Object flushLock = new Object();
+
+    /** The number of events written since last flush, guarded by flushLock */
+    private int unflushedEvents = 0;
+
+    /**
+     * Constructor
+     *
+     * @param asyncAppender the async appender that feeds this appender
+     */
+    public BatchFlushRollingFileAppender(MeteredAsyncAppender asyncAppender) {
+	this.asyncAppender = asyncAppender;
+	setImmediateFlush(false);
+    }
+
+    @Override
+    public void start() {
+	super.start();
+	if (isStarted()) {
+	    appenders.add(this);
+	    startFlushExecutor();
+	}
+    }
+
+    @Override
+    public void stop() {
+	appenders.remove(this);
+	flush();
+	super.stop();
+	if (appenders.isEmpty()) {
+	    stopFlushExecutor();
+	}
+    }
+
+    @Override
+    protected void subAppend(ILoggingEvent event) {
+	synchronized (flushLock) {
+	    super.subAppend(event);
+	    asyncAppender.written(event);
+
+	    if (++unflushedEvents >= MAX_EVENTS_PER_FLUSH) {
+		flushUnderLock();
+	    }
+	}
+    }
+
+    /**
+     * Flushes the file if events have been written since last flush.
+     */
+    private void flush() {
+	synchronized (flushLock) {
+	    if (unflushedEvents > 0) {
+		flushUnderLock();
+	    }
+	}
+    }
+
+    private void flushUnderLock() {
+	unflushedEvents = 0;
+	try {
+	    if (getOutputStream() != null) {
+		getOutputStream().flush();
+	    }
+	} catch (IOException e) {
+	    addError("Unable to flush " + getFile(), e);
+	}
+    }
+
+    private static synchronized void startFlushExecutor() {
+	if (flushExecutor != null) {
+	    return;
+	}
+
+	flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+	    Thread thread = new Thread(runnable, "aceql-log-flush");
+	    thread.setDaemon(true);
+	    return thread;
+	});
+	flushExecutor.scheduleWithFixedDelay(() -> {
+	    for (BatchFlushRollingFileAppender appender : appenders) {
+		appender.flush();
+	    }
+	}, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized void stopFlushExecutor() {
+	if (flushExecutor != null && appenders.isEmpty()) {
+	    flushExecutor.shutdownNow();
+	    flushExecutor = null;
+	}
+    }
+
+}
@@ -32,13 +32,19 @@ import ch.qos.logback.core.util.StatusPrinter;
 /**
  * Creates a slf4j Logger with Logback implementation that allows to pass
  * all parameters with a builder.
- * 
+ * <br>
+ * <br>
+ * By default, events are written asynchronously through a
+ * {@link MeteredAsyncAppender}, so that the logging threads do not wait for
+ * disk I/O.
  * 
  * @author Nicolas de Pomereu
  *
  */
 public class GenericLoggerCreator implements LoggerCreator {
 
+    private static final String ASYNC_APPENDER_SUFFIX = "-async";
+
     private Logger logger;
     //private LoggerContext context;
     
@@ -59,15 +65,24 @@ public class GenericLoggerCreator implements LoggerCreator {
 	long totalSizeCap = builder.totalSizeCap;
 	boolean displayOnConsole = builder.displayOnConsole;
 	boolean displayLogStatusMessages = builder.displayLogStatusMessages;
+	int asyncQueueSize = builder.asyncQueueSize;
+	int asyncDiscardingThreshold = builder.asyncDiscardingThreshold;
 
 	elements = GenericLoggerCreatorUtil.createElements(name, logDirectory, fileNamePattern, maxFileSize, totalSizeCap, displayOnConsole,
-		displayLogStatusMessages);
+		displayLogStatusMessages, asyncQueueSize, asyncDiscardingThreshold);
 	
 	int maxHistory = 365;
 
 	LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
 
-	RollingFileAppender<ILoggingEvent> rollingFileAppender = new RollingFileAppender<ILoggingEvent>();
+	MeteredAsyncAppender asyncAppender = null;
+	RollingFileAppender<ILoggingEvent> rollingFileAppender = null;
+	if (asyncQueueSize > 0) {
+	    asyncAppender = new MeteredAsyncAppender();
+	    rollingFileAppender = new BatchFlushRollingFileAppender(asyncAppender);
+	} else {
+	    rollingFileAppender = new RollingFileAppender<ILoggingEvent>();
+	}
 	rollingFileAppender.setAppend(true);
 	rollingFileAppender.setContext(context);
 
@@ -106,11 +121,28 @@ public class GenericLoggerCreator implements LoggerCreator {
 	StatusPrinter.print(context);
 	
 	logger = context.getLogger(name);
-	((ch.qos.logback.classic.Logger) logger).addAppender(rollingFileAppender);
 	((ch.qos.logback.classic.Logger) logger).setAdditive(false);
 
-	if (displayOnConsole) {
-	    ((ch.qos.logback.classic.Logger) logger).addAppender(logConsoleAppender);
+	if (asyncAppender != null) {
+	    asyncAppender.setContext(context);
+	    asyncAppender.setName(name + ASYNC_APPENDER_SUFFIX);
+	    asyncAppender.setQueueSize(asyncQueueSize);
+	    asyncAppender.setDiscardingThreshold(asyncDiscardingThreshold);
+	    asyncAppender.addAppender(rollingFileAppender);
+	    if (displayOnConsole) {
+		asyncAppender.addAppender(logConsoleAppender);
+	    }
+	    asyncAppender.start();
+
+	    // Replaces the appender of a previous creation with the same name
+	    ((ch.qos.logback.classic.Logger) logger).detachAppender(asyncAppender.getName());
+	    ((ch.qos.logback.classic.Logger) logger).addAppender(asyncAppender);
+	    AsyncLoggerStore.put(name, asyncAppender);
+	} else {
+	    ((ch.qos.logback.classic.Logger) logger).addAppender(rollingFileAppender);
+	    if (displayOnConsole) {
+		((ch.qos.logback.classic.Logger) logger).addAppender(logConsoleAppender);
+	    }
 	}
 	
 	if (displayLogStatusMessages) {
@@ -215,6 +247,24 @@ public class GenericLoggerCreator implements LoggerCreator {
 	 * @return this Builder
 	 */
 	Builder displayLogStatusMessages(boolean displayLogStatusMessages);
+
+	/**
+	 * Sets the capacity of the queue of events waiting to be written by the
+	 * background thread. 0 for synchronous writes by the logging thread. Defaults
+	 * to 8192 in default implementation.
+	 * @param asyncQueueSize the capacity of the queue of events, 0 for synchronous writes
+	 * @return this Builder
+	 */
+	Builder asyncQueueSize(int asyncQueueSize);
+
+	/**
+	 * Sets the remaining capacity of the queue below which TRACE, DEBUG and INFO
+	 * events are discarded. 0 for never discarding: the logging thread waits for
+	 * a free slot. Defaults to 0 in default implementation.
+	 * @param asyncDiscardingThreshold the remaining capacity below which low severity events are discarded
+	 * @return this Builder
+	 */
+	Builder asyncDiscardingThreshold(int asyncDiscardingThreshold);
 	
 	/**
 	 * Builds the new instance. Returns a new {@link GenericLoggerCreator} built from
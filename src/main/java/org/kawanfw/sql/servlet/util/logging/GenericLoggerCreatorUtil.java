@@ -26,9 +26,12 @@ public class GenericLoggerCreatorUtil {
      * @param totalSizeCap
      * @param displayOnConsole
      * @param displayLogStatusMessages
+     * @param asyncQueueSize
+     * @param asyncDiscardingThreshold
      */
     public static Map<String, String> createElements(String name, String logDirectory, String fileNamePattern,
-	    long maxFileSize, long totalSizeCap, boolean displayOnConsole, boolean displayLogStatusMessages) {
+	    long maxFileSize, long totalSizeCap, boolean displayOnConsole, boolean displayLogStatusMessages,
+	    int asyncQueueSize, int asyncDiscardingThreshold) {
 	Map<String, String> elements = new LinkedHashMap<>();
 	elements.put("name", name);
 	elements.put("logDirectory", logDirectory);
@@ -37,6 +40,8 @@ public class GenericLoggerCreatorUtil {
 	elements.put("totalSizeCap", getInMbOrGb(totalSizeCap));
 	elements.put("displayOnConsole", displayOnConsole + "");
 	elements.put("displayLogStatusMessages", displayLogStatusMessages + "");
+	elements.put("asyncQueueSize", asyncQueueSize + "");
+	elements.put("asyncDiscardingThreshold", asyncDiscardingThreshold + "");
 	return elements;
     }
 
@@ -34,6 +34,8 @@ public class LoggerCreatorBuilderImpl implements GenericLoggerCreator.Builder {
     public static final String DEFAULT_PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
     public static final long DEFAULT_MAX_SIZE = MB * 300;
     public static final long DEFAULT_TOTAL_SIZE_CAP = GB * 30;
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 8192;
+    public static final int DEFAULT_ASYNC_DISCARDING_THRESHOLD = 0;
     
     public static final String SHORT_PATTERN = "%msg%n";
 
@@ -45,6 +47,8 @@ public class LoggerCreatorBuilderImpl implements GenericLoggerCreator.Builder {
     long totalSizeCap = DEFAULT_TOTAL_SIZE_CAP;
     boolean displayOnConsole = false;
     boolean displayLogStatusMessages = false;
+    int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+    int asyncDiscardingThreshold = DEFAULT_ASYNC_DISCARDING_THRESHOLD;
 
     @Override
     public Builder name(String name) {
@@ -93,6 +97,18 @@ public class LoggerCreatorBuilderImpl implements GenericLoggerCreator.Builder {
 	this.displayLogStatusMessages = displayLogStatusMessages;
 	return this;
     }   
+
+    @Override
+    public Builder asyncQueueSize(int asyncQueueSize) {
+	this.asyncQueueSize = asyncQueueSize;
+	return this;
+    }
+
+    @Override
+    public Builder asyncDiscardingThreshold(int asyncDiscardingThreshold) {
+	this.asyncDiscardingThreshold = asyncDiscardingThreshold;
+	return this;
+    }
     
     /**
      * Builds the new instance. Returns a new {@link ConnectionSecure} built from
@@ -123,6 +139,14 @@ public class LoggerCreatorBuilderImpl implements GenericLoggerCreator.Builder {
 	    throw new IllegalArgumentException("totalSizeCap must be >= maxFileSize");
 	}
 
+	if (asyncQueueSize < 0) {
+	    throw new IllegalArgumentException("asyncQueueSize must be >= 0");
+	}
+
+	if (asyncDiscardingThreshold < 0 || (asyncQueueSize > 0 && asyncDiscardingThreshold >= asyncQueueSize)) {
+	    throw new IllegalArgumentException("asyncDiscardingThreshold must be >= 0 and < asyncQueueSize");
+	}
+
 	GenericLoggerCreator genericLoggerCreator = new GenericLoggerCreator(this);
 	return genericLoggerCreator;
     }
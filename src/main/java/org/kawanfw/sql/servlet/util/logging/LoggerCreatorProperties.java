@@ -41,6 +41,8 @@ public class LoggerCreatorProperties {
     private long totalSizeCap = LoggerCreatorBuilderImpl.DEFAULT_TOTAL_SIZE_CAP;
     private boolean displayOnConsole = false;
     private boolean displayLogStatusMessages = false;
+    private int asyncQueueSize = LoggerCreatorBuilderImpl.DEFAULT_ASYNC_QUEUE_SIZE;
+    private int asyncDiscardingThreshold = LoggerCreatorBuilderImpl.DEFAULT_ASYNC_DISCARDING_THRESHOLD;
    
     public Properties getProperties() {
         return properties;
@@ -74,6 +76,14 @@ public class LoggerCreatorProperties {
         return displayLogStatusMessages;
     }
 
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public int getAsyncDiscardingThreshold() {
+        return asyncDiscardingThreshold;
+    }
+
     /**
      * Constructor
      * @param properties the properties to load
@@ -103,6 +113,12 @@ public class LoggerCreatorProperties {
 	}
 	displayOnConsole = Boolean.parseBoolean((String)properties.get("displayOnConsole"));
 	displayLogStatusMessages = Boolean.parseBoolean((String)properties.get("displayLogStatusMessages"));
+	if (properties.get("asyncQueueSize") != null) {
+	    asyncQueueSize = Integer.parseInt(((String) properties.get("asyncQueueSize")).trim());
+	}
+	if (properties.get("asyncDiscardingThreshold") != null) {
+	    asyncDiscardingThreshold = Integer.parseInt(((String) properties.get("asyncDiscardingThreshold")).trim());
+	}
 	
     }
 
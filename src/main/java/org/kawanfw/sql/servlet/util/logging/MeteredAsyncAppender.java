@@ -0,0 +1,90 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * A Logback {@code AsyncAppender} that keeps metrics. <br>
+ * <br>
+ * Events are put in a pre-allocated bounded queue and written to the attached
+ * appenders by a single background thread. When the remaining capacity of the
+ * queue is below the discarding threshold, TRACE, DEBUG and INFO events are
+ * discarded; other events wait for a free slot.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private AtomicLong writtenCount = new AtomicLong();
+    private AtomicLong discardedCount = new AtomicLong();
+    private AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastLagMillis = 0;
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+	// Only called when the queue is below the discarding threshold
+	boolean discardable = super.isDiscardable(event);
+	if (discardable) {
+	    discardedCount.incrementAndGet();
+	}
+	return discardable;
+    }
+
+    /**
+     * To be called by the attached appender when an event is written.
+     *
+     * @param event the written event
+     */
+    void written(ILoggingEvent event) {
+	writtenCount.incrementAndGet();
+	long lagMillis = System.currentTimeMillis() - event.getTimeStamp();
+	lastLagMillis = lagMillis;
+	maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+    }
+
+    /**
+     * @return the number of events written since startup
+     */
+    public long getWrittenCount() {
+	return writtenCount.get();
+    }
+
+    /**
+     * @return the number of events discarded because of a full queue since
+     *         startup
+     */
+    public long getDiscardedCount() {
+	return discardedCount.get();
+    }
+
+    /**
+     * @return the delay in milliseconds between the creation and the write of
+     *         the last written event
+     */
+    public long getLastLagMillis() {
+	return lastLagMillis;
+    }
+
+    /**
+     * @return the maximum delay in milliseconds between the creation and the
+     *         write of an event since startup
+     */
+    public long getMaxLagMillis() {
+	return maxLagMillis.get();
+    }
+
+}
@@ -22,12 +22,13 @@ import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
 import org.apache.tomcat.jdbc.pool.PooledConnection;
 import org.kawanfw.sql.api.server.connectionstore.ConnectionKey;
 import org.kawanfw.sql.servlet.connection.ConnectionStore;
+import org.kawanfw.sql.servlet.connection.StatementCacheStore;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesUtil;
 import org.kawanfw.sql.util.FrameworkDebug;
 
 /**
- * Allows to clean our ConnectionStore when a Connection is removed by Tomcat
- * JDBC Pool...
+ * Allows to clean our ConnectionStore and StatementCacheStore when a Connection
+ * is removed by Tomcat JDBC Pool...
  * 
  * @author Nicolas de Pomereu
  *
@@ -58,6 +59,11 @@ public class AceQLJdbcInterceptor extends JdbcInterceptor {
     public void disconnected(ConnectionPool parent, PooledConnection con, boolean finalizing) {
 
 	try {
+	    // The statements cached for the physical Connection are unusable now
+	    if (con != null) {
+		StatementCacheStore.invalidate(con.getConnection());
+	    }
+
 	    // No clean of course in stateless mode!
 	    if (ConfPropertiesUtil.isStatelessMode()) {
 		debug("AceQLJdbcInterceptor. Stateless mode. Nothing to do.");
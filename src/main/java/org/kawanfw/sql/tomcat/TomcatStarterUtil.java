@@ -28,9 +28,10 @@ import org.apache.commons.lang3.SystemUtils;
 import org.apache.tomcat.jdbc.pool.DataSource;
 import org.apache.tomcat.jdbc.pool.PoolProperties;
 import org.kawanfw.sql.api.server.DatabaseConfigurationException;
-import org.kawanfw.sql.api.util.SqlUtil;
+import org.kawanfw.sql.api.util.DatabaseDialect;
 import org.kawanfw.sql.servlet.connection.RollbackUtil;
 import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesUtil;
+import org.kawanfw.sql.servlet.sql.DatabaseDialectStore;
 import org.kawanfw.sql.util.SqlTag;
 import org.kawanfw.sql.util.Tag;
 import org.kawanfw.sql.version.EditionUtil;
@@ -250,7 +251,11 @@ public class TomcatStarterUtil {
 		throw new DatabaseConfigurationException("Server is in Stateless Mode: Connection pool must be in default auto commit. Please fix configuration.");
 	    }
 	    
-	    if (new SqlUtil(connection).isDB2() && ! EditionUtil.isEnterpriseEdition()) {
+	    // Resolved once per database: hot paths read it without DatabaseMetaData calls
+	    DatabaseDialect databaseDialect = new DatabaseDialect(connection);
+	    DatabaseDialectStore.set(database, databaseDialect);
+
+	    if (databaseDialect.isDB2() && ! EditionUtil.isEnterpriseEdition()) {
 		throw new UnsupportedOperationException(Tag.PRODUCT + " " + "DB2 is not supported and "
 			+ Tag.REQUIRES_ACEQL_ENTERPRISE_EDITION);
 	    }
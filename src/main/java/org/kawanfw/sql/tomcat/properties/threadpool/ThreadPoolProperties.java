@@ -33,6 +33,7 @@ public class ThreadPoolProperties {
     public static final int DEFAULT_BLOCKING_QUEUE_CAPACITY = 0;
     public static final TimeUnit DEFAULT_UNIT = TimeUnit.SECONDS;
     public static final boolean PRESTART_ALL_CORE_THREADS = true;
+    public static final ExecutorMode DEFAULT_EXECUTOR_MODE = ExecutorMode.threadPool;
     
     private String corePoolSizeStr;
     private String maximumPoolSizeStr;
@@ -41,6 +42,8 @@ public class ThreadPoolProperties {
     private String workQueueClassName;
     private String capacityStr;
     private String prestartAllCoreThreadsStr;
+    private String executorModeStr;
+    private String maxConcurrentRequestsStr;
     
     private int corePoolSize= DEFAULT_CORE_POOL_SIZE;
     private int maximumPoolSize= DEFAULT_MAXIMUM_POOL_SIZE;
@@ -51,6 +54,9 @@ public class ThreadPoolProperties {
     private BlockingQueue<Runnable> workQueue;
     private boolean prestartAllCoreThreads;
 
+    private ExecutorMode executorMode = DEFAULT_EXECUTOR_MODE;
+    private int maxConcurrentRequests;
+
 
     public ThreadPoolProperties(Properties properties) {
 	Objects.requireNonNull(properties, "properties cannot be null!");
@@ -62,6 +68,8 @@ public class ThreadPoolProperties {
 	workQueueClassName = properties.getProperty("workQueueClassName");
 	capacityStr = properties.getProperty("capacity");
 	prestartAllCoreThreadsStr = properties.getProperty("prestartAllCoreThreads");
+	executorModeStr = properties.getProperty("executorMode");
+	maxConcurrentRequestsStr = properties.getProperty("maxConcurrentRequests");
 	
 	checkAndFillParameters();
 	createWorkingQueue();
@@ -145,6 +153,20 @@ public class ThreadPoolProperties {
 		    + corePoolSize + "). maximumPoolSize Must be >= corePoolSize. " + SqlTag.PLEASE_CORRECT);
 	}
 
+	if (executorModeStr != null && !executorModeStr.trim().isEmpty()) {
+	    try {
+		executorMode = ExecutorMode.valueOf(executorModeStr.trim());
+	    } catch (Exception e) {
+		throw new DatabaseConfigurationException(
+			"executorMode value is invalid: " + executorModeStr + ". " + SqlTag.PLEASE_CORRECT);
+	    }
+	}
+
+	if (maxConcurrentRequestsStr != null) {
+	    throwExceptionValueIfNotNumeric("maxConcurrentRequests", maxConcurrentRequestsStr);
+	    maxConcurrentRequests = Integer.parseInt(maxConcurrentRequestsStr);
+	}
+
 	if (capacity < 0) {
 	    throw new DatabaseConfigurationException("capacity must be >= 0. " + SqlTag.PLEASE_CORRECT);
 	}
@@ -198,6 +220,21 @@ public class ThreadPoolProperties {
         return prestartAllCoreThreads;
     }
 
+    /**
+     * @return the executorMode
+     */
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    /**
+     * @return the maximum number of requests running concurrently in
+     *         virtualThreads mode, 0 for the JDBC pools size
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
     
 
 
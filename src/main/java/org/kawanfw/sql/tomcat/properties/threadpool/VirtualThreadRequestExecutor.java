@@ -0,0 +1,162 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.tomcat.properties.threadpool;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+import org.kawanfw.sql.servlet.injection.properties.ConfPropertiesStore;
+import org.kawanfw.sql.tomcat.TomcatSqlModeStore;
+import org.kawanfw.sql.util.SqlTag;
+
+/**
+ * Executes each servlet request on a new virtual thread (Java 21+). <br>
+ * <br>
+ * Blocking JDBC calls do not pin a platform thread and requests are never
+ * rejected: the number of requests running concurrently is limited by a
+ * {@code Semaphore}, and the pending requests wait on their own virtual thread.
+ * <br>
+ * The virtual thread executor is created by reflection so that the server is
+ * still built and run with Java 8.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class VirtualThreadRequestExecutor implements Executor {
+
+    private final ExecutorService executorService;
+    private final Semaphore semaphore;
+    private final int maxConcurrentRequests;
+
+    private VirtualThreadRequestExecutor(ExecutorService executorService, int maxConcurrentRequests) {
+	this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null!");
+	this.maxConcurrentRequests = maxConcurrentRequests;
+	this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    /**
+     * Says if the running JVM supports virtual threads.
+     *
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+	return getNewVirtualThreadPerTaskExecutorMethod() != null;
+    }
+
+    /**
+     * Creates the virtual thread request executor.
+     *
+     * @param maxConcurrentRequests the maximum number of requests running
+     *                              concurrently. If 0, the sum of the maximum
+     *                              active Connections of all JDBC pools is used.
+     * @return the virtual thread request executor, or null if the running JVM
+     *         does not support virtual threads
+     */
+    public static VirtualThreadRequestExecutor build(int maxConcurrentRequests) {
+	Method method = getNewVirtualThreadPerTaskExecutorMethod();
+	if (method == null) {
+	    return null;
+	}
+
+	ExecutorService executorService = null;
+	try {
+	    executorService = (ExecutorService) method.invoke(null);
+	} catch (Exception e) {
+	    return null;
+	}
+
+	if (maxConcurrentRequests <= 0) {
+	    maxConcurrentRequests = getPoolsMaxActive();
+	}
+
+	VirtualThreadRequestExecutor requestExecutor = new VirtualThreadRequestExecutor(executorService,
+		maxConcurrentRequests);
+
+	System.out.println(SqlTag.SQL_PRODUCT_START + " Loading VirtualThreadRequestExecutor:");
+	System.out.println(
+		SqlTag.SQL_PRODUCT_START + "  -> [maxConcurrentRequests: " + requestExecutor.maxConcurrentRequests + "]");
+	return requestExecutor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+	Objects.requireNonNull(command, "command cannot be null!");
+	executorService.execute(new Runnable() {
+	    @Override
+	    public void run() {
+		// Waiting here blocks only the virtual thread
+		semaphore.acquireUninterruptibly();
+		try {
+		    command.run();
+		} finally {
+		    semaphore.release();
+		}
+	    }
+	});
+    }
+
+    /**
+     * Shuts down the executor. Running requests are completed.
+     */
+    public void shutdown() {
+	executorService.shutdown();
+    }
+
+    /**
+     * @return the maximum number of requests running concurrently
+     */
+    public int getMaxConcurrentRequests() {
+	return maxConcurrentRequests;
+    }
+
+    /**
+     * @return the number of requests waiting to run
+     */
+    public int getQueueLength() {
+	return semaphore.getQueueLength();
+    }
+
+    private static Method getNewVirtualThreadPerTaskExecutorMethod() {
+	try {
+	    return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+	} catch (NoSuchMethodException | SecurityException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Returns the sum of maximum active Connections of all JDBC pools, which is
+     * the maximum number of requests that can really use a Connection at the
+     * same time.
+     */
+    private static int getPoolsMaxActive() {
+	int poolsMaxActive = 0;
+	Set<String> databases = ConfPropertiesStore.get().getDatabaseNames();
+	for (String database : databases) {
+	    DataSource dataSource = TomcatSqlModeStore.getDataSource(database);
+	    if (dataSource instanceof DataSourceProxy) {
+		poolsMaxActive += ((DataSourceProxy) dataSource).getMaxActive();
+	    }
+	}
+
+	// Pools not created by AceQL: nothing better than the thread pool default
+	return poolsMaxActive > 0 ? poolsMaxActive : ThreadPoolProperties.DEFAULT_MAXIMUM_POOL_SIZE;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.server.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@code Range} header parsing of
+ * {@link DefaultBlobDownloadConfigurator}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class DefaultBlobDownloadConfiguratorTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void closedRange() {
+	assertArrayEquals(new long[] { 0, 99 }, DefaultBlobDownloadConfigurator.parseRange("bytes=0-99", LENGTH));
+	assertArrayEquals(new long[] { 999, 999 },
+		DefaultBlobDownloadConfigurator.parseRange("bytes=999-999", LENGTH));
+    }
+
+    @Test
+    public void openRangeEndsAtLastByte() {
+	assertArrayEquals(new long[] { 500, 999 }, DefaultBlobDownloadConfigurator.parseRange("bytes=500-", LENGTH));
+    }
+
+    @Test
+    public void rangeEndIsTruncatedToLastByte() {
+	assertArrayEquals(new long[] { 900, 999 },
+		DefaultBlobDownloadConfigurator.parseRange("bytes=900-5000", LENGTH));
+    }
+
+    @Test
+    public void suffixRangeGivesLastBytes() {
+	assertArrayEquals(new long[] { 900, 999 }, DefaultBlobDownloadConfigurator.parseRange("bytes=-100", LENGTH));
+	assertArrayEquals(new long[] { 0, 999 }, DefaultBlobDownloadConfigurator.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    public void unsatisfiableRangesAreEmpty() {
+	assertEquals(0, DefaultBlobDownloadConfigurator.parseRange("bytes=1000-", LENGTH).length);
+	assertEquals(0, DefaultBlobDownloadConfigurator.parseRange("bytes=500-100", LENGTH).length);
+	assertEquals(0, DefaultBlobDownloadConfigurator.parseRange("bytes=-0", LENGTH).length);
+	assertEquals(0, DefaultBlobDownloadConfigurator.parseRange("bytes=0-", 0).length);
+    }
+
+    @Test
+    public void unsupportedRangesSendTheWholeFile() {
+	assertNull(DefaultBlobDownloadConfigurator.parseRange("bytes=0-99,200-299", LENGTH));
+	assertNull(DefaultBlobDownloadConfigurator.parseRange("items=0-99", LENGTH));
+	assertNull(DefaultBlobDownloadConfigurator.parseRange("bytes=100", LENGTH));
+	assertNull(DefaultBlobDownloadConfigurator.parseRange("bytes=a-b", LENGTH));
+    }
+
+}
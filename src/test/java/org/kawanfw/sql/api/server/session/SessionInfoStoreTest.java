@@ -0,0 +1,119 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.api.server.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the eviction of the expired sessions of {@link SessionInfoStore}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class SessionInfoStoreTest {
+
+    private static final long TIMELIFE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /** A time at which all the sessions created by the test are expired */
+    private static long afterExpiration(SessionInfo sessionInfo) {
+	return sessionInfo.getCreationTimeMillis() + TIMELIFE_MILLIS + 2 * SessionInfoStore.BUCKET_MILLIS;
+    }
+
+    @Test
+    public void expiredSessionsAreEvicted() {
+	SessionInfoStore store = new SessionInfoStore();
+	SessionInfo session1 = new SessionInfo("session1", "user1", "sampledb");
+	SessionInfo session2 = new SessionInfo("session2", "user2", "sampledb");
+	store.put(session1, true);
+	store.put(session2, true);
+
+	List<SessionInfo> evicted = new ArrayList<>();
+	store.evictExpired(afterExpiration(session2), TIMELIFE_MILLIS, evicted::add);
+
+	assertEquals(2, evicted.size());
+	assertTrue(evicted.contains(session1));
+	assertTrue(evicted.contains(session2));
+	assertEquals(0, store.size());
+	assertNull(store.get("session1"));
+	assertEquals(2, store.getEvictedCount());
+    }
+
+    @Test
+    public void liveSessionsAreNotEvicted() {
+	SessionInfoStore store = new SessionInfoStore();
+	SessionInfo session = new SessionInfo("session1", "user1", "sampledb");
+	store.put(session, true);
+
+	List<SessionInfo> evicted = new ArrayList<>();
+	store.evictExpired(session.getCreationTimeMillis() + TIMELIFE_MILLIS / 2, TIMELIFE_MILLIS, evicted::add);
+
+	assertTrue(evicted.isEmpty());
+	assertSame(session, store.get("session1"));
+	assertEquals(0, store.getEvictedCount());
+    }
+
+    @Test
+    public void notExpirableSessionsAreNotEvicted() {
+	SessionInfoStore store = new SessionInfoStore();
+	SessionInfo session = new SessionInfo("session1", "user1", "sampledb");
+	store.put(session, false);
+
+	List<SessionInfo> evicted = new ArrayList<>();
+	store.evictExpired(afterExpiration(session), TIMELIFE_MILLIS, evicted::add);
+
+	assertTrue(evicted.isEmpty());
+	assertSame(session, store.get("session1"));
+    }
+
+    @Test
+    public void removedSessionsAreNotReportedByEviction() {
+	SessionInfoStore store = new SessionInfoStore();
+	SessionInfo session1 = new SessionInfo("session1", "user1", "sampledb");
+	SessionInfo session2 = new SessionInfo("session2", "user2", "sampledb");
+	store.put(session1, true);
+	store.put(session2, true);
+	store.remove("session1");
+
+	List<SessionInfo> evicted = new ArrayList<>();
+	store.evictExpired(afterExpiration(session2), TIMELIFE_MILLIS, evicted::add);
+
+	assertEquals(1, evicted.size());
+	assertSame(session2, evicted.get(0));
+	assertEquals(1, store.getEvictedCount());
+    }
+
+    @Test
+    public void expiredSessionIsRemovedOnce() {
+	SessionInfoStore store = new SessionInfoStore();
+	SessionInfo session = new SessionInfo("session1", "user1", "sampledb");
+	store.put(session, true);
+
+	assertSame(session, store.removeExpired("session1"));
+	assertNull(store.removeExpired("session1"));
+	assertEquals(1, store.getExpiredCount());
+
+	// The eviction does not release the session a second time
+	List<SessionInfo> evicted = new ArrayList<>();
+	store.evictExpired(afterExpiration(session), TIMELIFE_MILLIS, evicted::add);
+	assertTrue(evicted.isEmpty());
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kawanfw.sql.api.server.connectionstore.ConnectionKey;
+
+/**
+ * Tests the claim of {@link ConnectionStoreEntry} by the reaper against its
+ * use by the requests.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ConnectionStoreEntryTest {
+
+    private static ConnectionStoreEntry createEntry() {
+	return new ConnectionStoreEntry(new ConnectionKey("user1", "session1", "1"), null, "sampledb");
+    }
+
+    @Test
+    public void idleEntryIsClaimedOnce() {
+	ConnectionStoreEntry entry = createEntry();
+
+	assertTrue(entry.claimIfIdle(0));
+	assertFalse(entry.claimIfIdle(0));
+    }
+
+    @Test
+    public void claimedEntryCanNotBeUsedAnymore() {
+	ConnectionStoreEntry entry = createEntry();
+	assertTrue(entry.claimIfIdle(0));
+
+	assertFalse(entry.touch());
+	assertFalse(entry.acquire());
+
+	// A reaped entry has no idle time
+	assertEquals(0, entry.getIdleNanos(System.nanoTime()));
+    }
+
+    @Test
+    public void entryInUseIsNotClaimed() {
+	ConnectionStoreEntry entry = createEntry();
+
+	assertTrue(entry.acquire());
+	assertTrue(entry.acquire());
+	assertFalse(entry.claimIfIdle(0));
+
+	entry.release();
+	assertFalse(entry.claimIfIdle(0));
+
+	entry.release();
+	assertTrue(entry.claimIfIdle(0));
+    }
+
+    @Test
+    public void recentlyUsedEntryIsNotClaimed() {
+	ConnectionStoreEntry entry = createEntry();
+	assertTrue(entry.touch());
+
+	assertFalse(entry.claimIfIdle(TimeUnit.HOURS.toNanos(1)));
+	assertTrue(entry.acquire());
+    }
+
+    @Test
+    public void idleTimeStartsOnRelease() {
+	ConnectionStoreEntry entry = createEntry();
+	assertTrue(entry.acquire());
+	entry.release();
+
+	long now = System.nanoTime();
+	long idleNanos = entry.getIdleNanos(now + TimeUnit.SECONDS.toNanos(10));
+	assertTrue(idleNanos >= TimeUnit.SECONDS.toNanos(10));
+	assertTrue(idleNanos < TimeUnit.SECONDS.toNanos(20));
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the borrow, release and eviction of {@link StatementCache}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class StatementCacheTest {
+
+    /**
+     * A statement that keeps its settings and its closed state. New statements
+     * have a query timeout of 5 seconds, as set by a pool interceptor.
+     */
+    private static class FakeStatement implements InvocationHandler {
+	private final Map<String, Integer> settings = new HashMap<>();
+	private boolean closed = false;
+	private int clearParametersCount = 0;
+
+	FakeStatement() {
+	    settings.put("QueryTimeout", 5);
+	    settings.put("FetchSize", 0);
+	    settings.put("FetchDirection", 1000);
+	    settings.put("MaxFieldSize", 0);
+	    settings.put("MaxRows", 0);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) {
+	    String name = method.getName();
+	    if (name.startsWith("get") && settings.containsKey(name.substring(3))) {
+		return settings.get(name.substring(3));
+	    } else if (name.startsWith("set") && settings.containsKey(name.substring(3))) {
+		settings.put(name.substring(3), (Integer) args[0]);
+		return null;
+	    }
+
+	    switch (name) {
+	    case "clearParameters":
+		clearParametersCount++;
+		return null;
+	    case "clearBatch":
+	    case "clearWarnings":
+		return null;
+	    case "close":
+		closed = true;
+		return null;
+	    case "isClosed":
+		return closed;
+	    default:
+		throw new UnsupportedOperationException(name);
+	    }
+	}
+    }
+
+    /**
+     * A Connection that prepares a new FakeStatement on each call.
+     */
+    private static Connection createConnection() {
+	return (Connection) Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+		new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+		    switch (method.getName()) {
+		    case "prepareStatement":
+			return Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new FakeStatement());
+		    case "prepareCall":
+			return Proxy.newProxyInstance(StatementCacheTest.class.getClassLoader(),
+				new Class<?>[] { CallableStatement.class }, new FakeStatement());
+		    default:
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+    }
+
+    private static FakeStatement fake(PreparedStatement preparedStatement) {
+	return (FakeStatement) Proxy.getInvocationHandler(preparedStatement);
+    }
+
+    @Test
+    public void releasedStatementIsBorrowedAgain() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement first = cache.prepareStatement(connection, "select * from customer where id = ?");
+	assertEquals(0, cache.size());
+
+	cache.release(first);
+	assertEquals(1, cache.size());
+	assertFalse(fake(first).closed);
+	assertEquals(1, fake(first).clearParametersCount);
+
+	PreparedStatement second = cache.prepareStatement(connection, "select * from customer where id = ?");
+	assertSame(first, second);
+	assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void statementsAreKeyedBySqlAndKind() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement preparedStatement = cache.prepareStatement(connection, "{call my_proc(?)}");
+	cache.release(preparedStatement);
+
+	CallableStatement callableStatement = cache.prepareCall(connection, "{call my_proc(?)}");
+	assertNotSame(preparedStatement, callableStatement);
+
+	PreparedStatement other = cache.prepareStatement(connection, "select 1");
+	assertNotSame(preparedStatement, other);
+	assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void concurrentBorrowersGetDistinctStatements() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement first = cache.prepareStatement(connection, "select 1");
+	PreparedStatement second = cache.prepareStatement(connection, "select 1");
+	assertNotSame(first, second);
+
+	// Only one of two identical statements is kept idle
+	cache.release(first);
+	cache.release(second);
+	assertEquals(1, cache.size());
+	assertFalse(fake(first).closed);
+	assertTrue(fake(second).closed);
+    }
+
+    @Test
+    public void releaseRestoresTheSettingsOfThePreparation() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement preparedStatement = cache.prepareStatement(connection, "select 1");
+	preparedStatement.setQueryTimeout(30);
+	preparedStatement.setMaxRows(100);
+	preparedStatement.setFetchSize(500);
+	cache.release(preparedStatement);
+
+	assertEquals(5, preparedStatement.getQueryTimeout());
+	assertEquals(0, preparedStatement.getMaxRows());
+	assertEquals(0, preparedStatement.getFetchSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(2);
+
+	PreparedStatement a = cache.prepareStatement(connection, "select a");
+	PreparedStatement b = cache.prepareStatement(connection, "select b");
+	PreparedStatement c = cache.prepareStatement(connection, "select c");
+	cache.release(a);
+	cache.release(b);
+	cache.release(c);
+
+	assertEquals(2, cache.size());
+	assertTrue(fake(a).closed);
+	assertFalse(fake(b).closed);
+	assertFalse(fake(c).closed);
+
+	assertSame(b, cache.prepareStatement(connection, "select b"));
+	assertNotSame(a, cache.prepareStatement(connection, "select a"));
+    }
+
+    @Test
+    public void statementClosedWhileIdleIsNotBorrowed() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement first = cache.prepareStatement(connection, "select 1");
+	cache.release(first);
+	fake(first).closed = true;
+
+	PreparedStatement second = cache.prepareStatement(connection, "select 1");
+	assertNotSame(first, second);
+    }
+
+    @Test
+    public void discardedStatementIsClosedAndNotCached() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement preparedStatement = cache.prepareStatement(connection, "select 1");
+	cache.discard(preparedStatement);
+
+	assertTrue(fake(preparedStatement).closed);
+	assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void closedCacheClosesItsStatements() throws SQLException {
+	Connection connection = createConnection();
+	StatementCache cache = new StatementCache(10);
+
+	PreparedStatement idle = cache.prepareStatement(connection, "select 1");
+	PreparedStatement borrowed = cache.prepareStatement(connection, "select 2");
+	cache.release(idle);
+
+	cache.close();
+	assertTrue(fake(idle).closed);
+	assertFalse(fake(borrowed).closed);
+	assertEquals(0, cache.size());
+
+	// Borrowed statements are closed on release
+	cache.release(borrowed);
+	assertTrue(fake(borrowed).closed);
+	assertEquals(0, cache.size());
+
+	try {
+	    cache.prepareStatement(connection, "select 1");
+	    fail("A closed cache must not lend statements");
+	} catch (SQLException e) {
+	    // Expected
+	}
+    }
+
+}
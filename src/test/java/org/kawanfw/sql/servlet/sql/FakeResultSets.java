@@ -0,0 +1,117 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Creates the in memory requests and ResultSets used by the result set format
+ * tests.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+class FakeResultSets {
+
+    protected FakeResultSets() {
+
+    }
+
+    /**
+     * A request with the passed parameters only.
+     */
+    static HttpServletRequest createRequest(Map<String, String> parameters) {
+	return (HttpServletRequest) Proxy.newProxyInstance(FakeResultSets.class.getClassLoader(),
+		new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+		    if (method.getName().equals("getParameter")) {
+			return parameters.get(args[0]);
+		    }
+		    return null;
+		});
+    }
+
+    /**
+     * A forward only ResultSet on the rows, with no Statement as for metadata
+     * queries.
+     *
+     * @param columnNames     the column names
+     * @param columnTypes     the column java.sql.Types
+     * @param columnTypeNames the column type names
+     * @param rows            the rows, a null value is a SQL NULL
+     */
+    static ResultSet createResultSet(String[] columnNames, int[] columnTypes, String[] columnTypeNames,
+	    Object[][] rows) {
+	ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(FakeResultSets.class.getClassLoader(),
+		new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> {
+		    switch (method.getName()) {
+		    case "getColumnCount":
+			return columnNames.length;
+		    case "getColumnName":
+		    case "getColumnLabel":
+			return columnNames[(Integer) args[0] - 1];
+		    case "getColumnType":
+			return columnTypes[(Integer) args[0] - 1];
+		    case "getColumnTypeName":
+			return columnTypeNames[(Integer) args[0] - 1];
+		    case "getTableName":
+			return "customer";
+		    default:
+			return null;
+		    }
+		});
+
+	int[] row = { 0 };
+	Object[] lastValue = { null };
+	return (ResultSet) Proxy.newProxyInstance(FakeResultSets.class.getClassLoader(),
+		new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+		    switch (method.getName()) {
+		    case "next":
+			return ++row[0] <= rows.length;
+		    case "getMetaData":
+			return meta;
+		    case "getStatement":
+		    case "close":
+			return null;
+		    case "wasNull":
+			return lastValue[0] == null;
+		    default:
+			break;
+		    }
+
+		    Object value = rows[row[0] - 1][(Integer) args[0] - 1];
+		    lastValue[0] = value;
+		    switch (method.getName()) {
+		    case "getInt":
+			return value == null ? 0 : ((Number) value).intValue();
+		    case "getLong":
+			return value == null ? 0L : ((Number) value).longValue();
+		    case "getDouble":
+			return value == null ? 0.0 : ((Number) value).doubleValue();
+		    case "getBigDecimal":
+			return value == null ? null : new BigDecimal(value.toString());
+		    case "getString":
+		    case "getNString":
+			return value == null ? null : value.toString();
+		    case "getObject":
+			return value;
+		    default:
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.kawanfw.sql.servlet.HttpParameter;
+
+/**
+ * Tests the frames and the column vectors of {@link ResultSetBinaryWriter}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResultSetBinaryWriterTest {
+
+    private static final String[] COLUMN_NAMES = { "id", "quantity", "balance", "name", "price" };
+    private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.INTEGER, Types.BIGINT, Types.VARCHAR,
+	    Types.DOUBLE };
+    private static final String[] COLUMN_TYPE_NAMES = { "INT", "INT UNSIGNED", "BIGINT UNSIGNED", "VARCHAR",
+	    "DOUBLE" };
+
+    private DataInputStream in;
+
+    /**
+     * Writes the ResultSet as ServerStatement does and returns the response.
+     */
+    private static byte[] write(Object[][] rows) throws SQLException, IOException {
+	ResultSet resultSet = FakeResultSets.createResultSet(COLUMN_NAMES, COLUMN_TYPES, COLUMN_TYPE_NAMES, rows);
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	ResultSetBinaryWriter resultSetBinaryWriter = new ResultSetBinaryWriter(
+		FakeResultSets.createRequest(
+			Collections.singletonMap(HttpParameter.RESULT_SET_FORMAT, ResultSetFormat.binary.toString())),
+		"select * from customer", out, false);
+	resultSetBinaryWriter.write(resultSet);
+	resultSetBinaryWriter.writeEnd();
+	return out.toByteArray();
+    }
+
+    /**
+     * Reads the type and the length of the next frame.
+     *
+     * @return the payload length
+     */
+    private int readFrame(byte expectedFrameType) throws IOException {
+	assertEquals(expectedFrameType, in.readByte());
+	return in.readInt();
+    }
+
+    private String readString() throws IOException {
+	byte[] bytes = new byte[in.readInt()];
+	in.readFully(bytes);
+	return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesHeaderBatchAndEndFrames() throws SQLException, IOException {
+	Object[][] rows = { { 1, 4294967295L, new BigInteger("18446744073709551615"), "Alice", 0.5 },
+		{ 2, null, null, "Alice", null }, { 3, 7L, new BigInteger("5"), "Bob", 1.5 } };
+	in = new DataInputStream(new ByteArrayInputStream(write(rows)));
+
+	byte[] magic = new byte[4];
+	in.readFully(magic);
+	assertArrayEquals("AQLB".getBytes(StandardCharsets.US_ASCII), magic);
+	assertEquals(1, in.readByte());
+
+	// Unsigned INTEGER is widened to long, unsigned BIGINT is sent as string
+	readFrame(ResultSetBinaryWriter.FRAME_HEADER);
+	assertEquals(COLUMN_NAMES.length, in.readInt());
+	byte[] expectedVectorTypes = { ResultSetBinaryWriter.VECTOR_INT, ResultSetBinaryWriter.VECTOR_LONG,
+		ResultSetBinaryWriter.VECTOR_STRING, ResultSetBinaryWriter.VECTOR_STRING,
+		ResultSetBinaryWriter.VECTOR_DOUBLE };
+	for (int i = 0; i < COLUMN_NAMES.length; i++) {
+	    assertEquals(COLUMN_NAMES[i], readString());
+	    assertEquals(COLUMN_TYPES[i], in.readInt());
+	    assertEquals(expectedVectorTypes[i], in.readByte());
+	}
+
+	readFrame(ResultSetBinaryWriter.FRAME_BATCH);
+	assertEquals(3, in.readInt());
+
+	// id: all valid
+	assertEquals(0b111, in.readByte());
+	assertEquals(1, in.readInt());
+	assertEquals(2, in.readInt());
+	assertEquals(3, in.readInt());
+
+	// quantity: row 2 is null
+	assertEquals(0b101, in.readByte());
+	assertEquals(4294967295L, in.readLong());
+	assertEquals(0, in.readLong());
+	assertEquals(7, in.readLong());
+
+	// balance: dictionary without the null value
+	assertEquals(0b101, in.readByte());
+	assertEquals(2, in.readInt());
+	assertEquals("18446744073709551615", readString());
+	assertEquals("5", readString());
+	assertEquals(0, in.readInt());
+	assertEquals(0, in.readInt());
+	assertEquals(1, in.readInt());
+
+	// name: repeated values are sent once
+	assertEquals(0b111, in.readByte());
+	assertEquals(2, in.readInt());
+	assertEquals("Alice", readString());
+	assertEquals("Bob", readString());
+	assertEquals(0, in.readInt());
+	assertEquals(0, in.readInt());
+	assertEquals(1, in.readInt());
+
+	// price: row 2 is null
+	assertEquals(0b101, in.readByte());
+	assertEquals(0.5, in.readDouble(), 0);
+	assertEquals(0.0, in.readDouble(), 0);
+	assertEquals(1.5, in.readDouble(), 0);
+
+	assertEquals(8, readFrame(ResultSetBinaryWriter.FRAME_END));
+	assertEquals(3, in.readLong());
+	assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void splitsRowsInBatchesOfBatchSize() throws SQLException, IOException {
+	int rowCount = ResultSetBinaryWriter.BATCH_SIZE + 1;
+	Object[][] rows = new Object[rowCount][];
+	for (int i = 0; i < rowCount; i++) {
+	    rows[i] = new Object[] { i, (long) i, BigInteger.valueOf(i), "name", (double) i };
+	}
+	in = new DataInputStream(new ByteArrayInputStream(write(rows)));
+	in.skipBytes(5);
+	in.skipBytes(readFrame(ResultSetBinaryWriter.FRAME_HEADER));
+
+	int length = readFrame(ResultSetBinaryWriter.FRAME_BATCH);
+	assertEquals(ResultSetBinaryWriter.BATCH_SIZE, in.readInt());
+	in.skipBytes(length - 4);
+
+	readFrame(ResultSetBinaryWriter.FRAME_BATCH);
+	assertEquals(1, in.readInt());
+	in.skipBytes(1);
+	assertEquals(ResultSetBinaryWriter.BATCH_SIZE, in.readInt());
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.kawanfw.sql.servlet.HttpParameter;
+import org.kawanfw.sql.servlet.sql.json_return.JsonUtil;
+
+/**
+ * Tests the standard and compact Json formats of {@link ResultSetWriter}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResultSetWriterTest {
+
+    private static final String[] COLUMN_NAMES = { "id", "name", "price", "balance" };
+    private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.BIGINT };
+    private static final String[] COLUMN_TYPE_NAMES = { "INT", "VARCHAR", "DECIMAL", "BIGINT UNSIGNED" };
+
+    private static ResultSet createResultSet() {
+	Object[][] rows = { { 1, "Alice", new BigDecimal("12.50"), new BigInteger("18446744073709551615") },
+		{ 2, null, null, null } };
+	return FakeResultSets.createResultSet(COLUMN_NAMES, COLUMN_TYPES, COLUMN_TYPE_NAMES, rows);
+    }
+
+    /**
+     * Writes the ResultSet as ServerStatement does.
+     */
+    private static String write(Map<String, String> parameters) throws SQLException, IOException {
+	HttpServletRequest request = FakeResultSets.createRequest(parameters);
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	JsonGenerator gen = JsonUtil.getJsonGeneratorFactory(ResultSetFormat.getFormat(request).isPrettyPrinting())
+		.createGenerator(out);
+	gen.writeStartObject().write("status", "OK");
+
+	ResultSetWriter resultSetWriter = new ResultSetWriter(request, "select * from customer", gen, false);
+	resultSetWriter.write(createResultSet());
+	gen.writeEnd();
+	gen.close();
+	return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject parse(String json) {
+	try (JsonReader reader = Json.createReader(new StringReader(json))) {
+	    return reader.readObject();
+	}
+    }
+
+    private static Map<String, String> compactParameters() {
+	return Collections.singletonMap(HttpParameter.RESULT_SET_FORMAT, ResultSetFormat.compact.toString());
+    }
+
+    @Test
+    public void standardFormatWritesNamedValuesPerRow() throws SQLException, IOException {
+	JsonObject response = parse(write(Collections.emptyMap()));
+
+	assertEquals("OK", response.getString("status"));
+	assertFalse(response.containsKey("result_set_format"));
+	assertEquals(2, response.getInt("row_count"));
+
+	JsonObject rows = response.getJsonArray("query_rows").getJsonObject(0);
+	JsonArray row1 = rows.getJsonArray("row_1");
+	assertEquals(1, row1.getJsonObject(0).getInt("id"));
+	assertEquals("Alice", row1.getJsonObject(1).getString("name"));
+	assertEquals("12.50", row1.getJsonObject(2).getString("price"));
+	assertEquals("18446744073709551615", row1.getJsonObject(3).getString("balance"));
+
+	JsonArray row2 = rows.getJsonArray("row_2");
+	assertEquals(ResultSetWriter.NULL, row2.getJsonObject(0).getString("id"));
+	assertEquals(ResultSetWriter.NULL, row2.getJsonObject(1).getString("name"));
+	assertEquals(ResultSetWriter.NULL, row2.getJsonObject(2).getString("price"));
+	assertEquals(ResultSetWriter.NULL, row2.getJsonObject(3).getString("balance"));
+    }
+
+    @Test
+    public void compactFormatWritesColumnNamesOnce() throws SQLException, IOException {
+	JsonObject response = parse(write(compactParameters()));
+
+	assertEquals("OK", response.getString("status"));
+	assertEquals("compact", response.getString("result_set_format"));
+	assertEquals(2, response.getInt("row_count"));
+
+	JsonArray columnNames = response.getJsonArray("column_names");
+	assertEquals(COLUMN_NAMES.length, columnNames.size());
+	for (int i = 0; i < COLUMN_NAMES.length; i++) {
+	    assertEquals(COLUMN_NAMES[i], columnNames.getString(i));
+	}
+
+	JsonArray rows = response.getJsonArray("query_rows");
+	assertEquals(2, rows.size());
+
+	JsonArray row1 = rows.getJsonArray(0);
+	assertEquals(1, row1.getInt(0));
+	assertEquals("Alice", row1.getString(1));
+	assertEquals("12.50", row1.getString(2));
+	assertEquals("18446744073709551615", row1.getString(3));
+
+	JsonArray row2 = rows.getJsonArray(1);
+	for (int i = 0; i < COLUMN_NAMES.length; i++) {
+	    assertEquals(ResultSetWriter.NULL, row2.getString(i));
+	}
+    }
+
+    @Test
+    public void compactFormatIsNotPrettyPrinted() throws SQLException, IOException {
+	assertFalse(write(compactParameters()).contains("\n"));
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.sql.servlet.sql.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the chunking, the commits and the failure messages of
+ * {@link BatchChunkExecutor}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class BatchChunkExecutorTest {
+
+    /**
+     * A prepared statement whose executeBatch() returns one update count per
+     * row added since the last call, and fails on the asked call.
+     */
+    private static class FakeBatch {
+	private int pendingRows = 0;
+	private int executeCount = 0;
+	private int failOnExecute = 0;
+	private int commitCount = 0;
+	private boolean autoCommit = false;
+	private SQLException failure = new SQLException("Duplicate key", "23000", 1062);
+
+	private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+		new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+		    switch (method.getName()) {
+		    case "commit":
+			commitCount++;
+			return null;
+		    case "getAutoCommit":
+			return autoCommit;
+		    default:
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+
+	private final PreparedStatement preparedStatement = (PreparedStatement) Proxy.newProxyInstance(
+		getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+		    switch (method.getName()) {
+		    case "addBatch":
+			pendingRows++;
+			return null;
+		    case "executeBatch":
+			executeCount++;
+			if (executeCount == failOnExecute) {
+			    throw failure;
+			}
+			int[] rc = new int[pendingRows];
+			Arrays.fill(rc, 1);
+			pendingRows = 0;
+			return rc;
+		    case "getConnection":
+			return connection;
+		    default:
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+
+	/** Adds the rows as ServerPreparedStatementBatch does */
+	void addRows(BatchChunkExecutor executor, int rows) throws SQLException {
+	    for (int i = 0; i < rows; i++) {
+		preparedStatement.addBatch();
+		executor.addRow();
+	    }
+	}
+    }
+
+    @Test
+    public void executesAChunkEveryChunkSizeRows() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 3, false);
+
+	batch.preparedStatement.addBatch();
+	assertFalse(executor.addRow());
+	batch.preparedStatement.addBatch();
+	assertFalse(executor.addRow());
+	batch.preparedStatement.addBatch();
+	assertTrue(executor.addRow());
+	assertEquals(1, executor.getChunkCount());
+
+	batch.addRows(executor, 4);
+	executor.executeChunk();
+
+	assertEquals(3, executor.getChunkCount());
+	assertEquals(3, batch.executeCount);
+	assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1, 1 }, executor.getUpdateCounts());
+	assertEquals(0, batch.commitCount);
+    }
+
+    @Test
+    public void doesNotExecuteAnEmptyLastChunk() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 2, false);
+
+	batch.addRows(executor, 4);
+	executor.executeChunk();
+
+	assertEquals(2, batch.executeCount);
+	assertEquals(2, executor.getChunkCount());
+	assertEquals(4, executor.getUpdateCounts().length);
+    }
+
+    @Test
+    public void executesOnceWithoutChunkSize() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 0, false);
+
+	batch.addRows(executor, 5);
+	assertEquals(0, batch.executeCount);
+
+	executor.executeChunk();
+	assertEquals(1, batch.executeCount);
+	assertEquals(1, executor.getChunkCount());
+	assertEquals(5, executor.getUpdateCounts().length);
+    }
+
+    @Test
+    public void executesAnEmptyBatchWithoutChunkSize() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 0, false);
+
+	executor.executeChunk();
+	assertEquals(1, batch.executeCount);
+	assertEquals(0, executor.getUpdateCounts().length);
+    }
+
+    @Test
+    public void commitsEachChunkWithCommitPerChunk() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 2, true);
+
+	batch.addRows(executor, 5);
+	executor.executeChunk();
+
+	assertEquals(3, batch.commitCount);
+	assertTrue(executor.isChunkCommitted());
+    }
+
+    @Test
+    public void chunkIsCommittedInAutoCommitMode() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 2, false);
+	assertFalse(executor.isChunkCommitted());
+
+	batch.autoCommit = true;
+	assertTrue(executor.isChunkCommitted());
+    }
+
+    @Test
+    public void failedChunkMessageGivesTheRowsAndTheCommitState() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	batch.failOnExecute = 2;
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 2, true);
+
+	batch.addRows(executor, 2);
+	batch.preparedStatement.addBatch();
+	executor.addRow();
+	batch.preparedStatement.addBatch();
+	try {
+	    executor.addRow();
+	    fail("The second chunk must fail");
+	} catch (SQLException e) {
+	    assertEquals("Batch chunk 2 failed for rows 3 to 4. Rows executed by previous chunks: 2 (committed)."
+		    + " Reason: Duplicate key", e.getMessage());
+	    assertEquals("23000", e.getSQLState());
+	    assertEquals(1062, e.getErrorCode());
+	    assertSame(batch.failure, e.getCause());
+	}
+
+	assertEquals(1, executor.getChunkCount());
+	assertArrayEquals(new int[] { 1, 1 }, executor.getUpdateCounts());
+    }
+
+    @Test
+    public void executedRowsStateSaysIfRowsAreNotCommitted() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 2, false);
+
+	batch.addRows(executor, 2);
+	assertEquals("Rows executed by previous chunks: 2 (not committed)", executor.getExecutedRowsState());
+
+	batch.autoCommit = true;
+	assertEquals(
+		"Rows executed by previous chunks: 2 (committed in auto-commit mode, rows of the failed chunk may be committed too)",
+		executor.getExecutedRowsState());
+    }
+
+    @Test
+    public void failureWithoutChunkSizeIsRethrownAsIs() throws SQLException {
+	FakeBatch batch = new FakeBatch();
+	batch.failOnExecute = 1;
+	BatchChunkExecutor executor = new BatchChunkExecutor(batch.preparedStatement, 0, false);
+
+	batch.addRows(executor, 3);
+	try {
+	    executor.executeChunk();
+	    fail("The batch must fail");
+	} catch (SQLException e) {
+	    assertSame(batch.failure, e);
+	}
+	assertEquals(0, executor.getChunkCount());
+    }
+
+}
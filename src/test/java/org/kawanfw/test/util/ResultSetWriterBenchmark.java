@@ -0,0 +1,260 @@
+/*
+ * Copyright (c)2023 KawanSoft S.A.S. All rights reserved.
+ * 
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file in the project's root directory.
+ *
+ * Change Date: 2026-02-21
+ *
+ * On the date above, in accordance with the Business Source License, use
+ * of this software will be governed by version 2.0 of the Apache License.
+ */
+package org.kawanfw.test.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.json.stream.JsonGenerator;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.kawanfw.sql.servlet.sql.ResultSetWriter;
+import org.kawanfw.sql.servlet.sql.json_return.JsonUtil;
+
+/**
+ * Compares the per column writer plan of ResultSetWriter with the previous per
+ * cell String round trip, on a synthetic 1M rows, 20 columns ResultSet. <br>
+ * Run with a large heap and no other load, e.g.
+ * {@code java -Xms1g -Xmx1g ResultSetWriterBenchmark}.
+ *
+ * @author Nicolas de Pomereu
+ *
+ */
+public class ResultSetWriterBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int RUNS = 5;
+
+    private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER,
+	    Types.INTEGER, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.DOUBLE,
+	    Types.DOUBLE, Types.DOUBLE, Types.DOUBLE, Types.DECIMAL, Types.DECIMAL, Types.DECIMAL, Types.VARCHAR,
+	    Types.VARCHAR, Types.VARCHAR };
+
+    private static final String[] NAMES = new String[100];
+    static {
+	for (int i = 0; i < NAMES.length; i++) {
+	    NAMES[i] = "name_" + i;
+	}
+    }
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+	for (int i = 0; i < WARMUP_RUNS; i++) {
+	    runLegacy();
+	    runPlan();
+	}
+
+	for (int i = 0; i < RUNS; i++) {
+	    System.out.println("legacy per cell : " + runLegacy());
+	    System.out.println("per column plan : " + runPlan());
+	}
+    }
+
+    private static String runPlan() throws SQLException, IOException {
+	CountingOutputStream out = new CountingOutputStream();
+	long allocated = allocatedBytes();
+	long begin = System.nanoTime();
+
+	JsonGenerator gen = JsonUtil.getJsonGeneratorFactory(true).createGenerator(out);
+	gen.writeStartObject().write("status", "OK");
+	ResultSetWriter resultSetWriter = new ResultSetWriter(createRequest(), "select * from benchmark", gen, false);
+	resultSetWriter.write(createResultSet());
+	gen.writeEnd();
+	gen.close();
+
+	return result(begin, allocated, out);
+    }
+
+    /**
+     * The previous ResultSetWriter loop: getObject(), toString(), isNumeric()
+     * and parse back, for each cell.
+     */
+    private static String runLegacy() throws SQLException {
+	CountingOutputStream out = new CountingOutputStream();
+	long allocated = allocatedBytes();
+	long begin = System.nanoTime();
+
+	JsonGenerator gen = JsonUtil.getJsonGeneratorFactory(true).createGenerator(out);
+	gen.writeStartObject().write("status", "OK");
+	gen.writeStartArray("query_rows").writeStartObject();
+
+	ResultSet resultSet = createResultSet();
+	ResultSetMetaData meta = resultSet.getMetaData();
+	String[] columnNames = new String[meta.getColumnCount()];
+	for (int i = 0; i < columnNames.length; i++) {
+	    columnNames[i] = meta.getColumnName(i + 1);
+	}
+
+	int row_count = 0;
+	while (resultSet.next()) {
+	    row_count++;
+	    gen.writeStartArray("row_" + row_count);
+	    for (int i = 1; i <= columnNames.length; i++) {
+		String columnName = columnNames[i - 1];
+		Object columnValue = resultSet.getObject(i);
+		String columnValueStr = resultSet.wasNull() ? "NULL" : columnValue.toString();
+
+		gen.writeStartObject();
+		if (StringUtils.isNumeric(columnValueStr) && columnValue instanceof Integer) {
+		    gen.write(columnName, Integer.parseInt(columnValueStr));
+		} else if (StringUtils.isNumeric(columnValueStr) && columnValue instanceof Long) {
+		    gen.write(columnName, Long.parseLong(columnValueStr));
+		} else if (StringUtils.isNumeric(columnValueStr) && columnValue instanceof BigDecimal) {
+		    gen.write(columnName, new BigDecimal(columnValueStr));
+		} else {
+		    gen.write(columnName, columnValueStr);
+		}
+		gen.writeEnd();
+	    }
+	    gen.writeEnd();
+	}
+
+	gen.writeEnd();
+	gen.writeEnd();
+	gen.write("row_count", row_count);
+	gen.writeEnd();
+	gen.close();
+
+	return result(begin, allocated, out);
+    }
+
+    private static String result(long begin, long allocated, CountingOutputStream out) {
+	long millis = (System.nanoTime() - begin) / 1_000_000;
+	long allocatedMb = (allocatedBytes() - allocated) / (1024 * 1024);
+	return millis + " ms, " + allocatedMb + " MB allocated, " + out.count / (1024 * 1024) + " MB written";
+    }
+
+    private static long allocatedBytes() {
+	java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+	if (bean instanceof com.sun.management.ThreadMXBean) {
+	    return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	return 0;
+    }
+
+    /**
+     * A request without any parameter: standard format, no column types.
+     */
+    private static HttpServletRequest createRequest() {
+	return (HttpServletRequest) Proxy.newProxyInstance(ResultSetWriterBenchmark.class.getClassLoader(),
+		new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+		    @Override
+		    public Object invoke(Object proxy, Method method, Object[] args) {
+			return null;
+		    }
+		});
+    }
+
+    /**
+     * A forward only ResultSet of ROWS rows whose values are computed from the
+     * row number.
+     */
+    private static ResultSet createResultSet() {
+	final ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(
+		ResultSetWriterBenchmark.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+		new InvocationHandler() {
+		    @Override
+		    public Object invoke(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "getColumnCount":
+			    return COLUMN_TYPES.length;
+			case "getColumnType":
+			    return COLUMN_TYPES[(Integer) args[0] - 1];
+			case "getColumnName":
+			    return "col_" + args[0];
+			case "getColumnTypeName":
+			    return "TYPE_" + COLUMN_TYPES[(Integer) args[0] - 1];
+			case "getTableName":
+			    return "benchmark";
+			default:
+			    return null;
+			}
+		    }
+		});
+
+	return (ResultSet) Proxy.newProxyInstance(ResultSetWriterBenchmark.class.getClassLoader(),
+		new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+		    private int row = 0;
+
+		    @Override
+		    public Object invoke(Object proxy, Method method, Object[] args) {
+			switch (method.getName()) {
+			case "next":
+			    return ++row <= ROWS;
+			case "getMetaData":
+			    return meta;
+			case "wasNull":
+			    return false;
+			case "getInt":
+			    return row;
+			case "getLong":
+			    return (long) row * 1000;
+			case "getDouble":
+			    return row * 0.5;
+			case "getBigDecimal":
+			    return BigDecimal.valueOf(row, 2);
+			case "getString":
+			    return NAMES[row % NAMES.length];
+			case "getObject":
+			    return getObject((Integer) args[0]);
+			default:
+			    return null;
+			}
+		    }
+
+		    private Object getObject(int columnIndex) {
+			switch (COLUMN_TYPES[columnIndex - 1]) {
+			case Types.INTEGER:
+			    return row;
+			case Types.BIGINT:
+			    return (long) row * 1000;
+			case Types.DOUBLE:
+			    return row * 0.5;
+			case Types.DECIMAL:
+			    return BigDecimal.valueOf(row, 2);
+			default:
+			    return NAMES[row % NAMES.length];
+			}
+		    }
+		});
+    }
+
+    /**
+     * Counts and discards the written bytes.
+     */
+    private static class CountingOutputStream extends OutputStream {
+	private long count = 0;
+
+	@Override
+	public void write(int b) {
+	    count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+	    count += len;
+	}
+    }
+}